@@ -0,0 +1,48 @@
+package org.juffrou.fx.serials;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a List, Set or Map field of a Java Bean whose JavaFX2 property is merged instead of replaced when the setter
+ * is called.
+ * <p>
+ * By default the setter of a proxy wraps the new collection in a new observable collection, so a bound
+ * <code>TableView</code> rebuilds all its rows. For an annotated field the setter compares the old and the new
+ * collections and fires only the differences on the observable collection the property already holds. For a list
+ * that is one change event with the removed, added and replaced rows. Map values are compared with the same matching
+ * rules as list and set elements.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface FxCollectionDiff {
+
+	/**
+	 * How the elements of the old and the new collection are matched
+	 */
+	enum Match {
+		/**
+		 * The same instance
+		 */
+		IDENTITY,
+		/**
+		 * Equal elements
+		 */
+		EQUALS,
+		/**
+		 * Elements with equal values in the bean property named by {@link FxCollectionDiff#key()}
+		 */
+		KEY
+	}
+
+	Match match() default Match.EQUALS;
+
+	/**
+	 * @return name of the element bean property used to match elements when {@link #match()} is {@link Match#KEY}
+	 */
+	String key() default "";
+}
@@ -0,0 +1,26 @@
+package org.juffrou.fx.serials;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a List field of a Java Bean whose JavaFX2 property keeps a hash index of the elements by the value of one of
+ * their bean properties.
+ * <p>
+ * The property of an annotated field is a {@link org.juffrou.fx.serials.adapter.FxIndexedListProperty}, which finds,
+ * replaces and removes elements by key without scanning the list. The index is updated from the list changes, so the
+ * key of an element must not change while it is in the list, and keys must be unique.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface FxIndexed {
+
+	/**
+	 * @return name of the element bean property that holds the key
+	 */
+	String value();
+}
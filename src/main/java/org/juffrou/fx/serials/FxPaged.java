@@ -0,0 +1,40 @@
+package org.juffrou.fx.serials;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.juffrou.fx.serials.adapter.FxListPageLoader;
+import org.juffrou.fx.serials.adapter.FxPageLoaderFactory;
+import org.juffrou.fx.serials.adapter.FxPagedList;
+
+/**
+ * Marks a List field of a Java Bean whose JavaFX2 property is a virtualized, read only list.
+ * <p>
+ * The property of an annotated field is a {@link org.juffrou.fx.serials.adapter.FxPagedListProperty}. Its list
+ * reports the total size given by a page loader and loads the elements a page at a time as they are read, keeping
+ * only the most recently used pages. By default the pages are copied from the list held by the bean; a loader
+ * factory can fetch them from elsewhere, for instance from a server. Setting a new list on the bean reloads the pages.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface FxPaged {
+
+	/**
+	 * @return number of elements per page
+	 */
+	int pageSize() default FxPagedList.DEFAULT_PAGE_SIZE;
+
+	/**
+	 * @return maximum number of pages kept in memory. It should cover the rows visible at once.
+	 */
+	int maxCachedPages() default FxPagedList.DEFAULT_MAX_CACHED_PAGES;
+
+	/**
+	 * @return creates the page loader of each property
+	 */
+	Class<? extends FxPageLoaderFactory> loader() default FxListPageLoader.Factory.class;
+}
@@ -3,17 +3,21 @@ package org.juffrou.fx.serials;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectStreamClass;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
 import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
 import org.juffrou.fx.serials.error.FxProxyInstantiationException;
 import org.juffrou.fx.serials.error.FxTransformerException;
 import org.juffrou.fx.serials.error.ObjectIsNotFxProxyException;
+import org.juffrou.fx.serials.io.FxCompression;
 import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
 import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
 import org.juffrou.fx.serials.io.FxProxyRemoverInputStream;
@@ -33,6 +37,76 @@ public class FxSerialsContext {
 	private final FxSerialsProxyBuilder proxyBuilder = new FxSerialsProxyBuilder();
 	private final FXProxyCache builderCache = new FXProxyCache();
 	private final BeanWrapperFactory bwFactory = new DefaultBeanWrapperFactory();
+	private final FxClassRegistry classRegistry;
+	private final FxCompression compression;
+
+	public FxSerialsContext() {
+		this(null);
+	}
+
+	/**
+	 * Creates a context whose streams write the class descriptors of registered classes as ids.
+	 * @param classRegistry the class registry, or null to write full class descriptors
+	 */
+	public FxSerialsContext(FxClassRegistry classRegistry) {
+		this(classRegistry, null);
+	}
+
+	/**
+	 * Creates a context whose streams are compressed.<br>
+	 * Compression applies to the streams created by the newXxxStream methods, not to the in memory
+	 * conversions of {@link #getProxy(Object)} and {@link #getOriginalBean(Object)}.
+	 * @param classRegistry the class registry, or null to write full class descriptors
+	 * @param compression the compression settings, or null to send the streams raw
+	 */
+	public FxSerialsContext(FxClassRegistry classRegistry, FxCompression compression) {
+		this.classRegistry = classRegistry;
+		this.compression = compression;
+	}
+
+	/**
+	 * Creates a stream that writes traditional Java Beans to be read as JavaFX2 Beans.
+	 * @param out the stream to write to
+	 * @return the stream, compressed if the context has compression settings
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public FxProxyCreatorOutputStream newProxyCreatorOutputStream(OutputStream out) throws IOException {
+		return new FxProxyCreatorOutputStream(compression != null ? compression.compress(out) : out, proxyBuilder,
+				builderCache, bwFactory, classRegistry);
+	}
+
+	/**
+	 * Creates a stream that reads JavaFX2 Beans.
+	 * @param in a stream written by {@link #newProxyCreatorOutputStream(OutputStream)} of a context with the same settings
+	 * @return the stream
+	 * @throws IOException if the stream header cannot be read
+	 */
+	public FxProxyCreatorInputStream newProxyCreatorInputStream(InputStream in) throws IOException {
+		return new FxProxyCreatorInputStream(compression != null ? compression.decompress(in) : in, proxyBuilder,
+				builderCache, bwFactory, classRegistry);
+	}
+
+	/**
+	 * Creates a stream that writes JavaFX2 Beans as their original beans.
+	 * @param out the stream to write to
+	 * @return the stream, compressed if the context has compression settings
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public FxProxyRemoverOutputStream newProxyRemoverOutputStream(OutputStream out) throws IOException {
+		return new FxProxyRemoverOutputStream(compression != null ? compression.compress(out) : out, proxyBuilder,
+				builderCache, bwFactory, classRegistry);
+	}
+
+	/**
+	 * Creates a stream that reads original beans.
+	 * @param in a stream written by {@link #newProxyRemoverOutputStream(OutputStream)} of a context with the same settings
+	 * @return the stream
+	 * @throws IOException if the stream header cannot be read
+	 */
+	public FxProxyRemoverInputStream newProxyRemoverInputStream(InputStream in) throws IOException {
+		return new FxProxyRemoverInputStream(compression != null ? compression.decompress(in) : in, proxyBuilder,
+				builderCache, bwFactory, classRegistry);
+	}
 
 	/**
 	 * Transforms a traditional Java Bean into a JavaFX2 Bean.
@@ -62,12 +136,12 @@ public class FxSerialsContext {
 			return bean;
 		try {
 			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos, proxyBuilder, builderCache, bwFactory);
+			FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos, proxyBuilder, builderCache, bwFactory, classRegistry);
 			out.writeObject(bean);
 			out.flush();
 			out.close();
 			
-			FxProxyCreatorInputStream fxInputStream = new FxProxyCreatorInputStream(new ByteArrayInputStream(bos.toByteArray()), proxyBuilder, builderCache, bwFactory);
+			FxProxyCreatorInputStream fxInputStream = new FxProxyCreatorInputStream(new ByteArrayInputStream(bos.toByteArray()), proxyBuilder, builderCache, bwFactory, classRegistry);
 			Object beanProxy = fxInputStream.readObject();
 			fxInputStream.close();
 			return (T) beanProxy;
@@ -102,12 +176,12 @@ public class FxSerialsContext {
 			throw new IllegalArgumentException("bean must implement FxSerialsProxy");
 		try {
 			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			FxProxyRemoverOutputStream out = new FxProxyRemoverOutputStream(bos, proxyBuilder, builderCache, bwFactory);
+			FxProxyRemoverOutputStream out = new FxProxyRemoverOutputStream(bos, proxyBuilder, builderCache, bwFactory, classRegistry);
 			out.writeObject(proxy);
 			out.flush();
 			out.close();
 			
-			FxProxyRemoverInputStream fxInputStream = new FxProxyRemoverInputStream(new ByteArrayInputStream(bos.toByteArray()), proxyBuilder, builderCache, bwFactory);
+			FxProxyRemoverInputStream fxInputStream = new FxProxyRemoverInputStream(new ByteArrayInputStream(bos.toByteArray()), proxyBuilder, builderCache, bwFactory, classRegistry);
 			return fxInputStream.readObject();
 			
 		} catch (IOException | ClassNotFoundException e) {
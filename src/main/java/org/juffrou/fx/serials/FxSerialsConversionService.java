@@ -0,0 +1,95 @@
+package org.juffrou.fx.serials;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxExecutors;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.error.FxTransformerException;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+/**
+ * Deserializes many remoting responses concurrently into JavaFX2 Beans.
+ * <p>
+ * Each response body is decoded by its own {@link FxProxyCreatorInputStream} on a separate thread, so
+ * blocking reads on slow responses do not hold up the caller. When the JDK supports virtual threads each
+ * response is decoded on a virtual thread; otherwise a bounded pool of platform threads is used.<br>
+ * All the streams share the same proxy builder and proxy cache, so a proxy class is built only once no
+ * matter how many responses need it.
+ */
+public class FxSerialsConversionService implements AutoCloseable {
+
+	private static final String THREAD_NAME_PREFIX = "fx-serials-decoder";
+
+	private final FxSerialsProxyBuilder proxyBuilder;
+	private final FXProxyCache proxyCache;
+	private final BeanWrapperFactory bwFactory;
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a service that uses virtual threads if available, or a pool with two threads per processor otherwise.
+	 */
+	public FxSerialsConversionService() {
+		this(Runtime.getRuntime().availableProcessors() * 2);
+	}
+
+	/**
+	 * Creates a service that uses virtual threads if available, or a bounded pool otherwise.
+	 * @param maxPlatformThreads size of the thread pool used when the JDK does not support virtual threads
+	 */
+	public FxSerialsConversionService(int maxPlatformThreads) {
+		this(new FxSerialsProxyBuilder(), new FXProxyCache(), new DefaultBeanWrapperFactory(),
+				FxExecutors.newBlockingTaskExecutor(maxPlatformThreads, THREAD_NAME_PREFIX));
+	}
+
+	/**
+	 * Creates a service that decodes responses with the given executor.
+	 * @param proxyBuilder builder shared by all the streams
+	 * @param proxyCache proxy class cache shared by all the streams
+	 * @param bwFactory bean wrapper factory shared by all the streams
+	 * @param executor executor where the responses are decoded. It is shut down when the service is closed.
+	 */
+	public FxSerialsConversionService(FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache,
+			BeanWrapperFactory bwFactory, ExecutorService executor) {
+		this.proxyBuilder = proxyBuilder;
+		this.proxyCache = proxyCache;
+		this.bwFactory = bwFactory;
+		this.executor = executor;
+	}
+
+	/**
+	 * Deserializes a response body into a JavaFX2 Bean.<br>
+	 * The stream is read on a thread of this service and closed when the object has been read.
+	 * @param responseBody stream written by a {@link org.juffrou.fx.serials.io.FxProxyCreatorOutputStream}
+	 * @param <T> Type of the deserialized bean
+	 * @return a future completed with the JavaFX2 Bean, or completed exceptionally with an {@link FxTransformerException}
+	 */
+	public <T> CompletableFuture<T> getProxy(InputStream responseBody) {
+		return CompletableFuture.supplyAsync(() -> readProxy(responseBody), executor);
+	}
+
+	/**
+	 * Stops accepting new responses. Responses already submitted are still decoded.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T readProxy(InputStream responseBody) {
+		try (InputStream in = responseBody;
+				FxProxyCreatorInputStream fxInputStream = new FxProxyCreatorInputStream(in, proxyBuilder, proxyCache,
+						bwFactory)) {
+			return (T) fxInputStream.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new FxTransformerException("Error deserializing response", e);
+		}
+	}
+}
@@ -47,6 +47,17 @@ public final class CollectionPropertyBuilderHelper {
 		this.setterName = setterName;
 	}
 	
+	/**
+	 * @return the return type of the getter
+	 */
+	public Class<?> getCollectionType() {
+		try {
+			return bean.getClass().getMethod(getterName).getReturnType();
+		} catch (NoSuchMethodException | SecurityException e) {
+			throw new FxPropertyCreationException("Cannot find method " + getterName, e);
+		}
+	}
+
 	public Object getCollection() {
 		
 		try {
@@ -0,0 +1,60 @@
+package org.juffrou.fx.serials.adapter;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.ObservableArray;
+import javafx.collections.ObservableFloatArray;
+import javafx.collections.ObservableIntegerArray;
+
+/**
+ * The property of an int[], float[] or double[] field of a JFXProxy instance.
+ * <p>
+ * Its value is an observable array that wraps the array of the original Java Bean, and its listeners are notified
+ * whenever an element of that array is changed, not only when the array is replaced.
+ *
+ * @param <T> Type of the observable array
+ */
+public class FxArrayProperty<T extends ObservableArray<T>> extends SimpleObjectProperty<T> {
+
+	private final InvalidationListener elementListener = observable -> fireValueChangedEvent();
+	private T observed;
+
+	public FxArrayProperty(Object bean, String name, T initialValue) {
+		super(bean, name, initialValue);
+		observe();
+	}
+
+	@Override
+	protected void invalidated() {
+		observe();
+	}
+
+	private void observe() {
+		T value = get();
+		if (value == observed)
+			return;
+		if (observed != null)
+			observed.removeListener(elementListener);
+		observed = value;
+		if (value != null)
+			value.addListener(elementListener);
+	}
+
+	/**
+	 * Returns the array to store in the original Java Bean. Called by JFXProxy instances before the bean property is
+	 * read.
+	 * @return a primitive array with the elements of the observable array, or null if the property has no value
+	 */
+	public Object getBeanArray() {
+		T value = get();
+		if (value == null)
+			return null;
+		if (value instanceof FxObservablePrimitiveArray)
+			return ((FxObservablePrimitiveArray<?, ?>) value).toBeanArray();
+		if (value instanceof ObservableIntegerArray)
+			return ((ObservableIntegerArray) value).toArray(null);
+		if (value instanceof ObservableFloatArray)
+			return ((ObservableFloatArray) value).toArray(null);
+		throw new IllegalStateException("Unsupported observable array " + value.getClass().getName());
+	}
+}
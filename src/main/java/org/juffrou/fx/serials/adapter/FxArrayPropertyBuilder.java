@@ -0,0 +1,58 @@
+package org.juffrou.fx.serials.adapter;
+
+public class FxArrayPropertyBuilder {
+
+	private CollectionPropertyBuilderHelper builderHelper;
+
+	private FxArrayPropertyBuilder() {
+		builderHelper = new CollectionPropertyBuilderHelper();
+	}
+
+	public static FxArrayPropertyBuilder create() {
+		return new FxArrayPropertyBuilder();
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public FxArrayProperty<?> build() {
+
+		Object array = builderHelper.getCollection();
+		return new FxArrayProperty(builderHelper.getBean(), builderHelper.getName(),
+				array != null ? newObservableArray(builderHelper.getCollectionType(), array) : null);
+	}
+
+	/**
+	 * @param arrayType int[], float[] or double[]
+	 * @param array array to wrap, or null
+	 * @return an observable array that wraps the array
+	 */
+	static FxObservablePrimitiveArray<?, ?> newObservableArray(Class<?> arrayType, Object array) {
+		if (arrayType == int[].class)
+			return new FxObservableIntegerArray((int[]) array);
+		if (arrayType == float[].class)
+			return new FxObservableFloatArray((float[]) array);
+		if (arrayType == double[].class)
+			return new FxObservableDoubleArray((double[]) array);
+		throw new IllegalArgumentException("No observable array for " + arrayType.getName());
+	}
+
+	public FxArrayPropertyBuilder bean(Object bean) {
+		builderHelper.setBean(bean);
+		return this;
+	}
+
+	public FxArrayPropertyBuilder name(String name) {
+		builderHelper.setName(name);
+		return this;
+	}
+
+	public FxArrayPropertyBuilder getter(String getterName) {
+		builderHelper.setGetterName(getterName);
+		return this;
+	}
+
+	public FxArrayPropertyBuilder setter(String setterName) {
+		builderHelper.setSetterName(setterName);
+		return this;
+	}
+
+}
@@ -0,0 +1,21 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.List;
+
+/**
+ * Listener called once with all the changes made together to an {@link FxObservableSet} or an
+ * {@link FxObservableMap}, by a bulk operation, a merge or a batch.
+ * <p>
+ * Set and map change listeners are called once per element, as required by ObservableSet and ObservableMap. A batch
+ * listener lets code that reacts to changes do its work once per operation instead.
+ *
+ * @param <C> Type of the changes
+ */
+@FunctionalInterface
+public interface FxBatchListener<C> {
+
+	/**
+	 * @param changes the changes, in the order they were made
+	 */
+	void onChanged(List<? extends C> changes);
+}
@@ -0,0 +1,180 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import javafx.beans.property.ListProperty;
+import javafx.beans.property.MapProperty;
+import javafx.beans.property.SetProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+import javafx.collections.ObservableSet;
+
+/**
+ * Bulk edits on the list, set and map properties of JFXProxy instances, each delivered to the listeners as one
+ * change.
+ * <p>
+ * When the property holds one of the observable collections of this package the edits are grouped with its
+ * <code>batch</code> method: a list fires one ListChangeListener change, a set or a map calls its invalidation and
+ * batch listeners once. A list property holding another ObservableList is edited on a copy which then replaces the
+ * elements with one <code>setAll</code>. Sets and maps of other types are edited in place.
+ */
+public final class FxBulkEdits {
+
+	private FxBulkEdits() {
+	}
+
+	/**
+	 * Runs edits on the list of a property, firing one change with all of them
+	 * @param property property holding the list
+	 * @param edits code that modifies the list it is given
+	 * @param <E> Type of the list elements
+	 */
+	public static <E> void batch(ListProperty<E> property, Consumer<? super List<E>> edits) {
+		ObservableList<E> list = property.get();
+		if (list instanceof FxObservableList) {
+			((FxObservableList<E>) list).batch(() -> edits.accept(list));
+		} else {
+			List<E> copy = new ArrayList<>(list);
+			edits.accept(copy);
+			list.setAll(copy);
+		}
+	}
+
+	/**
+	 * Runs edits on the set of a property, delivering all their changes together
+	 * @param property property holding the set
+	 * @param edits code that modifies the set it is given
+	 * @param <E> Type of the set elements
+	 */
+	public static <E> void batch(SetProperty<E> property, Consumer<? super ObservableSet<E>> edits) {
+		ObservableSet<E> set = property.get();
+		if (set instanceof FxObservableSet)
+			((FxObservableSet<E>) set).batch(() -> edits.accept(set));
+		else
+			edits.accept(set);
+	}
+
+	/**
+	 * Runs edits on the map of a property, delivering all their changes together
+	 * @param property property holding the map
+	 * @param edits code that modifies the map it is given
+	 * @param <K> Type of map keys
+	 * @param <V> Type of map values
+	 */
+	public static <K, V> void batch(MapProperty<K, V> property, Consumer<? super ObservableMap<K, V>> edits) {
+		ObservableMap<K, V> map = property.get();
+		if (map instanceof FxObservableMap)
+			((FxObservableMap<K, V>) map).batch(() -> edits.accept(map));
+		else
+			edits.accept(map);
+	}
+
+	/**
+	 * Replaces each element of the list of a property with the result of the operator, firing one change
+	 */
+	public static <E> void replaceAll(ListProperty<E> property, UnaryOperator<E> operator) {
+		batch(property, list -> list.replaceAll(operator));
+	}
+
+	/**
+	 * Removes the elements of the list of a property that are not in the collection, firing one change
+	 */
+	public static <E> void retainAll(ListProperty<E> property, Collection<?> retained) {
+		batch(property, list -> list.retainAll(retained));
+	}
+
+	/**
+	 * Removes the elements of the list of a property that satisfy the filter, firing one change
+	 */
+	public static <E> void removeIf(ListProperty<E> property, Predicate<? super E> filter) {
+		batch(property, list -> list.removeIf(filter));
+	}
+
+	/**
+	 * Sorts the list of a property, firing one permutation change. An {@link FxObservableList} is sorted in parallel.
+	 * @param comparator compares the elements, or null for their natural order
+	 */
+	public static <E> void sort(ListProperty<E> property, Comparator<? super E> comparator) {
+		property.get().sort(comparator);
+	}
+
+	/**
+	 * Sorts the list of a property by the value of a property of the elements, firing one permutation change.
+	 * @param propertyName name of the property of the elements to sort by. Its values must be Comparable.
+	 * @param descending true to sort from the greatest value to the least
+	 * @see FxObservableList#sortBy(String, boolean)
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <E> void sortBy(ListProperty<E> property, String propertyName, boolean descending) {
+		ObservableList<E> list = property.get();
+		if (list instanceof FxObservableList) {
+			((FxObservableList<E>) list).sortBy(propertyName, descending);
+		} else {
+			Comparator<Comparable> order = Comparator.nullsFirst(Comparator.naturalOrder());
+			Function<Object, Object> key = FxObservableList.propertyReader(propertyName);
+			FXCollections.sort(list, Comparator.comparing(e -> (Comparable) key.apply(e),
+					descending ? order.reversed() : order));
+		}
+	}
+
+	/**
+	 * Makes the set of a property hold exactly the given elements, delivering all the changes together
+	 */
+	public static <E> void setAll(SetProperty<E> property, Collection<? extends E> elements) {
+		batch(property, set -> {
+			set.retainAll(elements instanceof Set ? elements : new HashSet<>(elements));
+			set.addAll(elements);
+		});
+	}
+
+	/**
+	 * Removes the elements of the set of a property that are not in the collection, delivering all the changes
+	 * together
+	 */
+	public static <E> void retainAll(SetProperty<E> property, Collection<?> retained) {
+		batch(property, set -> set.retainAll(retained));
+	}
+
+	/**
+	 * Removes the elements of the set of a property that satisfy the filter, delivering all the changes together
+	 */
+	public static <E> void removeIf(SetProperty<E> property, Predicate<? super E> filter) {
+		batch(property, set -> set.removeIf(filter));
+	}
+
+	/**
+	 * Replaces each value of the map of a property with the result of the function, delivering all the changes
+	 * together
+	 */
+	public static <K, V> void replaceAll(MapProperty<K, V> property,
+			BiFunction<? super K, ? super V, ? extends V> function) {
+		batch(property, map -> map.replaceAll(function));
+	}
+
+	/**
+	 * Removes the entries of the map of a property whose key is not in the collection, delivering all the changes
+	 * together
+	 */
+	public static <K, V> void retainKeys(MapProperty<K, V> property, Collection<?> keys) {
+		batch(property, map -> map.keySet().retainAll(keys));
+	}
+
+	/**
+	 * Removes the entries of the map of a property that satisfy the filter, delivering all the changes together
+	 */
+	public static <K, V> void removeIf(MapProperty<K, V> property, BiPredicate<? super K, ? super V> filter) {
+		batch(property, map -> map.entrySet().removeIf(entry -> filter.test(entry.getKey(), entry.getValue())));
+	}
+}
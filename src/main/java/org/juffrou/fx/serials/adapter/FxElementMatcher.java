@@ -0,0 +1,136 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.juffrou.fx.serials.FxCollectionDiff;
+import org.juffrou.fx.serials.error.PropertyMethodException;
+
+/**
+ * Decides whether an element of the old backing collection of a property and an element of the new one stand for
+ * the same element, when the collections are merged instead of replaced.
+ * <p>
+ * Elements are matched by identity, by <code>equals</code>, or by a key taken from each element. Elements matched by
+ * key which are not equal to each other are reported as replaced.
+ *
+ * @see FxCollectionDiff
+ */
+public final class FxElementMatcher {
+
+	/**
+	 * Matches elements that are the same instance
+	 */
+	public static final FxElementMatcher IDENTITY = new FxElementMatcher(true, null);
+
+	/**
+	 * Matches elements that are equal
+	 */
+	public static final FxElementMatcher EQUALS = new FxElementMatcher(false, null);
+
+	private static final Map<String, FxElementMatcher> matchersByMode = new ConcurrentHashMap<>();
+
+	private final boolean identity;
+	private final Function<Object, ?> key;
+
+	private FxElementMatcher(boolean identity, Function<Object, ?> key) {
+		this.identity = identity;
+		this.key = key;
+	}
+
+	/**
+	 * @param key function that returns the key of an element
+	 * @return a matcher that matches elements with equal keys
+	 */
+	@SuppressWarnings("unchecked")
+	public static FxElementMatcher byKey(Function<?, ?> key) {
+		return new FxElementMatcher(false, (Function<Object, ?>) key);
+	}
+
+	/**
+	 * @param propertyName name of the bean property of the elements that holds their key
+	 * @return a matcher that matches elements with equal values in that property
+	 */
+	public static FxElementMatcher byProperty(String propertyName) {
+		Map<Class<?>, Method> getters = new ConcurrentHashMap<>();
+		return new FxElementMatcher(false, element -> {
+			Method getter = getters.computeIfAbsent(element.getClass(), c -> findGetter(c, propertyName));
+			try {
+				return getter.invoke(element);
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				throw new PropertyMethodException("Error reading key property " + propertyName + " of "
+						+ element.getClass().getName(), e);
+			}
+		});
+	}
+
+	/**
+	 * Returns the matcher for a {@link FxCollectionDiff} annotation. Called by JFXProxy instances.
+	 * @param match name of a {@link FxCollectionDiff.Match} constant
+	 * @param key key property, used when matching by key
+	 * @return a shared matcher
+	 */
+	public static FxElementMatcher forMode(String match, String key) {
+		switch (FxCollectionDiff.Match.valueOf(match)) {
+		case IDENTITY:
+			return IDENTITY;
+		case EQUALS:
+			return EQUALS;
+		default:
+			return matchersByMode.computeIfAbsent(key, FxElementMatcher::byProperty);
+		}
+	}
+
+	/**
+	 * @return true if the matched elements are compared with ==
+	 */
+	public boolean isIdentity() {
+		return identity;
+	}
+
+	/**
+	 * @param element an element, not null
+	 * @return the value elements are matched by
+	 */
+	public Object keyOf(Object element) {
+		return key != null && element != null ? key.apply(element) : element;
+	}
+
+	/**
+	 * @return true if the two values returned by {@link #keyOf(Object)} match
+	 */
+	public boolean sameKey(Object key1, Object key2) {
+		return identity ? key1 == key2 : Objects.equals(key1, key2);
+	}
+
+	/**
+	 * Tells whether two matched elements differ, so that the new one must be reported as an update of the old one.
+	 */
+	public boolean isUpdate(Object oldElement, Object newElement) {
+		return key != null && oldElement != newElement && !Objects.equals(oldElement, newElement);
+	}
+
+	/**
+	 * @return an empty map indexed by the values returned by {@link #keyOf(Object)}
+	 */
+	<V> Map<Object, V> newIndex(int expectedSize) {
+		return identity ? new IdentityHashMap<>(expectedSize) : new HashMap<>(Math.max(16, expectedSize * 4 / 3 + 1));
+	}
+
+	private static Method findGetter(Class<?> clazz, String propertyName) {
+		String suffix = Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
+		for (String prefix : new String[] { "get", "is" }) {
+			try {
+				return clazz.getMethod(prefix + suffix);
+			} catch (NoSuchMethodException e) {
+				// try the next prefix
+			}
+		}
+		throw new PropertyMethodException("Class " + clazz.getName() + " has no getter for key property " + propertyName);
+	}
+}
@@ -0,0 +1,244 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.beans.property.SimpleListProperty;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * A list property that keeps a hash index of its elements by key.
+ * <p>
+ * The index is updated from the changes of the list, including the replacement of the whole list. Lookups by key do
+ * not scan the list.<br>
+ * The elements are also kept, in list order, in a randomized binary search tree where each node counts the nodes
+ * below it, so the position of an element is found by walking from its node up to the root. A change splits the
+ * tree at the changed range and joins the new elements in, so it costs in proportion to the number of elements it
+ * adds or removes times the logarithm of the size of the list, and so does finding the position of a key. A
+ * permutation, such as a sort, rebuilds the tree.
+ *
+ * @param <E> Type of the list elements
+ * @see org.juffrou.fx.serials.FxIndexed
+ */
+public class FxIndexedListProperty<E> extends SimpleListProperty<E> {
+
+	private final FxElementMatcher keyMatcher;
+	private final Map<Object, Slot<E>> index = new HashMap<>();
+	// root of the tree of the elements in list order
+	private Slot<E> root;
+	// the two trees produced by the last split
+	private Slot<E> splitLeft;
+	private Slot<E> splitRight;
+	private int seed = 0x2545F491;
+
+	private static class Slot<E> {
+		final E element;
+		Slot<E> left;
+		Slot<E> right;
+		Slot<E> parent;
+		int size = 1;
+
+		Slot(E element) {
+			this.element = element;
+		}
+	}
+
+	/**
+	 * @param bean the bean of this property
+	 * @param name the name of this property
+	 * @param initialValue the list to index
+	 * @param keyMatcher returns the key of an element
+	 */
+	public FxIndexedListProperty(Object bean, String name, ObservableList<E> initialValue, FxElementMatcher keyMatcher) {
+		super(bean, name, initialValue);
+		this.keyMatcher = keyMatcher;
+		root = build(initialValue, 0, initialValue != null ? initialValue.size() : 0);
+		addListener((ListChangeListener<E>) this::onListChanged);
+	}
+
+	private void onListChanged(ListChangeListener.Change<? extends E> change) {
+		while (change.next()) {
+			if (change.wasPermutated()) {
+				index.clear();
+				root = build(change.getList(), 0, change.getList().size());
+			} else {
+				// the positions of a change are those of the list after the changes before it. Updated elements are
+				// indexed again, since a merge may update a row with a new instance.
+				split(root, change.getFrom());
+				Slot<E> before = splitLeft;
+				split(splitRight, change.wasUpdated() ? change.getTo() - change.getFrom() : change.getRemovedSize());
+				unindex(splitLeft);
+				Slot<E> after = splitRight;
+				root = join(join(before, build(change.getList(), change.getFrom(), change.getTo())), after);
+			}
+			if (root != null)
+				root.parent = null;
+		}
+	}
+
+	/**
+	 * Indexes the elements of a range of the list
+	 * @return the tree of the elements, balanced
+	 */
+	private Slot<E> build(List<? extends E> list, int from, int to) {
+		if (from >= to)
+			return null;
+		int middle = (from + to) >>> 1;
+		Slot<E> slot = new Slot<>(list.get(middle));
+		if (slot.element != null)
+			index.put(keyMatcher.keyOf(slot.element), slot);
+		slot.left = build(list, from, middle);
+		slot.right = build(list, middle + 1, to);
+		update(slot);
+		return slot;
+	}
+
+	/**
+	 * Removes the elements of a tree from the index
+	 */
+	private void unindex(Slot<E> tree) {
+		Deque<Slot<E>> pending = new ArrayDeque<>();
+		if (tree != null)
+			pending.push(tree);
+		while (!pending.isEmpty()) {
+			Slot<E> slot = pending.pop();
+			if (slot.element != null) {
+				Object key = keyMatcher.keyOf(slot.element);
+				if (index.get(key) == slot)
+					index.remove(key);
+			}
+			if (slot.left != null)
+				pending.push(slot.left);
+			if (slot.right != null)
+				pending.push(slot.right);
+		}
+	}
+
+	/**
+	 * Splits a tree into {@link #splitLeft}, with its first count elements, and {@link #splitRight}, with the rest
+	 */
+	private void split(Slot<E> slot, int count) {
+		if (slot == null) {
+			splitLeft = null;
+			splitRight = null;
+		} else if (size(slot.left) >= count) {
+			split(slot.left, count);
+			slot.left = splitRight;
+			update(slot);
+			splitRight = slot;
+		} else {
+			split(slot.right, count - size(slot.left) - 1);
+			slot.right = splitLeft;
+			update(slot);
+			splitLeft = slot;
+		}
+	}
+
+	/**
+	 * Joins two trees, each root being chosen with a probability proportional to its size so that the tree stays
+	 * balanced on average
+	 */
+	private Slot<E> join(Slot<E> left, Slot<E> right) {
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		seed ^= seed << 13;
+		seed ^= seed >>> 17;
+		seed ^= seed << 5;
+		if ((seed >>> 1) % (left.size + right.size) < left.size) {
+			left.right = join(left.right, right);
+			update(left);
+			return left;
+		}
+		right.left = join(left, right.left);
+		update(right);
+		return right;
+	}
+
+	private static <E> void update(Slot<E> slot) {
+		slot.size = 1 + size(slot.left) + size(slot.right);
+		if (slot.left != null)
+			slot.left.parent = slot;
+		if (slot.right != null)
+			slot.right.parent = slot;
+	}
+
+	private static int size(Slot<?> slot) {
+		return slot != null ? slot.size : 0;
+	}
+
+	/**
+	 * @return the key matcher of this property
+	 */
+	public FxElementMatcher getKeyMatcher() {
+		return keyMatcher;
+	}
+
+	/**
+	 * @param key a key
+	 * @return the element with the key, or null if there is none
+	 */
+	public E getByKey(Object key) {
+		Slot<E> slot = index.get(key);
+		return slot != null ? slot.element : null;
+	}
+
+	/**
+	 * @param key a key
+	 * @return true if the list has an element with the key
+	 */
+	public boolean containsKey(Object key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * @param key a key
+	 * @return the position of the element with the key, or -1 if there is none
+	 */
+	public int indexOfKey(Object key) {
+		Slot<E> slot = index.get(key);
+		if (slot == null)
+			return -1;
+		int position = size(slot.left);
+		for (Slot<E> s = slot; s.parent != null; s = s.parent)
+			if (s.parent.right == s)
+				position += size(s.parent.left) + 1;
+		return position;
+	}
+
+	/**
+	 * Replaces the element with the same key as the given element, or appends the element if there is none.
+	 * @param element the element to store
+	 * @return the element that was replaced, or null if the element was appended
+	 */
+	public E upsert(E element) {
+		int position = indexOfKey(keyMatcher.keyOf(element));
+		if (position < 0) {
+			add(element);
+			return null;
+		}
+		return set(position, element);
+	}
+
+	/**
+	 * Removes the element with the key.
+	 * @param key a key
+	 * @return the element that was removed, or null if there is none
+	 */
+	public E removeByKey(Object key) {
+		int position = indexOfKey(key);
+		return position < 0 ? null : remove(position);
+	}
+
+	/**
+	 * @return the number of keys in the index
+	 */
+	public int getIndexSize() {
+		return index.size();
+	}
+}
@@ -0,0 +1,56 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FxIndexedListPropertyBuilder {
+
+	private CollectionPropertyBuilderHelper builderHelper;
+	private String key;
+
+	private FxIndexedListPropertyBuilder() {
+		builderHelper = new CollectionPropertyBuilderHelper();
+	}
+
+	public static FxIndexedListPropertyBuilder create() {
+		return new FxIndexedListPropertyBuilder();
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public FxIndexedListProperty<?> build() {
+
+		List<?> collection = (List<?>) builderHelper.getCollection();
+		FxObservableList<?> ol = new FxObservableList<>(collection != null ? collection : new ArrayList<>());
+		return new FxIndexedListProperty(builderHelper.getBean(), builderHelper.getName(), ol,
+				FxElementMatcher.forMode("KEY", key));
+	}
+
+	public FxIndexedListPropertyBuilder bean(Object bean) {
+		builderHelper.setBean(bean);
+		return this;
+	}
+
+	public FxIndexedListPropertyBuilder name(String name) {
+		builderHelper.setName(name);
+		return this;
+	}
+
+	public FxIndexedListPropertyBuilder getter(String getterName) {
+		builderHelper.setGetterName(getterName);
+		return this;
+	}
+
+	public FxIndexedListPropertyBuilder setter(String setterName) {
+		builderHelper.setSetterName(setterName);
+		return this;
+	}
+
+	/**
+	 * @param key name of the element bean property that holds the key
+	 */
+	public FxIndexedListPropertyBuilder key(String key) {
+		this.key = key;
+		return this;
+	}
+
+}
@@ -0,0 +1,370 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.juffrou.fx.serials.JFXProxy;
+
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * Aggregates of one property of the elements of an observable list, such as the list properties of JFXProxy
+ * instances, kept up to date as the list and the elements change.
+ * <p>
+ * The aggregate listens to the list and to the property of each element, and applies only the values that were
+ * added, removed or changed. The element count, the sum and the count of each value are updated in constant time
+ * per change. The minimum and the maximum keep the values in a sorted map, built the first time one of them is
+ * asked for, and are updated in logarithmic time. The aggregate keeps its own copy of the elements in list order,
+ * so that a row updated with a new instance, as a merge may do, releases the old instance.<br>
+ * Integral, <code>BigInteger</code> and <code>BigDecimal</code> values are summed exactly, into a <code>long</code>
+ * or a <code>BigDecimal</code>, and other numbers with compensated summation, so the sum does not drift however
+ * many changes are applied. {@link #sumProperty()} holds the total as a double and {@link #decimalSumProperty()}
+ * as a <code>BigDecimal</code>.<br>
+ * Null elements and null values are counted by {@link #countProperty()} and {@link #countOfProperty(Object)} but
+ * are left out of the sum, the minimum and the maximum.<br>
+ * Like the list and the properties it listens to, an aggregate must be used from one thread at a time, normally the
+ * JavaFX Application Thread. Call {@link #dispose()} to stop listening.
+ *
+ * @param <E> Type of the list elements
+ * @param <V> Type of the aggregated property
+ */
+public class FxListAggregate<E, V> {
+
+	private final ObservableList<E> list;
+	private final Function<? super E, ? extends ObservableValue<? extends V>> valueOf;
+	private final ListChangeListener<E> listListener = this::onListChanged;
+	private final Map<E, TrackedElement> tracked = new IdentityHashMap<>();
+	// the elements tracked, in list order
+	private final List<E> elements = new ArrayList<>();
+	private final Map<V, ValueCount> valueCounts = new HashMap<>();
+	private TreeMap<V, ValueCount> sortedValues;
+
+	private final ReadOnlyIntegerWrapper count = new ReadOnlyIntegerWrapper(this, "count");
+	private final ReadOnlyDoubleWrapper sum = new ReadOnlyDoubleWrapper(this, "sum");
+	// the sum is kept in three parts: integral values, BigInteger and BigDecimal values with integral overflows, and
+	// the other numbers as a Neumaier compensated sum
+	private long integralSum;
+	private BigDecimal decimalSum = BigDecimal.ZERO;
+	private double floatingSum;
+	private double floatingCompensation;
+	private ReadOnlyObjectWrapper<BigDecimal> decimalSumWrapper;
+	private ReadOnlyObjectWrapper<V> min;
+	private ReadOnlyObjectWrapper<V> max;
+
+	/**
+	 * Aggregates a property of the elements of a list of JFXProxy instances
+	 * @param list list to aggregate, for example the value of a list property
+	 * @param propertyName name of the property of the elements
+	 * @param <E> Type of the list elements
+	 * @param <V> Type of the aggregated property
+	 * @return the aggregate
+	 */
+	@SuppressWarnings("unchecked")
+	public static <E, V> FxListAggregate<E, V> of(ObservableList<E> list, String propertyName) {
+		return new FxListAggregate<>(list, element -> (ObservableValue<V>) ((JFXProxy) element).getProperty(propertyName));
+	}
+
+	/**
+	 * @param list list to aggregate
+	 * @param valueOf obtains the observable value of an element to aggregate
+	 */
+	public FxListAggregate(ObservableList<E> list, Function<? super E, ? extends ObservableValue<? extends V>> valueOf) {
+		this.list = list;
+		this.valueOf = valueOf;
+		for (E element : list)
+			track(element);
+		elements.addAll(list);
+		count.set(list.size());
+		updateSum();
+		list.addListener(listListener);
+	}
+
+	/**
+	 * Stops listening to the list and to its elements
+	 */
+	public void dispose() {
+		list.removeListener(listListener);
+		for (TrackedElement element : tracked.values())
+			element.observable.removeListener(element);
+		tracked.clear();
+		elements.clear();
+	}
+
+	private void onListChanged(ListChangeListener.Change<? extends E> change) {
+		while (change.next()) {
+			int from = change.getFrom();
+			int to = change.getTo();
+			if (change.wasPermutated()) {
+				List<E> permuted = new ArrayList<>(elements.subList(from, to));
+				for (int i = from; i < to; i++)
+					permuted.set(change.getPermutation(i) - from, elements.get(i));
+				for (int i = from; i < to; i++)
+					elements.set(i, permuted.get(i - from));
+			} else if (change.wasUpdated()) {
+				for (int i = from; i < to; i++) {
+					E element = change.getList().get(i);
+					E old = elements.set(i, element);
+					if (old != element) {
+						untrack(old);
+						track(element);
+					}
+				}
+			} else {
+				List<E> removed = elements.subList(from, from + change.getRemovedSize());
+				for (E element : removed)
+					untrack(element);
+				removed.clear();
+				if (change.wasAdded()) {
+					List<? extends E> added = change.getList().subList(from, to);
+					for (E element : added)
+						track(element);
+					elements.addAll(from, added);
+				}
+			}
+		}
+		count.set(list.size());
+		updateSum();
+		updateExtremes();
+	}
+
+	private void track(E element) {
+		TrackedElement trackedElement = tracked.get(element);
+		if (trackedElement == null) {
+			if (element == null) {
+				added(null, 1);
+				return;
+			}
+			trackedElement = new TrackedElement(valueOf.apply(element));
+			tracked.put(element, trackedElement);
+			trackedElement.observable.addListener(trackedElement);
+		}
+		trackedElement.occurrences++;
+		added(trackedElement.value, 1);
+	}
+
+	private void untrack(E element) {
+		TrackedElement trackedElement = tracked.get(element);
+		if (trackedElement == null) {
+			removed(null, 1);
+			return;
+		}
+		removed(trackedElement.value, 1);
+		if (--trackedElement.occurrences == 0) {
+			trackedElement.observable.removeListener(trackedElement);
+			tracked.remove(element);
+		}
+	}
+
+	private void added(V value, int times) {
+		ValueCount valueCount = valueCounts.get(value);
+		if (valueCount == null) {
+			valueCount = new ValueCount();
+			valueCounts.put(value, valueCount);
+		}
+		if (valueCount.count == 0 && sortedValues != null && value != null)
+			sortedValues.put(value, valueCount);
+		valueCount.add(times);
+		if (value instanceof Number)
+			addToSum((Number) value, times);
+	}
+
+	private void removed(V value, int times) {
+		ValueCount valueCount = valueCounts.get(value);
+		valueCount.add(-times);
+		if (valueCount.count == 0) {
+			if (valueCount.property == null)
+				valueCounts.remove(value);
+			if (sortedValues != null && value != null)
+				sortedValues.remove(value);
+		}
+		if (value instanceof Number)
+			addToSum((Number) value, -times);
+	}
+
+	private void addToSum(Number value, int times) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+			try {
+				integralSum = Math.addExact(integralSum, Math.multiplyExact(value.longValue(), times));
+			} catch (ArithmeticException e) {
+				decimalSum = decimalSum.add(BigDecimal.valueOf(value.longValue()).multiply(BigDecimal.valueOf(times)));
+			}
+		} else if (value instanceof BigDecimal) {
+			decimalSum = decimalSum.add(((BigDecimal) value).multiply(BigDecimal.valueOf(times)));
+		} else if (value instanceof BigInteger) {
+			decimalSum = decimalSum.add(new BigDecimal(((BigInteger) value).multiply(BigInteger.valueOf(times))));
+		} else {
+			double term = value.doubleValue() * times;
+			double total = floatingSum + term;
+			if (Math.abs(floatingSum) >= Math.abs(term))
+				floatingCompensation += (floatingSum - total) + term;
+			else
+				floatingCompensation += (term - total) + floatingSum;
+			floatingSum = total;
+		}
+	}
+
+	private void updateSum() {
+		double floating = floatingSum + floatingCompensation;
+		if (decimalSum.signum() == 0)
+			sum.set(integralSum + floating);
+		else
+			sum.set(decimalSum.add(BigDecimal.valueOf(integralSum)).doubleValue() + floating);
+		if (decimalSumWrapper != null)
+			decimalSumWrapper.set(decimalSum());
+	}
+
+	private BigDecimal decimalSum() {
+		BigDecimal exact = decimalSum.add(BigDecimal.valueOf(integralSum));
+		if (floatingSum == 0 && floatingCompensation == 0)
+			return exact;
+		return exact.add(new BigDecimal(floatingSum)).add(new BigDecimal(floatingCompensation));
+	}
+
+	private void updateExtremes() {
+		if (sortedValues == null)
+			return;
+		min.set(sortedValues.isEmpty() ? null : sortedValues.firstKey());
+		max.set(sortedValues.isEmpty() ? null : sortedValues.lastKey());
+	}
+
+	/**
+	 * @return the number of elements in the list
+	 */
+	public ReadOnlyIntegerProperty countProperty() {
+		return count.getReadOnlyProperty();
+	}
+
+	public int getCount() {
+		return count.get();
+	}
+
+	/**
+	 * @return the sum of the values, which must be Numbers
+	 */
+	public ReadOnlyDoubleProperty sumProperty() {
+		return sum.getReadOnlyProperty();
+	}
+
+	public double getSum() {
+		return sum.get();
+	}
+
+	/**
+	 * @return the sum of the values, which must be Numbers, exact for integral, BigInteger and BigDecimal values
+	 */
+	public ReadOnlyObjectProperty<BigDecimal> decimalSumProperty() {
+		if (decimalSumWrapper == null)
+			decimalSumWrapper = new ReadOnlyObjectWrapper<>(this, "decimalSum", decimalSum());
+		return decimalSumWrapper.getReadOnlyProperty();
+	}
+
+	public BigDecimal getDecimalSum() {
+		return decimalSumProperty().get();
+	}
+
+	/**
+	 * @return the least value, or null if there are no values. The values must be Comparable.
+	 */
+	public ReadOnlyObjectProperty<V> minProperty() {
+		sortValues();
+		return min.getReadOnlyProperty();
+	}
+
+	public V getMin() {
+		return minProperty().get();
+	}
+
+	/**
+	 * @return the greatest value, or null if there are no values. The values must be Comparable.
+	 */
+	public ReadOnlyObjectProperty<V> maxProperty() {
+		sortValues();
+		return max.getReadOnlyProperty();
+	}
+
+	public V getMax() {
+		return maxProperty().get();
+	}
+
+	/**
+	 * @param value a value of the aggregated property, which may be null
+	 * @return the number of elements having the value
+	 */
+	public ReadOnlyIntegerProperty countOfProperty(V value) {
+		ValueCount valueCount = valueCounts.get(value);
+		if (valueCount == null) {
+			valueCount = new ValueCount();
+			valueCounts.put(value, valueCount);
+		}
+		if (valueCount.property == null)
+			valueCount.property = new ReadOnlyIntegerWrapper(this, "countOf", valueCount.count);
+		return valueCount.property.getReadOnlyProperty();
+	}
+
+	public int getCountOf(V value) {
+		ValueCount valueCount = valueCounts.get(value);
+		return valueCount != null ? valueCount.count : 0;
+	}
+
+	private void sortValues() {
+		if (sortedValues != null)
+			return;
+		sortedValues = new TreeMap<>();
+		for (Map.Entry<V, ValueCount> entry : valueCounts.entrySet())
+			if (entry.getKey() != null && entry.getValue().count > 0)
+				sortedValues.put(entry.getKey(), entry.getValue());
+		min = new ReadOnlyObjectWrapper<>(this, "min");
+		max = new ReadOnlyObjectWrapper<>(this, "max");
+		updateExtremes();
+	}
+
+	private static final class ValueCount {
+
+		int count;
+		ReadOnlyIntegerWrapper property;
+
+		void add(int times) {
+			count += times;
+			if (property != null)
+				property.set(count);
+		}
+	}
+
+	private final class TrackedElement implements ChangeListener<V> {
+
+		final ObservableValue<? extends V> observable;
+		V value;
+		int occurrences;
+
+		TrackedElement(ObservableValue<? extends V> observable) {
+			this.observable = observable;
+			this.value = observable.getValue();
+		}
+
+		@Override
+		public void changed(ObservableValue<? extends V> observable, V oldValue, V newValue) {
+			V previous = value;
+			value = newValue;
+			removed(previous, occurrences);
+			added(newValue, occurrences);
+			updateSum();
+			updateExtremes();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes the shortest edit script between two lists of element keys (Myers' O(ND) algorithm).
+ * <p>
+ * Common leading and trailing elements are skipped before the search, so the cost depends on the number of
+ * differences and not on the size of the lists.
+ */
+final class FxListDiff {
+
+	static final byte KEEP = 0;
+	static final byte REMOVE = 1;
+	static final byte ADD = 2;
+
+	/**
+	 * Edit distance above which {@link #editScript(Object[], Object[], FxElementMatcher, int)} gives up
+	 */
+	static final int DEFAULT_MAX_EDIT_DISTANCE = 1024;
+
+	private FxListDiff() {
+	}
+
+	/**
+	 * @param oldKeys keys of the old elements
+	 * @param newKeys keys of the new elements
+	 * @param matcher compares the keys
+	 * @param maxEditDistance maximum number of removed plus added elements to look for
+	 * @return one {@link #KEEP}, {@link #REMOVE} or {@link #ADD} per step from the start of both lists, or null if
+	 *         the lists differ in more than maxEditDistance elements
+	 */
+	static byte[] editScript(Object[] oldKeys, Object[] newKeys, FxElementMatcher matcher, int maxEditDistance) {
+		int oldEnd = oldKeys.length;
+		int newEnd = newKeys.length;
+		int start = 0;
+		while (start < oldEnd && start < newEnd && matcher.sameKey(oldKeys[start], newKeys[start]))
+			start++;
+		while (oldEnd > start && newEnd > start && matcher.sameKey(oldKeys[oldEnd - 1], newKeys[newEnd - 1])) {
+			oldEnd--;
+			newEnd--;
+		}
+
+		byte[] middle = middleScript(oldKeys, newKeys, start, oldEnd - start, newEnd - start, matcher, maxEditDistance);
+		if (middle == null)
+			return null;
+
+		int suffix = oldKeys.length - oldEnd;
+		byte[] script = new byte[start + middle.length + suffix];
+		System.arraycopy(middle, 0, script, start, middle.length);
+		return script; // KEEP is zero, so the prefix and the suffix are already filled in
+	}
+
+	private static byte[] middleScript(Object[] oldKeys, Object[] newKeys, int start, int n, int m,
+			FxElementMatcher matcher, int maxEditDistance) {
+		if (n == 0 || m == 0) {
+			byte[] script = new byte[n + m];
+			Arrays.fill(script, n == 0 ? ADD : REMOVE);
+			return script;
+		}
+		int maxD = Math.min(n + m, maxEditDistance);
+		int offset = maxD + 1;
+		int[] v = new int[2 * maxD + 3];
+		List<int[]> trace = new ArrayList<>();
+		for (int d = 0; d <= maxD; d++) {
+			trace.add(v.clone());
+			for (int k = -d; k <= d; k += 2) {
+				int x = (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) ? v[offset + k + 1]
+						: v[offset + k - 1] + 1;
+				int y = x - k;
+				while (x < n && y < m && matcher.sameKey(oldKeys[start + x], newKeys[start + y])) {
+					x++;
+					y++;
+				}
+				v[offset + k] = x;
+				if (x >= n && y >= m)
+					return backtrack(trace, offset, n, m, d);
+			}
+		}
+		return null;
+	}
+
+	private static byte[] backtrack(List<int[]> trace, int offset, int n, int m, int distance) {
+		byte[] script = new byte[n + m - (n + m - distance) / 2];
+		int pos = script.length;
+		int x = n;
+		int y = m;
+		for (int d = distance; d > 0; d--) {
+			int[] v = trace.get(d);
+			int k = x - y;
+			int prevK = (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) ? k + 1 : k - 1;
+			int prevX = v[offset + prevK];
+			int prevY = prevX - prevK;
+			while (x > prevX && y > prevY) {
+				script[--pos] = KEEP;
+				x--;
+				y--;
+			}
+			script[--pos] = prevK == k + 1 ? ADD : REMOVE;
+			x = prevX;
+			y = prevY;
+		}
+		// the remaining steps are the common elements matched at distance zero
+		return script;
+	}
+}
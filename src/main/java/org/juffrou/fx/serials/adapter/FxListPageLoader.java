@@ -0,0 +1,56 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Page loader that copies the pages from a list held in memory.
+ * <p>
+ * It is the default loader of {@link org.juffrou.fx.serials.FxPaged} properties, paging the list held by the bean,
+ * and a local stand-in for a remote loader in tests.
+ *
+ * @param <E> Type of the list elements
+ */
+public class FxListPageLoader<E> implements FxPageLoader<E> {
+
+	private final List<E> source;
+	private int loadCount;
+
+	/**
+	 * @param source list to page, or null for an empty list
+	 */
+	public FxListPageLoader(List<E> source) {
+		this.source = source != null ? source : Collections.<E>emptyList();
+	}
+
+	@Override
+	public int getTotalSize() {
+		return source.size();
+	}
+
+	@Override
+	public synchronized List<E> loadPage(int offset, int length) {
+		loadCount++;
+		return new ArrayList<>(source.subList(offset, offset + length));
+	}
+
+	/**
+	 * @return the number of pages loaded so far
+	 */
+	public synchronized int getLoadCount() {
+		return loadCount;
+	}
+
+	/**
+	 * Creates loaders that page the list held by the bean
+	 */
+	public static class Factory implements FxPageLoaderFactory {
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		@Override
+		public FxPageLoader<?> createLoader(Object bean, String propertyName, List<?> beanList) {
+			return new FxListPageLoader(beanList);
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.Arrays;
+
+/**
+ * Copy on write listener arrays for the observable collections of this package, so listeners can be added or
+ * removed while the changes are being delivered.
+ */
+final class FxListeners {
+
+	private FxListeners() {
+	}
+
+	static <L> L[] add(L[] listeners, L listener) {
+		if (listener == null)
+			throw new NullPointerException("listener");
+		L[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+		copy[listeners.length] = listener;
+		return copy;
+	}
+
+	static <L> L[] remove(L[] listeners, L listener) {
+		for (int i = 0; i < listeners.length; i++) {
+			if (listeners[i].equals(listener)) {
+				L[] copy = Arrays.copyOf(listeners, listeners.length - 1);
+				System.arraycopy(listeners, i + 1, copy, i, listeners.length - i - 1);
+				return copy;
+			}
+		}
+		return listeners;
+	}
+}
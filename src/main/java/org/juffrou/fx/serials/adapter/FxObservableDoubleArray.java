@@ -0,0 +1,115 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.Arrays;
+
+/**
+ * Observable array that wraps a double array of the original Java Bean without copying it.
+ * <p>
+ * JavaFX has observable arrays of int and float only. This class offers the same operations for double, without
+ * boxing the elements.
+ *
+ * @see FxObservablePrimitiveArray
+ */
+public class FxObservableDoubleArray extends FxObservablePrimitiveArray<FxObservableDoubleArray, double[]> {
+
+	/**
+	 * @param array array to wrap, or null for an empty array
+	 */
+	public FxObservableDoubleArray(double[] array) {
+		super(array);
+	}
+
+	@Override
+	protected double[] newArray(int length) {
+		return new double[length];
+	}
+
+	@Override
+	protected int length(double[] array) {
+		return array.length;
+	}
+
+	@Override
+	protected void fill(int from, int to) {
+		Arrays.fill(getArray(), from, to, 0d);
+	}
+
+	public double get(int index) {
+		rangeCheck(index + 1);
+		return getArray()[index];
+	}
+
+	public void set(int index, double value) {
+		rangeCheck(index + 1);
+		getArray()[index] = value;
+		fireChange(false, index, index + 1);
+	}
+
+	public void copyTo(int srcIndex, double[] dest, int destIndex, int length) {
+		copyToInternal(srcIndex, dest, destIndex, length);
+	}
+
+	public void copyTo(int srcIndex, FxObservableDoubleArray dest, int destIndex, int length) {
+		rangeCheck(srcIndex + length);
+		dest.set(destIndex, getArray(), srcIndex, length);
+	}
+
+	public void addAll(double... elements) {
+		addAllInternal(elements, 0, elements.length);
+	}
+
+	public void addAll(FxObservableDoubleArray src) {
+		addAllInternal(src.getArray(), 0, src.size());
+	}
+
+	public void addAll(double[] src, int srcIndex, int length) {
+		addAllInternal(src, srcIndex, length);
+	}
+
+	public void addAll(FxObservableDoubleArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		addAllInternal(src.getArray(), srcIndex, length);
+	}
+
+	public void setAll(double... elements) {
+		setAllInternal(elements, 0, elements.length);
+	}
+
+	public void setAll(double[] src, int srcIndex, int length) {
+		setAllInternal(src, srcIndex, length);
+	}
+
+	public void setAll(FxObservableDoubleArray src) {
+		setAllInternal(src.getArray(), 0, src.size());
+	}
+
+	public void setAll(FxObservableDoubleArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		setAllInternal(src.getArray(), srcIndex, length);
+	}
+
+	public void set(int destIndex, double[] src, int srcIndex, int length) {
+		setInternal(destIndex, src, srcIndex, length);
+	}
+
+	public void set(int destIndex, FxObservableDoubleArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		setInternal(destIndex, src.getArray(), srcIndex, length);
+	}
+
+	public double[] toArray(double[] dest) {
+		return toArrayInternal(0, dest, size());
+	}
+
+	public double[] toArray(int srcIndex, double[] dest, int length) {
+		return toArrayInternal(srcIndex, dest, length);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray(null));
+	}
+}
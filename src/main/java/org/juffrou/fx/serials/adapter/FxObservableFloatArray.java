@@ -0,0 +1,135 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.Arrays;
+
+import javafx.collections.ObservableFloatArray;
+
+/**
+ * Observable array that wraps a float array of the original Java Bean without copying it.
+ *
+ * @see FxObservablePrimitiveArray
+ */
+public class FxObservableFloatArray extends FxObservablePrimitiveArray<ObservableFloatArray, float[]>
+		implements ObservableFloatArray {
+
+	/**
+	 * @param array array to wrap, or null for an empty array
+	 */
+	public FxObservableFloatArray(float[] array) {
+		super(array);
+	}
+
+	@Override
+	protected float[] newArray(int length) {
+		return new float[length];
+	}
+
+	@Override
+	protected int length(float[] array) {
+		return array.length;
+	}
+
+	@Override
+	protected void fill(int from, int to) {
+		Arrays.fill(getArray(), from, to, 0f);
+	}
+
+	private static float[] elements(ObservableFloatArray src) {
+		return src instanceof FxObservableFloatArray ? ((FxObservableFloatArray) src).getArray() : src.toArray(null);
+	}
+
+	@Override
+	public float get(int index) {
+		rangeCheck(index + 1);
+		return getArray()[index];
+	}
+
+	@Override
+	public void set(int index, float value) {
+		rangeCheck(index + 1);
+		getArray()[index] = value;
+		fireChange(false, index, index + 1);
+	}
+
+	@Override
+	public void copyTo(int srcIndex, float[] dest, int destIndex, int length) {
+		copyToInternal(srcIndex, dest, destIndex, length);
+	}
+
+	@Override
+	public void copyTo(int srcIndex, ObservableFloatArray dest, int destIndex, int length) {
+		rangeCheck(srcIndex + length);
+		dest.set(destIndex, getArray(), srcIndex, length);
+	}
+
+	@Override
+	public void addAll(float... elements) {
+		addAllInternal(elements, 0, elements.length);
+	}
+
+	@Override
+	public void addAll(ObservableFloatArray src) {
+		addAllInternal(elements(src), 0, src.size());
+	}
+
+	@Override
+	public void addAll(float[] src, int srcIndex, int length) {
+		addAllInternal(src, srcIndex, length);
+	}
+
+	@Override
+	public void addAll(ObservableFloatArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		addAllInternal(elements(src), srcIndex, length);
+	}
+
+	@Override
+	public void setAll(float... elements) {
+		setAllInternal(elements, 0, elements.length);
+	}
+
+	@Override
+	public void setAll(float[] src, int srcIndex, int length) {
+		setAllInternal(src, srcIndex, length);
+	}
+
+	@Override
+	public void setAll(ObservableFloatArray src) {
+		setAllInternal(elements(src), 0, src.size());
+	}
+
+	@Override
+	public void setAll(ObservableFloatArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		setAllInternal(elements(src), srcIndex, length);
+	}
+
+	@Override
+	public void set(int destIndex, float[] src, int srcIndex, int length) {
+		setInternal(destIndex, src, srcIndex, length);
+	}
+
+	@Override
+	public void set(int destIndex, ObservableFloatArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		setInternal(destIndex, elements(src), srcIndex, length);
+	}
+
+	@Override
+	public float[] toArray(float[] dest) {
+		return toArrayInternal(0, dest, size());
+	}
+
+	@Override
+	public float[] toArray(int srcIndex, float[] dest, int length) {
+		return toArrayInternal(srcIndex, dest, length);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray(null));
+	}
+}
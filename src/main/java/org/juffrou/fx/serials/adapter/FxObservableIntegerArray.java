@@ -0,0 +1,135 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.Arrays;
+
+import javafx.collections.ObservableIntegerArray;
+
+/**
+ * Observable array that wraps an int array of the original Java Bean without copying it.
+ *
+ * @see FxObservablePrimitiveArray
+ */
+public class FxObservableIntegerArray extends FxObservablePrimitiveArray<ObservableIntegerArray, int[]>
+		implements ObservableIntegerArray {
+
+	/**
+	 * @param array array to wrap, or null for an empty array
+	 */
+	public FxObservableIntegerArray(int[] array) {
+		super(array);
+	}
+
+	@Override
+	protected int[] newArray(int length) {
+		return new int[length];
+	}
+
+	@Override
+	protected int length(int[] array) {
+		return array.length;
+	}
+
+	@Override
+	protected void fill(int from, int to) {
+		Arrays.fill(getArray(), from, to, 0);
+	}
+
+	private static int[] elements(ObservableIntegerArray src) {
+		return src instanceof FxObservableIntegerArray ? ((FxObservableIntegerArray) src).getArray() : src.toArray(null);
+	}
+
+	@Override
+	public int get(int index) {
+		rangeCheck(index + 1);
+		return getArray()[index];
+	}
+
+	@Override
+	public void set(int index, int value) {
+		rangeCheck(index + 1);
+		getArray()[index] = value;
+		fireChange(false, index, index + 1);
+	}
+
+	@Override
+	public void copyTo(int srcIndex, int[] dest, int destIndex, int length) {
+		copyToInternal(srcIndex, dest, destIndex, length);
+	}
+
+	@Override
+	public void copyTo(int srcIndex, ObservableIntegerArray dest, int destIndex, int length) {
+		rangeCheck(srcIndex + length);
+		dest.set(destIndex, getArray(), srcIndex, length);
+	}
+
+	@Override
+	public void addAll(int... elements) {
+		addAllInternal(elements, 0, elements.length);
+	}
+
+	@Override
+	public void addAll(ObservableIntegerArray src) {
+		addAllInternal(elements(src), 0, src.size());
+	}
+
+	@Override
+	public void addAll(int[] src, int srcIndex, int length) {
+		addAllInternal(src, srcIndex, length);
+	}
+
+	@Override
+	public void addAll(ObservableIntegerArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		addAllInternal(elements(src), srcIndex, length);
+	}
+
+	@Override
+	public void setAll(int... elements) {
+		setAllInternal(elements, 0, elements.length);
+	}
+
+	@Override
+	public void setAll(int[] src, int srcIndex, int length) {
+		setAllInternal(src, srcIndex, length);
+	}
+
+	@Override
+	public void setAll(ObservableIntegerArray src) {
+		setAllInternal(elements(src), 0, src.size());
+	}
+
+	@Override
+	public void setAll(ObservableIntegerArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		setAllInternal(elements(src), srcIndex, length);
+	}
+
+	@Override
+	public void set(int destIndex, int[] src, int srcIndex, int length) {
+		setInternal(destIndex, src, srcIndex, length);
+	}
+
+	@Override
+	public void set(int destIndex, ObservableIntegerArray src, int srcIndex, int length) {
+		if (srcIndex + length > src.size())
+			throw new ArrayIndexOutOfBoundsException(src.size());
+		setInternal(destIndex, elements(src), srcIndex, length);
+	}
+
+	@Override
+	public int[] toArray(int[] dest) {
+		return toArrayInternal(0, dest, size());
+	}
+
+	@Override
+	public int[] toArray(int srcIndex, int[] dest, int length) {
+		return toArrayInternal(srcIndex, dest, length);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray(null));
+	}
+}
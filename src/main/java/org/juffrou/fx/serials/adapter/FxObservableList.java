@@ -0,0 +1,322 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+import org.juffrou.fx.serials.FxCollectionDiff;
+import org.juffrou.fx.serials.core.FxPropertyAccess;
+
+import javafx.collections.ModifiableObservableListBase;
+
+/**
+ * The observable list held by the list properties of JFXProxy instances.
+ * <p>
+ * It wraps the list of the original Java Bean without copying it, like <code>FXCollections.observableList</code>,
+ * and can be merged with a new backing list, firing a single change with the differences.<br>
+ * Bulk operations (addAll, setAll, removeAll, retainAll, removeIf, replaceAll and clear) fire one change each, and
+ * {@link #batch(Runnable)} collapses any sequence of edits into one change.<br>
+ * Sorting is done in parallel on a snapshot of the elements and fires one permutation change. Sort keys are read
+ * on the calling thread and only the comparisons run on the threads of the common ForkJoin pool.
+ *
+ * @param <E> Type of the list elements
+ */
+public class FxObservableList<E> extends ModifiableObservableListBase<E> implements RandomAccess {
+
+	private List<E> backing;
+
+	/**
+	 * @param backing list to wrap. Changes made through this list are written to it.
+	 */
+	public FxObservableList(List<E> backing) {
+		this.backing = backing;
+	}
+
+	/**
+	 * @return the wrapped list
+	 */
+	public List<E> getBacking() {
+		return backing;
+	}
+
+	/**
+	 * Makes this list wrap a new backing list, firing one change with the elements that were removed, added or
+	 * replaced.
+	 * <p>
+	 * Old and new elements are matched with the matcher, in order. A matched element whose new instance is not equal
+	 * to the old one is reported as replaced, with the old instance among the removed elements. If the lists are too different to be worth
+	 * comparing element by element the change removes every old element and adds every new one.
+	 * @param newBacking the new list to wrap. It must not be the current backing list.
+	 * @param matcher decides which old and new elements are the same element
+	 */
+	public void merge(List<E> newBacking, FxElementMatcher matcher) {
+		merge(newBacking, matcher, FxListDiff.DEFAULT_MAX_EDIT_DISTANCE);
+	}
+
+	/**
+	 * @param maxEditDistance maximum number of removed plus added elements looked for before the whole list is
+	 *            replaced
+	 * @see #merge(List, FxElementMatcher)
+	 */
+	public void merge(List<E> newBacking, FxElementMatcher matcher, int maxEditDistance) {
+		List<E> oldBacking = backing;
+		if (newBacking == oldBacking)
+			throw new IllegalArgumentException("The new backing list is the current one");
+		byte[] script = FxListDiff.editScript(keys(oldBacking, matcher), keys(newBacking, matcher), matcher,
+				maxEditDistance);
+		backing = newBacking;
+		modCount++;
+		beginChange();
+		try {
+			if (script == null) {
+				if (!oldBacking.isEmpty())
+					nextRemove(0, new ArrayList<>(oldBacking));
+				if (!newBacking.isEmpty())
+					nextAdd(0, newBacking.size());
+			} else {
+				nextChanges(script, oldBacking, newBacking, matcher);
+			}
+		} finally {
+			endChange();
+		}
+	}
+
+	private void nextChanges(byte[] script, List<E> oldBacking, List<E> newBacking, FxElementMatcher matcher) {
+		int oldIndex = 0;
+		int newIndex = 0;
+		int step = 0;
+		while (step < script.length) {
+			int runEnd = step + 1;
+			while (runEnd < script.length && script[runEnd] == script[step])
+				runEnd++;
+			int run = runEnd - step;
+			switch (script[step]) {
+			case FxListDiff.KEEP:
+				for (int i = 0; i < run; i++)
+					if (matcher.isUpdate(oldBacking.get(oldIndex + i), newBacking.get(newIndex + i)))
+						nextSet(newIndex + i, oldBacking.get(oldIndex + i));
+				oldIndex += run;
+				newIndex += run;
+				break;
+			case FxListDiff.REMOVE:
+				nextRemove(newIndex, new ArrayList<>(oldBacking.subList(oldIndex, oldIndex + run)));
+				oldIndex += run;
+				break;
+			default:
+				nextAdd(newIndex, newIndex + run);
+				newIndex += run;
+			}
+			step = runEnd;
+		}
+	}
+
+	/**
+	 * Runs edits on this list, firing one change with all of them when they end. Batches may be nested.
+	 * @param edits code that modifies this list
+	 */
+	public void batch(Runnable edits) {
+		beginChange();
+		try {
+			edits.run();
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		int size = backing.size();
+		boolean[] removed = new boolean[size];
+		List<E> removedElements = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			E element = backing.get(i);
+			if (filter.test(element)) {
+				removed[i] = true;
+				removedElements.add(element);
+			}
+		}
+		if (removedElements.isEmpty())
+			return false;
+		int[] position = { 0 };
+		backing.removeIf(element -> removed[position[0]++]);
+		modCount++;
+		beginChange();
+		try {
+			int shift = 0;
+			for (int i = 0; i < size;) {
+				if (!removed[i]) {
+					i++;
+					continue;
+				}
+				int runEnd = i + 1;
+				while (runEnd < size && removed[runEnd])
+					runEnd++;
+				nextRemove(i - shift, new ArrayList<>(removedElements.subList(shift, shift + runEnd - i)));
+				shift += runEnd - i;
+				i = runEnd;
+			}
+		} finally {
+			endChange();
+		}
+		return true;
+	}
+
+	@Override
+	public void replaceAll(UnaryOperator<E> operator) {
+		beginChange();
+		try {
+			for (int i = 0, size = backing.size(); i < size; i++) {
+				E old = backing.get(i);
+				E replacement = operator.apply(old);
+				if (replacement != old) {
+					backing.set(i, replacement);
+					nextSet(i, old);
+				}
+			}
+		} finally {
+			endChange();
+		}
+	}
+
+	/**
+	 * Sorts this list with a parallel stable sort, firing one permutation change
+	 * @param comparator compares the elements, or null for their natural order. It is called from the threads of the
+	 *            common ForkJoin pool, so it must not read JavaFX properties that may not exist yet.
+	 */
+	@Override
+	public void sort(Comparator<? super E> comparator) {
+		sortBy(element -> element, comparator);
+	}
+
+	/**
+	 * Sorts this list by the value of a property of the elements, firing one permutation change. The property is
+	 * read once per element, through the generated getter of JFXProxy instances without creating their JavaFX
+	 * properties, and null values come first.
+	 * @param propertyName name of the property of the elements to sort by. Its values must be Comparable.
+	 * @param descending true to sort from the greatest value to the least
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void sortBy(String propertyName, boolean descending) {
+		Comparator<Comparable> order = Comparator.nullsFirst(Comparator.naturalOrder());
+		Function<Object, Object> property = propertyReader(propertyName);
+		sortBy(element -> (Comparable) property.apply(element), descending ? order.reversed() : order);
+	}
+
+	/**
+	 * @return a function that reads a property of an element, through {@link FxPropertyAccess#fxValue(int)} for
+	 *         JFXProxy instances and with the getter of other beans. The function is meant for one thread.
+	 */
+	static Function<Object, Object> propertyReader(String propertyName) {
+		FxElementMatcher getter = FxElementMatcher.forMode(FxCollectionDiff.Match.KEY.name(), propertyName);
+		return new Function<Object, Object>() {
+
+			// the last proxy class read, which is nearly always the only one
+			private Class<?> proxyClass;
+			private int position;
+
+			@Override
+			public Object apply(Object element) {
+				if (element == null)
+					return null;
+				if (!(element instanceof FxPropertyAccess))
+					return getter.keyOf(element);
+				if (element.getClass() != proxyClass) {
+					position = FxPropertyPath.position(element, propertyName);
+					proxyClass = element.getClass();
+				}
+				return ((FxPropertyAccess) element).fxValue(position);
+			}
+		};
+	}
+
+	/**
+	 * Sorts this list by a key of the elements with a parallel stable sort, firing one permutation change. The keys
+	 * are extracted once per element, on the calling thread, before sorting, so the key extractor may read the JavaFX
+	 * properties of the elements. Only the comparisons run in parallel.
+	 * @param keyExtractor extracts the sort key of an element
+	 * @param keyComparator compares the keys, or null for their natural order
+	 * @param <K> Type of the sort keys
+	 */
+	@SuppressWarnings("unchecked")
+	public <K> void sortBy(Function<? super E, ? extends K> keyExtractor, Comparator<? super K> keyComparator) {
+		Object[] elements = backing.toArray();
+		int size = elements.length;
+		if (size < 2)
+			return;
+		SortRow[] rows = new SortRow[size];
+		for (int i = 0; i < size; i++)
+			rows[i] = new SortRow(keyExtractor.apply((E) elements[i]), i);
+		Comparator<Object> order = keyComparator != null ? (Comparator<Object>) keyComparator
+				: (Comparator<Object>) (Comparator<?>) Comparator.naturalOrder();
+		Arrays.parallelSort(rows, (a, b) -> order.compare(a.key, b.key));
+		int[] permutation = new int[size];
+		boolean moved = false;
+		for (int i = 0; i < size; i++) {
+			permutation[rows[i].index] = i;
+			moved |= rows[i].index != i;
+		}
+		if (!moved)
+			return;
+		ListIterator<E> it = backing.listIterator();
+		for (int i = 0; i < size; i++) {
+			it.next();
+			it.set((E) elements[rows[i].index]);
+		}
+		modCount++;
+		beginChange();
+		try {
+			nextPermutation(0, size, permutation);
+		} finally {
+			endChange();
+		}
+	}
+
+	private static final class SortRow {
+
+		final Object key;
+		final int index;
+
+		SortRow(Object key, int index) {
+			this.key = key;
+			this.index = index;
+		}
+	}
+
+	private static Object[] keys(List<?> list, FxElementMatcher matcher) {
+		Object[] keys = list.toArray();
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = matcher.keyOf(keys[i]);
+		return keys;
+	}
+
+	@Override
+	public E get(int index) {
+		return backing.get(index);
+	}
+
+	@Override
+	public int size() {
+		return backing.size();
+	}
+
+	@Override
+	protected void doAdd(int index, E element) {
+		backing.add(index, element);
+	}
+
+	@Override
+	protected E doSet(int index, E element) {
+		return backing.set(index, element);
+	}
+
+	@Override
+	protected E doRemove(int index) {
+		return backing.remove(index);
+	}
+}
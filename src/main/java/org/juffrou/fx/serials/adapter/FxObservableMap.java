@@ -0,0 +1,409 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+
+import javafx.beans.InvalidationListener;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableMap;
+
+/**
+ * The observable map held by the map properties of JFXProxy instances.
+ * <p>
+ * It wraps the map of the original Java Bean without copying it, like <code>FXCollections.observableMap</code>,
+ * and can be merged with a new backing map, firing only the differences.<br>
+ * Map change listeners are called once per added, removed or replaced entry, as for any ObservableMap, but the
+ * changes made by one bulk operation (putAll, clear, a removal through a view or a merge) are delivered together
+ * when it ends, and invalidation listeners are called once for the whole operation.<br>
+ * {@link #batch(Runnable)} groups any sequence of edits in the same way, and {@link FxBatchListener}s receive all
+ * the changes of a group in one call.
+ *
+ * @param <K> Type of map keys
+ * @param <V> Type of map values
+ */
+public class FxObservableMap<K, V> extends AbstractMap<K, V> implements ObservableMap<K, V> {
+
+	private static final InvalidationListener[] NO_INVALIDATION_LISTENERS = {};
+	@SuppressWarnings("rawtypes")
+	private static final MapChangeListener[] NO_CHANGE_LISTENERS = {};
+	@SuppressWarnings("rawtypes")
+	private static final FxBatchListener[] NO_BATCH_LISTENERS = {};
+
+	private Map<K, V> backing;
+	private InvalidationListener[] invalidationListeners = NO_INVALIDATION_LISTENERS;
+	@SuppressWarnings("unchecked")
+	private MapChangeListener<? super K, ? super V>[] changeListeners = NO_CHANGE_LISTENERS;
+	@SuppressWarnings("unchecked")
+	private FxBatchListener<MapChangeListener.Change<K, V>>[] batchListeners = NO_BATCH_LISTENERS;
+	private List<EntryChange> pendingChanges;
+	private int changeDepth;
+	private Set<Map.Entry<K, V>> entrySet;
+
+	/**
+	 * @param backing map to wrap. Changes made through this map are written to it.
+	 */
+	public FxObservableMap(Map<K, V> backing) {
+		this.backing = backing;
+	}
+
+	/**
+	 * @return the wrapped map
+	 */
+	public Map<K, V> getBacking() {
+		return backing;
+	}
+
+	/**
+	 * Makes this map wrap a new backing map, firing a change for each key that was removed, added or whose value
+	 * does not match the old value.
+	 * @param newBacking the new map to wrap. It must not be the current backing map.
+	 * @param matcher decides whether the old and the new value of a key are the same value
+	 */
+	public void merge(Map<K, V> newBacking, FxElementMatcher matcher) {
+		Map<K, V> oldBacking = backing;
+		if (newBacking == oldBacking)
+			throw new IllegalArgumentException("The new backing map is the current one");
+		backing = newBacking;
+		beginChange();
+		try {
+			for (Map.Entry<K, V> entry : oldBacking.entrySet())
+				if (!newBacking.containsKey(entry.getKey()))
+					nextChange(entry.getKey(), entry.getValue(), false, null, false);
+			for (Map.Entry<K, V> entry : newBacking.entrySet()) {
+				K key = entry.getKey();
+				V newValue = entry.getValue();
+				if (!oldBacking.containsKey(key)) {
+					nextChange(key, null, false, newValue, true);
+				} else {
+					V oldValue = oldBacking.get(key);
+					if (!matcher.sameKey(matcher.keyOf(oldValue), matcher.keyOf(newValue))
+							|| matcher.isUpdate(oldValue, newValue))
+						nextChange(key, oldValue, true, newValue, true);
+				}
+			}
+		} finally {
+			endChange();
+		}
+	}
+
+	/**
+	 * Runs edits on this map, delivering all their changes together when they end. Batches may be nested.
+	 * @param edits code that modifies this map
+	 */
+	public void batch(Runnable edits) {
+		beginChange();
+		try {
+			edits.run();
+		} finally {
+			endChange();
+		}
+	}
+
+	/**
+	 * Makes this map hold exactly the given entries, removing the other keys, as one bulk operation
+	 * @param entries the new entries of the map
+	 */
+	public void setAll(Map<? extends K, ? extends V> entries) {
+		beginChange();
+		try {
+			removeIf((key, value) -> !entries.containsKey(key));
+			putAll(entries);
+		} finally {
+			endChange();
+		}
+	}
+
+	/**
+	 * Removes the entries that satisfy the filter, as one bulk operation
+	 * @param filter returns true for the entries to remove
+	 * @return true if any entry was removed
+	 */
+	public boolean removeIf(BiPredicate<? super K, ? super V> filter) {
+		beginChange();
+		try {
+			return entrySet().removeIf(entry -> filter.test(entry.getKey(), entry.getValue()));
+		} finally {
+			endChange();
+		}
+	}
+
+	/**
+	 * Removes the entries whose key is not in the given collection, as one bulk operation
+	 * @param keys the keys to keep
+	 * @return true if any entry was removed
+	 */
+	public boolean retainKeys(Collection<?> keys) {
+		return removeIf((key, value) -> !keys.contains(key));
+	}
+
+	/**
+	 * Starts collecting changes, which are delivered by the matching {@link #endChange()}. Calls may be nested.
+	 */
+	protected void beginChange() {
+		if (changeDepth++ == 0)
+			pendingChanges = new ArrayList<>();
+	}
+
+	/**
+	 * Delivers the changes collected since the outermost {@link #beginChange()}
+	 */
+	protected void endChange() {
+		if (--changeDepth > 0)
+			return;
+		List<EntryChange> changes = pendingChanges;
+		pendingChanges = null;
+		if (!changes.isEmpty())
+			fireChanges(changes);
+	}
+
+	/**
+	 * Records the change of one entry
+	 */
+	protected void nextChange(K key, V removed, boolean wasRemoved, V added, boolean wasAdded) {
+		EntryChange change = new EntryChange(key, removed, wasRemoved, added, wasAdded);
+		if (pendingChanges != null)
+			pendingChanges.add(change);
+		else
+			fireChanges(Arrays.asList(change));
+	}
+
+	/**
+	 * Calls the invalidation listeners and the batch listeners once and the map change listeners once per change
+	 * @param changes changes that were made together
+	 */
+	protected void fireChanges(List<? extends MapChangeListener.Change<K, V>> changes) {
+		for (InvalidationListener listener : invalidationListeners)
+			listener.invalidated(this);
+		MapChangeListener<? super K, ? super V>[] listeners = changeListeners;
+		for (MapChangeListener.Change<K, V> change : changes)
+			for (MapChangeListener<? super K, ? super V> listener : listeners)
+				listener.onChanged(change);
+		for (FxBatchListener<MapChangeListener.Change<K, V>> listener : batchListeners)
+			listener.onChanged(changes);
+	}
+
+	@Override
+	public int size() {
+		return backing.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return backing.isEmpty();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return backing.containsKey(key);
+	}
+
+	@Override
+	public boolean containsValue(Object value) {
+		return backing.containsValue(value);
+	}
+
+	@Override
+	public V get(Object key) {
+		return backing.get(key);
+	}
+
+	@Override
+	public V put(K key, V value) {
+		boolean replaced = backing.containsKey(key);
+		V old = backing.put(key, value);
+		nextChange(key, old, replaced, value, true);
+		return old;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V remove(Object key) {
+		if (!backing.containsKey(key))
+			return null;
+		V old = backing.remove(key);
+		nextChange((K) key, old, true, null, false);
+		return old;
+	}
+
+	@Override
+	public void putAll(Map<? extends K, ? extends V> m) {
+		beginChange();
+		try {
+			super.putAll(m);
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public void clear() {
+		beginChange();
+		try {
+			super.clear();
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+		beginChange();
+		try {
+			for (Map.Entry<K, V> entry : entrySet()) {
+				V old = entry.getValue();
+				V replacement = function.apply(entry.getKey(), old);
+				if (replacement != old)
+					entry.setValue(replacement);
+			}
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		if (entrySet == null)
+			entrySet = new EntrySet();
+		return entrySet;
+	}
+
+	@Override
+	public void addListener(InvalidationListener listener) {
+		invalidationListeners = FxListeners.add(invalidationListeners, listener);
+	}
+
+	@Override
+	public void removeListener(InvalidationListener listener) {
+		invalidationListeners = FxListeners.remove(invalidationListeners, listener);
+	}
+
+	@Override
+	public void addListener(MapChangeListener<? super K, ? super V> listener) {
+		changeListeners = FxListeners.add(changeListeners, listener);
+	}
+
+	@Override
+	public void removeListener(MapChangeListener<? super K, ? super V> listener) {
+		changeListeners = FxListeners.remove(changeListeners, listener);
+	}
+
+	/**
+	 * Adds a listener called once with all the changes made together
+	 * @param listener the listener to add
+	 */
+	public void addBatchListener(FxBatchListener<MapChangeListener.Change<K, V>> listener) {
+		batchListeners = FxListeners.add(batchListeners, listener);
+	}
+
+	/**
+	 * @param listener the listener to remove
+	 */
+	public void removeBatchListener(FxBatchListener<MapChangeListener.Change<K, V>> listener) {
+		batchListeners = FxListeners.remove(batchListeners, listener);
+	}
+
+	private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public int size() {
+			return backing.size();
+		}
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			Iterator<Map.Entry<K, V>> it = backing.entrySet().iterator();
+			return new Iterator<Map.Entry<K, V>>() {
+
+				private Map.Entry<K, V> last;
+
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public Map.Entry<K, V> next() {
+					Map.Entry<K, V> entry = it.next();
+					last = entry;
+					return new SimpleEntry<K, V>(entry) {
+
+						private static final long serialVersionUID = 1L;
+
+						@Override
+						public V setValue(V value) {
+							V old = entry.setValue(value);
+							super.setValue(value);
+							nextChange(entry.getKey(), old, true, value, true);
+							return old;
+						}
+					};
+				}
+
+				@Override
+				public void remove() {
+					K key = last.getKey();
+					V value = last.getValue();
+					it.remove();
+					nextChange(key, value, true, null, false);
+				}
+			};
+		}
+	}
+
+	private class EntryChange extends MapChangeListener.Change<K, V> {
+
+		private final K key;
+		private final V removed;
+		private final boolean wasRemoved;
+		private final V added;
+		private final boolean wasAdded;
+
+		EntryChange(K key, V removed, boolean wasRemoved, V added, boolean wasAdded) {
+			super(FxObservableMap.this);
+			this.key = key;
+			this.removed = removed;
+			this.wasRemoved = wasRemoved;
+			this.added = added;
+			this.wasAdded = wasAdded;
+		}
+
+		@Override
+		public boolean wasAdded() {
+			return wasAdded;
+		}
+
+		@Override
+		public boolean wasRemoved() {
+			return wasRemoved;
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public V getValueAdded() {
+			return added;
+		}
+
+		@Override
+		public V getValueRemoved() {
+			return removed;
+		}
+
+		@Override
+		public String toString() {
+			return key + (wasRemoved ? " removed " + removed : "") + (wasAdded ? " added " + added : "");
+		}
+	}
+}
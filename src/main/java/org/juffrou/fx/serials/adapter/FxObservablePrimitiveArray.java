@@ -0,0 +1,189 @@
+package org.juffrou.fx.serials.adapter;
+
+import javafx.collections.ObservableArray;
+import javafx.collections.ObservableArrayBase;
+
+/**
+ * Base of the observable arrays held by the array properties of JFXProxy instances.
+ * <p>
+ * The observable array wraps the primitive array of the original Java Bean without copying it, so setting an
+ * element writes straight into the bean's array. Operations that need a larger array allocate a new one, which the
+ * proxy writes back into the bean the next time the bean property is read or the proxy is serialized.
+ *
+ * @param <T> Type of the observable array
+ * @param <A> Type of the primitive array
+ */
+public abstract class FxObservablePrimitiveArray<T extends ObservableArray<T>, A> extends ObservableArrayBase<T> {
+
+	private A array;
+	private int size;
+
+	/**
+	 * @param array primitive array to wrap, or null for an empty array
+	 */
+	protected FxObservablePrimitiveArray(A array) {
+		this.array = array != null ? array : newArray(0);
+		this.size = length(this.array);
+	}
+
+	/**
+	 * @return a new primitive array
+	 */
+	protected abstract A newArray(int length);
+
+	/**
+	 * @return the length of a primitive array
+	 */
+	protected abstract int length(A array);
+
+	/**
+	 * @return the wrapped array, which can be longer than {@link #size()}
+	 */
+	public A getArray() {
+		return array;
+	}
+
+	/**
+	 * Makes this observable array wrap another primitive array, firing one change for the whole array.
+	 * @param newArray primitive array to wrap, or null for an empty array
+	 */
+	public void wrap(A newArray) {
+		if (newArray != null && newArray == array && size == length(array))
+			return;
+		int oldSize = size;
+		array = newArray != null ? newArray : newArray(0);
+		size = length(array);
+		fireChange(oldSize != size, 0, size);
+	}
+
+	/**
+	 * Returns an array with exactly the elements of this observable array. When the wrapped array has spare
+	 * capacity it is trimmed first, so the returned array stays wrapped.
+	 * @return the array to store in the bean
+	 */
+	public A toBeanArray() {
+		if (size != length(array))
+			trimToSize();
+		return array;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void resize(int newSize) {
+		if (newSize < 0)
+			throw new NegativeArraySizeException("Can't resize to negative value: " + newSize);
+		ensureCapacity(newSize);
+		int oldSize = size;
+		size = newSize;
+		if (newSize > oldSize)
+			fill(oldSize, newSize);
+		fireChange(oldSize != newSize, Math.min(oldSize, newSize), Math.max(oldSize, newSize));
+	}
+
+	/**
+	 * Sets the elements in the range to zero
+	 */
+	protected abstract void fill(int from, int to);
+
+	@Override
+	public void ensureCapacity(int capacity) {
+		int length = length(array);
+		if (length < capacity) {
+			A grown = newArray(Math.max(capacity, Math.min(Integer.MAX_VALUE - 8, length + (length >> 1))));
+			System.arraycopy(array, 0, grown, 0, size);
+			array = grown;
+		}
+	}
+
+	@Override
+	public void trimToSize() {
+		if (length(array) != size) {
+			A trimmed = newArray(size);
+			System.arraycopy(array, 0, trimmed, 0, size);
+			array = trimmed;
+		}
+	}
+
+	@Override
+	public void clear() {
+		resize(0);
+	}
+
+	/**
+	 * Appends elements of a primitive array
+	 */
+	protected void addAllInternal(A src, int srcIndex, int length) {
+		rangeCheck(src, srcIndex, length);
+		ensureCapacity(size + length);
+		System.arraycopy(src, srcIndex, array, size, length);
+		size += length;
+		fireChange(length > 0, size - length, size);
+	}
+
+	/**
+	 * Replaces all the elements with elements of a primitive array
+	 */
+	protected void setAllInternal(A src, int srcIndex, int length) {
+		rangeCheck(src, srcIndex, length);
+		boolean sizeChanged = size != length;
+		if (src == array && srcIndex == 0) {
+			size = length;
+		} else {
+			if (length(array) < length) {
+				A replaced = newArray(length);
+				System.arraycopy(src, srcIndex, replaced, 0, length);
+				array = replaced;
+			} else {
+				System.arraycopy(src, srcIndex, array, 0, length);
+			}
+			size = length;
+		}
+		fireChange(sizeChanged, 0, size);
+	}
+
+	/**
+	 * Overwrites a range of elements with elements of a primitive array
+	 */
+	protected void setInternal(int destIndex, A src, int srcIndex, int length) {
+		rangeCheck(src, srcIndex, length);
+		rangeCheck(destIndex + length);
+		System.arraycopy(src, srcIndex, array, destIndex, length);
+		fireChange(false, destIndex, destIndex + length);
+	}
+
+	/**
+	 * Copies a range of elements into a primitive array
+	 */
+	protected void copyToInternal(int srcIndex, A dest, int destIndex, int length) {
+		rangeCheck(srcIndex + length);
+		System.arraycopy(array, srcIndex, dest, destIndex, length);
+	}
+
+	/**
+	 * Copies a range of elements into a primitive array, allocating it if it is null or too short
+	 */
+	protected A toArrayInternal(int srcIndex, A dest, int length) {
+		rangeCheck(srcIndex + length);
+		if (dest == null || length(dest) < length)
+			dest = newArray(length);
+		System.arraycopy(array, srcIndex, dest, 0, length);
+		return dest;
+	}
+
+	/**
+	 * @throws ArrayIndexOutOfBoundsException if end is greater than {@link #size()}
+	 */
+	protected void rangeCheck(int end) {
+		if (end > size)
+			throw new ArrayIndexOutOfBoundsException(size);
+	}
+
+	private void rangeCheck(A src, int srcIndex, int length) {
+		if (srcIndex < 0 || length < 0 || srcIndex + length > length(src))
+			throw new ArrayIndexOutOfBoundsException(length(src));
+	}
+}
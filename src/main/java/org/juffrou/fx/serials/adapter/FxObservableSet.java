@@ -0,0 +1,358 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import javafx.beans.InvalidationListener;
+import javafx.collections.ObservableSet;
+import javafx.collections.SetChangeListener;
+
+/**
+ * The observable set held by the set properties of JFXProxy instances.
+ * <p>
+ * It wraps the set of the original Java Bean without copying it, like <code>FXCollections.observableSet</code>,
+ * and can be merged with a new backing set, firing only the differences.<br>
+ * Set change listeners are called once per added or removed element, as for any ObservableSet, but the changes
+ * made by one bulk operation (addAll, removeAll, retainAll, removeIf, clear or a merge) are delivered together
+ * when it ends, and invalidation listeners are called once for the whole operation.<br>
+ * {@link #batch(Runnable)} groups any sequence of edits in the same way, and {@link FxBatchListener}s receive all
+ * the changes of a group in one call.
+ *
+ * @param <E> Type of the set elements
+ */
+public class FxObservableSet<E> extends AbstractSet<E> implements ObservableSet<E> {
+
+	private static final InvalidationListener[] NO_INVALIDATION_LISTENERS = {};
+	@SuppressWarnings("rawtypes")
+	private static final SetChangeListener[] NO_CHANGE_LISTENERS = {};
+	@SuppressWarnings("rawtypes")
+	private static final FxBatchListener[] NO_BATCH_LISTENERS = {};
+
+	private Set<E> backing;
+	private InvalidationListener[] invalidationListeners = NO_INVALIDATION_LISTENERS;
+	@SuppressWarnings("unchecked")
+	private SetChangeListener<? super E>[] changeListeners = NO_CHANGE_LISTENERS;
+	@SuppressWarnings("unchecked")
+	private FxBatchListener<SetChangeListener.Change<E>>[] batchListeners = NO_BATCH_LISTENERS;
+	private List<ElementChange> pendingChanges;
+	private int changeDepth;
+
+	/**
+	 * @param backing set to wrap. Changes made through this set are written to it.
+	 */
+	public FxObservableSet(Set<E> backing) {
+		this.backing = backing;
+	}
+
+	/**
+	 * @return the wrapped set
+	 */
+	public Set<E> getBacking() {
+		return backing;
+	}
+
+	/**
+	 * Makes this set wrap a new backing set, firing a removal for each old element that has no match in the new set
+	 * and an addition for each new element that has no match in the old set. Elements matched by key that are not
+	 * equal are reported as removed and added again.
+	 * @param newBacking the new set to wrap. It must not be the current backing set.
+	 * @param matcher decides which old and new elements are the same element
+	 */
+	public void merge(Set<E> newBacking, FxElementMatcher matcher) {
+		Set<E> oldBacking = backing;
+		if (newBacking == oldBacking)
+			throw new IllegalArgumentException("The new backing set is the current one");
+		Map<Object, E> oldIndex = index(oldBacking, matcher);
+		Map<Object, E> newIndex = index(newBacking, matcher);
+		backing = newBacking;
+		beginChange();
+		try {
+			for (E element : oldBacking)
+				if (!hasMatch(newIndex, element, matcher))
+					nextChange(element, false);
+			for (E element : newBacking)
+				if (!hasMatch(oldIndex, element, matcher))
+					nextChange(element, true);
+		} finally {
+			endChange();
+		}
+	}
+
+	/**
+	 * Runs edits on this set, delivering all their changes together when they end. Batches may be nested.
+	 * @param edits code that modifies this set
+	 */
+	public void batch(Runnable edits) {
+		beginChange();
+		try {
+			edits.run();
+		} finally {
+			endChange();
+		}
+	}
+
+	/**
+	 * Makes this set hold exactly the given elements, removing the others, as one bulk operation
+	 * @param elements the new elements of the set
+	 * @return true if the set changed
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean setAll(Collection<? extends E> elements) {
+		Set<Object> retained = elements instanceof Set ? (Set<Object>) (Set<?>) elements : new HashSet<>(elements);
+		beginChange();
+		try {
+			boolean changed = removeIf(element -> !retained.contains(element));
+			return addAll(elements) || changed;
+		} finally {
+			endChange();
+		}
+	}
+
+	private static <E> Map<Object, E> index(Set<E> set, FxElementMatcher matcher) {
+		Map<Object, E> index = matcher.newIndex(set.size());
+		for (E element : set)
+			index.put(matcher.keyOf(element), element);
+		return index;
+	}
+
+	private static <E> boolean hasMatch(Map<Object, E> index, E element, FxElementMatcher matcher) {
+		Object key = matcher.keyOf(element);
+		E match = index.get(key);
+		if (match == null && !index.containsKey(key))
+			return false;
+		return !matcher.isUpdate(match, element);
+	}
+
+	/**
+	 * Starts collecting changes, which are delivered by the matching {@link #endChange()}. Calls may be nested.
+	 */
+	protected void beginChange() {
+		if (changeDepth++ == 0)
+			pendingChanges = new ArrayList<>();
+	}
+
+	/**
+	 * Delivers the changes collected since the outermost {@link #beginChange()}
+	 */
+	protected void endChange() {
+		if (--changeDepth > 0)
+			return;
+		List<ElementChange> changes = pendingChanges;
+		pendingChanges = null;
+		if (!changes.isEmpty())
+			fireChanges(changes);
+	}
+
+	/**
+	 * Records the addition or removal of one element
+	 */
+	protected void nextChange(E element, boolean added) {
+		ElementChange change = new ElementChange(element, added);
+		if (pendingChanges != null)
+			pendingChanges.add(change);
+		else
+			fireChanges(Arrays.asList(change));
+	}
+
+	/**
+	 * Calls the invalidation listeners and the batch listeners once and the set change listeners once per change
+	 * @param changes changes that were made together
+	 */
+	protected void fireChanges(List<? extends SetChangeListener.Change<E>> changes) {
+		for (InvalidationListener listener : invalidationListeners)
+			listener.invalidated(this);
+		SetChangeListener<? super E>[] listeners = changeListeners;
+		for (SetChangeListener.Change<E> change : changes)
+			for (SetChangeListener<? super E> listener : listeners)
+				listener.onChanged(change);
+		for (FxBatchListener<SetChangeListener.Change<E>> listener : batchListeners)
+			listener.onChanged(changes);
+	}
+
+	@Override
+	public int size() {
+		return backing.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return backing.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return backing.contains(o);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		Iterator<E> it = backing.iterator();
+		return new Iterator<E>() {
+
+			private E last;
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public E next() {
+				return last = it.next();
+			}
+
+			@Override
+			public void remove() {
+				it.remove();
+				nextChange(last, false);
+			}
+		};
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (!backing.add(e))
+			return false;
+		nextChange(e, true);
+		return true;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean remove(Object o) {
+		if (!backing.remove(o))
+			return false;
+		nextChange((E) o, false);
+		return true;
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		beginChange();
+		try {
+			return super.addAll(c);
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		beginChange();
+		try {
+			return super.removeAll(c);
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		beginChange();
+		try {
+			return super.retainAll(c);
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public boolean removeIf(Predicate<? super E> filter) {
+		beginChange();
+		try {
+			return super.removeIf(filter);
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public void clear() {
+		beginChange();
+		try {
+			super.clear();
+		} finally {
+			endChange();
+		}
+	}
+
+	@Override
+	public void addListener(InvalidationListener listener) {
+		invalidationListeners = FxListeners.add(invalidationListeners, listener);
+	}
+
+	@Override
+	public void removeListener(InvalidationListener listener) {
+		invalidationListeners = FxListeners.remove(invalidationListeners, listener);
+	}
+
+	@Override
+	public void addListener(SetChangeListener<? super E> listener) {
+		changeListeners = FxListeners.add(changeListeners, listener);
+	}
+
+	@Override
+	public void removeListener(SetChangeListener<? super E> listener) {
+		changeListeners = FxListeners.remove(changeListeners, listener);
+	}
+
+	/**
+	 * Adds a listener called once with all the changes made together
+	 * @param listener the listener to add
+	 */
+	public void addBatchListener(FxBatchListener<SetChangeListener.Change<E>> listener) {
+		batchListeners = FxListeners.add(batchListeners, listener);
+	}
+
+	/**
+	 * @param listener the listener to remove
+	 */
+	public void removeBatchListener(FxBatchListener<SetChangeListener.Change<E>> listener) {
+		batchListeners = FxListeners.remove(batchListeners, listener);
+	}
+
+	private class ElementChange extends SetChangeListener.Change<E> {
+
+		private final E element;
+		private final boolean added;
+
+		ElementChange(E element, boolean added) {
+			super(FxObservableSet.this);
+			this.element = element;
+			this.added = added;
+		}
+
+		@Override
+		public boolean wasAdded() {
+			return added;
+		}
+
+		@Override
+		public boolean wasRemoved() {
+			return !added;
+		}
+
+		@Override
+		public E getElementAdded() {
+			return added ? element : null;
+		}
+
+		@Override
+		public E getElementRemoved() {
+			return added ? null : element;
+		}
+
+		@Override
+		public String toString() {
+			return (added ? "added " : "removed ") + element;
+		}
+	}
+}
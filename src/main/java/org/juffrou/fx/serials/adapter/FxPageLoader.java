@@ -0,0 +1,24 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.List;
+
+/**
+ * Supplies the elements of a {@link FxPagedList} one page at a time.
+ *
+ * @param <E> Type of the list elements
+ */
+public interface FxPageLoader<E> {
+
+	/**
+	 * @return the number of elements of the whole list
+	 */
+	int getTotalSize();
+
+	/**
+	 * Loads a range of elements. Called on the thread that reads the list, or on the load executor of the list.
+	 * @param offset position of the first element
+	 * @param length number of elements, never past the total size
+	 * @return the elements of the range
+	 */
+	List<E> loadPage(int offset, int length);
+}
@@ -0,0 +1,19 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.List;
+
+/**
+ * Creates the page loader of a List property annotated with {@link org.juffrou.fx.serials.FxPaged}.
+ * <p>
+ * Implementations must have a public no-arg constructor. One instance is shared by all the properties that name it.
+ */
+public interface FxPageLoaderFactory {
+
+	/**
+	 * @param bean the JFXProxy instance that owns the property
+	 * @param propertyName name of the property
+	 * @param beanList the list currently held by the bean, or null
+	 * @return the loader of the property's pages
+	 */
+	FxPageLoader<?> createLoader(Object bean, String propertyName, List<?> beanList);
+}
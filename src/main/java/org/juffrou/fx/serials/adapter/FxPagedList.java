@@ -0,0 +1,191 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * A read only ObservableList whose elements are loaded a page at a time, when they are read.
+ * <p>
+ * The list reports the total size given by its {@link FxPageLoader} but keeps only the most recently read pages in
+ * memory. A <code>TableView</code> reads only the rows it shows, so as it scrolls the pages of the visible rows are
+ * loaded and the pages that scrolled out of view are evicted once more than the maximum number of pages is cached.
+ * <p>
+ * Without a load executor a page is loaded by the thread that reads one of its elements. With a load executor the
+ * read returns null, the page is loaded on the executor and, when it arrives, the list fires an update of its rows
+ * on the dispatcher, normally the FX application thread. All the other methods must be called on that thread.
+ *
+ * @param <E> Type of the list elements
+ */
+public class FxPagedList<E> extends ObservableListBase<E> {
+
+	private static final Logger logger = LoggerFactory.getLogger(FxPagedList.class);
+
+	public static final int DEFAULT_PAGE_SIZE = 100;
+	public static final int DEFAULT_MAX_CACHED_PAGES = 10;
+
+	private final int pageSize;
+	private final Executor loadExecutor;
+	private final Executor dispatcher;
+	private final Map<Integer, List<E>> pages;
+	private final Set<Integer> loading = new HashSet<>();
+	private FxPageLoader<E> loader;
+	private int size;
+	private int generation;
+
+	/**
+	 * Creates a list that loads its pages on the thread that reads them.
+	 * @param loader supplies the pages
+	 * @param pageSize number of elements per page
+	 * @param maxCachedPages maximum number of pages kept in memory
+	 */
+	public FxPagedList(FxPageLoader<E> loader, int pageSize, int maxCachedPages) {
+		this(loader, pageSize, maxCachedPages, null, null);
+	}
+
+	/**
+	 * Creates a list that loads its pages in the background.
+	 * @param loader supplies the pages
+	 * @param pageSize number of elements per page
+	 * @param maxCachedPages maximum number of pages kept in memory
+	 * @param loadExecutor runs the loader, or null to load on the reading thread
+	 * @param dispatcher delivers the loaded pages, normally on the FX application thread
+	 */
+	public FxPagedList(FxPageLoader<E> loader, int pageSize, int maxCachedPages, Executor loadExecutor,
+			Executor dispatcher) {
+		if (pageSize < 1 || maxCachedPages < 1)
+			throw new IllegalArgumentException("pageSize and maxCachedPages must be greater than zero");
+		if (loadExecutor != null && dispatcher == null)
+			throw new IllegalArgumentException("A background loader needs a dispatcher");
+		this.pageSize = pageSize;
+		this.loadExecutor = loadExecutor;
+		this.dispatcher = dispatcher;
+		this.pages = new LinkedHashMap<Integer, List<E>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, List<E>> eldest) {
+				return size() > maxCachedPages;
+			}
+		};
+		this.loader = loader;
+		this.size = loader.getTotalSize();
+	}
+
+	@Override
+	public E get(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		int page = index / pageSize;
+		List<E> elements = pages.get(page);
+		if (elements == null) {
+			if (loadExecutor != null) {
+				requestPage(page);
+				return null;
+			}
+			elements = loader.loadPage(page * pageSize, Math.min(pageSize, size - page * pageSize));
+			pages.put(page, elements);
+		}
+		int offset = index - page * pageSize;
+		return offset < elements.size() ? elements.get(offset) : null;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private void requestPage(int page) {
+		if (!loading.add(page))
+			return;
+		int loadGeneration = generation;
+		FxPageLoader<E> pageLoader = loader;
+		int offset = page * pageSize;
+		int length = Math.min(pageSize, size - offset);
+		loadExecutor.execute(() -> {
+			List<E> elements;
+			try {
+				elements = pageLoader.loadPage(offset, length);
+			} catch (RuntimeException e) {
+				logger.warn("Error loading page " + page + ": " + e.getMessage(), e);
+				elements = null;
+			}
+			List<E> loaded = elements;
+			dispatcher.execute(() -> pageLoaded(loadGeneration, page, loaded));
+		});
+	}
+
+	private void pageLoaded(int loadGeneration, int page, List<E> elements) {
+		if (loadGeneration != generation)
+			return; // the list was reloaded meanwhile
+		loading.remove(page);
+		if (elements == null)
+			return;
+		pages.put(page, elements);
+		int from = page * pageSize;
+		int to = Math.min(size, from + elements.size());
+		beginChange();
+		for (int i = from; i < to; i++)
+			nextUpdate(i);
+		endChange();
+	}
+
+	/**
+	 * Drops the cached pages and reads the total size again.
+	 */
+	public void refresh() {
+		setLoader(loader);
+	}
+
+	/**
+	 * Replaces the loader, dropping the cached pages. Listeners receive one change that replaces all the rows: the
+	 * old rows are removed (as nulls, since their elements are not kept) and the new rows are added. A single
+	 * replacement costs listeners the same for any size, where an update per row would have them walk every row.
+	 * @param newLoader supplies the pages from now on
+	 */
+	public void setLoader(FxPageLoader<E> newLoader) {
+		loader = newLoader;
+		generation++;
+		pages.clear();
+		loading.clear();
+		int oldSize = size;
+		size = newLoader.getTotalSize();
+		beginChange();
+		nextRemove(0, Collections.<E>nCopies(oldSize, null));
+		nextAdd(0, size);
+		endChange();
+	}
+
+	public FxPageLoader<E> getLoader() {
+		return loader;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * @return the number of pages held in memory
+	 */
+	public int getCachedPageCount() {
+		return pages.size();
+	}
+
+	/**
+	 * @param index position of an element
+	 * @return true if the page of the element is held in memory
+	 */
+	public boolean isLoaded(int index) {
+		return pages.containsKey(index / pageSize);
+	}
+}
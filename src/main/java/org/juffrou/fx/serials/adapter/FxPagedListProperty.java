@@ -0,0 +1,43 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.List;
+
+import javafx.beans.property.SimpleListProperty;
+
+/**
+ * The property of a List field annotated with {@link org.juffrou.fx.serials.FxPaged}. Its value is a
+ * {@link FxPagedList}, so the elements are loaded from its page loader as they are shown instead of being held by
+ * the property.
+ *
+ * @param <E> Type of the list elements
+ */
+public class FxPagedListProperty<E> extends SimpleListProperty<E> {
+
+	private final FxPagedList<E> pagedList;
+	private final FxPageLoaderFactory loaderFactory;
+
+	/**
+	 * @param bean the bean of this property
+	 * @param name the name of this property
+	 * @param pagedList the value of this property
+	 * @param loaderFactory creates a new loader when the bean is given a new list
+	 */
+	public FxPagedListProperty(Object bean, String name, FxPagedList<E> pagedList, FxPageLoaderFactory loaderFactory) {
+		super(bean, name, pagedList);
+		this.pagedList = pagedList;
+		this.loaderFactory = loaderFactory;
+	}
+
+	public FxPagedList<E> getPagedList() {
+		return pagedList;
+	}
+
+	/**
+	 * Makes the paged list load its pages from a loader created for a new bean list.
+	 * @param beanList the list now held by the bean, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public void reload(List<?> beanList) {
+		pagedList.setLoader((FxPageLoader<E>) loaderFactory.createLoader(getBean(), getName(), beanList));
+	}
+}
@@ -0,0 +1,90 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.juffrou.fx.serials.error.FxPropertyCreationException;
+
+public class FxPagedListPropertyBuilder {
+
+	private static final Map<Class<?>, FxPageLoaderFactory> factories = new ConcurrentHashMap<>();
+
+	private CollectionPropertyBuilderHelper builderHelper;
+	private int pageSize = FxPagedList.DEFAULT_PAGE_SIZE;
+	private int maxCachedPages = FxPagedList.DEFAULT_MAX_CACHED_PAGES;
+	private String loaderFactoryName = FxListPageLoader.Factory.class.getName();
+
+	private FxPagedListPropertyBuilder() {
+		builderHelper = new CollectionPropertyBuilderHelper();
+	}
+
+	public static FxPagedListPropertyBuilder create() {
+		return new FxPagedListPropertyBuilder();
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public FxPagedListProperty<?> build() {
+
+		Object bean = builderHelper.getBean();
+		FxPageLoaderFactory factory = factory(bean.getClass().getClassLoader());
+		List<?> collection = (List<?>) builderHelper.getCollection();
+		FxPageLoader<?> loader = factory.createLoader(bean, builderHelper.getName(), collection);
+		return new FxPagedListProperty(bean, builderHelper.getName(), new FxPagedList(loader, pageSize, maxCachedPages),
+				factory);
+	}
+
+	private FxPageLoaderFactory factory(ClassLoader classLoader) {
+		try {
+			Class<?> factoryClass = Class.forName(loaderFactoryName, true, classLoader);
+			return factories.computeIfAbsent(factoryClass, c -> {
+				try {
+					return (FxPageLoaderFactory) c.newInstance();
+				} catch (InstantiationException | IllegalAccessException e) {
+					throw new FxPropertyCreationException("Cannot instantiate page loader factory " + c.getName(), e);
+				}
+			});
+		} catch (ClassNotFoundException e) {
+			throw new FxPropertyCreationException("Cannot find page loader factory " + loaderFactoryName, e);
+		}
+	}
+
+	public FxPagedListPropertyBuilder bean(Object bean) {
+		builderHelper.setBean(bean);
+		return this;
+	}
+
+	public FxPagedListPropertyBuilder name(String name) {
+		builderHelper.setName(name);
+		return this;
+	}
+
+	public FxPagedListPropertyBuilder getter(String getterName) {
+		builderHelper.setGetterName(getterName);
+		return this;
+	}
+
+	public FxPagedListPropertyBuilder setter(String setterName) {
+		builderHelper.setSetterName(setterName);
+		return this;
+	}
+
+	public FxPagedListPropertyBuilder pageSize(int pageSize) {
+		this.pageSize = pageSize;
+		return this;
+	}
+
+	public FxPagedListPropertyBuilder maxCachedPages(int maxCachedPages) {
+		this.maxCachedPages = maxCachedPages;
+		return this;
+	}
+
+	/**
+	 * @param loaderFactoryName name of a {@link FxPageLoaderFactory} class
+	 */
+	public FxPagedListPropertyBuilder loader(String loaderFactoryName) {
+		this.loaderFactoryName = loaderFactoryName;
+		return this;
+	}
+
+}
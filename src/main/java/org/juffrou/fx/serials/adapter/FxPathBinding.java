@@ -0,0 +1,106 @@
+package org.juffrou.fx.serials.adapter;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.WeakInvalidationListener;
+import javafx.beans.binding.ObjectBinding;
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+/**
+ * Binding to the value at the end of an {@link FxPropertyPath}.
+ * <p>
+ * The binding listens to the root and to the property of every step of the path. When a bean along the path is
+ * replaced, the properties of the steps after it are obtained again from the new bean and the listeners are moved to
+ * them. Like the bindings of <code>Bindings.select</code>, it listens through weak listeners, so it does not keep
+ * itself alive through the beans it observes; {@link #dispose()} removes the listeners at once.
+ *
+ * @param <T> Type of the value at the end of the path
+ */
+public class FxPathBinding<T> extends ObjectBinding<T> {
+
+	private final FxPropertyPath<T> path;
+	private final ObservableValue<?> root;
+	private final Object rootBean;
+	private final ReadOnlyProperty<?>[] properties;
+	private final InvalidationListener[] listeners;
+	private final WeakInvalidationListener[] weakListeners;
+
+	FxPathBinding(FxPropertyPath<T> path, ObservableValue<?> root, Object rootBean) {
+		this.path = path;
+		this.root = root;
+		this.rootBean = rootBean;
+		int length = path.length();
+		properties = new ReadOnlyProperty<?>[length];
+		// listeners[0] listens to the root, listeners[i + 1] to the property of step i
+		listeners = new InvalidationListener[length + 1];
+		weakListeners = new WeakInvalidationListener[length + 1];
+		for (int i = 0; i <= length; i++) {
+			int firstStale = i;
+			listeners[i] = observable -> {
+				rewire(firstStale);
+				invalidate();
+			};
+			weakListeners[i] = new WeakInvalidationListener(listeners[i]);
+		}
+		if (root != null)
+			root.addListener(weakListeners[0]);
+		rewire(0);
+	}
+
+	/**
+	 * Obtains the properties of the steps from the given one to the end of the path and listens to them
+	 */
+	private void rewire(int from) {
+		for (int i = from; i < properties.length; i++) {
+			if (properties[i] != null)
+				properties[i].removeListener(weakListeners[i + 1]);
+			Object bean = i == 0 ? (root != null ? root.getValue() : rootBean) : valueOf(properties[i - 1]);
+			properties[i] = bean != null ? path.property(i, bean) : null;
+			if (properties[i] != null)
+				properties[i].addListener(weakListeners[i + 1]);
+		}
+	}
+
+	private static Object valueOf(ReadOnlyProperty<?> property) {
+		return property != null ? property.getValue() : null;
+	}
+
+	/**
+	 * @return the path this binding follows
+	 */
+	public FxPropertyPath<T> getPath() {
+		return path;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected T computeValue() {
+		return (T) valueOf(properties[properties.length - 1]);
+	}
+
+	@Override
+	public ObservableList<?> getDependencies() {
+		ObservableList<Observable> dependencies = FXCollections.observableArrayList();
+		if (root != null)
+			dependencies.add(root);
+		for (ReadOnlyProperty<?> property : properties)
+			if (property != null)
+				dependencies.add(property);
+		return FXCollections.unmodifiableObservableList(dependencies);
+	}
+
+	@Override
+	public void dispose() {
+		if (root != null)
+			root.removeListener(weakListeners[0]);
+		for (int i = 0; i < properties.length; i++) {
+			if (properties[i] != null)
+				properties[i].removeListener(weakListeners[i + 1]);
+			properties[i] = null;
+		}
+		invalidate();
+	}
+}
@@ -0,0 +1,143 @@
+package org.juffrou.fx.serials.adapter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.juffrou.fx.serials.core.FxPropertyAccess;
+import org.juffrou.fx.serials.error.PropertyMethodException;
+
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.beans.value.ObservableValue;
+
+/**
+ * A compiled path of property names, such as <code>"address.street"</code>, across a graph of JFXProxy instances.
+ * <p>
+ * Unlike <code>Bindings.select</code>, which looks up every step by name each time the binding is invalidated, each
+ * step of a compiled path is resolved once per proxy class to the position of the property in that class, and the
+ * property is then obtained by calling the proxy's generated <code>xxxProperty()</code> method through
+ * {@link FxPropertyAccess}, with no reflection.<br>
+ * A path is immutable and can be shared by any number of bindings and threads.
+ *
+ * @param <T> Type of the value at the end of the path
+ */
+public final class FxPropertyPath<T> {
+
+	private static final Map<Class<?>, Map<String, Integer>> POSITIONS = new ConcurrentHashMap<>();
+
+	private final String path;
+	private final Step[] steps;
+
+	private FxPropertyPath(String path, Step[] steps) {
+		this.path = path;
+		this.steps = steps;
+	}
+
+	/**
+	 * @param path property names separated by dots
+	 * @param <T> Type of the value at the end of the path
+	 * @return the compiled path
+	 */
+	public static <T> FxPropertyPath<T> compile(String path) {
+		String[] names = path.split("\\.");
+		Step[] steps = new Step[names.length];
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].isEmpty())
+				throw new IllegalArgumentException("Invalid property path: " + path);
+			steps[i] = new Step(names[i]);
+		}
+		return new FxPropertyPath<>(path, steps);
+	}
+
+	/**
+	 * Binds to the path starting at a fixed bean
+	 * @param root a JFXProxy instance
+	 * @return a binding holding the value at the end of the path, or null while a bean along the path is null
+	 */
+	public FxPathBinding<T> bind(Object root) {
+		return new FxPathBinding<>(this, null, root);
+	}
+
+	/**
+	 * Binds to the path starting at the bean held by an observable value, which may change
+	 * @param root observable value holding a JFXProxy instance or null
+	 * @return a binding holding the value at the end of the path, or null while a bean along the path is null
+	 */
+	public FxPathBinding<T> bind(ObservableValue<?> root) {
+		return new FxPathBinding<>(this, root, null);
+	}
+
+	/**
+	 * @return the path as it was compiled
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	int length() {
+		return steps.length;
+	}
+
+	/**
+	 * @return the property of a bean named by one step of the path
+	 */
+	ReadOnlyProperty<?> property(int step, Object bean) {
+		return steps[step].property(bean);
+	}
+
+	@Override
+	public String toString() {
+		return path;
+	}
+
+	/**
+	 * @return the position of a property in the class of a JFXProxy instance, see {@link FxPropertyAccess}
+	 */
+	static int position(Object bean, String name) {
+		if (!(bean instanceof FxPropertyAccess))
+			throw new PropertyMethodException("Cannot follow property " + name + " of " + bean.getClass().getName()
+					+ ", which is not a JFXProxy");
+		Map<String, Integer> positions = POSITIONS.computeIfAbsent(bean.getClass(), c -> {
+			String[] names = ((FxPropertyAccess) bean).fxPropertyNames();
+			Map<String, Integer> byName = new HashMap<>();
+			for (int i = 0; i < names.length; i++)
+				byName.put(names[i], i);
+			return byName;
+		});
+		Integer position = positions.get(name);
+		if (position == null)
+			throw new PropertyMethodException("Class " + bean.getClass().getName() + " has no property " + name);
+		return position;
+	}
+
+	private static final class Step {
+
+		private final String name;
+		// the last proxy class seen by this step, which is nearly always the only one
+		private volatile Resolved resolved;
+
+		Step(String name) {
+			this.name = name;
+		}
+
+		ReadOnlyProperty<?> property(Object bean) {
+			Resolved r = resolved;
+			if (r == null || r.beanClass != bean.getClass()) {
+				r = new Resolved(bean.getClass(), position(bean, name));
+				resolved = r;
+			}
+			return ((FxPropertyAccess) bean).fxProperty(r.position);
+		}
+	}
+
+	private static final class Resolved {
+
+		final Class<?> beanClass;
+		final int position;
+
+		Resolved(Class<?> beanClass, int position) {
+			this.beanClass = beanClass;
+			this.position = position;
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package org.juffrou.fx.serials.adapter;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -7,7 +10,6 @@ import java.util.Set;
 import javafx.beans.property.SimpleListProperty;
 import javafx.beans.property.SimpleMapProperty;
 import javafx.beans.property.SimpleSetProperty;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
 import javafx.collections.ObservableSet;
@@ -21,10 +23,10 @@ public class FxSerialsPropertyUpdater {
 	 * @param <E> Type of the list elements
 	 */
 	public static <E> void updateSimpleListProperty(SimpleListProperty<E> property, List<E> newBackingList) {
-		ObservableList<E> ol = newBackingList != null ? FXCollections.observableList(newBackingList) : FXCollections.observableArrayList();
+		ObservableList<E> ol = new FxObservableList<>(newBackingList != null ? newBackingList : new ArrayList<>());
 		property.set(ol);
 	}
-	
+
 	/**
 	 * Called by JFXProxy instances every time a property of type Set in the original Java Bean is changed.
 	 * @param property Property of type Set
@@ -32,7 +34,7 @@ public class FxSerialsPropertyUpdater {
 	 * @param <E> Type of the set elements
 	 */
 	public static <E> void updateSimpleSetProperty(SimpleSetProperty<E> property, Set<E> newBackingSet) {
-		ObservableSet<E> os = newBackingSet != null ? FXCollections.observableSet(newBackingSet) : FXCollections.observableSet();
+		ObservableSet<E> os = new FxObservableSet<>(newBackingSet != null ? newBackingSet : new HashSet<>());
 		property.set(os);
 	}
 
@@ -45,8 +47,98 @@ public class FxSerialsPropertyUpdater {
 	 * @param <V> Type of map values
 	 */
 	public static <K,V> void updateSimpleMapProperty(SimpleMapProperty<K,V> property, Map<K,V> newBackingMap) {
-		ObservableMap<K,V> om = newBackingMap != null ? FXCollections.observableMap(newBackingMap) : FXCollections.observableHashMap();
+		ObservableMap<K,V> om = new FxObservableMap<>(newBackingMap != null ? newBackingMap : new HashMap<>());
 		property.set(om);
 	}
 
+	/**
+	 * Called by JFXProxy instances every time a List property annotated with {@link org.juffrou.fx.serials.FxPaged}
+	 * is changed in the original Java Bean. The paged list drops its pages and loads them for the new list.
+	 * @param property Property of the paged list
+	 * @param newBackingList New list for the property or null
+	 */
+	public static void updatePagedListProperty(FxPagedListProperty<?> property, List<?> newBackingList) {
+		property.reload(newBackingList);
+	}
+
+	/**
+	 * Called by JFXProxy instances every time a property of type int[], float[] or double[] in the original Java Bean
+	 * is changed.<br>
+	 * The observable array already held by the property is made to wrap the new array, so listeners of the array
+	 * stay attached. A null array leaves the property with no value.
+	 * @param property Property of the array
+	 * @param newArray New array for the property or null
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public static void updateArrayProperty(FxArrayProperty property, Object newArray) {
+		Object current = property.get();
+		if (newArray == null)
+			property.set(null);
+		else if (current instanceof FxObservablePrimitiveArray
+				&& ((FxObservablePrimitiveArray) current).getArray().getClass() == newArray.getClass())
+			((FxObservablePrimitiveArray) current).wrap(newArray);
+		else
+			property.set(FxArrayPropertyBuilder.newObservableArray(newArray.getClass(), newArray));
+	}
+
+	/**
+	 * Called by JFXProxy instances every time a List property annotated with
+	 * {@link org.juffrou.fx.serials.FxCollectionDiff} is changed in the original Java Bean.<br>
+	 * The observable list already held by the property is merged with the new list, so its listeners receive one
+	 * change with the differences. If the bean was given the list it already had, the property is updated as by
+	 * {@link #updateSimpleListProperty(SimpleListProperty, List)}.
+	 * @param property Property of type list
+	 * @param newBackingList New list for the property or null
+	 * @param matcher decides which old and new elements are the same element
+	 * @param <E> Type of the list elements
+	 */
+	public static <E> void mergeSimpleListProperty(SimpleListProperty<E> property, List<E> newBackingList,
+			FxElementMatcher matcher) {
+		ObservableList<E> current = property.get();
+		List<E> newBacking = newBackingList != null ? newBackingList : new ArrayList<>();
+		if (current instanceof FxObservableList && ((FxObservableList<E>) current).getBacking() != newBacking)
+			((FxObservableList<E>) current).merge(newBacking, matcher);
+		else
+			updateSimpleListProperty(property, newBackingList);
+	}
+
+	/**
+	 * Called by JFXProxy instances every time a Set property annotated with
+	 * {@link org.juffrou.fx.serials.FxCollectionDiff} is changed in the original Java Bean.
+	 * @param property Property of type Set
+	 * @param newBackingSet New set for the property or null
+	 * @param matcher decides which old and new elements are the same element
+	 * @param <E> Type of the set elements
+	 * @see #mergeSimpleListProperty(SimpleListProperty, List, FxElementMatcher)
+	 */
+	public static <E> void mergeSimpleSetProperty(SimpleSetProperty<E> property, Set<E> newBackingSet,
+			FxElementMatcher matcher) {
+		ObservableSet<E> current = property.get();
+		Set<E> newBacking = newBackingSet != null ? newBackingSet : new HashSet<>();
+		if (current instanceof FxObservableSet && ((FxObservableSet<E>) current).getBacking() != newBacking)
+			((FxObservableSet<E>) current).merge(newBacking, matcher);
+		else
+			updateSimpleSetProperty(property, newBackingSet);
+	}
+
+	/**
+	 * Called by JFXProxy instances every time a Map property annotated with
+	 * {@link org.juffrou.fx.serials.FxCollectionDiff} is changed in the original Java Bean.
+	 * @param property Property of type Map
+	 * @param newBackingMap New map for the property or null
+	 * @param matcher decides whether the old and the new value of a key are the same value
+	 * @param <K> Type of map keys
+	 * @param <V> Type of map values
+	 * @see #mergeSimpleListProperty(SimpleListProperty, List, FxElementMatcher)
+	 */
+	public static <K,V> void mergeSimpleMapProperty(SimpleMapProperty<K,V> property, Map<K,V> newBackingMap,
+			FxElementMatcher matcher) {
+		ObservableMap<K,V> current = property.get();
+		Map<K,V> newBacking = newBackingMap != null ? newBackingMap : new HashMap<>();
+		if (current instanceof FxObservableMap && ((FxObservableMap<K,V>) current).getBacking() != newBacking)
+			((FxObservableMap<K,V>) current).merge(newBacking, matcher);
+		else
+			updateSimpleMapProperty(property, newBackingMap);
+	}
+
 }
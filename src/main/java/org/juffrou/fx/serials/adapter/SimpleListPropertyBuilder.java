@@ -1,9 +1,9 @@
 package org.juffrou.fx.serials.adapter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javafx.beans.property.SimpleListProperty;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
 public class SimpleListPropertyBuilder {
@@ -21,7 +21,7 @@ public class SimpleListPropertyBuilder {
 	public SimpleListProperty<?> build() {
 		
 		List<?> collection = (List<?>) builderHelper.getCollection();
-		ObservableList<?> ol = collection != null ? FXCollections.observableList(collection) : FXCollections.observableArrayList();
+		ObservableList<?> ol = collection != null ? new FxObservableList<>(collection) : new FxObservableList<>(new ArrayList<>());
 		SimpleListProperty<?> slp = new SimpleListProperty(builderHelper.getBean(), builderHelper.getName(), ol);
 		
 		return slp;
@@ -1,9 +1,9 @@
 package org.juffrou.fx.serials.adapter;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import javafx.beans.property.SimpleMapProperty;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableMap;
 
 public class SimpleMapPropertyBuilder {
@@ -21,7 +21,7 @@ public class SimpleMapPropertyBuilder {
 	public SimpleMapProperty<?,?> build() {
 		
 		Map<?,?> collection = (Map<?,?>) builderHelper.getCollection();
-		ObservableMap<?,?> om = collection != null ? FXCollections.observableMap(collection) : FXCollections.observableHashMap();
+		ObservableMap<?,?> om = collection != null ? new FxObservableMap<>(collection) : new FxObservableMap<>(new HashMap<>());
 		SimpleMapProperty<?,?> smp = new SimpleMapProperty(builderHelper.getBean(), builderHelper.getName(), om);
 		
 		return smp;
@@ -1,9 +1,9 @@
 package org.juffrou.fx.serials.adapter;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import javafx.beans.property.SimpleSetProperty;
-import javafx.collections.FXCollections;
 import javafx.collections.ObservableSet;
 
 public class SimpleSetPropertyBuilder {
@@ -21,7 +21,7 @@ public class SimpleSetPropertyBuilder {
 	public SimpleSetProperty<?> build() {
 		
 		Set<?> collection = (Set<?>) builderHelper.getCollection();
-		ObservableSet<?> os = collection != null ? FXCollections.observableSet(collection) : FXCollections.observableSet();
+		ObservableSet<?> os = collection != null ? new FxObservableSet<>(collection) : new FxObservableSet<>(new HashSet<>());
 		SimpleSetProperty<?> slp = new SimpleSetProperty(builderHelper.getBean(), builderHelper.getName(), os);
 		
 		return slp;
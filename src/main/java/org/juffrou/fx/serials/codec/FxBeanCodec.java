@@ -0,0 +1,53 @@
+package org.juffrou.fx.serials.codec;
+
+import java.io.IOException;
+
+/**
+ * Encodes and decodes the properties of one bean class.
+ * <p>
+ * Subclasses are generated at runtime by {@link org.juffrou.fx.serials.core.FxBeanCodecBuilder}. The generated
+ * methods call the bean getters and setters directly, in schema order, and write primitive properties without
+ * boxing. A codec creates either instances of the original class or of its JavaFX2 proxy; both encode the same way.
+ */
+public abstract class FxBeanCodec {
+
+	private final FxBeanSchema schema;
+
+	protected FxBeanCodec(FxBeanSchema schema) {
+		this.schema = schema;
+	}
+
+	public FxBeanSchema getSchema() {
+		return schema;
+	}
+
+	/**
+	 * @return a new instance of the original class or of its proxy, created with its no-arg constructor
+	 */
+	public abstract Object newInstance();
+
+	/**
+	 * Writes every property of the bean, in schema order.
+	 */
+	public abstract void write(Object bean, FxBinaryWriter out) throws IOException;
+
+	/**
+	 * Reads every property of the bean, in schema order, and calls its setters.
+	 */
+	public abstract void read(Object bean, FxBinaryReader in) throws IOException, ClassNotFoundException;
+
+	/**
+	 * @param bean the bean
+	 * @param property index of the property in the schema
+	 * @return the property value, boxed if it is primitive
+	 */
+	public abstract Object getValue(Object bean, int property);
+
+	/**
+	 * @param bean the bean
+	 * @param property index of the property in the schema
+	 * @param value the new value, boxed if the property is primitive
+	 * @throws ClassCastException if the value does not have the property type
+	 */
+	public abstract void setValue(Object bean, int property, Object value);
+}
@@ -0,0 +1,107 @@
+package org.juffrou.fx.serials.codec;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * The ordered list of bean properties encoded by a {@link FxBeanCodec}.
+ * <p>
+ * Each property has a type code: the JVM descriptor of its primitive type (<code>Z B C S I J F D</code>), or
+ * <code>L</code> for object properties, which are written with a leading tag.<br>
+ * The schema is sent once per stream with the first bean of its class. When the reader's schema of that class
+ * has a different fingerprint, properties are matched by name, and properties the reader does not know are skipped.
+ */
+public final class FxBeanSchema {
+
+	public static final char OBJECT = 'L';
+
+	private final String className;
+	private final String[] propertyNames;
+	private final char[] propertyTypes;
+	private final Type[] genericTypes;
+	private final long fingerprint;
+
+	/**
+	 * @param className name of the bean class (not of its proxy)
+	 * @param propertyNames property names, in encoding order
+	 * @param propertyTypes type code of each property
+	 */
+	public FxBeanSchema(String className, String[] propertyNames, char[] propertyTypes) {
+		this(className, propertyNames, propertyTypes, null);
+	}
+
+	/**
+	 * @param className name of the bean class (not of its proxy)
+	 * @param propertyNames property names, in encoding order
+	 * @param propertyTypes type code of each property
+	 * @param genericTypes declared type of each property, or null if unknown. They are not part of the fingerprint.
+	 */
+	public FxBeanSchema(String className, String[] propertyNames, char[] propertyTypes, Type[] genericTypes) {
+		if (propertyNames.length != propertyTypes.length || (genericTypes != null && genericTypes.length != propertyNames.length))
+			throw new IllegalArgumentException("There must be one type code per property");
+		this.className = className;
+		this.propertyNames = propertyNames.clone();
+		this.propertyTypes = propertyTypes.clone();
+		this.genericTypes = genericTypes == null ? null : genericTypes.clone();
+		long hash = 0xcbf29ce484222325L;
+		hash = hash(hash, className);
+		for (int i = 0; i < propertyNames.length; i++) {
+			hash = hash(hash, propertyNames[i]);
+			hash = (hash ^ propertyTypes[i]) * 0x100000001b3L;
+		}
+		this.fingerprint = hash;
+	}
+
+	private static long hash(long hash, String s) {
+		for (int i = 0; i < s.length(); i++)
+			hash = (hash ^ s.charAt(i)) * 0x100000001b3L;
+		return (hash ^ 0xff) * 0x100000001b3L;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public int getPropertyCount() {
+		return propertyNames.length;
+	}
+
+	public String getPropertyName(int index) {
+		return propertyNames[index];
+	}
+
+	public char getPropertyType(int index) {
+		return propertyTypes[index];
+	}
+
+	/**
+	 * @param index index of a property
+	 * @return the declared type of the property, with its type arguments, or Object if it is not known
+	 */
+	public Type getPropertyGenericType(int index) {
+		return genericTypes == null ? Object.class : genericTypes[index];
+	}
+
+	/**
+	 * @param propertyName name of a property
+	 * @return the index of the property, or -1 if the schema has no such property
+	 */
+	public int indexOf(String propertyName) {
+		for (int i = 0; i < propertyNames.length; i++)
+			if (propertyNames[i].equals(propertyName))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @return a hash of the class name, property names and type codes
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	@Override
+	public String toString() {
+		return className + Arrays.toString(propertyNames);
+	}
+}
@@ -0,0 +1,213 @@
+package org.juffrou.fx.serials.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.juffrou.fx.serials.JFXSerializable;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxBeanCodecBuilder;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+/**
+ * A compact binary alternative to the proxy object streams.
+ * <p>
+ * Each JFXSerializable class is encoded by a codec generated at runtime from the bean properties that
+ * {@link FxSerialsProxyBuilder} finds, which calls getters and setters directly instead of reading fields by
+ * reflection. A class is described once per stream by its name and property schema; its instances are then written
+ * as their property values only. Proxies are always written as their original class, so either side can read them.<br>
+ * A codec created by {@link #proxyCreator()} decodes beans into JavaFX2 proxies, and one created by
+ * {@link #proxyRemover()} decodes them into original beans.<p>
+ * Classes that cannot have a generated codec (see {@link FxBeanCodecBuilder}) and other serializable values are
+ * written with Java serialization, as original beans, and are decoded as such.<br>
+ * The codec is thread safe and meant to be shared; each written or read stream has its own writer or reader.
+ */
+public class FxBinaryCodec {
+
+	/**
+	 * Default for {@link #setMaxLength(int)}.
+	 */
+	public static final int DEFAULT_MAX_LENGTH = 1 << 24;
+
+	private static final Object NOT_ENCODABLE = new Object();
+
+	private final FxSerialsProxyBuilder proxyBuilder;
+	private final FXProxyCache proxyCache;
+	private final BeanWrapperFactory bwFactory;
+	private final FxBeanCodecBuilder codecBuilder;
+	private final boolean creatingProxies;
+	private volatile int maxLength = DEFAULT_MAX_LENGTH;
+
+	private final Map<Class<?>, Object> beanCodecs = new ConcurrentHashMap<>();
+	private final Map<String, Class<?>> resolvedClasses = new ConcurrentHashMap<>();
+
+	/**
+	 * @return a codec that decodes beans into JavaFX2 proxies
+	 */
+	public static FxBinaryCodec proxyCreator() {
+		return new FxBinaryCodec(new FxSerialsProxyBuilder(), new FXProxyCache(), new DefaultBeanWrapperFactory(), true);
+	}
+
+	/**
+	 * @return a codec that decodes beans into original beans
+	 */
+	public static FxBinaryCodec proxyRemover() {
+		return new FxBinaryCodec(new FxSerialsProxyBuilder(), new FXProxyCache(), new DefaultBeanWrapperFactory(), false);
+	}
+
+	/**
+	 * @param proxyBuilder the proxy builder, also used to generate the bean codecs
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory used when proxies are written with Java serialization
+	 * @param creatingProxies true to decode beans into JavaFX2 proxies, false to decode them into original beans
+	 */
+	public FxBinaryCodec(FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache, BeanWrapperFactory bwFactory,
+			boolean creatingProxies) {
+		this.proxyBuilder = proxyBuilder;
+		this.proxyCache = proxyCache;
+		this.bwFactory = bwFactory;
+		this.codecBuilder = new FxBeanCodecBuilder(proxyBuilder);
+		this.creatingProxies = creatingProxies;
+	}
+
+	public boolean isCreatingProxies() {
+		return creatingProxies;
+	}
+
+	public int getMaxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * Sets the largest collection size, array length or string and byte length that a reader accepts from the
+	 * stream. Readers created afterwards reject larger lengths with a StreamCorruptedException instead of
+	 * allocating them.
+	 * @param maxLength the largest length, {@link #DEFAULT_MAX_LENGTH} by default
+	 */
+	public void setMaxLength(int maxLength) {
+		if (maxLength < 0)
+			throw new IllegalArgumentException("maxLength must not be negative: " + maxLength);
+		this.maxLength = maxLength;
+	}
+
+	/**
+	 * Creates a writer for a stream that holds one or more values.<br>
+	 * Objects written by the same writer are shared by the values read by the same reader.
+	 */
+	public FxBinaryWriter newWriter(OutputStream out) throws IOException {
+		return new FxBinaryWriter(this, out);
+	}
+
+	/**
+	 * Creates a reader for a stream written by a {@link FxBinaryWriter}.
+	 */
+	public FxBinaryReader newReader(InputStream in) throws IOException {
+		return new FxBinaryReader(this, in);
+	}
+
+	/**
+	 * Writes a graph of beans and flushes the stream.
+	 */
+	public void write(Object value, OutputStream out) throws IOException {
+		FxBinaryWriter writer = newWriter(out);
+		writer.writeValue(value);
+		writer.flush();
+	}
+
+	/**
+	 * Reads a graph of beans written by {@link #write(Object, OutputStream)}.
+	 * @param <T> Type of the root object
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T read(InputStream in) throws IOException, ClassNotFoundException {
+		return (T) newReader(in).readValue();
+	}
+
+	public byte[] toByteArray(Object value) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		write(value, bos);
+		return bos.toByteArray();
+	}
+
+	public <T> T fromByteArray(byte[] bytes) throws IOException, ClassNotFoundException {
+		return read(new ByteArrayInputStream(bytes));
+	}
+
+	/**
+	 * Gets the generated codec of a class, creating it on first use.
+	 * @param type a JFXSerializable class or its proxy
+	 * @return the codec, which creates proxies or original beans as this codec does, or null if the class is
+	 *         written with Java serialization
+	 */
+	public FxBeanCodec getBeanCodec(Class<?> type) {
+		Object beanCodec = beanCodecs.get(type);
+		if (beanCodec == null) {
+			beanCodec = createBeanCodec(type);
+			Object existing = beanCodecs.putIfAbsent(type, beanCodec);
+			if (existing != null)
+				beanCodec = existing;
+		}
+		return beanCodec == NOT_ENCODABLE ? null : (FxBeanCodec) beanCodec;
+	}
+
+	private Object createBeanCodec(Class<?> type) {
+		if (!JFXSerializable.class.isAssignableFrom(type))
+			return NOT_ENCODABLE;
+		Class<?> beanClass = getBeanClass(type);
+		if (beanClass != type) {
+			FxBeanCodec beanCodec = getBeanCodec(beanClass);
+			return beanCodec == null ? NOT_ENCODABLE : beanCodec;
+		}
+		if (!codecBuilder.isEncodable(beanClass))
+			return NOT_ENCODABLE;
+		Class<?> instanceClass = creatingProxies ? getProxyClass(beanClass) : beanClass;
+		return codecBuilder.buildCodec(beanClass, instanceClass);
+	}
+
+	private Class<?> getProxyClass(Class<?> beanClass) {
+		Class<?> proxyClass = proxyCache.getProxyFromOriginalClass(beanClass);
+		if (proxyClass == null) {
+			ObjectStreamClass desc = ObjectStreamClass.lookup(beanClass);
+			proxyClass = proxyBuilder.buildFXSerialsProxy(beanClass, desc.getSerialVersionUID());
+			proxyCache.put(beanClass, proxyClass);
+		}
+		return proxyClass;
+	}
+
+	/**
+	 * @return the original class of a proxy, or the class itself
+	 */
+	Class<?> getBeanClass(Class<?> type) {
+		return proxyBuilder.isFXProxy(type.getName()) ? type.getSuperclass() : type;
+	}
+
+	Class<?> resolveClass(String className) throws ClassNotFoundException {
+		Class<?> type = resolvedClasses.get(className);
+		if (type == null) {
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			type = Class.forName(className, false, loader != null ? loader : FxBinaryCodec.class.getClassLoader());
+			resolvedClasses.put(className, type);
+		}
+		return type;
+	}
+
+	FxSerialsProxyBuilder getProxyBuilder() {
+		return proxyBuilder;
+	}
+
+	FXProxyCache getProxyCache() {
+		return proxyCache;
+	}
+
+	BeanWrapperFactory getBeanWrapperFactory() {
+		return bwFactory;
+	}
+}
@@ -0,0 +1,52 @@
+package org.juffrou.fx.serials.codec;
+
+/**
+ * Tags written before each value of the binary format.
+ * <p>
+ * Beans, enums and object arrays are followed by a class reference: the id of a class already defined in the
+ * stream, or zero followed by the class name (and the schema of a bean class) to define the next id.<br>
+ * Beans, collections, object arrays and serialized values are given a handle, in the order they are first
+ * written, so later occurrences of the same instance are written as a reference to its handle.<br>
+ * Objects that both sides already hold, such as the objects of a graph being patched, can be written as the id the
+ * two sides agreed on, without a handle.
+ */
+final class FxBinaryFormat {
+
+	static final int FORMAT_VERSION = 1;
+
+	static final int NULL = 0;
+	static final int REFERENCE = 1;
+	static final int BEAN = 2;
+	static final int STRING = 3;
+	static final int TRUE = 4;
+	static final int FALSE = 5;
+	static final int BYTE = 6;
+	static final int SHORT = 7;
+	static final int CHAR = 8;
+	static final int INT = 9;
+	static final int LONG = 10;
+	static final int FLOAT = 11;
+	static final int DOUBLE = 12;
+	static final int ARRAY_LIST = 13;
+	static final int LINKED_LIST = 14;
+	static final int HASH_SET = 15;
+	static final int LINKED_HASH_SET = 16;
+	static final int TREE_SET = 17;
+	static final int HASH_MAP = 18;
+	static final int LINKED_HASH_MAP = 19;
+	static final int TREE_MAP = 20;
+	static final int OBJECT_ARRAY = 21;
+	static final int ENUM = 22;
+	static final int LOCAL_DATE = 23;
+	static final int LOCAL_DATE_TIME = 24;
+	static final int DATE = 25;
+	static final int BIG_DECIMAL = 26;
+	static final int BIG_INTEGER = 27;
+	static final int SERIALIZED = 28;
+	static final int EXTERNAL = 29;
+
+	static final int NEW_CLASS = 0;
+
+	private FxBinaryFormat() {
+	}
+}
@@ -0,0 +1,443 @@
+package org.juffrou.fx.serials.codec;
+
+import static org.juffrou.fx.serials.codec.FxBinaryFormat.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+import org.juffrou.fx.serials.core.FxProxyInitializer;
+import org.juffrou.fx.serials.io.FxProxyRemoverInputStream;
+
+/**
+ * Reads values written by a {@link FxBinaryWriter}.
+ * <p>
+ * Beans are created by the generated codec of their class, as JavaFX2 proxies or as original beans depending on
+ * the {@link FxBinaryCodec}. Each bean is given its handle before its properties are read, so cycles resolve to
+ * the same instance.<br>
+ * The reader fills its own buffer from the stream, so it may read past the end of the last value. A reader is
+ * not thread safe.<br>
+ * Lengths read from the stream are checked against {@link FxBinaryCodec#getMaxLength()}, and collections and
+ * byte arrays grow as their contents arrive, so a corrupt length fails instead of allocating it up front.
+ */
+public final class FxBinaryReader {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final FxBinaryCodec codec;
+	private final InputStream in;
+	private final int maxLength;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+	private int limit;
+
+	private final List<Object> handles = new ArrayList<>();
+	private final List<ClassEntry> classes = new ArrayList<>();
+	private IntFunction<Object> externalObjects;
+
+	FxBinaryReader(FxBinaryCodec codec, InputStream in) throws IOException {
+		this.codec = codec;
+		this.in = in;
+		this.maxLength = codec.getMaxLength();
+		int version = readTag();
+		if (version != FORMAT_VERSION)
+			throw new StreamCorruptedException("Unsupported binary format version " + version);
+	}
+
+	/**
+	 * Sets the objects that the writer wrote as ids.
+	 * @param externalObjects finds an object by its id and returns null for unknown ids, or null
+	 */
+	void setExternalObjects(IntFunction<Object> externalObjects) {
+		this.externalObjects = externalObjects;
+	}
+
+	/**
+	 * Reads any value written by {@link FxBinaryWriter#writeValue(Object)}.
+	 */
+	public Object readValue() throws IOException, ClassNotFoundException {
+		int tag = readTag();
+		int size;
+		switch (tag) {
+		case NULL:
+			return null;
+		case REFERENCE:
+			int handle = readVarInt();
+			if (handle >= handles.size())
+				throw new StreamCorruptedException("Invalid handle " + handle);
+			return handles.get(handle);
+		case BEAN:
+			return readBean();
+		case STRING:
+			return readString();
+		case TRUE:
+			return Boolean.TRUE;
+		case FALSE:
+			return Boolean.FALSE;
+		case BYTE:
+			return readByte();
+		case SHORT:
+			return readShort();
+		case CHAR:
+			return readChar();
+		case INT:
+			return readInt();
+		case LONG:
+			return readLong();
+		case FLOAT:
+			return readFloat();
+		case DOUBLE:
+			return readDouble();
+		case ARRAY_LIST:
+			size = readSize();
+			return readElements(new ArrayList<>(Math.min(size, INITIAL_CAPACITY)), size);
+		case LINKED_LIST:
+			return readElements(new LinkedList<>(), readSize());
+		case HASH_SET:
+			size = readSize();
+			return readElements(new HashSet<>(mapCapacity(size)), size);
+		case LINKED_HASH_SET:
+			size = readSize();
+			return readElements(new LinkedHashSet<>(mapCapacity(size)), size);
+		case TREE_SET:
+			return readElements(new TreeSet<>(), readSize());
+		case HASH_MAP:
+			size = readSize();
+			return readEntries(new HashMap<>(mapCapacity(size)), size);
+		case LINKED_HASH_MAP:
+			size = readSize();
+			return readEntries(new LinkedHashMap<>(mapCapacity(size)), size);
+		case TREE_MAP:
+			return readEntries(new TreeMap<>(), readSize());
+		case OBJECT_ARRAY:
+			return readArray();
+		case ENUM:
+			return readEnum();
+		case LOCAL_DATE:
+			return LocalDate.ofEpochDay(readLong());
+		case LOCAL_DATE_TIME:
+			LocalDate date = LocalDate.ofEpochDay(readLong());
+			return LocalDateTime.of(date, LocalTime.ofNanoOfDay(readLong()));
+		case DATE:
+			return new Date(readLong());
+		case BIG_DECIMAL:
+			int scale = readInt();
+			return new BigDecimal(new BigInteger(readBytes()), scale);
+		case BIG_INTEGER:
+			return new BigInteger(readBytes());
+		case SERIALIZED:
+			Object value = deserialize(readBytes());
+			handles.add(value);
+			return value;
+		case EXTERNAL:
+			int id = readVarInt();
+			if (externalObjects == null)
+				throw new StreamCorruptedException("External object " + id + " without external objects");
+			Object external = externalObjects.apply(id);
+			if (external == null)
+				throw new StreamCorruptedException("Unknown external object " + id);
+			return external;
+		default:
+			throw new StreamCorruptedException("Invalid value tag " + tag);
+		}
+	}
+
+	private Object readBean() throws IOException, ClassNotFoundException {
+		ClassEntry entry = readClass(true);
+		Object bean = entry.codec.newInstance();
+		handles.add(bean);
+		// decoding a proxy is not an edit, so its setters do not publish it
+		if (bean instanceof FxProxyInitializer)
+			((FxProxyInitializer) bean).setFxInitializing(true);
+		try {
+			readProperties(entry, bean);
+		} finally {
+			if (bean instanceof FxProxyInitializer)
+				((FxProxyInitializer) bean).setFxInitializing(false);
+		}
+		return bean;
+	}
+
+	private void readProperties(ClassEntry entry, Object bean) throws IOException, ClassNotFoundException {
+		if (entry.localIndexes == null) {
+			entry.codec.read(bean, this);
+			return;
+		}
+
+		// the writer has a different schema: match the properties by name
+		for (int i = 0; i < entry.localIndexes.length; i++) {
+			Object value = readProperty(entry.remoteTypes[i]);
+			int local = entry.localIndexes[i];
+			if (local < 0)
+				continue;
+			if (value == null && entry.codec.getSchema().getPropertyType(local) != FxBeanSchema.OBJECT)
+				continue;
+			try {
+				entry.codec.setValue(bean, local, value);
+			} catch (ClassCastException e) {
+				throw new InvalidClassException(entry.type.getName(), "property "
+						+ entry.codec.getSchema().getPropertyName(local) + " was written with an incompatible type");
+			}
+		}
+	}
+
+	private Object readProperty(char type) throws IOException, ClassNotFoundException {
+		switch (type) {
+		case 'Z':
+			return readBoolean();
+		case 'B':
+			return readByte();
+		case 'C':
+			return readChar();
+		case 'S':
+			return readShort();
+		case 'I':
+			return readInt();
+		case 'J':
+			return readLong();
+		case 'F':
+			return readFloat();
+		case 'D':
+			return readDouble();
+		case FxBeanSchema.OBJECT:
+			return readValue();
+		default:
+			throw new StreamCorruptedException("Invalid property type " + type);
+		}
+	}
+
+	private <C extends Collection<Object>> C readElements(C collection, int size)
+			throws IOException, ClassNotFoundException {
+		handles.add(collection);
+		for (int i = 0; i < size; i++)
+			collection.add(readValue());
+		return collection;
+	}
+
+	private <M extends Map<Object, Object>> M readEntries(M map, int size) throws IOException, ClassNotFoundException {
+		handles.add(map);
+		for (int i = 0; i < size; i++) {
+			Object key = readValue();
+			map.put(key, readValue());
+		}
+		return map;
+	}
+
+	private Object readArray() throws IOException, ClassNotFoundException {
+		Class<?> componentType = readClass(false).type;
+		int length = readSize();
+		// allocated at its full length, bounded by the maximum, since its handle must be the final instance
+		Object[] array = (Object[]) Array.newInstance(componentType, length);
+		handles.add(array);
+		for (int i = 0; i < length; i++)
+			array[i] = readValue();
+		return array;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object readEnum() throws IOException, ClassNotFoundException {
+		Class type = readClass(false).type;
+		String name = readString();
+		try {
+			return Enum.valueOf(type, name);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidClassException(type.getName(), "enum constant " + name + " does not exist");
+		}
+	}
+
+	private ClassEntry readClass(boolean bean) throws IOException, ClassNotFoundException {
+		int id = readVarInt();
+		if (id != NEW_CLASS) {
+			if (id > classes.size())
+				throw new StreamCorruptedException("Invalid class id " + id);
+			return classes.get(id - 1);
+		}
+
+		ClassEntry entry = new ClassEntry();
+		entry.type = codec.resolveClass(readString());
+		if (bean) {
+			entry.codec = codec.getBeanCodec(entry.type);
+			if (entry.codec == null)
+				throw new InvalidClassException(entry.type.getName(), "class cannot be decoded by a generated codec");
+			long fingerprint = readRawLong();
+			int count = readSize();
+			String[] names = new String[count];
+			char[] types = new char[count];
+			for (int i = 0; i < count; i++) {
+				names[i] = readString();
+				types[i] = (char) readTag();
+			}
+			FxBeanSchema schema = entry.codec.getSchema();
+			if (fingerprint != schema.getFingerprint()) {
+				entry.remoteTypes = types;
+				entry.localIndexes = new int[count];
+				for (int i = 0; i < count; i++) {
+					int local = schema.indexOf(names[i]);
+					// a primitive property whose type changed cannot be converted
+					if (local >= 0 && types[i] != schema.getPropertyType(local)
+							&& (types[i] != FxBeanSchema.OBJECT || schema.getPropertyType(local) != FxBeanSchema.OBJECT))
+						local = -1;
+					entry.localIndexes[i] = local;
+				}
+			}
+		}
+		classes.add(entry);
+		return entry;
+	}
+
+	private Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		FxProxyRemoverInputStream ois = new FxProxyRemoverInputStream(new ByteArrayInputStream(bytes),
+				codec.getProxyBuilder(), codec.getProxyCache(), codec.getBeanWrapperFactory());
+		Object value = ois.readObject();
+		ois.close();
+		return value;
+	}
+
+	public boolean readBoolean() throws IOException {
+		return readTag() != 0;
+	}
+
+	public byte readByte() throws IOException {
+		return (byte) readTag();
+	}
+
+	public short readShort() throws IOException {
+		return (short) readInt();
+	}
+
+	public char readChar() throws IOException {
+		return (char) readVarInt();
+	}
+
+	public int readInt() throws IOException {
+		int v = readVarInt();
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	public long readLong() throws IOException {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readTag();
+			v |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return (v >>> 1) ^ -(v & 1);
+		}
+		throw new StreamCorruptedException("Variable length long is longer than ten bytes");
+	}
+
+	public float readFloat() throws IOException {
+		return Float.intBitsToFloat(readRawInt());
+	}
+
+	public double readDouble() throws IOException {
+		return Double.longBitsToDouble(readRawLong());
+	}
+
+	public String readString() throws IOException {
+		int length = readSize();
+		if (length <= limit - position) {
+			String s = new String(buffer, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return s;
+		}
+		return new String(readFully(length), StandardCharsets.UTF_8);
+	}
+
+	public int readVarInt() throws IOException {
+		int v = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = readTag();
+			v |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return v;
+		}
+		throw new StreamCorruptedException("Variable length int is longer than five bytes");
+	}
+
+	private int readSize() throws IOException {
+		int size = readVarInt();
+		if (size < 0 || size > maxLength)
+			throw new StreamCorruptedException("Invalid size " + size);
+		return size;
+	}
+
+	private static int mapCapacity(int size) {
+		size = Math.min(size, INITIAL_CAPACITY);
+		return size < 3 ? size + 1 : (int) (size / 0.75f + 1);
+	}
+
+	private int readRawInt() throws IOException {
+		return (readTag() << 24) | (readTag() << 16) | (readTag() << 8) | readTag();
+	}
+
+	private long readRawLong() throws IOException {
+		return ((long) readRawInt() << 32) | (readRawInt() & 0xFFFFFFFFL);
+	}
+
+	private byte[] readBytes() throws IOException {
+		return readFully(readSize());
+	}
+
+	private byte[] readFully(int length) throws IOException {
+		// grows as the bytes arrive, so a length beyond the end of the stream fails before it is allocated
+		byte[] bytes = new byte[Math.min(length, Math.max(BUFFER_SIZE, limit - position))];
+		int available = Math.min(length, limit - position);
+		System.arraycopy(buffer, position, bytes, 0, available);
+		position += available;
+		int offset = available;
+		while (offset < length) {
+			if (offset == bytes.length)
+				bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+			int n = in.read(bytes, offset, bytes.length - offset);
+			if (n < 0)
+				throw new EOFException();
+			offset += n;
+		}
+		return bytes;
+	}
+
+	private int readTag() throws IOException {
+		if (position == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				throw new EOFException();
+			}
+		}
+		return buffer[position++] & 0xFF;
+	}
+
+	private static class ClassEntry {
+		Class<?> type;
+		FxBeanCodec codec;
+		// null when the writer had the same schema
+		int[] localIndexes;
+		char[] remoteTypes;
+	}
+}
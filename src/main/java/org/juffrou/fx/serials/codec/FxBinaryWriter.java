@@ -0,0 +1,337 @@
+package org.juffrou.fx.serials.codec;
+
+import static org.juffrou.fx.serials.codec.FxBinaryFormat.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+import org.juffrou.fx.serials.io.FxProxyRemoverOutputStream;
+
+/**
+ * Writes values in the compact binary format of a {@link FxBinaryCodec}.
+ * <p>
+ * Beans with a generated codec are written property by property, in schema order. Strings, boxed primitives,
+ * enums, dates and big numbers have their own compact forms, and lists, sets and maps are written element by
+ * element. Any other serializable value is written with Java serialization, with proxies replaced by their
+ * original beans.<br>
+ * Instances are tracked by identity for as long as the writer lives, so shared objects and cycles are written
+ * once. A writer is not thread safe.
+ */
+public final class FxBinaryWriter {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final FxBinaryCodec codec;
+	private final OutputStream out;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+
+	private final IdentityHashMap<Object, Integer> handles = new IdentityHashMap<>();
+	private final Map<Class<?>, Integer> classIds = new HashMap<>();
+	private Function<Object, Integer> externalIds;
+
+	FxBinaryWriter(FxBinaryCodec codec, OutputStream out) throws IOException {
+		this.codec = codec;
+		this.out = out;
+		writeByte(FORMAT_VERSION);
+	}
+
+	/**
+	 * Writes any value: null, a bean, a collection, or another serializable object.
+	 */
+	public void writeValue(Object value) throws IOException {
+		if (value == null) {
+			writeByte(NULL);
+			return;
+		}
+		Class<?> type = value.getClass();
+		if (type == String.class) {
+			writeByte(STRING);
+			writeString((String) value);
+		} else if (type == Integer.class) {
+			writeByte(INT);
+			writeInt((Integer) value);
+		} else if (type == Long.class) {
+			writeByte(LONG);
+			writeLong((Long) value);
+		} else if (type == Boolean.class) {
+			writeByte((Boolean) value ? TRUE : FALSE);
+		} else if (type == Double.class) {
+			writeByte(DOUBLE);
+			writeDouble((Double) value);
+		} else if (type == Float.class) {
+			writeByte(FLOAT);
+			writeFloat((Float) value);
+		} else if (type == Short.class) {
+			writeByte(SHORT);
+			writeShort((Short) value);
+		} else if (type == Byte.class) {
+			writeByte(BYTE);
+			writeByte((Byte) value);
+		} else if (type == Character.class) {
+			writeByte(CHAR);
+			writeChar((Character) value);
+		} else if (type == LocalDate.class) {
+			writeByte(LOCAL_DATE);
+			writeLong(((LocalDate) value).toEpochDay());
+		} else if (type == LocalDateTime.class) {
+			LocalDateTime dateTime = (LocalDateTime) value;
+			writeByte(LOCAL_DATE_TIME);
+			writeLong(dateTime.toLocalDate().toEpochDay());
+			writeLong(dateTime.toLocalTime().toNanoOfDay());
+		} else if (type == Date.class) {
+			writeByte(DATE);
+			writeLong(((Date) value).getTime());
+		} else if (type == BigDecimal.class) {
+			BigDecimal decimal = (BigDecimal) value;
+			writeByte(BIG_DECIMAL);
+			writeInt(decimal.scale());
+			writeBytes(decimal.unscaledValue().toByteArray());
+		} else if (type == BigInteger.class) {
+			writeByte(BIG_INTEGER);
+			writeBytes(((BigInteger) value).toByteArray());
+		} else if (value instanceof Enum) {
+			writeByte(ENUM);
+			writeClass(((Enum<?>) value).getDeclaringClass(), null);
+			writeString(((Enum<?>) value).name());
+		} else {
+			writeObject(value, type);
+		}
+	}
+
+	/**
+	 * Sets the objects that the reader already holds. They are written as their id instead of their content.
+	 * @param externalIds returns the id of an object, or null for objects the reader does not hold. Null if the
+	 *            reader holds no objects.
+	 */
+	void setExternalIds(Function<Object, Integer> externalIds) {
+		this.externalIds = externalIds;
+	}
+
+	private void writeObject(Object value, Class<?> type) throws IOException {
+		if (externalIds != null) {
+			Integer id = externalIds.apply(value);
+			if (id != null) {
+				writeByte(EXTERNAL);
+				writeVarInt(id);
+				return;
+			}
+		}
+		Integer handle = handles.get(value);
+		if (handle != null) {
+			writeByte(REFERENCE);
+			writeVarInt(handle);
+			return;
+		}
+
+		FxBeanCodec beanCodec = codec.getBeanCodec(type);
+		if (beanCodec != null) {
+			handles.put(value, handles.size());
+			writeByte(BEAN);
+			writeClass(codec.getBeanClass(type), beanCodec.getSchema());
+			beanCodec.write(value, this);
+		} else if (type == ArrayList.class || type == LinkedList.class) {
+			handles.put(value, handles.size());
+			writeByte(type == ArrayList.class ? ARRAY_LIST : LINKED_LIST);
+			writeElements((Collection<?>) value);
+		} else if (type == HashSet.class || type == LinkedHashSet.class) {
+			handles.put(value, handles.size());
+			writeByte(type == HashSet.class ? HASH_SET : LINKED_HASH_SET);
+			writeElements((Collection<?>) value);
+		} else if (type == TreeSet.class && ((TreeSet<?>) value).comparator() == null) {
+			handles.put(value, handles.size());
+			writeByte(TREE_SET);
+			writeElements((Collection<?>) value);
+		} else if (type == HashMap.class || type == LinkedHashMap.class
+				|| (type == TreeMap.class && ((TreeMap<?, ?>) value).comparator() == null)) {
+			handles.put(value, handles.size());
+			writeByte(type == HashMap.class ? HASH_MAP : type == LinkedHashMap.class ? LINKED_HASH_MAP : TREE_MAP);
+			writeEntries((Map<?, ?>) value);
+		} else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+			Object[] array = (Object[]) value;
+			handles.put(value, handles.size());
+			writeByte(OBJECT_ARRAY);
+			writeClass(type.getComponentType(), null);
+			writeVarInt(array.length);
+			for (Object element : array)
+				writeValue(element);
+		} else if (value instanceof Serializable) {
+			handles.put(value, handles.size());
+			writeByte(SERIALIZED);
+			writeBytes(serialize(value));
+		} else {
+			throw new NotSerializableException(type.getName());
+		}
+	}
+
+	private void writeElements(Collection<?> collection) throws IOException {
+		writeVarInt(collection.size());
+		for (Object element : collection)
+			writeValue(element);
+	}
+
+	private void writeEntries(Map<?, ?> map) throws IOException {
+		writeVarInt(map.size());
+		for (Entry<?, ?> entry : map.entrySet()) {
+			writeValue(entry.getKey());
+			writeValue(entry.getValue());
+		}
+	}
+
+	private void writeClass(Class<?> type, FxBeanSchema schema) throws IOException {
+		Integer id = classIds.get(type);
+		if (id != null) {
+			writeVarInt(id);
+			return;
+		}
+		classIds.put(type, classIds.size() + 1);
+		writeVarInt(NEW_CLASS);
+		writeString(type.getName());
+		if (schema != null) {
+			writeRawLong(schema.getFingerprint());
+			writeVarInt(schema.getPropertyCount());
+			for (int i = 0; i < schema.getPropertyCount(); i++) {
+				writeString(schema.getPropertyName(i));
+				writeByte(schema.getPropertyType(i));
+			}
+		}
+	}
+
+	private byte[] serialize(Object value) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FxProxyRemoverOutputStream out = new FxProxyRemoverOutputStream(bos, codec.getProxyBuilder(),
+				codec.getProxyCache(), codec.getBeanWrapperFactory());
+		out.writeObject(value);
+		out.close();
+		return bos.toByteArray();
+	}
+
+	public void writeBoolean(boolean value) throws IOException {
+		writeByte(value ? 1 : 0);
+	}
+
+	public void writeByte(int value) throws IOException {
+		if (position == buffer.length)
+			drain();
+		buffer[position++] = (byte) value;
+	}
+
+	public void writeShort(short value) throws IOException {
+		writeInt(value);
+	}
+
+	public void writeChar(char value) throws IOException {
+		writeVarInt(value);
+	}
+
+	/**
+	 * Writes an int as a zig-zag variable length number, from one to five bytes
+	 */
+	public void writeInt(int value) throws IOException {
+		writeVarInt((value << 1) ^ (value >> 31));
+	}
+
+	/**
+	 * Writes a long as a zig-zag variable length number, from one to ten bytes
+	 */
+	public void writeLong(long value) throws IOException {
+		long v = (value << 1) ^ (value >> 63);
+		if (buffer.length - position < 10)
+			drain();
+		while ((v & ~0x7FL) != 0) {
+			buffer[position++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		buffer[position++] = (byte) v;
+	}
+
+	public void writeFloat(float value) throws IOException {
+		writeRawInt(Float.floatToIntBits(value));
+	}
+
+	public void writeDouble(double value) throws IOException {
+		writeRawLong(Double.doubleToLongBits(value));
+	}
+
+	/**
+	 * Writes a string as its UTF-8 length followed by its UTF-8 bytes
+	 */
+	public void writeString(String value) throws IOException {
+		writeBytes(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Writes an unsigned variable length number, from one to five bytes
+	 */
+	public void writeVarInt(int value) throws IOException {
+		if (buffer.length - position < 5)
+			drain();
+		while ((value & ~0x7F) != 0) {
+			buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeRawInt(int value) throws IOException {
+		if (buffer.length - position < 4)
+			drain();
+		buffer[position++] = (byte) (value >>> 24);
+		buffer[position++] = (byte) (value >>> 16);
+		buffer[position++] = (byte) (value >>> 8);
+		buffer[position++] = (byte) value;
+	}
+
+	private void writeRawLong(long value) throws IOException {
+		writeRawInt((int) (value >>> 32));
+		writeRawInt((int) value);
+	}
+
+	private void writeBytes(byte[] bytes) throws IOException {
+		writeVarInt(bytes.length);
+		if (bytes.length > buffer.length - position) {
+			drain();
+			if (bytes.length > buffer.length) {
+				out.write(bytes);
+				return;
+			}
+		}
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	private void drain() throws IOException {
+		out.write(buffer, 0, position);
+		position = 0;
+	}
+
+	/**
+	 * Writes the buffered bytes and flushes the underlying stream
+	 */
+	public void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+}
@@ -0,0 +1,297 @@
+package org.juffrou.fx.serials.codec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.core.FxChangeObserver;
+import org.juffrou.fx.serials.core.FxObservableProxy;
+
+import javafx.beans.property.ReadOnlyProperty;
+import javafx.collections.ListChangeListener;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableMap;
+import javafx.collections.ObservableSet;
+import javafx.collections.SetChangeListener;
+
+/**
+ * Records the edits made to a graph of JavaFX2 proxies and encodes them as a patch that {@link FxPatch} applies to
+ * the graph of original beans the proxies were made from.
+ * <p>
+ * When recording starts the path to each bean of the graph is taken (see {@link FxPatch}) and the recorder starts observing
+ * the setters of every proxy and the observable collections of their list, set and map properties. A patch holds,
+ * the path of each bean it refers to and, for each changed property, the bean, the property name and the current
+ * value. Values are encoded by a {@link FxBinaryCodec}, with the beans of the graph written as a reference to their
+ * path, so the size of a patch depends on the changes and not on the size of the graph.<br>
+ * Changes made through the observable collection of a property are sent as the additions and removals made, unless
+ * they touch more elements than the collection holds; a collection replaced through a setter is sent whole.<br>
+ * Beans added to the graph after recording started are sent with their content when they are the value of a
+ * changed property; changes made inside them are not recorded separately.<p>
+ * Once the patch has been applied both graphs are equal again, and a new recorder can be started on them.<br>
+ * A recorder is not thread safe and is meant to be used on the FX application thread.
+ */
+public class FxChangeRecorder implements AutoCloseable {
+
+	private final FxBinaryCodec codec;
+	private final FxGraphIndex index;
+	private final Map<Object, Integer> ids;
+	private final List<Object> beans;
+	private final Map<Integer, Map<String, PropertyChange>> changes = new TreeMap<>();
+	private final List<Runnable> detachers = new ArrayList<>();
+	private final FxChangeObserver observer = (bean, propertyName) -> change(bean, propertyName).replaced();
+
+	/**
+	 * Starts recording the edits made to a graph of proxies.
+	 * @param codec the codec that encodes the patch values
+	 * @param root root of the graph
+	 * @throws IllegalStateException if a proxy of the graph is already being recorded
+	 */
+	public FxChangeRecorder(FxBinaryCodec codec, Object root) {
+		this.codec = codec;
+		this.index = new FxGraphIndex(codec, root);
+		this.ids = index.getIds();
+		this.beans = index.getBeans();
+		try {
+			for (Object bean : beans)
+				attach(bean);
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	private void attach(Object bean) {
+		if (bean instanceof FxObservableProxy) {
+			FxObservableProxy proxy = (FxObservableProxy) bean;
+			if (proxy.getChangeObserver() != null)
+				throw new IllegalStateException(bean.getClass().getName() + " instance is already being recorded");
+			proxy.setChangeObserver(observer);
+			detachers.add(() -> proxy.setChangeObserver(null));
+		}
+		if (!(bean instanceof JFXProxy))
+			return;
+		FxBeanCodec beanCodec = codec.getBeanCodec(bean.getClass());
+		FxBeanSchema schema = beanCodec.getSchema();
+		for (int i = 0; i < schema.getPropertyCount(); i++) {
+			Object value = schema.getPropertyType(i) == FxBeanSchema.OBJECT ? beanCodec.getValue(bean, i) : null;
+			if (value instanceof Collection || value instanceof Map)
+				observeCollection(bean, schema.getPropertyName(i));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void observeCollection(Object bean, String propertyName) {
+		ReadOnlyProperty<?> property = ((JFXProxy) bean).getProperty(propertyName);
+		if (property instanceof ObservableList) {
+			ObservableList<Object> list = (ObservableList<Object>) property;
+			ListChangeListener<Object> listener = change -> {
+				PropertyChange propertyChange = change(bean, propertyName);
+				while (change.next()) {
+					if (change.wasPermutated())
+						propertyChange.replaced();
+					else if (change.wasRemoved() || change.wasAdded())
+						propertyChange.listChanged(change.getFrom(), change.getRemovedSize(),
+								new ArrayList<>(change.getAddedSubList()));
+				}
+			};
+			list.addListener(listener);
+			detachers.add(() -> list.removeListener(listener));
+		} else if (property instanceof ObservableSet) {
+			ObservableSet<Object> set = (ObservableSet<Object>) property;
+			SetChangeListener<Object> listener = change -> {
+				if (change.wasRemoved())
+					change(bean, propertyName).operation(FxPatch.REMOVE, change.getElementRemoved(), null);
+				if (change.wasAdded())
+					change(bean, propertyName).operation(FxPatch.ADD, change.getElementAdded(), null);
+			};
+			set.addListener(listener);
+			detachers.add(() -> set.removeListener(listener));
+		} else if (property instanceof ObservableMap) {
+			ObservableMap<Object, Object> map = (ObservableMap<Object, Object>) property;
+			MapChangeListener<Object, Object> listener = change -> {
+				if (change.wasAdded())
+					change(bean, propertyName).operation(FxPatch.ADD, change.getKey(), change.getValueAdded());
+				else
+					change(bean, propertyName).operation(FxPatch.REMOVE, change.getKey(), null);
+			};
+			map.addListener(listener);
+			detachers.add(() -> map.removeListener(listener));
+		}
+	}
+
+	private PropertyChange change(Object bean, String propertyName) {
+		Integer id = ids.get(bean);
+		if (id == null)
+			// a bean outside the graph is sent with its content
+			return new PropertyChange();
+		return changes.computeIfAbsent(id, k -> new TreeMap<>()).computeIfAbsent(propertyName, k -> new PropertyChange());
+	}
+
+	/**
+	 * @return true if a property was changed since recording started or since the last {@link #clear()}
+	 */
+	public boolean hasChanges() {
+		return !changes.isEmpty();
+	}
+
+	/**
+	 * @return number of changed properties
+	 */
+	public int getChangeCount() {
+		int count = 0;
+		for (Map<String, PropertyChange> properties : changes.values())
+			count += properties.size();
+		return count;
+	}
+
+	/**
+	 * Forgets the changes recorded so far. Use it only when the graph on the other side is changed the same way by
+	 * other means, since the ids of beans added since recording started are not known.
+	 */
+	public void clear() {
+		changes.clear();
+	}
+
+	/**
+	 * Writes a patch with the current value of every changed property.
+	 * @param out stream to write to. It is flushed but not closed.
+	 * @throws IOException if the values cannot be written
+	 */
+	public void writePatch(OutputStream out) throws IOException {
+		// the beans of the graph a patch refers to, the changed ones and the ones their values reference, are only
+		// known once the values are written. The changes are written once to find them, so that the patch can
+		// start with the path of each one.
+		Map<Object, Integer> referenced = new IdentityHashMap<>();
+		List<Object> referencedBeans = new ArrayList<>();
+		Function<Object, Integer> referenceIds = bean -> {
+			if (!index.contains(bean))
+				return null;
+			return referenced.computeIfAbsent(bean, b -> {
+				referencedBeans.add(b);
+				return referencedBeans.size() - 1;
+			});
+		};
+		writeChanges(codec.newWriter(new OutputStream() {
+			@Override
+			public void write(int b) {
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+			}
+		}), referenceIds);
+
+		FxBinaryWriter writer = codec.newWriter(out);
+		writer.writeVarInt(referencedBeans.size());
+		for (Object bean : referencedBeans)
+			index.writePath(writer, bean);
+		writeChanges(writer, referenceIds);
+		writer.flush();
+	}
+
+	private void writeChanges(FxBinaryWriter writer, Function<Object, Integer> referenceIds) throws IOException {
+		writer.setExternalIds(referenceIds);
+		writer.writeVarInt(getChangeCount());
+		for (Map.Entry<Integer, Map<String, PropertyChange>> entry : changes.entrySet()) {
+			Object bean = beans.get(entry.getKey());
+			FxBeanCodec beanCodec = codec.getBeanCodec(bean.getClass());
+			for (Map.Entry<String, PropertyChange> property : entry.getValue().entrySet()) {
+				writer.writeVarInt(referenceIds.apply(bean));
+				writer.writeString(property.getKey());
+				Object value = beanCodec.getValue(bean, beanCodec.getSchema().indexOf(property.getKey()));
+				property.getValue().write(writer, value);
+			}
+		}
+	}
+
+	/**
+	 * @return a patch with the current value of every changed property
+	 * @throws IOException if the values cannot be written
+	 */
+	public byte[] createPatch() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		writePatch(bos);
+		return bos.toByteArray();
+	}
+
+	/**
+	 * The changes of one property: either a new value, or the operations made on its collection
+	 */
+	private static class PropertyChange {
+
+		private boolean replaced;
+		private final List<Object[]> operations = new ArrayList<>();
+		private int operationElements;
+
+		void replaced() {
+			replaced = true;
+			operations.clear();
+		}
+
+		void listChanged(int index, int removed, List<Object> added) {
+			if (replaced)
+				return;
+			if (removed > 0)
+				operations.add(new Object[] { FxPatch.REMOVE, index, removed });
+			if (!added.isEmpty())
+				operations.add(new Object[] { FxPatch.ADD, index, added });
+			operationElements += 1 + added.size();
+		}
+
+		void operation(int operation, Object element, Object value) {
+			if (replaced)
+				return;
+			operations.add(new Object[] { operation, element, value });
+			operationElements++;
+		}
+
+		@SuppressWarnings("unchecked")
+		void write(FxBinaryWriter writer, Object value) throws IOException {
+			int size = value instanceof Collection ? ((Collection<?>) value).size()
+					: value instanceof Map ? ((Map<?, ?>) value).size() : 0;
+			// operations that touch more elements than the collection holds are sent as the collection
+			if (replaced || operationElements >= size) {
+				writer.writeVarInt(FxPatch.VALUE);
+				writer.writeValue(value);
+				return;
+			}
+			writer.writeVarInt(value instanceof List ? FxPatch.LIST_OPERATIONS
+					: value instanceof Map ? FxPatch.MAP_OPERATIONS : FxPatch.SET_OPERATIONS);
+			writer.writeVarInt(operations.size());
+			for (Object[] operation : operations) {
+				int code = (Integer) operation[0];
+				writer.writeVarInt(code);
+				if (value instanceof List) {
+					writer.writeVarInt((Integer) operation[1]);
+					if (code == FxPatch.REMOVE)
+						writer.writeVarInt((Integer) operation[2]);
+					else
+						writer.writeValue(operation[2]);
+				} else {
+					writer.writeValue(operation[1]);
+					if (code == FxPatch.ADD && value instanceof Map)
+						writer.writeValue(operation[2]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stops recording
+	 */
+	@Override
+	public void close() {
+		for (Runnable detacher : detachers)
+			detacher.run();
+		detachers.clear();
+	}
+}
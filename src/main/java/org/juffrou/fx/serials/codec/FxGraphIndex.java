@@ -0,0 +1,144 @@
+package org.juffrou.fx.serials.codec;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Numbers the beans of an object graph in a depth first walk, and remembers the path from the root to each of them,
+ * so that a patch can address a bean of another copy of the same graph, such as the graph of original beans a graph
+ * of proxies was made from, without walking it.
+ * <p>
+ * Bean properties are followed in schema order, and collections, maps and object arrays in iteration order. A path
+ * is the sequence of steps from the root to the bean: a step is either the name of a bean property or the position
+ * of an element in a list, set or object array, or of a key (even positions) or value (odd positions) in a map.
+ * Sets and maps must therefore iterate in the same order on both sides: sorted or linked collections, or elements
+ * with value based hash codes.
+ */
+final class FxGraphIndex {
+
+	private final Map<Object, Integer> ids = new IdentityHashMap<>();
+	private final Map<Object, Step> paths = new IdentityHashMap<>();
+	private final List<Object> beans = new ArrayList<>();
+
+	FxGraphIndex(FxBinaryCodec codec, Object root) {
+		Map<Object, Boolean> containers = new IdentityHashMap<>();
+		Deque<Object> pending = new ArrayDeque<>();
+		Deque<Step> pendingSteps = new ArrayDeque<>();
+		if (root != null) {
+			pending.push(root);
+			pendingSteps.push(Step.ROOT);
+		}
+		while (!pending.isEmpty()) {
+			Object value = pending.pop();
+			Step step = pendingSteps.pop();
+			if (value instanceof Collection) {
+				if (containers.put(value, Boolean.TRUE) == null)
+					pushAll(pending, pendingSteps, step, ((Collection<?>) value).toArray());
+			} else if (value instanceof Map) {
+				if (containers.put(value, Boolean.TRUE) == null) {
+					Object[] entries = new Object[((Map<?, ?>) value).size() * 2];
+					int i = 0;
+					for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+						entries[i++] = entry.getKey();
+						entries[i++] = entry.getValue();
+					}
+					pushAll(pending, pendingSteps, step, entries);
+				}
+			} else if (value instanceof Object[]) {
+				if (containers.put(value, Boolean.TRUE) == null)
+					pushAll(pending, pendingSteps, step, (Object[]) value);
+			} else if (!ids.containsKey(value)) {
+				FxBeanCodec beanCodec = codec.getBeanCodec(value.getClass());
+				if (beanCodec == null)
+					continue;
+				ids.put(value, beans.size());
+				paths.put(value, step);
+				beans.add(value);
+				FxBeanSchema schema = beanCodec.getSchema();
+				for (int i = schema.getPropertyCount() - 1; i >= 0; i--) {
+					if (schema.getPropertyType(i) == FxBeanSchema.OBJECT) {
+						Object property = beanCodec.getValue(value, i);
+						if (property != null) {
+							pending.push(property);
+							pendingSteps.push(new Step(step, schema.getPropertyName(i), -1));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private static void pushAll(Deque<Object> pending, Deque<Step> pendingSteps, Step container, Object[] values) {
+		for (int i = values.length - 1; i >= 0; i--) {
+			if (values[i] != null) {
+				pending.push(values[i]);
+				pendingSteps.push(new Step(container, null, i));
+			}
+		}
+	}
+
+	/**
+	 * @return the ids of all the beans by identity
+	 */
+	Map<Object, Integer> getIds() {
+		return ids;
+	}
+
+	/**
+	 * @return the beans, in id order
+	 */
+	List<Object> getBeans() {
+		return beans;
+	}
+
+	/**
+	 * @return true if the bean was reached by the walk
+	 */
+	boolean contains(Object bean) {
+		return paths.containsKey(bean);
+	}
+
+	/**
+	 * Writes the path from the root to a bean of the graph: the number of steps, then each step as 0 followed by a
+	 * property name, or as the element position plus one.
+	 */
+	void writePath(FxBinaryWriter writer, Object bean) throws IOException {
+		List<Step> steps = new ArrayList<>();
+		for (Step step = paths.get(bean); step != Step.ROOT; step = step.parent)
+			steps.add(step);
+		writer.writeVarInt(steps.size());
+		for (int i = steps.size() - 1; i >= 0; i--) {
+			Step step = steps.get(i);
+			if (step.property != null) {
+				writer.writeVarInt(0);
+				writer.writeString(step.property);
+			} else {
+				writer.writeVarInt(step.position + 1);
+			}
+		}
+	}
+
+	/**
+	 * One step of a path, linked to the step before it so that paths share their common part
+	 */
+	private static final class Step {
+
+		static final Step ROOT = new Step(null, null, -1);
+
+		final Step parent;
+		final String property;
+		final int position;
+
+		Step(Step parent, String property, int position) {
+			this.parent = parent;
+			this.property = property;
+			this.position = position;
+		}
+	}
+}
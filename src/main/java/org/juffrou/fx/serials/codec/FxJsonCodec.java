@@ -0,0 +1,131 @@
+package org.juffrou.fx.serials.codec;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+
+/**
+ * Reads and writes JSON straight from and into beans, without a tree model.
+ * <p>
+ * Each JSON object is decoded by the generated codec of the declared type of the property it is assigned to (see
+ * {@link FxBinaryCodec#getBeanCodec(Class)}), so the reader creates JavaFX2 proxies or original beans while
+ * parsing, depending on the binary codec it is given. Element types of lists, sets, maps and arrays are taken
+ * from the generic type of the property.<br>
+ * Beans are written with the values of their bean properties; proxies are written as their original class.
+ * Two members, always written first, are added when needed:
+ * <ul>
+ * <li><code>"@class"</code> when the class of a bean is not the declared type of its property</li>
+ * <li><code>"@ref"</code> replaces a bean already written in the same document, by its position in the
+ * order beans were written, so shared beans and cycles keep their identity</li>
+ * </ul>
+ * JSON produced by other libraries is read as long as its objects match the declared types.<br>
+ * The codec is thread safe.
+ */
+public class FxJsonCodec {
+
+	private final FxBinaryCodec beanCodecs;
+
+	/**
+	 * @return a codec that reads beans into JavaFX2 proxies
+	 */
+	public static FxJsonCodec proxyCreator() {
+		return new FxJsonCodec(FxBinaryCodec.proxyCreator());
+	}
+
+	/**
+	 * @return a codec that reads beans into original beans
+	 */
+	public static FxJsonCodec proxyRemover() {
+		return new FxJsonCodec(FxBinaryCodec.proxyRemover());
+	}
+
+	/**
+	 * @param beanCodecs binary codec whose generated bean codecs are shared, and which decides whether proxies or
+	 *            original beans are created
+	 */
+	public FxJsonCodec(FxBinaryCodec beanCodecs) {
+		this.beanCodecs = beanCodecs;
+	}
+
+	/**
+	 * Writes a value as one JSON document and flushes the writer.
+	 */
+	public void write(Object value, Writer out) throws IOException {
+		FxJsonWriter writer = new FxJsonWriter(beanCodecs, out);
+		writer.writeValue(value, null);
+		writer.flush();
+	}
+
+	public String toJson(Object value) throws IOException {
+		StringWriter out = new StringWriter();
+		write(value, out);
+		return out.toString();
+	}
+
+	/**
+	 * Reads one JSON document.
+	 * @param in the JSON text
+	 * @param type type of the document, such as a bean class or a parameterized list type
+	 * @param <T> Type of the document
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T read(Reader in, Type type) throws IOException, ClassNotFoundException {
+		FxJsonReader reader = new FxJsonReader(beanCodecs, in);
+		Object value = reader.readValue(type);
+		reader.expectEnd();
+		return (T) value;
+	}
+
+	public <T> T read(Reader in, Class<T> type) throws IOException, ClassNotFoundException {
+		return read(in, (Type) type);
+	}
+
+	public <T> T fromJson(String json, Type type) throws IOException, ClassNotFoundException {
+		return read(new StringReader(json), type);
+	}
+
+	public <T> T fromJson(String json, Class<T> type) throws IOException, ClassNotFoundException {
+		return read(new StringReader(json), (Type) type);
+	}
+
+	static Class<?> rawClass(Type type) {
+		if (type instanceof Class)
+			return (Class<?>) type;
+		if (type instanceof ParameterizedType)
+			return rawClass(((ParameterizedType) type).getRawType());
+		if (type instanceof GenericArrayType)
+			return java.lang.reflect.Array.newInstance(rawClass(((GenericArrayType) type).getGenericComponentType()), 0)
+					.getClass();
+		if (type instanceof WildcardType)
+			return rawClass(((WildcardType) type).getUpperBounds()[0]);
+		if (type instanceof TypeVariable)
+			return rawClass(((TypeVariable<?>) type).getBounds()[0]);
+		return Object.class;
+	}
+
+	/**
+	 * @return the type argument at a position, or Object if the type is not parameterized
+	 */
+	static Type typeArgument(Type type, int index) {
+		if (type instanceof ParameterizedType) {
+			Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+			if (index < arguments.length)
+				return arguments[index];
+		}
+		return Object.class;
+	}
+
+	static Type componentType(Type type) {
+		if (type instanceof GenericArrayType)
+			return ((GenericArrayType) type).getGenericComponentType();
+		Class<?> raw = rawClass(type);
+		return raw.isArray() ? raw.getComponentType() : Object.class;
+	}
+}
@@ -0,0 +1,499 @@
+package org.juffrou.fx.serials.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.Reader;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.juffrou.fx.serials.core.FxProxyInitializer;
+
+/**
+ * Parses one JSON document for a {@link FxJsonCodec}, creating each value as the type it is assigned to.
+ */
+final class FxJsonReader {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final FxBinaryCodec beanCodecs;
+	private final Reader in;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	private long consumed;
+
+	private final StringBuilder text = new StringBuilder();
+	// beans by the order they were read, for @ref
+	private final List<Object> beans = new ArrayList<>();
+
+	FxJsonReader(FxBinaryCodec beanCodecs, Reader in) {
+		this.beanCodecs = beanCodecs;
+		this.in = in;
+	}
+
+	Object readValue(Type declared) throws IOException, ClassNotFoundException {
+		Class<?> raw = FxJsonCodec.rawClass(declared);
+		int c = peek();
+		switch (c) {
+		case '{':
+			position++;
+			return Map.class.isAssignableFrom(raw) ? readMap(declared, raw, null) : readObject(declared, raw);
+		case '[':
+			position++;
+			return raw.isArray() ? readArray(declared, raw) : readCollection(declared, raw);
+		case '"':
+			position++;
+			return convertString(readString(), raw);
+		case 't':
+			expectWord("true");
+			return Boolean.TRUE;
+		case 'f':
+			expectWord("false");
+			return Boolean.FALSE;
+		case 'n':
+			expectWord("null");
+			return null;
+		default:
+			if (c == '-' || (c >= '0' && c <= '9'))
+				return convertNumber(readNumber(), raw);
+			throw syntaxError("Unexpected character '" + (char) c + "'");
+		}
+	}
+
+	private Object readObject(Type declared, Class<?> raw) throws IOException, ClassNotFoundException {
+		if (peek() == '}') {
+			position++;
+			FxBeanCodec codec = beanCodecs.getBeanCodec(raw);
+			if (codec == null) {
+				if (raw == Object.class)
+					return new LinkedHashMap<>();
+				throw new InvalidClassException(raw.getName(), "class cannot be read as JSON");
+			}
+			Object bean = codec.newInstance();
+			beans.add(bean);
+			return bean;
+		}
+
+		String key = readKey();
+		if ("@ref".equals(key)) {
+			int ref = readNumberAsInt();
+			expect('}');
+			if (ref < 0 || ref >= beans.size())
+				throw syntaxError("Invalid @ref " + ref);
+			return beans.get(ref);
+		}
+		Class<?> beanClass = raw;
+		boolean classNamed = "@class".equals(key);
+		if (classNamed) {
+			expect('"');
+			beanClass = beanCodecs.resolveClass(readString());
+			// null when @class was the only member and the closing brace has been read
+			key = nextKey();
+		}
+
+		FxBeanCodec codec = beanCodecs.getBeanCodec(beanClass);
+		if (codec == null) {
+			// an object without @class read into an Object is a map; an @class must name a bean
+			if (raw == Object.class && !classNamed)
+				return readMap(Object.class, LinkedHashMap.class, key);
+			throw new InvalidClassException(beanClass.getName(), "class cannot be read as JSON");
+		}
+		if (!raw.isAssignableFrom(beanClass))
+			throw new InvalidClassException(beanClass.getName(), "is not a " + raw.getName());
+
+		Object bean = codec.newInstance();
+		beans.add(bean);
+		// decoding a proxy is not an edit, so its setters do not publish it
+		if (bean instanceof FxProxyInitializer)
+			((FxProxyInitializer) bean).setFxInitializing(true);
+		try {
+			readProperties(codec, beanClass, bean, key);
+		} finally {
+			if (bean instanceof FxProxyInitializer)
+				((FxProxyInitializer) bean).setFxInitializing(false);
+		}
+		return bean;
+	}
+
+	private void readProperties(FxBeanCodec codec, Class<?> beanClass, Object bean, String key)
+			throws IOException, ClassNotFoundException {
+		FxBeanSchema schema = codec.getSchema();
+		while (key != null) {
+			int property = schema.indexOf(key);
+			if (property < 0) {
+				skipValue();
+			} else {
+				Object value = readValue(schema.getPropertyGenericType(property));
+				if (value != null || schema.getPropertyType(property) == FxBeanSchema.OBJECT) {
+					try {
+						codec.setValue(bean, property, value);
+					} catch (ClassCastException e) {
+						throw new InvalidClassException(beanClass.getName(),
+								"property " + key + " cannot be assigned a " + value.getClass().getName());
+					}
+				}
+			}
+			key = nextKey();
+		}
+	}
+
+	/**
+	 * @param firstKey key already read, or null if no key has been read
+	 */
+	@SuppressWarnings("unchecked")
+	private Object readMap(Type declared, Class<?> raw, String firstKey) throws IOException, ClassNotFoundException {
+		Map<Object, Object> map = (Map<Object, Object>) newContainer(raw);
+		Class<?> keyType = FxJsonCodec.rawClass(FxJsonCodec.typeArgument(declared, 0));
+		Type valueType = FxJsonCodec.typeArgument(declared, 1);
+		String key = firstKey;
+		if (key == null) {
+			if (peek() == '}') {
+				position++;
+				return map;
+			}
+			key = readKey();
+		}
+		while (key != null) {
+			map.put(convertString(key, keyType), readValue(valueType));
+			key = nextKey();
+		}
+		return map;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Object readCollection(Type declared, Class<?> raw) throws IOException, ClassNotFoundException {
+		Collection<Object> collection = (Collection<Object>) newContainer(raw);
+		Type elementType = FxJsonCodec.typeArgument(declared, 0);
+		if (peek() == ']') {
+			position++;
+			return collection;
+		}
+		do {
+			collection.add(readValue(elementType));
+		} while (nextElement());
+		return collection;
+	}
+
+	private Object readArray(Type declared, Class<?> raw) throws IOException, ClassNotFoundException {
+		Type componentType = FxJsonCodec.componentType(declared);
+		List<Object> elements = new ArrayList<>();
+		if (peek() == ']')
+			position++;
+		else
+			do {
+				elements.add(readValue(componentType));
+			} while (nextElement());
+		Object array = Array.newInstance(raw.getComponentType(), elements.size());
+		for (int i = 0; i < elements.size(); i++) {
+			Object element = elements.get(i);
+			if (element == null && raw.getComponentType().isPrimitive())
+				throw syntaxError("null element in an array of " + raw.getComponentType());
+			Array.set(array, i, element);
+		}
+		return array;
+	}
+
+	private Object newContainer(Class<?> raw) throws InvalidClassException {
+		if (raw.isInterface() || raw == Object.class || java.lang.reflect.Modifier.isAbstract(raw.getModifiers())) {
+			if (raw.isAssignableFrom(ArrayList.class))
+				return new ArrayList<>();
+			if (raw.isAssignableFrom(TreeSet.class) && SortedSet.class.isAssignableFrom(raw))
+				return new TreeSet<>();
+			if (raw.isAssignableFrom(LinkedHashSet.class))
+				return new LinkedHashSet<>();
+			if (raw.isAssignableFrom(TreeMap.class) && SortedMap.class.isAssignableFrom(raw))
+				return new TreeMap<>();
+			if (raw.isAssignableFrom(LinkedHashMap.class))
+				return new LinkedHashMap<>();
+			throw new InvalidClassException(raw.getName(), "no default implementation to read JSON into");
+		}
+		if (raw == ArrayList.class)
+			return new ArrayList<>();
+		if (raw == HashSet.class)
+			return new HashSet<>();
+		if (raw == HashMap.class)
+			return new HashMap<>();
+		if (raw == LinkedList.class)
+			return new LinkedList<>();
+		try {
+			return raw.newInstance();
+		} catch (InstantiationException | IllegalAccessException e) {
+			throw new InvalidClassException(raw.getName(), "cannot be instantiated: " + e.getMessage());
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private Object convertString(String s, Class<?> raw) throws IOException {
+		if (raw == String.class || raw == Object.class || raw == CharSequence.class)
+			return s;
+		try {
+			if (raw.isEnum())
+				return Enum.valueOf((Class) raw, s);
+			if (raw == LocalDate.class)
+				return LocalDate.parse(s);
+			if (raw == LocalDateTime.class)
+				return LocalDateTime.parse(s);
+			if ((raw == char.class || raw == Character.class) && s.length() == 1)
+				return s.charAt(0);
+			if (Number.class.isAssignableFrom(raw) || (raw.isPrimitive() && raw != boolean.class))
+				return convertNumber(s, raw);
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw syntaxError("\"" + s + "\" is not a " + raw.getName());
+		}
+		throw syntaxError("A string cannot be read as a " + raw.getName());
+	}
+
+	private Object convertNumber(String s, Class<?> raw) throws IOException {
+		try {
+			if (raw == int.class || raw == Integer.class)
+				return Integer.valueOf(s);
+			if (raw == long.class || raw == Long.class)
+				return Long.valueOf(s);
+			if (raw == double.class || raw == Double.class)
+				return Double.valueOf(s);
+			if (raw == float.class || raw == Float.class)
+				return Float.valueOf(s);
+			if (raw == short.class || raw == Short.class)
+				return Short.valueOf(s);
+			if (raw == byte.class || raw == Byte.class)
+				return Byte.valueOf(s);
+			if (raw == BigDecimal.class)
+				return new BigDecimal(s);
+			if (raw == BigInteger.class)
+				return new BigInteger(s);
+			if (raw == Date.class)
+				return new Date(Long.parseLong(s));
+			if (raw == Object.class || raw == Number.class) {
+				if (s.indexOf('.') >= 0 || s.indexOf('e') >= 0 || s.indexOf('E') >= 0)
+					return Double.valueOf(s);
+				BigInteger value = new BigInteger(s);
+				return value.bitLength() < 64 ? (Object) value.longValue() : value;
+			}
+		} catch (NumberFormatException e) {
+			throw syntaxError(s + " is not a " + raw.getName());
+		}
+		throw syntaxError("A number cannot be read as a " + raw.getName());
+	}
+
+	private String readKey() throws IOException {
+		expect('"');
+		String key = readString();
+		expect(':');
+		return key;
+	}
+
+	/**
+	 * @return the next key of the current object, or null at its end
+	 */
+	private String nextKey() throws IOException {
+		int c = peek();
+		position++;
+		if (c == '}')
+			return null;
+		if (c != ',')
+			throw syntaxError("Expected ',' or '}'");
+		return readKey();
+	}
+
+	/**
+	 * @return true if another element of the current array follows
+	 */
+	private boolean nextElement() throws IOException {
+		int c = peek();
+		position++;
+		if (c == ']')
+			return false;
+		if (c != ',')
+			throw syntaxError("Expected ',' or ']'");
+		return true;
+	}
+
+	private void skipValue() throws IOException, ClassNotFoundException {
+		int c = peek();
+		if (c == '{') {
+			position++;
+			if (peek() == '}') {
+				position++;
+				return;
+			}
+			String key = readKey();
+			while (key != null) {
+				skipValue();
+				key = nextKey();
+			}
+		} else if (c == '[') {
+			position++;
+			if (peek() == ']') {
+				position++;
+				return;
+			}
+			do {
+				skipValue();
+			} while (nextElement());
+		} else {
+			readValue(Object.class);
+		}
+	}
+
+	/**
+	 * Reads the rest of a string whose opening quote was consumed
+	 */
+	private String readString() throws IOException {
+		// fast path: the whole string is in the buffer and has no escapes
+		for (int i = position; i < limit; i++) {
+			char c = buffer[i];
+			if (c == '"') {
+				String s = new String(buffer, position, i - position);
+				position = i + 1;
+				return s;
+			}
+			if (c == '\\')
+				break;
+		}
+
+		text.setLength(0);
+		while (true) {
+			char c = next();
+			if (c == '"')
+				return text.toString();
+			if (c != '\\') {
+				text.append(c);
+				continue;
+			}
+			c = next();
+			switch (c) {
+			case 'n':
+				text.append('\n');
+				break;
+			case 'r':
+				text.append('\r');
+				break;
+			case 't':
+				text.append('\t');
+				break;
+			case 'b':
+				text.append('\b');
+				break;
+			case 'f':
+				text.append('\f');
+				break;
+			case 'u':
+				int code = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(next(), 16);
+					if (digit < 0)
+						throw syntaxError("Invalid unicode escape");
+					code = code * 16 + digit;
+				}
+				text.append((char) code);
+				break;
+			default:
+				// \" \\ and \/
+				text.append(c);
+			}
+		}
+	}
+
+	private String readNumber() throws IOException {
+		text.setLength(0);
+		while (true) {
+			if (position == limit && !fill())
+				break;
+			char c = buffer[position];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				text.append(c);
+				position++;
+			} else
+				break;
+		}
+		return text.toString();
+	}
+
+	private int readNumberAsInt() throws IOException {
+		if (peek() == -1)
+			throw new EOFException();
+		try {
+			return Integer.parseInt(readNumber());
+		} catch (NumberFormatException e) {
+			throw syntaxError("Expected an integer");
+		}
+	}
+
+	private void expectWord(String word) throws IOException {
+		for (int i = 0; i < word.length(); i++)
+			if (next() != word.charAt(i))
+				throw syntaxError("Expected " + word);
+	}
+
+	private void expect(char expected) throws IOException {
+		int c = peek();
+		if (c != expected)
+			throw syntaxError("Expected '" + expected + "'");
+		position++;
+	}
+
+	/**
+	 * Checks that only white space follows the document
+	 */
+	void expectEnd() throws IOException {
+		if (peek() != -1)
+			throw syntaxError("Unexpected content after the end of the document");
+	}
+
+	/**
+	 * @return the next character that is not white space, without consuming it, or -1 at the end of the stream
+	 */
+	private int peek() throws IOException {
+		while (true) {
+			if (position == limit && !fill())
+				return -1;
+			char c = buffer[position];
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+				return c;
+			position++;
+		}
+	}
+
+	private char next() throws IOException {
+		if (position == limit && !fill())
+			throw new EOFException("Unexpected end of JSON document");
+		return buffer[position++];
+	}
+
+	private boolean fill() throws IOException {
+		consumed += limit;
+		position = 0;
+		limit = 0;
+		int n = in.read(buffer, 0, buffer.length);
+		if (n <= 0)
+			return false;
+		limit = n;
+		return true;
+	}
+
+	private StreamCorruptedException syntaxError(String message) {
+		return new StreamCorruptedException(message + " at character " + (consumed + position));
+	}
+}
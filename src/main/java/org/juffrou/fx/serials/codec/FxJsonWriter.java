@@ -0,0 +1,226 @@
+package org.juffrou.fx.serials.codec;
+
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Writes one JSON document for a {@link FxJsonCodec}.
+ */
+final class FxJsonWriter {
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final FxBinaryCodec beanCodecs;
+	private final Writer out;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int position;
+
+	// beans by the order they were written, for @ref
+	private final IdentityHashMap<Object, Integer> beans = new IdentityHashMap<>();
+	// collections being written, to detect collections that contain themselves
+	private final IdentityHashMap<Object, Boolean> openContainers = new IdentityHashMap<>();
+
+	FxJsonWriter(FxBinaryCodec beanCodecs, Writer out) {
+		this.beanCodecs = beanCodecs;
+		this.out = out;
+	}
+
+	/**
+	 * @param value value to write
+	 * @param declared type the reader will expect, or null if the reader is told the type of the value
+	 */
+	void writeValue(Object value, Type declared) throws IOException {
+		if (value == null) {
+			write("null");
+			return;
+		}
+		Class<?> type = value.getClass();
+		if (type == String.class) {
+			writeString((String) value);
+		} else if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class
+				|| type == BigInteger.class || type == BigDecimal.class) {
+			write(value.toString());
+		} else if (type == Double.class || type == Float.class) {
+			double d = ((Number) value).doubleValue();
+			if (Double.isNaN(d) || Double.isInfinite(d))
+				throw new IOException(value + " cannot be written as a JSON number");
+			write(value.toString());
+		} else if (type == Boolean.class) {
+			write((Boolean) value ? "true" : "false");
+		} else if (type == Character.class) {
+			writeString(value.toString());
+		} else if (value instanceof Enum) {
+			writeString(((Enum<?>) value).name());
+		} else if (type == LocalDate.class || type == LocalDateTime.class) {
+			writeString(value.toString());
+		} else if (type == Date.class) {
+			write(Long.toString(((Date) value).getTime()));
+		} else if (value instanceof Map) {
+			enter(value);
+			writeMap((Map<?, ?>) value, declared);
+			openContainers.remove(value);
+		} else if (value instanceof Collection) {
+			enter(value);
+			writeCollection((Collection<?>) value, declared);
+			openContainers.remove(value);
+		} else if (type.isArray()) {
+			enter(value);
+			writeArray(value, declared);
+			openContainers.remove(value);
+		} else {
+			writeBean(value, type, declared);
+		}
+	}
+
+	private void writeBean(Object bean, Class<?> type, Type declared) throws IOException {
+		FxBeanCodec codec = beanCodecs.getBeanCodec(type);
+		if (codec == null)
+			throw new NotSerializableException(type.getName() + " cannot be written as JSON");
+
+		write('{');
+		Integer ref = beans.get(bean);
+		if (ref != null) {
+			write("\"@ref\":");
+			write(ref.toString());
+			write('}');
+			return;
+		}
+		beans.put(bean, beans.size());
+
+		Class<?> beanClass = beanCodecs.getBeanClass(type);
+		boolean first = true;
+		if (declared != null && FxJsonCodec.rawClass(declared) != beanClass) {
+			write("\"@class\":");
+			writeString(beanClass.getName());
+			first = false;
+		}
+		FxBeanSchema schema = codec.getSchema();
+		for (int i = 0; i < schema.getPropertyCount(); i++) {
+			if (!first)
+				write(',');
+			first = false;
+			writeString(schema.getPropertyName(i));
+			write(':');
+			writeValue(codec.getValue(bean, i), schema.getPropertyGenericType(i));
+		}
+		write('}');
+	}
+
+	private void writeMap(Map<?, ?> map, Type declared) throws IOException {
+		Type valueType = FxJsonCodec.typeArgument(declared, 1);
+		write('{');
+		boolean first = true;
+		for (Entry<?, ?> entry : map.entrySet()) {
+			if (!first)
+				write(',');
+			first = false;
+			Object key = entry.getKey();
+			writeString(key instanceof Enum ? ((Enum<?>) key).name() : String.valueOf(key));
+			write(':');
+			writeValue(entry.getValue(), valueType);
+		}
+		write('}');
+	}
+
+	private void writeCollection(Collection<?> collection, Type declared) throws IOException {
+		Type elementType = FxJsonCodec.typeArgument(declared, 0);
+		write('[');
+		boolean first = true;
+		for (Object element : collection) {
+			if (!first)
+				write(',');
+			first = false;
+			writeValue(element, elementType);
+		}
+		write(']');
+	}
+
+	private void writeArray(Object array, Type declared) throws IOException {
+		Type componentType = declared != null ? FxJsonCodec.componentType(declared) : array.getClass().getComponentType();
+		write('[');
+		int length = Array.getLength(array);
+		for (int i = 0; i < length; i++) {
+			if (i > 0)
+				write(',');
+			writeValue(Array.get(array, i), componentType);
+		}
+		write(']');
+	}
+
+	private void enter(Object container) throws IOException {
+		if (openContainers.put(container, Boolean.TRUE) != null)
+			throw new IOException("A " + container.getClass().getName() + " contains itself and cannot be written as JSON");
+	}
+
+	private void writeString(String s) throws IOException {
+		write('"');
+		int length = s.length();
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				write('\\');
+				write(c);
+			} else if (c < 0x20) {
+				switch (c) {
+				case '\n':
+					write("\\n");
+					break;
+				case '\r':
+					write("\\r");
+					break;
+				case '\t':
+					write("\\t");
+					break;
+				default:
+					write("\\u00");
+					write(HEX[c >> 4]);
+					write(HEX[c & 0xF]);
+				}
+			} else {
+				write(c);
+			}
+		}
+		write('"');
+	}
+
+	private void write(char c) throws IOException {
+		if (position == buffer.length)
+			drain();
+		buffer[position++] = c;
+	}
+
+	private void write(String s) throws IOException {
+		int length = s.length();
+		if (length > buffer.length - position)
+			drain();
+		if (length > buffer.length) {
+			out.write(s);
+			return;
+		}
+		s.getChars(0, length, buffer, position);
+		position += length;
+	}
+
+	private void drain() throws IOException {
+		out.write(buffer, 0, position);
+		position = 0;
+	}
+
+	void flush() throws IOException {
+		drain();
+		out.flush();
+	}
+}
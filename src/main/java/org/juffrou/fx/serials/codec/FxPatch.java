@@ -0,0 +1,241 @@
+package org.juffrou.fx.serials.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a patch written by a {@link FxChangeRecorder} to a graph of beans.
+ * <p>
+ * A patch starts with the path from the root to each bean of the graph it refers to: a sequence of bean property
+ * names and of positions in the lists, sets, maps and object arrays along the way (see {@link FxGraphIndex}). The
+ * graph given to {@link #apply(FxBinaryCodec, Object, InputStream)} must therefore be equal to the graph the
+ * recorder started on. Only the beans on those paths are visited, and all values are decoded before the first one
+ * is set, so applying a patch costs in proportion to the change and to the length of the paths. A position in a
+ * list or an array is reached directly; a position in a set or a map is reached by iterating up to it.
+ * <br>
+ * A collection or map sent whole replaces the content of the current one, keeping its instance, unless the current
+ * one is null or cannot be modified. Additions and removals are replayed on the current collection.
+ */
+public final class FxPatch {
+
+	static final int VALUE = 0;
+	static final int LIST_OPERATIONS = 1;
+	static final int SET_OPERATIONS = 2;
+	static final int MAP_OPERATIONS = 3;
+
+	static final int REMOVE = 0;
+	static final int ADD = 1;
+
+	private FxPatch() {
+	}
+
+	/**
+	 * Applies a patch.
+	 * @param codec the codec that decodes the values, usually created by {@link FxBinaryCodec#proxyRemover()}
+	 * @param root root of the graph to change
+	 * @param patch the patch
+	 * @return number of properties set
+	 * @throws IOException if the patch is corrupted or refers to an object or property that the graph does not have
+	 * @throws ClassNotFoundException if the class of a value cannot be found
+	 */
+	public static int apply(FxBinaryCodec codec, Object root, byte[] patch) throws IOException, ClassNotFoundException {
+		return apply(codec, root, new ByteArrayInputStream(patch));
+	}
+
+	/**
+	 * Applies a patch.
+	 * @param codec the codec that decodes the values, usually created by {@link FxBinaryCodec#proxyRemover()}
+	 * @param root root of the graph to change
+	 * @param in stream with the patch
+	 * @return number of properties set
+	 * @throws IOException if the patch is corrupted or refers to an object or property that the graph does not have
+	 * @throws ClassNotFoundException if the class of a value cannot be found
+	 */
+	public static int apply(FxBinaryCodec codec, Object root, InputStream in) throws IOException, ClassNotFoundException {
+		FxBinaryReader reader = codec.newReader(in);
+		int referenced = reader.readVarInt();
+		if (referenced < 0)
+			throw new StreamCorruptedException("Invalid bean count " + referenced);
+		Object[] table = new Object[referenced];
+		for (int i = 0; i < referenced; i++)
+			table[i] = follow(codec, root, reader);
+		reader.setExternalObjects(id -> id >= 0 && id < table.length ? table[id] : null);
+		int count = reader.readVarInt();
+		if (count < 0)
+			throw new StreamCorruptedException("Invalid change count " + count);
+
+		// decode everything first, since setting a value changes the paths
+		Object[] beans = new Object[count];
+		int[] properties = new int[count];
+		int[] kinds = new int[count];
+		Object[] values = new Object[count];
+		for (int i = 0; i < count; i++) {
+			int id = reader.readVarInt();
+			String propertyName = reader.readString();
+			if (id < 0 || id >= table.length)
+				throw new StreamCorruptedException("The patch has no object " + id);
+			beans[i] = table[id];
+			properties[i] = codec.getBeanCodec(beans[i].getClass()).getSchema().indexOf(propertyName);
+			if (properties[i] < 0)
+				throw new InvalidClassException(beans[i].getClass().getName(), "no property " + propertyName);
+			kinds[i] = reader.readVarInt();
+			values[i] = kinds[i] == VALUE ? reader.readValue() : readOperations(reader, kinds[i]);
+		}
+
+		for (int i = 0; i < count; i++) {
+			FxBeanCodec beanCodec = codec.getBeanCodec(beans[i].getClass());
+			if (kinds[i] == VALUE)
+				set(beanCodec, beans[i], properties[i], values[i]);
+			else
+				replay(beanCodec, beans[i], properties[i], kinds[i], (Object[]) values[i]);
+		}
+		return count;
+	}
+
+	/**
+	 * Reads a path written by {@link FxGraphIndex#writePath(FxBinaryWriter, Object)} and follows it from the root
+	 * @return the bean at the end of the path
+	 */
+	private static Object follow(FxBinaryCodec codec, Object root, FxBinaryReader reader) throws IOException {
+		int length = reader.readVarInt();
+		if (length < 0)
+			throw new StreamCorruptedException("Invalid path length " + length);
+		Object current = root;
+		for (int i = 0; i < length; i++) {
+			int step = reader.readVarInt();
+			if (current == null)
+				throw new StreamCorruptedException("The graph has no object at the path of the patch");
+			if (step == 0) {
+				String propertyName = reader.readString();
+				FxBeanCodec beanCodec = codec.getBeanCodec(current.getClass());
+				if (beanCodec == null)
+					throw new InvalidClassException(current.getClass().getName(), "not a bean");
+				int property = beanCodec.getSchema().indexOf(propertyName);
+				if (property < 0)
+					throw new InvalidClassException(current.getClass().getName(), "no property " + propertyName);
+				current = beanCodec.getValue(current, property);
+			} else {
+				current = element(current, step - 1);
+			}
+		}
+		if (current == null || codec.getBeanCodec(current.getClass()) == null)
+			throw new StreamCorruptedException("The graph has no bean at the path of the patch");
+		return current;
+	}
+
+	private static Object element(Object container, int position) throws StreamCorruptedException {
+		if (position >= 0) {
+			if (container instanceof List) {
+				List<?> list = (List<?>) container;
+				if (position < list.size())
+					return list.get(position);
+			} else if (container instanceof Object[]) {
+				Object[] array = (Object[]) container;
+				if (position < array.length)
+					return array[position];
+			} else if (container instanceof Collection) {
+				Iterator<?> iterator = ((Collection<?>) container).iterator();
+				for (int i = 0; iterator.hasNext(); i++) {
+					Object element = iterator.next();
+					if (i == position)
+						return element;
+				}
+			} else if (container instanceof Map) {
+				Iterator<? extends Map.Entry<?, ?>> iterator = ((Map<?, ?>) container).entrySet().iterator();
+				for (int i = 0; iterator.hasNext(); i += 2) {
+					Map.Entry<?, ?> entry = iterator.next();
+					if (i == position)
+						return entry.getKey();
+					if (i + 1 == position)
+						return entry.getValue();
+				}
+			}
+		}
+		throw new StreamCorruptedException("The graph has no element " + position + " at the path of the patch");
+	}
+
+	/**
+	 * @return the operations as a flat array of code, element or index, and value or count
+	 */
+	private static Object[] readOperations(FxBinaryReader reader, int kind) throws IOException, ClassNotFoundException {
+		if (kind != LIST_OPERATIONS && kind != SET_OPERATIONS && kind != MAP_OPERATIONS)
+			throw new StreamCorruptedException("Invalid change kind " + kind);
+		int size = reader.readVarInt();
+		if (size < 0)
+			throw new StreamCorruptedException("Invalid operation count " + size);
+		Object[] operations = new Object[size * 3];
+		for (int i = 0; i < operations.length; i += 3) {
+			int code = reader.readVarInt();
+			if (code != REMOVE && code != ADD)
+				throw new StreamCorruptedException("Invalid operation " + code);
+			operations[i] = code;
+			if (kind == LIST_OPERATIONS) {
+				operations[i + 1] = reader.readVarInt();
+				operations[i + 2] = code == REMOVE ? (Object) reader.readVarInt() : reader.readValue();
+			} else {
+				operations[i + 1] = reader.readValue();
+				if (code == ADD && kind == MAP_OPERATIONS)
+					operations[i + 2] = reader.readValue();
+			}
+		}
+		return operations;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void replay(FxBeanCodec beanCodec, Object bean, int property, int kind, Object[] operations)
+			throws StreamCorruptedException {
+		Object current = beanCodec.getValue(bean, property);
+		if (kind == LIST_OPERATIONS ? !(current instanceof List)
+				: kind == SET_OPERATIONS ? !(current instanceof Collection) : !(current instanceof Map))
+			throw new StreamCorruptedException("Property " + beanCodec.getSchema().getPropertyName(property) + " of "
+					+ bean.getClass().getName() + " is not the collection that was changed");
+		for (int i = 0; i < operations.length; i += 3) {
+			boolean add = (Integer) operations[i] == ADD;
+			if (kind == LIST_OPERATIONS) {
+				List list = (List) current;
+				int index = (Integer) operations[i + 1];
+				if (add)
+					list.addAll(index, (Collection) operations[i + 2]);
+				else
+					list.subList(index, index + (Integer) operations[i + 2]).clear();
+			} else if (kind == SET_OPERATIONS) {
+				if (add)
+					((Collection) current).add(operations[i + 1]);
+				else
+					((Collection) current).remove(operations[i + 1]);
+			} else if (add)
+				((Map) current).put(operations[i + 1], operations[i + 2]);
+			else
+				((Map) current).remove(operations[i + 1]);
+		}
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static void set(FxBeanCodec beanCodec, Object bean, int property, Object value) {
+		Object current = beanCodec.getValue(bean, property);
+		if (current != null && current != value) {
+			try {
+				if (current instanceof Collection && value instanceof Collection) {
+					((Collection) current).clear();
+					((Collection) current).addAll((Collection) value);
+					return;
+				}
+				if (current instanceof Map && value instanceof Map) {
+					((Map) current).clear();
+					((Map) current).putAll((Map) value);
+					return;
+				}
+			} catch (UnsupportedOperationException e) {
+				// an unmodifiable collection is replaced
+			}
+		}
+		beanCodec.setValue(bean, property, value);
+	}
+}
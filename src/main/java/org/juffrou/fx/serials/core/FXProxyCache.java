@@ -1,17 +1,19 @@
 package org.juffrou.fx.serials.core;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Keeps a cache of objects and proxies processed during serialization / deserialization
+ * Keeps a cache of objects and proxies processed during serialization / deserialization.<p>
+ * The cache is thread safe, so one instance may be shared by streams running concurrently.
  * @author cem
  *
  */
 public class FXProxyCache {
 
-	private Map<Class<?>, Class<?>> proxyClassCache = new HashMap<>();
-	private Map<String, Class<?>> proxyClassNameCache = new HashMap<>();
+	private Map<Class<?>, Class<?>> proxyClassCache = new ConcurrentHashMap<>();
+	private Map<String, Class<?>> proxyClassNameCache = new ConcurrentHashMap<>();
+	private Map<String, Class<?>> resolvedClassCache = new ConcurrentHashMap<>();
 	
 	public void put(Class<?> originalClass, Class<?> proxyClass) {
 		proxyClassCache.put(originalClass, proxyClass);
@@ -29,4 +31,25 @@ public class FXProxyCache {
 	public Class<?> getOriginalFromProxyClass(Class<?> proxyClass) {
 		return proxyClass.getSuperclass();
 	}
+
+	/**
+	 * Remembers the proxy class that a class descriptor name was resolved to, so that other streams sharing this
+	 * cache do not resolve it again.<br>
+	 * Only proxy classes are kept, since they are all defined by the proxy builder. Other classes are resolved by
+	 * each stream with the class loader of its caller, and caching them by name alone would hand the class of one
+	 * class loader to the callers of another.
+	 * @param descriptorName proxy class name in the stream
+	 * @param resolvedClass proxy class
+	 */
+	public void putResolvedClass(String descriptorName, Class<?> resolvedClass) {
+		resolvedClassCache.put(descriptorName, resolvedClass);
+	}
+
+	/**
+	 * @param descriptorName proxy class name in the stream
+	 * @return the proxy class that the name was resolved to, or null if it was not resolved yet
+	 */
+	public Class<?> getResolvedClass(String descriptorName) {
+		return resolvedClassCache.get(descriptorName);
+	}
 }
@@ -0,0 +1,250 @@
+package org.juffrou.fx.serials.core;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.juffrou.fx.serials.codec.FxBeanCodec;
+import org.juffrou.fx.serials.codec.FxBeanSchema;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder.FieldInfo;
+import org.juffrou.fx.serials.error.FxSerialsProxyCreationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javassist.CannotCompileException;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.NotFoundException;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.MethodInfo;
+
+/**
+ * Creates {@link FxBeanCodec} classes at runtime.
+ * <p>
+ * The codec of a class encodes the bean properties found by {@link FxSerialsProxyBuilder}, sorted by name, with
+ * direct calls to their getters and setters. A class only gets a codec when every one of its serializable fields
+ * is a read/write bean property and it has no custom serialization methods, so that the codec carries the same
+ * state as Java serialization would.
+ */
+public class FxBeanCodecBuilder {
+
+	private static final Logger logger = LoggerFactory.getLogger(FxBeanCodecBuilder.class);
+
+	private static final String CODEC_SUFFIX = "_FxBeanCodec";
+	private static final String CODEC_CLASS = "org.juffrou.fx.serials.codec.FxBeanCodec";
+	private static final String WRITER_CLASS = "org.juffrou.fx.serials.codec.FxBinaryWriter";
+	private static final String READER_CLASS = "org.juffrou.fx.serials.codec.FxBinaryReader";
+
+	private final FxSerialsProxyBuilder proxyBuilder;
+
+	/**
+	 * @param proxyBuilder the proxy builder whose bean property metadata and class pool are used
+	 */
+	public FxBeanCodecBuilder(FxSerialsProxyBuilder proxyBuilder) {
+		this.proxyBuilder = proxyBuilder;
+	}
+
+	/**
+	 * Tells whether a class can be encoded by a generated codec.
+	 * @param beanClass a traditional Java Bean class
+	 * @return true if {@link #buildCodec(Class, Class)} can be called for the class
+	 */
+	public boolean isEncodable(Class<?> beanClass) {
+		return collectProperties(beanClass) != null;
+	}
+
+	/**
+	 * Creates the schema of the properties encoded for a class.
+	 * @param beanClass a traditional Java Bean class
+	 * @return the schema, or null if the class is not encodable
+	 */
+	public FxBeanSchema buildSchema(Class<?> beanClass) {
+		List<FieldInfo> properties = collectProperties(beanClass);
+		if (properties == null)
+			return null;
+		String[] names = new String[properties.size()];
+		char[] types = new char[properties.size()];
+		Type[] genericTypes = new Type[properties.size()];
+		for (int i = 0; i < names.length; i++) {
+			Field field = properties.get(i).field;
+			names[i] = field.getName();
+			types[i] = field.getType().isPrimitive() ? typeCode(field.getType()) : FxBeanSchema.OBJECT;
+			genericTypes[i] = field.getGenericType();
+		}
+		return new FxBeanSchema(beanClass.getName(), names, types, genericTypes);
+	}
+
+	/**
+	 * Creates the codec of a class.
+	 * @param beanClass a traditional Java Bean class
+	 * @param instanceClass class instantiated when decoding: the bean class or its proxy
+	 * @return a new codec instance
+	 * @throws FxSerialsProxyCreationException if the class is not encodable or the codec cannot be generated
+	 */
+	public FxBeanCodec buildCodec(Class<?> beanClass, Class<?> instanceClass) {
+		List<FieldInfo> properties = collectProperties(beanClass);
+		if (properties == null)
+			throw new FxSerialsProxyCreationException(beanClass.getName()
+					+ " cannot be encoded by a generated codec: it must be a public class with a public no-arg constructor, no custom serialization methods and only read/write bean properties");
+		if (!beanClass.isAssignableFrom(instanceClass))
+			throw new IllegalArgumentException(instanceClass.getName() + " is not a " + beanClass.getName());
+
+		String codecName = codecClassName(beanClass, instanceClass);
+		Class<?> codecClass;
+		// the class pool is not thread safe, and it is shared with the proxy builder and possibly JVM-wide
+		synchronized (proxyBuilder.getClassPool()) {
+			codecClass = generateCodecClass(codecName, beanClass, instanceClass, properties);
+		}
+		try {
+			Constructor<?> constructor = codecClass.getConstructor(FxBeanSchema.class);
+			return (FxBeanCodec) constructor.newInstance(buildSchema(beanClass));
+		} catch (NoSuchMethodException | InstantiationException | IllegalAccessException
+				| InvocationTargetException e) {
+			throw new FxSerialsProxyCreationException("Error instantiating codec " + codecName + ": " + e.getMessage(),
+					e);
+		}
+	}
+
+	private String codecClassName(Class<?> beanClass, Class<?> instanceClass) {
+		String name = beanClass.getName();
+		int i = name.lastIndexOf('.');
+		String pck = (i == -1 ? FxSerialsProxyBuilder.JFX_PROXY_PACKAGE_NAME_WITH_END_DOT
+				: name.substring(0, i) + FxSerialsProxyBuilder.JFX_PROXY_PACKAGE_NAME_WITH_DOTS);
+		String suffix = instanceClass == beanClass ? CODEC_SUFFIX : "_Proxy" + CODEC_SUFFIX;
+		return pck + name.substring(i + 1) + suffix;
+	}
+
+	private Class<?> generateCodecClass(String codecName, Class<?> beanClass, Class<?> instanceClass,
+			List<FieldInfo> properties) {
+		ClassPool pool = proxyBuilder.getClassPool();
+		try {
+			if (pool.getOrNull(codecName) != null) {
+				if (logger.isDebugEnabled())
+					logger.debug("Found existing codec " + codecName);
+				return Class.forName(codecName, true, Thread.currentThread().getContextClassLoader());
+			}
+
+			if (logger.isDebugEnabled())
+				logger.debug("Creating codec " + codecName);
+
+			CtClass ctClass = pool.makeClass(codecName, pool.get(CODEC_CLASS));
+			ctClass.addConstructor(CtNewConstructor.make(
+					"public " + ctClass.getSimpleName() + "(org.juffrou.fx.serials.codec.FxBeanSchema schema) { super(schema); }",
+					ctClass));
+			ctClass.addMethod(newInstanceMethod(ctClass, instanceClass));
+
+			String bean = sourceName(beanClass);
+			StringBuilder write = new StringBuilder();
+			StringBuilder read = new StringBuilder();
+			StringBuilder getValue = new StringBuilder();
+			StringBuilder setValue = new StringBuilder();
+			write.append("public void write(Object bean, " + WRITER_CLASS + " out) throws java.io.IOException {");
+			write.append(bean + " b = (" + bean + ") bean;");
+			read.append("public void read(Object bean, " + READER_CLASS
+					+ " in) throws java.io.IOException, ClassNotFoundException {");
+			read.append(bean + " b = (" + bean + ") bean;");
+			getValue.append("public Object getValue(Object bean, int property) {");
+			getValue.append(bean + " b = (" + bean + ") bean;");
+			setValue.append("public void setValue(Object bean, int property, Object value) {");
+			setValue.append(bean + " b = (" + bean + ") bean;");
+
+			for (int i = 0; i < properties.size(); i++) {
+				FieldInfo fieldInfo = properties.get(i);
+				Class<?> type = fieldInfo.field.getType();
+				String get = "b." + fieldInfo.getter + "()";
+				if (type.isPrimitive()) {
+					String typeName = Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+					String wrapper = wrapperName(type);
+					write.append("out.write" + typeName + "(" + get + ");");
+					read.append("b." + fieldInfo.setter + "(in.read" + typeName + "());");
+					getValue.append("if (property == " + i + ") return " + wrapper + ".valueOf(" + get + ");");
+					setValue.append("if (property == " + i + ") { b." + fieldInfo.setter + "(((" + wrapper + ") value)."
+							+ type.getName() + "Value()); return; }");
+				} else {
+					String typeName = sourceName(type);
+					write.append("out.writeValue(" + get + ");");
+					read.append("b." + fieldInfo.setter + "((" + typeName + ") in.readValue());");
+					getValue.append("if (property == " + i + ") return " + get + ";");
+					setValue.append("if (property == " + i + ") { b." + fieldInfo.setter + "((" + typeName
+							+ ") value); return; }");
+				}
+			}
+			write.append("}");
+			read.append("}");
+			getValue.append("throw new IndexOutOfBoundsException(\"No property \" + property + \" in " + bean + "\"); }");
+			setValue.append("throw new IndexOutOfBoundsException(\"No property \" + property + \" in " + bean + "\"); }");
+			ctClass.addMethod(CtNewMethod.make(write.toString(), ctClass));
+			ctClass.addMethod(CtNewMethod.make(read.toString(), ctClass));
+			ctClass.addMethod(CtNewMethod.make(getValue.toString(), ctClass));
+			ctClass.addMethod(CtNewMethod.make(setValue.toString(), ctClass));
+
+			return ctClass.toClass();
+
+		} catch (NotFoundException | CannotCompileException | ClassNotFoundException e) {
+			throw new FxSerialsProxyCreationException(
+					"Error creating codec for class " + beanClass.getName() + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * The proxy class name has dollar signs, which the javassist compiler reads as special variables, so
+	 * newInstance() is written in bytecode.
+	 */
+	private CtMethod newInstanceMethod(CtClass ctClass, Class<?> instanceClass) throws CannotCompileException {
+		Bytecode code = new Bytecode(ctClass.getClassFile().getConstPool(), 2, 1);
+		code.addNew(instanceClass.getName());
+		code.addOpcode(Bytecode.DUP);
+		code.addInvokespecial(instanceClass.getName(), MethodInfo.nameInit, "()V");
+		code.addOpcode(Bytecode.ARETURN);
+		MethodInfo methodInfo = new MethodInfo(ctClass.getClassFile().getConstPool(), "newInstance",
+				"()Ljava/lang/Object;");
+		methodInfo.setCodeAttribute(code.toCodeAttribute());
+		methodInfo.setAccessFlags(javassist.bytecode.AccessFlag.PUBLIC);
+		return CtMethod.make(methodInfo, ctClass);
+	}
+
+	/**
+	 * @return the read/write properties of the class sorted by name, or null if the class is not encodable
+	 */
+	private List<FieldInfo> collectProperties(Class<?> beanClass) {
+		if (!Modifier.isPublic(beanClass.getModifiers()) || Modifier.isAbstract(beanClass.getModifiers())
+				|| beanClass.isInterface())
+			return null;
+		try {
+			if (!Modifier.isPublic(beanClass.getConstructor().getModifiers()))
+				return null;
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+		return proxyBuilder.collectReadWriteProperties(beanClass);
+	}
+
+	private static char typeCode(Class<?> type) {
+		if (type == boolean.class)
+			return 'Z';
+		if (type == long.class)
+			return 'J';
+		return Character.toUpperCase(type.getName().charAt(0));
+	}
+
+	private static String wrapperName(Class<?> type) {
+		if (type == int.class)
+			return "Integer";
+		if (type == char.class)
+			return "Character";
+		return Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+	}
+
+	private static String sourceName(Class<?> type) {
+		if (type.isArray())
+			return sourceName(type.getComponentType()) + "[]";
+		return type.getName().replace('$', '.');
+	}
+}
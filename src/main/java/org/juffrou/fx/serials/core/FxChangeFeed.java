@@ -0,0 +1,349 @@
+package org.juffrou.fx.serials.core;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded feed of the changes made to proxies, written by one thread and read by any number of consumers on other
+ * threads without locks.
+ * <p>
+ * The feed is a ring buffer of preallocated slots. Each change record holds the bean, the property name, the kind of
+ * change and the new value. Primitive values are stored in a <code>long</code> slot, doubles and floats as the raw bits
+ * of a double, so appending a record allocates nothing. A feed attached to the {@link FxChangeHub} of a bean class
+ * with {@link #attach(Class)} receives every change made through the setters of its proxies, including the
+ * collections and arrays the setters hand to the collection updaters. The setters append to the feed directly, with
+ * no boxing and without reading the old value. Proxies being filled by a stream or a codec, which may run on any
+ * thread, do not append, so only edits reach the feed.<br>
+ * Records are appended by a single producer thread, normally the JavaFX Application Thread. Every
+ * {@link Consumer} reads every record, from the thread of its choice, and tracks its own position. What happens when
+ * the producer laps the slowest consumer is set by the {@link Overflow} policy.<br>
+ * Slots keep a reference to the bean and value of their record until it is overwritten.
+ */
+public final class FxChangeFeed {
+
+	/**
+	 * What the producer does when the feed is full
+	 */
+	public enum Overflow {
+		/** Overwrites the oldest records. Consumers that were lapped skip the records they lost and count them. */
+		OVERWRITE,
+		/** Drops the new record and counts it in {@link FxChangeFeed#getDroppedCount()}. */
+		DROP,
+		/**
+		 * Waits until the slowest consumer has read the oldest record, or until the block timeout has passed, and then
+		 * drops the new record like {@link #DROP}. The producer spins while it waits, so a feed fed from the JavaFX
+		 * Application Thread should not use this policy without a short timeout: the UI freezes while it waits.
+		 */
+		BLOCK
+	}
+
+	/**
+	 * Receives the records read by a consumer
+	 */
+	@FunctionalInterface
+	public interface Handler {
+
+		/**
+		 * @param sequence position of the record in the feed, starting at 0
+		 * @param bean the proxy that changed
+		 * @param propertyName name of the property
+		 * @param kind one of the KIND constants of {@link FxChangeFeed}
+		 * @param value new value of the property, for {@link FxChangeFeed#KIND_VALUE} and
+		 *            {@link FxChangeFeed#KIND_COLLECTION}
+		 * @param primitive new value of the property, for {@link FxChangeFeed#KIND_LONG} and
+		 *            {@link FxChangeFeed#KIND_DOUBLE}
+		 * @see FxChangeFeed#valueOf(int, Object, long)
+		 */
+		void onChange(long sequence, Object bean, String propertyName, int kind, Object value, long primitive);
+	}
+
+	/** The property was given a new object value */
+	public static final int KIND_VALUE = 0;
+	/** The property was given a new collection, map or array */
+	public static final int KIND_COLLECTION = 1;
+	/** The property was given a new integral, char or boolean value, widened to a long. Booleans are 0 or 1. */
+	public static final int KIND_LONG = 2;
+	/** The property was given a new float or double value, held as the raw bits of a double */
+	public static final int KIND_DOUBLE = 3;
+
+	private static final long WRITING = -1L;
+	private static final Consumer[] NO_CONSUMERS = {};
+
+	private final int mask;
+	private final Overflow overflow;
+	private final long blockTimeoutNanos;
+	// sequence of the record held by each slot, WRITING while the producer fills it
+	private final AtomicLongArray sequences;
+	private final AtomicReferenceArray<Object> beans;
+	private final AtomicReferenceArray<String> propertyNames;
+	private final AtomicIntegerArray kinds;
+	private final AtomicReferenceArray<Object> values;
+	private final AtomicLongArray primitives;
+	// last published sequence
+	private final AtomicLong cursor = new AtomicLong(-1);
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile Consumer[] consumers = NO_CONSUMERS;
+	private long nextSequence;
+
+	/**
+	 * Creates a feed whose {@link Overflow#BLOCK} policy waits with no time limit
+	 * @param capacity number of slots, rounded up to a power of two
+	 * @param overflow what the producer does when the feed is full
+	 */
+	public FxChangeFeed(int capacity, Overflow overflow) {
+		this(capacity, overflow, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @param capacity number of slots, rounded up to a power of two
+	 * @param overflow what the producer does when the feed is full
+	 * @param blockTimeout longest time the {@link Overflow#BLOCK} policy waits before it drops a record
+	 * @param unit unit of the timeout
+	 */
+	public FxChangeFeed(int capacity, Overflow overflow, long blockTimeout, TimeUnit unit) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		if (blockTimeout < 0)
+			throw new IllegalArgumentException("Invalid timeout: " + blockTimeout);
+		this.blockTimeoutNanos = unit.toNanos(blockTimeout);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.mask = size - 1;
+		this.overflow = overflow;
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++)
+			sequences.set(i, WRITING);
+		this.beans = new AtomicReferenceArray<>(size);
+		this.propertyNames = new AtomicReferenceArray<>(size);
+		this.kinds = new AtomicIntegerArray(size);
+		this.values = new AtomicReferenceArray<>(size);
+		this.primitives = new AtomicLongArray(size);
+	}
+
+	/**
+	 * Appends the changes made through the setters of the proxies of a class
+	 * @param beanClass a bean class, or the class of one of its proxies
+	 */
+	public void attach(Class<?> beanClass) {
+		FxChangeHub.of(beanClass).attach(this);
+	}
+
+	/**
+	 * Stops appending the changes of the proxies of a class
+	 * @param beanClass a bean class, or the class of one of its proxies
+	 */
+	public void detach(Class<?> beanClass) {
+		FxChangeHub.of(beanClass).detach(this);
+	}
+
+	/**
+	 * Appends a change record with an object value. Must only be called by the producer thread.
+	 * @param kind {@link #KIND_VALUE} or {@link #KIND_COLLECTION}
+	 * @return false if the feed was full and the record was dropped
+	 */
+	public boolean append(Object bean, String propertyName, int kind, Object value) {
+		return append(bean, propertyName, kind, value, 0L);
+	}
+
+	/**
+	 * Appends a change record with a {@link #KIND_LONG} value. Must only be called by the producer thread.
+	 * @return false if the feed was full and the record was dropped
+	 */
+	public boolean appendLong(Object bean, String propertyName, long value) {
+		return append(bean, propertyName, KIND_LONG, null, value);
+	}
+
+	/**
+	 * Appends a change record with a {@link #KIND_DOUBLE} value. Must only be called by the producer thread.
+	 * @return false if the feed was full and the record was dropped
+	 */
+	public boolean appendDouble(Object bean, String propertyName, double value) {
+		return append(bean, propertyName, KIND_DOUBLE, null, Double.doubleToRawLongBits(value));
+	}
+
+	private boolean append(Object bean, String propertyName, int kind, Object value, long primitive) {
+		long sequence = nextSequence;
+		if (overflow != Overflow.OVERWRITE) {
+			long wrapPoint = sequence - mask - 1;
+			if (wrapPoint >= slowestConsumer() && (overflow == Overflow.DROP || !awaitConsumers(wrapPoint))) {
+				dropped.incrementAndGet();
+				return false;
+			}
+		}
+		int slot = (int) sequence & mask;
+		sequences.set(slot, WRITING);
+		beans.set(slot, bean);
+		propertyNames.set(slot, propertyName);
+		kinds.set(slot, kind);
+		values.set(slot, value);
+		primitives.set(slot, primitive);
+		sequences.set(slot, sequence);
+		nextSequence = sequence + 1;
+		cursor.set(sequence);
+		return true;
+	}
+
+	/**
+	 * Waits until every consumer is past a sequence
+	 * @return false if the block timeout passed first
+	 */
+	private boolean awaitConsumers(long wrapPoint) {
+		long start = System.nanoTime();
+		do {
+			Thread.yield();
+			if (wrapPoint < slowestConsumer())
+				return true;
+		} while (System.nanoTime() - start < blockTimeoutNanos);
+		return false;
+	}
+
+	/**
+	 * @return the value of a record, with primitive values boxed
+	 */
+	public static Object valueOf(int kind, Object value, long primitive) {
+		switch (kind) {
+		case KIND_LONG:
+			return primitive;
+		case KIND_DOUBLE:
+			return Double.longBitsToDouble(primitive);
+		default:
+			return value;
+		}
+	}
+
+	private long slowestConsumer() {
+		long slowest = Long.MAX_VALUE;
+		for (Consumer consumer : consumers)
+			slowest = Math.min(slowest, consumer.next.get());
+		return slowest;
+	}
+
+	/**
+	 * Creates a consumer that reads the records appended from now on. Consumers are independent, and each one must
+	 * be used by one thread at a time.
+	 * @return the consumer
+	 */
+	public Consumer newConsumer() {
+		Consumer consumer = new Consumer(cursor.get() + 1);
+		synchronized (this) {
+			Consumer[] copy = Arrays.copyOf(consumers, consumers.length + 1);
+			copy[consumers.length] = consumer;
+			consumers = copy;
+		}
+		return consumer;
+	}
+
+	private synchronized void remove(Consumer consumer) {
+		Consumer[] current = consumers;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == consumer) {
+				Consumer[] copy = Arrays.copyOf(current, current.length - 1);
+				System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+				consumers = copy;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return number of slots
+	 */
+	public int getCapacity() {
+		return mask + 1;
+	}
+
+	public Overflow getOverflow() {
+		return overflow;
+	}
+
+	/**
+	 * @return sequence of the last appended record, or -1 if none was appended
+	 */
+	public long getCursor() {
+		return cursor.get();
+	}
+
+	/**
+	 * @return number of records dropped by the {@link Overflow#DROP} policy, or by the {@link Overflow#BLOCK} policy
+	 *         after its timeout
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Reads the records of a {@link FxChangeFeed} in order
+	 */
+	public final class Consumer implements AutoCloseable {
+
+		// sequence of the next record to read
+		private final AtomicLong next;
+		private long lostCount;
+
+		private Consumer(long next) {
+			this.next = new AtomicLong(next);
+		}
+
+		/**
+		 * Reads the records available, at most max of them
+		 * @param handler receives the records
+		 * @param max maximum number of records to read
+		 * @return number of records read
+		 */
+		public int poll(Handler handler, int max) {
+			long sequence = next.get();
+			long available = cursor.get();
+			int read = 0;
+			while (sequence <= available && read < max) {
+				int slot = (int) sequence & mask;
+				if (sequences.get(slot) == sequence) {
+					Object bean = beans.get(slot);
+					String propertyName = propertyNames.get(slot);
+					int kind = kinds.get(slot);
+					Object value = values.get(slot);
+					long primitive = primitives.get(slot);
+					if (sequences.get(slot) == sequence) {
+						handler.onChange(sequence, bean, propertyName, kind, value, primitive);
+						read++;
+						sequence++;
+						continue;
+					}
+				}
+				// the producer lapped this consumer, which resumes at the oldest record it can still read
+				long resume = Math.max(sequence + 1, cursor.get() - mask);
+				lostCount += resume - sequence;
+				sequence = resume;
+				available = cursor.get();
+			}
+			next.lazySet(sequence);
+			return read;
+		}
+
+		/**
+		 * @return number of records this consumer has not read yet
+		 */
+		public long getLag() {
+			return cursor.get() + 1 - next.get();
+		}
+
+		/**
+		 * @return number of records overwritten before this consumer could read them
+		 */
+		public long getLostCount() {
+			return lostCount;
+		}
+
+		/**
+		 * Stops this consumer, so the producer no longer waits for it
+		 */
+		@Override
+		public void close() {
+			remove(this);
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package org.juffrou.fx.serials.core;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Publishes the property changes made through the setters of all the proxies of one class.
+ * <p>
+ * Each proxy class built by {@link FxSerialsProxyBuilder} holds the hub of the class it extends in a static field,
+ * and its setters publish every change to it. Subscribing to the hub observes every instance of the class without
+ * adding a listener to, or creating the JavaFX2 properties of, any of them. While the hub has no listeners the
+ * setters skip reading the old value, so an unused hub costs two volatile reads per setter call. The setter calls
+ * made by the streams and codecs while they fill a new proxy, as {@link FxProxyInitializer#setFxInitializing(boolean)}
+ * marks it, are not edits and are not published.<br>
+ * The setters also append every change to the {@link FxChangeFeed}s attached to the hub. They pass primitive values
+ * as they are, and do not read the old value, so feeding a change allocates nothing.<br>
+ * Hubs are identified by the name of the bean class. The proxies of a subclass publish to the hub of the subclass.
+ */
+public final class FxChangeHub {
+
+	private static final FxChangeHubListener[] NO_LISTENERS = {};
+	private static final FxChangeFeed[] NO_FEEDS = {};
+	private static final Map<String, FxChangeHub> HUBS = new ConcurrentHashMap<>();
+
+	private final String beanClassName;
+	private volatile FxChangeHubListener[] listeners = NO_LISTENERS;
+	private volatile FxChangeFeed[] feeds = NO_FEEDS;
+
+	private FxChangeHub(String beanClassName) {
+		this.beanClassName = beanClassName;
+	}
+
+	/**
+	 * @param beanClass a bean class, or the class of one of its proxies
+	 * @return the hub of the class
+	 */
+	public static FxChangeHub of(Class<?> beanClass) {
+		if (FxObservableProxy.class.isAssignableFrom(beanClass))
+			beanClass = beanClass.getSuperclass();
+		return of(beanClass.getName());
+	}
+
+	/**
+	 * @param beanClassName name of a bean class
+	 * @return the hub of the class
+	 */
+	public static FxChangeHub of(String beanClassName) {
+		return HUBS.computeIfAbsent(beanClassName, FxChangeHub::new);
+	}
+
+	/**
+	 * @return the name of the bean class whose proxies publish to this hub
+	 */
+	public String getBeanClassName() {
+		return beanClassName;
+	}
+
+	/**
+	 * @return true if the hub has listeners. Proxy setters only read the old value when it has.
+	 */
+	public boolean isActive() {
+		return listeners.length > 0;
+	}
+
+	/**
+	 * @param listener listener to call for every change made through the setters of the proxies of the class
+	 */
+	public synchronized void subscribe(FxChangeHubListener listener) {
+		if (listener == null)
+			throw new NullPointerException("listener");
+		FxChangeHubListener[] copy = Arrays.copyOf(listeners, listeners.length + 1);
+		copy[listeners.length] = listener;
+		listeners = copy;
+	}
+
+	/**
+	 * @param listener listener to remove
+	 */
+	public synchronized void unsubscribe(FxChangeHubListener listener) {
+		FxChangeHubListener[] current = listeners;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i].equals(listener)) {
+				FxChangeHubListener[] copy = Arrays.copyOf(current, current.length - 1);
+				System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+				listeners = copy;
+				return;
+			}
+		}
+	}
+
+	synchronized void attach(FxChangeFeed feed) {
+		FxChangeFeed[] copy = Arrays.copyOf(feeds, feeds.length + 1);
+		copy[feeds.length] = feed;
+		feeds = copy;
+	}
+
+	synchronized void detach(FxChangeFeed feed) {
+		FxChangeFeed[] current = feeds;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == feed) {
+				FxChangeFeed[] copy = Arrays.copyOf(current, current.length - 1);
+				System.arraycopy(current, i + 1, copy, i, current.length - i - 1);
+				feeds = copy;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Called by proxy setters of reference properties after the new value has been set
+	 * @param bean the proxy whose setter was called
+	 * @param propertyName name of the property
+	 * @param kind {@link FxChangeFeed#KIND_VALUE} or {@link FxChangeFeed#KIND_COLLECTION}
+	 * @param value value given to the setter
+	 */
+	public void feed(Object bean, String propertyName, int kind, Object value) {
+		for (FxChangeFeed feed : feeds)
+			feed.append(bean, propertyName, kind, value);
+	}
+
+	/**
+	 * Called by proxy setters of integral, char and boolean properties after the new value has been set
+	 * @param value value given to the setter, with booleans as 0 or 1
+	 */
+	public void feedLong(Object bean, String propertyName, long value) {
+		for (FxChangeFeed feed : feeds)
+			feed.appendLong(bean, propertyName, value);
+	}
+
+	/**
+	 * Called by proxy setters of float and double properties after the new value has been set
+	 * @param value value given to the setter
+	 */
+	public void feedDouble(Object bean, String propertyName, double value) {
+		for (FxChangeFeed feed : feeds)
+			feed.appendDouble(bean, propertyName, value);
+	}
+
+	/**
+	 * Called by proxy setters after the new value has been set
+	 * @param bean the proxy whose setter was called
+	 * @param propertyName name of the property
+	 * @param oldValue value before the setter was called
+	 * @param newValue value given to the setter
+	 */
+	public void publish(Object bean, String propertyName, Object oldValue, Object newValue) {
+		for (FxChangeHubListener listener : listeners)
+			listener.propertyChanged(bean, propertyName, oldValue, newValue);
+	}
+
+	@Override
+	public String toString() {
+		return "FxChangeHub[" + beanClassName + "]";
+	}
+}
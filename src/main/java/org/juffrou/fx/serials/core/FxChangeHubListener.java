@@ -0,0 +1,19 @@
+package org.juffrou.fx.serials.core;
+
+/**
+ * Receives the property changes made through the setters of every proxy of a class.
+ *
+ * @see FxChangeHub
+ */
+@FunctionalInterface
+public interface FxChangeHubListener {
+
+	/**
+	 * Called by a proxy setter after the new value has been set, on the thread that called the setter.
+	 * @param bean the proxy whose setter was called
+	 * @param propertyName name of the property
+	 * @param oldValue value returned by the getter before the setter was called, primitives boxed
+	 * @param newValue value given to the setter, primitives boxed
+	 */
+	void propertyChanged(Object bean, String propertyName, Object oldValue, Object newValue);
+}
@@ -0,0 +1,16 @@
+package org.juffrou.fx.serials.core;
+
+/**
+ * Receives the property changes made through the setters of a proxy.
+ *
+ * @see FxObservableProxy
+ */
+public interface FxChangeObserver {
+
+	/**
+	 * Called by a proxy setter after the new value has been set.
+	 * @param bean the proxy whose setter was called
+	 * @param propertyName name of the property
+	 */
+	void propertyChanged(Object bean, String propertyName);
+}
@@ -0,0 +1,89 @@
+package org.juffrou.fx.serials.core;
+
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A versioned dictionary of classes known to both ends of a proxy stream.
+ * <p>
+ * When the writing and the reading streams are given the same registry, the class descriptor of a registered
+ * class (or of its JavaFX2 proxy) is sent as a two byte id instead of its name, serialVersionUID and field list.
+ * Classes that are not registered are still sent with their full descriptor.<br>
+ * The ids are the positions of the classes in the registry, so both sides must register the same classes in the
+ * same order. Each stream starts with the registry version and a fingerprint of the registered classes and their
+ * serialVersionUIDs, and a reader refuses a stream written with a different registry.
+ */
+public class FxClassRegistry {
+
+	/**
+	 * Maximum number of classes in a registry
+	 */
+	public static final int MAX_CLASSES = 0xFFFF;
+
+	private final int version;
+	private final List<Class<?>> classes;
+	private final Map<String, Integer> idsByName;
+	private final long fingerprint;
+
+	/**
+	 * Creates a registry.
+	 * @param version version of this registry. Change it whenever the list of classes changes.
+	 * @param classes serializable classes to register. Proxies of JFXSerializable classes are registered with their class.
+	 */
+	public FxClassRegistry(int version, Class<?>... classes) {
+		if (classes.length > MAX_CLASSES)
+			throw new IllegalArgumentException("A registry cannot hold more than " + MAX_CLASSES + " classes");
+		this.version = version;
+		this.classes = new ArrayList<>(classes.length);
+		this.idsByName = new HashMap<>();
+		long hash = 1125899906842597L + version;
+		for (Class<?> clazz : classes) {
+			ObjectStreamClass desc = ObjectStreamClass.lookup(clazz);
+			if (desc == null)
+				throw new IllegalArgumentException(clazz.getName() + " is not serializable");
+			if (idsByName.put(clazz.getName(), this.classes.size()) != null)
+				throw new IllegalArgumentException(clazz.getName() + " is registered twice");
+			this.classes.add(clazz);
+			hash = 31 * hash + clazz.getName().hashCode();
+			hash = 31 * hash + desc.getSerialVersionUID();
+		}
+		this.fingerprint = hash;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return a hash of the registered class names and serialVersionUIDs
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * @param className name of a class (not of a proxy)
+	 * @return the id of the class, or -1 if it is not registered
+	 */
+	public int getId(String className) {
+		Integer id = idsByName.get(className);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @param id id of a registered class
+	 * @return the registered class
+	 * @throws IndexOutOfBoundsException if there is no class with that id
+	 */
+	public Class<?> getRegisteredClass(int id) {
+		return classes.get(id);
+	}
+
+	public List<Class<?>> getRegisteredClasses() {
+		return Collections.unmodifiableList(classes);
+	}
+}
@@ -0,0 +1,107 @@
+package org.juffrou.fx.serials.core;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the executors used to run blocking deserialization off the caller's thread.
+ * <p>
+ * The library is compiled for Java 8, so virtual threads are looked up by reflection. When the
+ * running JDK provides <code>Executors.newVirtualThreadPerTaskExecutor()</code> every task gets
+ * its own virtual thread; otherwise a bounded pool of daemon platform threads is used.
+ */
+public final class FxExecutors {
+
+	private static final Logger logger = LoggerFactory.getLogger(FxExecutors.class);
+
+	private static final Method VIRTUAL_THREAD_EXECUTOR_FACTORY = lookupVirtualThreadExecutorFactory();
+
+	private FxExecutors() {
+	}
+
+	/**
+	 * Tells whether the running JDK can create virtual threads.
+	 * @return true if {@link #newVirtualThreadPerTaskExecutor()} will not return null
+	 */
+	public static boolean isVirtualThreadSupported() {
+		return VIRTUAL_THREAD_EXECUTOR_FACTORY != null;
+	}
+
+	/**
+	 * Creates an executor that starts a new virtual thread for each task.
+	 * @return the executor, or null if the running JDK does not support virtual threads
+	 */
+	public static ExecutorService newVirtualThreadPerTaskExecutor() {
+		if (VIRTUAL_THREAD_EXECUTOR_FACTORY == null)
+			return null;
+		try {
+			return (ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.invoke(null);
+		} catch (IllegalAccessException | InvocationTargetException e) {
+			logger.debug("Cannot create a virtual thread executor: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Creates a fixed size pool of daemon platform threads.
+	 * @param maxThreads number of threads in the pool
+	 * @param namePrefix prefix of the thread names
+	 * @return the executor
+	 */
+	public static ExecutorService newBoundedExecutor(int maxThreads, String namePrefix) {
+		if (maxThreads < 1)
+			throw new IllegalArgumentException("maxThreads must be greater than zero");
+		return Executors.newFixedThreadPool(maxThreads, new DaemonThreadFactory(namePrefix));
+	}
+
+	/**
+	 * Creates a virtual thread per task executor when the JDK supports it, or a bounded pool otherwise.
+	 * @param maxPlatformThreads size of the pool used when virtual threads are not available
+	 * @param namePrefix prefix of the platform thread names
+	 * @return the executor
+	 */
+	public static ExecutorService newBlockingTaskExecutor(int maxPlatformThreads, String namePrefix) {
+		ExecutorService executor = newVirtualThreadPerTaskExecutor();
+		if (executor == null)
+			executor = newBoundedExecutor(maxPlatformThreads, namePrefix);
+		return executor;
+	}
+
+	private static Method lookupVirtualThreadExecutorFactory() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			// on JDKs where virtual threads are a preview feature the factory exists but throws
+			ExecutorService probe = (ExecutorService) factory.invoke(null);
+			probe.shutdown();
+			return factory;
+		} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | RuntimeException e) {
+			if (logger.isDebugEnabled())
+				logger.debug("Virtual threads are not available: " + e);
+			return null;
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+		private final String namePrefix;
+
+		DaemonThreadFactory(String namePrefix) {
+			this.namePrefix = namePrefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, namePrefix + "-" + threadNumber.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package org.juffrou.fx.serials.core;
+
+/**
+ * Implemented by the proxies built by {@link FxSerialsProxyBuilder} so that the setter calls of one proxy can be
+ * observed without creating its JavaFX2 properties.
+ * <p>
+ * This interface is internal to the library. It is public only because the proxies are generated in the
+ * packages of the classes they extend.
+ */
+public interface FxObservableProxy {
+
+	/**
+	 * @param observer the observer told of every setter call, or null to stop observing
+	 */
+	void setChangeObserver(FxChangeObserver observer);
+
+	/**
+	 * @return the current observer, or null
+	 */
+	FxChangeObserver getChangeObserver();
+}
@@ -0,0 +1,32 @@
+package org.juffrou.fx.serials.core;
+
+import javafx.beans.property.ReadOnlyProperty;
+
+/**
+ * Implemented by the proxies built by {@link FxSerialsProxyBuilder} so that their JavaFX2 properties, and the values
+ * of the properties, can be obtained by position, with a plain method call, once the position of a property name has
+ * been looked up.
+ * <p>
+ * This interface is internal to the library. It is public only because the proxies are generated in the
+ * packages of the classes they extend.
+ */
+public interface FxPropertyAccess {
+
+	/**
+	 * @return the names of the properties of the proxy, in the order of their positions. Each call returns a new array.
+	 */
+	String[] fxPropertyNames();
+
+	/**
+	 * @param index position of the property in {@link #fxPropertyNames()}
+	 * @return the property, as returned by its xxxProperty() method
+	 */
+	ReadOnlyProperty<?> fxProperty(int index);
+
+	/**
+	 * Reads the value of a property with the getter of the proxy, without creating the property.
+	 * @param index position of the property in {@link #fxPropertyNames()}
+	 * @return the value, with primitives boxed
+	 */
+	Object fxValue(int index);
+}
@@ -0,0 +1,23 @@
+package org.juffrou.fx.serials.core;
+
+/**
+ * Implemented by the proxies built by {@link FxSerialsProxyBuilder} so the streams and codecs can initialize a new
+ * proxy with a plain interface call.
+ * <p>
+ * This interface is internal to the library. It is public only because the proxies are generated in the
+ * packages of the classes they extend.
+ */
+public interface FxProxyInitializer {
+
+	/**
+	 * Creates the map of JavaFX2 properties, which is transient and therefore null after deserialization.
+	 */
+	void initPropertiesList();
+
+	/**
+	 * Marks a proxy as being filled by a stream or a codec. While it is, its setters do not publish to the
+	 * {@link FxChangeHub} of its class nor append to the feeds attached to it, since the calls are not edits.
+	 * @param initializing true before the proxy is filled, false once it is
+	 */
+	void setFxInitializing(boolean initializing);
+}
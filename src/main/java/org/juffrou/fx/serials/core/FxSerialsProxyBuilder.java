@@ -1,13 +1,21 @@
 package org.juffrou.fx.serials.core;
 
+import java.io.Externalizable;
+import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.juffrou.fx.serials.FxCollectionDiff;
+import org.juffrou.fx.serials.FxIndexed;
+import org.juffrou.fx.serials.FxPaged;
 import org.juffrou.fx.serials.error.FxSerialsProxyCreationException;
 import org.juffrou.fx.serials.error.OriginalClassNotFoundException;
 import org.slf4j.Logger;
@@ -33,6 +41,16 @@ import javassist.NotFoundException;
  * The created classes will extend a traditional Java Bean and implement the
  * JavaFX Bean specification by adding methods to obtain JavaFX2 properties
  * corresponding to the traditional Java Bean Properties.
+ * <p>
+ * A builder created with externalizable proxies makes each proxy implement
+ * Externalizable with generated writeExternal / readExternal methods, which
+ * write the bean properties in a fixed order with typed calls instead of
+ * having ObjectStreamClass read and write the fields by reflection. This
+ * is only done for classes whose serializable fields are all read/write bean
+ * properties and which have no custom serialization methods; other classes
+ * get a Serializable proxy. The reading and the writing side must use the same
+ * option, and since proxy classes are defined once per class loader, every
+ * builder in a class loader must use the same option too.
  * 
  * @author Carlos Martins
  *
@@ -52,14 +70,35 @@ public class FxSerialsProxyBuilder {
 	private static final int HASH_DOUBLE = 2052876273;
 	private static final int HASH_FLOAT = 67973692;
 
+	private static final String[] CUSTOM_SERIALIZATION_METHODS = { "writeObject", "readObject", "readObjectNoData",
+			"writeReplace", "readResolve", "writeExternal", "readExternal" };
+
 	private final ClassPool pool;
+	private final boolean externalizableProxies;
 
 	public FxSerialsProxyBuilder() {
 		this(ClassPool.getDefault());
 	}
 
 	public FxSerialsProxyBuilder(ClassPool pool) {
+		this(pool, false);
+	}
+
+	/**
+	 * @param pool the class pool
+	 * @param externalizableProxies true to create proxies that implement Externalizable when the class allows it
+	 */
+	public FxSerialsProxyBuilder(ClassPool pool, boolean externalizableProxies) {
 		this.pool = pool;
+		this.externalizableProxies = externalizableProxies;
+	}
+
+	public boolean isExternalizableProxies() {
+		return externalizableProxies;
+	}
+
+	ClassPool getClassPool() {
+		return pool;
 	}
 
 	/**
@@ -71,7 +110,7 @@ public class FxSerialsProxyBuilder {
 	 * @param clazz
 	 *            class to analyze.
 	 */
-	private void collectFieldInfo(List<FieldInfo> fields, Class<?> clazz) {
+	void collectFieldInfo(List<FieldInfo> fields, Class<?> clazz) {
 		Class<?> superclass = clazz.getSuperclass();
 		if (superclass != Object.class) {
 			collectFieldInfo(fields, superclass);
@@ -156,9 +195,26 @@ public class FxSerialsProxyBuilder {
 					}
 					break;
 				default:
-					if (List.class.isAssignableFrom(type) && !ObservableList.class.isAssignableFrom(type)) {
-						fieldInfo.returnType = "javafx.beans.property.SimpleListProperty";
-						fieldInfo.builder = "org.juffrou.fx.serials.adapter.SimpleListPropertyBuilder";
+					if (setter != null && (type == int[].class || type == float[].class || type == double[].class)) {
+						fieldInfo.returnType = "org.juffrou.fx.serials.adapter.FxArrayProperty";
+						fieldInfo.builder = "org.juffrou.fx.serials.adapter.FxArrayPropertyBuilder";
+					} else if (List.class.isAssignableFrom(type) && !ObservableList.class.isAssignableFrom(type)) {
+						FxIndexed indexed = f.getAnnotation(FxIndexed.class);
+						fieldInfo.paged = f.getAnnotation(FxPaged.class);
+						if (fieldInfo.paged != null) {
+							if (indexed != null)
+								throw new FxSerialsProxyCreationException("Field " + clazz.getName() + "." + f.getName()
+										+ " cannot be both paged and indexed");
+							fieldInfo.returnType = "org.juffrou.fx.serials.adapter.FxPagedListProperty";
+							fieldInfo.builder = "org.juffrou.fx.serials.adapter.FxPagedListPropertyBuilder";
+						} else if (indexed != null) {
+							fieldInfo.indexKey = indexed.value();
+							fieldInfo.returnType = "org.juffrou.fx.serials.adapter.FxIndexedListProperty";
+							fieldInfo.builder = "org.juffrou.fx.serials.adapter.FxIndexedListPropertyBuilder";
+						} else {
+							fieldInfo.returnType = "javafx.beans.property.SimpleListProperty";
+							fieldInfo.builder = "org.juffrou.fx.serials.adapter.SimpleListPropertyBuilder";
+						}
 					} else if (Set.class.isAssignableFrom(type) && !ObservableSet.class.isAssignableFrom(type)) {
 						fieldInfo.returnType = "javafx.beans.property.SimpleSetProperty";
 						fieldInfo.builder = "org.juffrou.fx.serials.adapter.SimpleSetPropertyBuilder";
@@ -174,6 +230,15 @@ public class FxSerialsProxyBuilder {
 					}
 				}
 
+				if ((Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type))
+						&& !fieldInfo.builder.startsWith("javafx.")) {
+					fieldInfo.diff = f.getAnnotation(FxCollectionDiff.class);
+					if (fieldInfo.diff != null && fieldInfo.diff.match() == FxCollectionDiff.Match.KEY
+							&& fieldInfo.diff.key().isEmpty())
+						throw new FxSerialsProxyCreationException("Field " + clazz.getName() + "." + f.getName()
+								+ " is matched by key but its FxCollectionDiff annotation names no key property");
+				}
+
 				fields.add(fieldInfo);
 			}
 
@@ -181,6 +246,46 @@ public class FxSerialsProxyBuilder {
 
 	}
 
+	/**
+	 * Collects the read/write bean properties of a class whose whole
+	 * serializable state is held in read/write bean properties.
+	 * 
+	 * @param beanClass
+	 *            class to analyze
+	 * @return the properties sorted by name, or null if the class has
+	 *         serializable fields that are not read/write bean properties or
+	 *         custom serialization methods
+	 */
+	List<FieldInfo> collectReadWriteProperties(Class<?> beanClass) {
+		if (!Serializable.class.isAssignableFrom(beanClass))
+			return null;
+		List<FieldInfo> fields = new ArrayList<FieldInfo>();
+		collectFieldInfo(fields, beanClass);
+		Map<String, FieldInfo> properties = new LinkedHashMap<>();
+		for (FieldInfo fieldInfo : fields) {
+			if (fieldInfo.setter == null)
+				return null;
+			properties.put(fieldInfo.field.getName(), fieldInfo);
+		}
+
+		int serializableFields = 0;
+		for (Class<?> c = beanClass; c != Object.class; c = c.getSuperclass()) {
+			for (Method m : c.getDeclaredMethods())
+				for (String methodName : CUSTOM_SERIALIZATION_METHODS)
+					if (m.getName().equals(methodName))
+						return null;
+			for (Field f : c.getDeclaredFields())
+				if (!Modifier.isStatic(f.getModifiers()) && !Modifier.isTransient(f.getModifiers()))
+					serializableFields++;
+		}
+		if (serializableFields != fields.size() || properties.size() != fields.size())
+			return null;
+
+		List<FieldInfo> sorted = new ArrayList<>(properties.values());
+		sorted.sort(Comparator.comparing(fieldInfo -> fieldInfo.field.getName()));
+		return sorted;
+	}
+
 	/**
 	 * Find the getter method of one property.
 	 * 
@@ -252,7 +357,11 @@ public class FxSerialsProxyBuilder {
 	 * The proxy will extend the specified class and implement the
 	 * FxSerialsProxy interface.<br>
 	 * Setter methods will be overriden to notify the property of a value
-	 * change.
+	 * change.<br>
+	 * This method locks the class pool, which is not thread safe and may be
+	 * shared with other builders (the default pool is JVM-wide), so that two
+	 * streams resolving the same class concurrently do not try to define the
+	 * proxy twice.
 	 * 
 	 * @param fxSerials
 	 *            class to proxy
@@ -263,6 +372,12 @@ public class FxSerialsProxyBuilder {
 	 * @return the proxy class.
 	 */
 	public <T> Class<? extends T> buildFXSerialsProxy(Class<T> fxSerials, long svUID) {
+		synchronized (pool) {
+			return buildProxyClass(fxSerials, svUID);
+		}
+	}
+
+	private <T> Class<? extends T> buildProxyClass(Class<T> fxSerials, long svUID) {
 
 		try {
 			List<FieldInfo> fields = new ArrayList<FieldInfo>();
@@ -280,7 +395,12 @@ public class FxSerialsProxyBuilder {
 					if (logger.isDebugEnabled())
 						logger.debug("Found existing proxy " + name);
 
-					return (Class<? extends T>) Class.forName(name, true, latestUserDefinedLoader());
+					Class<?> existing = Class.forName(name, true, latestUserDefinedLoader());
+					if (externalizableProxies != Externalizable.class.isAssignableFrom(existing)
+							&& collectReadWriteProperties(fxSerials) != null)
+						logger.warn("Proxy " + name + " was created by a builder with externalizableProxies="
+								+ !externalizableProxies + "; the existing proxy is used");
+					return (Class<? extends T>) existing;
 				}
 
 				if (logger.isDebugEnabled())
@@ -317,6 +437,29 @@ public class FxSerialsProxyBuilder {
 			CtMethod initMethod = CtNewMethod
 					.make("public void initPropertiesList() {this.fxProperties = new java.util.HashMap();}", ctClass);
 			ctClass.addMethod(initMethod);
+			// set while the streams and codecs fill a new proxy, whose setter calls are not edits
+			CtField initializing = new CtField(CtClass.booleanType, "fxInitializing", ctClass);
+			initializing.setModifiers(Modifier.PRIVATE | Modifier.TRANSIENT);
+			ctClass.addField(initializing);
+			ctClass.addMethod(CtNewMethod.make(
+					"public void setFxInitializing(boolean initializing) {this.fxInitializing = initializing;}", ctClass));
+			ctClass.addInterface(pool.get(FxProxyInitializer.class.getName()));
+
+			// add the observer of setter calls
+			CtField changeObserver = new CtField(pool.get(FxChangeObserver.class.getName()), "fxChangeObserver", ctClass);
+			changeObserver.setModifiers(Modifier.PRIVATE | Modifier.TRANSIENT);
+			ctClass.addField(changeObserver);
+			ctClass.addMethod(CtNewMethod.make("public void setChangeObserver(" + FxChangeObserver.class.getName()
+					+ " observer) {this.fxChangeObserver = observer;}", ctClass));
+			ctClass.addMethod(CtNewMethod.make("public " + FxChangeObserver.class.getName()
+					+ " getChangeObserver() {return this.fxChangeObserver;}", ctClass));
+			ctClass.addInterface(pool.get(FxObservableProxy.class.getName()));
+
+			// add the hub the setters of every proxy of this class publish to
+			CtField changeHub = new CtField(pool.get(FxChangeHub.class.getName()), "fxChangeHub", ctClass);
+			changeHub.setModifiers(Modifier.PRIVATE | Modifier.STATIC | Modifier.FINAL);
+			ctClass.addField(changeHub,
+					Initializer.byExpr(FxChangeHub.class.getName() + ".of(\"" + fxSerials.getName() + "\")"));
 
 			// implement FxSerialsProxy
 			implementFxSerialsProxy(ctClass);
@@ -327,6 +470,14 @@ public class FxSerialsProxyBuilder {
 			// add methods for each property
 			addPropertyMethods(ctClass, fields);
 
+			if (externalizableProxies) {
+				List<FieldInfo> properties = collectReadWriteProperties(fxSerials);
+				if (properties != null)
+					implementExternalizable(ctClass, properties);
+				else if (logger.isDebugEnabled())
+					logger.debug(fxSerials.getName() + " has state outside read/write properties, its proxy is only Serializable");
+			}
+
 			Class<?> proxyClass = ctClass.toClass();
 
 			return (Class<? extends T>) proxyClass;
@@ -408,12 +559,60 @@ public class FxSerialsProxyBuilder {
 		ctClass.addInterface(pool.get("org.juffrou.fx.serials.JFXProxy"));
 	}
 
+	/**
+	 * Adds writeExternal and readExternal methods that write the properties in
+	 * the given order. readExternal calls the setters of the original class, so
+	 * no property change is fired. The no-arg constructor, which Externalizable
+	 * objects are created with, already initializes the properties map.
+	 * 
+	 * @param ctClass Class to be changed
+	 * @param properties read/write properties, in wire order
+	 * @throws CannotCompileException
+	 * @throws NotFoundException
+	 */
+	private void implementExternalizable(CtClass ctClass, List<FieldInfo> properties)
+			throws CannotCompileException, NotFoundException {
+		StringBuilder write = new StringBuilder("public void writeExternal(java.io.ObjectOutput out) throws java.io.IOException {");
+		StringBuilder read = new StringBuilder(
+				"public void readExternal(java.io.ObjectInput in) throws java.io.IOException, ClassNotFoundException {");
+		for (FieldInfo fieldInfo : properties) {
+			Class<?> type = fieldInfo.field.getType();
+			if (type.isPrimitive()) {
+				String typeName = Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+				write.append("out.write" + typeName + "(" + fieldInfo.getter + "());");
+				read.append("super." + fieldInfo.setter + "(in.read" + typeName + "());");
+			} else {
+				write.append("out.writeObject(" + fieldInfo.getter + "());");
+				read.append("super." + fieldInfo.setter + "((" + sourceName(type) + ") in.readObject());");
+			}
+		}
+		write.append("}");
+		read.append("}");
+		ctClass.addMethod(CtNewMethod.make(write.toString(), ctClass));
+		ctClass.addMethod(CtNewMethod.make(read.toString(), ctClass));
+		ctClass.addInterface(pool.get("java.io.Externalizable"));
+	}
+
+	private static String sourceName(Class<?> type) {
+		if (type.isArray())
+			return sourceName(type.getComponentType()) + "[]";
+		return type.getName().replace('$', '.');
+	}
+
 	private void addPropertyMethods(CtClass ctClass, List<FieldInfo> fields)
 			throws NotFoundException, CannotCompileException {
+		StringBuilder arrayGetterCalls = new StringBuilder();
+		StringBuilder propertyNames = new StringBuilder();
+		StringBuilder propertyCases = new StringBuilder();
+		StringBuilder valueCases = new StringBuilder();
+		int propertyIndex = 0;
 		for (FieldInfo fieldInfo : fields) {
 
 			// build property method
 			String name = fieldInfo.field.getName();
+			valueCases.append("case " + propertyIndex + ": return ($w) " + fieldInfo.getter + "();");
+			propertyCases.append("case " + propertyIndex++ + ": return " + name + "Property();");
+			propertyNames.append(propertyNames.length() == 0 ? "\"" : ",\"").append(name + "\"");
 			StringBuilder methodBody = new StringBuilder();
 			methodBody.append("public " + fieldInfo.returnType + " " + name + "Property() {");
 			methodBody.append(fieldInfo.returnType + " p = (" + fieldInfo.returnType + ") this.fxProperties.get(\""
@@ -423,6 +622,11 @@ public class FxSerialsProxyBuilder {
 					+ fieldInfo.getter + "\")");
 			if (fieldInfo.setter != null)
 				methodBody.append(".setter(\"" + fieldInfo.setter + "\")");
+			if (fieldInfo.indexKey != null)
+				methodBody.append(".key(\"" + fieldInfo.indexKey + "\")");
+			if (fieldInfo.paged != null)
+				methodBody.append(".pageSize(" + fieldInfo.paged.pageSize() + ").maxCachedPages("
+						+ fieldInfo.paged.maxCachedPages() + ").loader(\"" + fieldInfo.paged.loader().getName() + "\")");
 			methodBody.append(".build();");
 			methodBody.append("this.fxProperties.put(\"" + name + "\", p);");
 			methodBody
@@ -437,17 +641,37 @@ public class FxSerialsProxyBuilder {
 				// override setter method
 				methodBody.setLength(0);
 				methodBody.append(
-						"public void " + fieldInfo.setter + "(" + type.getName() + " value) {");
+						"public void " + fieldInfo.setter + "(" + sourceName(type) + " value) {");
+				// the old value is only read while somebody listens to the hub, and nothing is published while the
+				// proxy is being filled
+				methodBody.append("boolean fxPublish = !this.fxInitializing && fxChangeHub.isActive(); Object fxOldValue = null;");
+				methodBody.append("if (fxPublish) fxOldValue = ($w) super." + fieldInfo.getter + "();");
 				methodBody.append("super." + fieldInfo.setter + "(value);");
-				if (List.class.isAssignableFrom(type) && !ObservableList.class.isAssignableFrom(type))
+				methodBody.append("if (fxPublish) fxChangeHub.publish(this, \"" + name + "\", fxOldValue, ($w) value);");
+				methodBody.append("if (!this.fxInitializing) " + feedCall(name, type));
+				methodBody.append("if (this.fxChangeObserver != null) this.fxChangeObserver.propertyChanged(this, \"" + name + "\");");
+				// a property nobody has asked for has no listeners, and reads the new value when it is created
+				methodBody.append("if (this.fxProperties != null && this.fxProperties.containsKey(\"" + name + "\"))");
+				String updateMethod = fieldInfo.diff != null ? "merge" : "update";
+				String matcherArgument = fieldInfo.diff != null
+						? ", org.juffrou.fx.serials.adapter.FxElementMatcher.forMode(\"" + fieldInfo.diff.match().name()
+								+ "\", \"" + fieldInfo.diff.key() + "\")"
+						: "";
+				if (fieldInfo.paged != null)
+					methodBody.append("org.juffrou.fx.serials.adapter.FxSerialsPropertyUpdater.updatePagedListProperty("
+							+ name + "Property(), value);");
+				else if (List.class.isAssignableFrom(type) && !ObservableList.class.isAssignableFrom(type))
 					methodBody
-							.append("org.juffrou.fx.serials.adapter.FxSerialsPropertyUpdater.updateSimpleListProperty("
-									+ name + "Property(), value);");
+							.append("org.juffrou.fx.serials.adapter.FxSerialsPropertyUpdater." + updateMethod + "SimpleListProperty("
+									+ name + "Property(), value" + matcherArgument + ");");
 				else if (Set.class.isAssignableFrom(type) && !ObservableSet.class.isAssignableFrom(type))
-					methodBody.append("org.juffrou.fx.serials.adapter.FxSerialsPropertyUpdater.updateSimpleSetProperty("
-							+ name + "Property(), value);");
+					methodBody.append("org.juffrou.fx.serials.adapter.FxSerialsPropertyUpdater." + updateMethod + "SimpleSetProperty("
+							+ name + "Property(), value" + matcherArgument + ");");
 				else if(Map.class.isAssignableFrom(type) && !ObservableMap.class.isAssignableFrom(type))
-					methodBody.append("org.juffrou.fx.serials.adapter.FxSerialsPropertyUpdater.updateSimpleMapProperty("
+					methodBody.append("org.juffrou.fx.serials.adapter.FxSerialsPropertyUpdater." + updateMethod + "SimpleMapProperty("
+							+ name + "Property(), value" + matcherArgument + ");");
+				else if (fieldInfo.builder.endsWith("FxArrayPropertyBuilder"))
+					methodBody.append("org.juffrou.fx.serials.adapter.FxSerialsPropertyUpdater.updateArrayProperty("
 							+ name + "Property(), value);");
 				else
 					methodBody.append(name + "Property().fireValueChangedEvent();");
@@ -455,6 +679,47 @@ public class FxSerialsProxyBuilder {
 				m = CtNewMethod.make(methodBody.toString(), ctClass);
 				ctClass.addMethod(m);
 			}
+
+			if (fieldInfo.builder.endsWith("FxArrayPropertyBuilder")) {
+				// override getter method so the bean holds the array wrapped by the property when it is read
+				String typeName = sourceName(fieldInfo.field.getType());
+				methodBody.setLength(0);
+				methodBody.append("public " + typeName + " " + fieldInfo.getter + "() {");
+				methodBody.append("if (this.fxProperties != null) {");
+				methodBody.append("org.juffrou.fx.serials.adapter.FxArrayProperty p = (org.juffrou.fx.serials.adapter.FxArrayProperty) this.fxProperties.get(\"" + name + "\");");
+				methodBody.append("if (p != null) { Object array = p.getBeanArray();");
+				methodBody.append("Object current = super." + fieldInfo.getter + "();");
+				methodBody.append("if (array != current) super." + fieldInfo.setter + "((" + typeName + ") array); }");
+				methodBody.append("} return super." + fieldInfo.getter + "(); }");
+				ctClass.addMethod(CtNewMethod.make(methodBody.toString(), ctClass));
+				arrayGetterCalls.append(fieldInfo.getter + "();");
+			}
+		}
+
+		// positional access to the properties, used by compiled property paths
+		ctClass.addMethod(CtNewMethod.make("public String[] fxPropertyNames() { return new String[] {" + propertyNames
+				+ "}; }", ctClass));
+		ctClass.addMethod(CtNewMethod.make("public javafx.beans.property.ReadOnlyProperty fxProperty(int index) {"
+				+ "switch (index) {" + propertyCases + "default: throw new IndexOutOfBoundsException(\"Property \" + index); } }",
+				ctClass));
+		ctClass.addMethod(CtNewMethod.make("public Object fxValue(int index) {"
+				+ "switch (index) {" + valueCases + "default: throw new IndexOutOfBoundsException(\"Property \" + index); } }",
+				ctClass));
+		ctClass.addInterface(pool.get(FxPropertyAccess.class.getName()));
+
+		if (arrayGetterCalls.length() > 0 && !hasWriteReplace(ctClass)) {
+			// serialization reads the fields directly, so the arrays are stored in the bean before it is written
+			ctClass.addMethod(CtNewMethod.make("protected Object writeReplace() throws java.io.ObjectStreamException {"
+					+ arrayGetterCalls + "return this; }", ctClass));
+		}
+	}
+
+	private static boolean hasWriteReplace(CtClass ctClass) {
+		try {
+			ctClass.getMethod("writeReplace", "()Ljava/lang/Object;");
+			return true;
+		} catch (NotFoundException e) {
+			return false;
 		}
 	}
 
@@ -473,12 +738,31 @@ public class FxSerialsProxyBuilder {
         return Thread.currentThread().getContextClassLoader();
     }
 
-	private class FieldInfo {
+	/**
+	 * @return the statement of a setter that appends the new value to the feeds attached to the hub, without boxing
+	 */
+	private static String feedCall(String name, Class<?> type) {
+		String feed = FxChangeFeed.class.getName();
+		if (type == boolean.class)
+			return "fxChangeHub.feedLong(this, \"" + name + "\", value ? 1L : 0L);";
+		if (type == double.class || type == float.class)
+			return "fxChangeHub.feedDouble(this, \"" + name + "\", (double) value);";
+		if (type.isPrimitive())
+			return "fxChangeHub.feedLong(this, \"" + name + "\", (long) value);";
+		String kind = Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type) || type.isArray()
+				? feed + ".KIND_COLLECTION" : feed + ".KIND_VALUE";
+		return "fxChangeHub.feed(this, \"" + name + "\", " + kind + ", value);";
+	}
+
+	static class FieldInfo {
 		public Field field;
 		public String getter;
 		public String setter;
 		public String returnType;
 		public String builder;
+		public FxCollectionDiff diff;
+		public String indexKey;
+		public FxPaged paged;
 	}
 
 }
@@ -0,0 +1,68 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes into a heap or direct {@link ByteBuffer}.
+ * <p>
+ * A stream created over a given buffer fails with an IOException when the buffer is full. A stream created with
+ * an initial capacity replaces its buffer by one twice as large, of the same kind, when it runs out of space.<br>
+ * The written bytes are between position zero and the position of {@link #getBuffer()}; flip the buffer to read them.
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+	private ByteBuffer buffer;
+	private final boolean growable;
+
+	/**
+	 * Creates a stream that writes into a given buffer, starting at its current position
+	 * @param buffer the buffer to write into
+	 */
+	public ByteBufferOutputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+		this.growable = false;
+	}
+
+	/**
+	 * Creates a stream that writes into a buffer that grows as needed
+	 * @param initialCapacity initial capacity of the buffer
+	 * @param direct true to allocate direct buffers
+	 */
+	public ByteBufferOutputStream(int initialCapacity, boolean direct) {
+		this.buffer = direct ? ByteBuffer.allocateDirect(initialCapacity) : ByteBuffer.allocate(initialCapacity);
+		this.growable = true;
+	}
+
+	/**
+	 * @return the buffer holding the bytes written so far
+	 */
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	private void ensureRemaining(int len) throws IOException {
+		if (buffer.remaining() >= len)
+			return;
+		if (!growable)
+			throw new IOException("ByteBuffer is full: " + len + " bytes to write, " + buffer.remaining() + " remaining");
+		int capacity = Math.max(buffer.capacity() * 2, buffer.position() + len);
+		ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+		buffer.flip();
+		larger.put(buffer);
+		buffer = larger;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureRemaining(1);
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureRemaining(len);
+		buffer.put(b, off, len);
+	}
+}
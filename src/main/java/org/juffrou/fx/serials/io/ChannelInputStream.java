@@ -0,0 +1,88 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+
+/**
+ * Reads from a blocking {@link ReadableByteChannel} through a direct buffer.
+ * <p>
+ * Object streams read many single bytes, so reading from the channel one call at a time would be very slow.
+ * Small reads are therefore served from the direct buffer, which costs one copy from the buffer into the array
+ * of the reader. A read at least as large as the buffer, made while the buffer is empty, goes from the channel
+ * straight into the array of the reader.
+ */
+public class ChannelInputStream extends InputStream {
+
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	public ChannelInputStream(ReadableByteChannel channel) {
+		this(channel, ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE));
+	}
+
+	/**
+	 * @param channel a channel in blocking mode
+	 * @param buffer buffer the channel reads into. Use a direct buffer to avoid copies inside the channel.
+	 */
+	public ChannelInputStream(ReadableByteChannel channel, ByteBuffer buffer) {
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+			throw new IllegalBlockingModeException();
+		this.channel = channel;
+		this.buffer = buffer;
+		buffer.clear().flip();
+	}
+
+	/**
+	 * Refills the buffer if it is empty
+	 * @return false at the end of the channel
+	 */
+	private boolean fill() throws IOException {
+		while (!buffer.hasRemaining()) {
+			buffer.clear();
+			int n = channel.read(buffer);
+			buffer.flip();
+			if (n < 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		return fill() ? buffer.get() & 0xFF : -1;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!buffer.hasRemaining() && len >= buffer.capacity()) {
+			ByteBuffer target = ByteBuffer.wrap(b, off, len);
+			int n;
+			while ((n = channel.read(target)) == 0)
+				;
+			return n;
+		}
+		if (!fill())
+			return -1;
+		int n = Math.min(len, buffer.remaining());
+		buffer.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
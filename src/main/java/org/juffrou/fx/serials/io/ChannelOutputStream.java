@@ -0,0 +1,77 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes to a blocking {@link WritableByteChannel} through a direct buffer.
+ * <p>
+ * Bytes are collected in the direct buffer and handed to the channel when it is full or the stream is flushed.
+ */
+public class ChannelOutputStream extends OutputStream {
+
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	public ChannelOutputStream(WritableByteChannel channel) {
+		this(channel, ByteBuffer.allocateDirect(DEFAULT_BUFFER_SIZE));
+	}
+
+	/**
+	 * @param channel a channel in blocking mode
+	 * @param buffer buffer written to the channel. Use a direct buffer to avoid copies inside the channel.
+	 */
+	public ChannelOutputStream(WritableByteChannel channel, ByteBuffer buffer) {
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking())
+			throw new IllegalBlockingModeException();
+		this.channel = channel;
+		this.buffer = buffer;
+		buffer.clear();
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (!buffer.hasRemaining())
+			drain();
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (!buffer.hasRemaining())
+				drain();
+			int n = Math.min(len, buffer.remaining());
+			buffer.put(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drain();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,102 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+
+/**
+ * Writes and reads class descriptors as ids of a {@link FxClassRegistry}.
+ * <p>
+ * Every descriptor starts with one byte telling whether a full descriptor, the id of a registered class or the
+ * id of the proxy of a registered class follows.
+ */
+final class ClassDescriptorDictionary {
+
+	static final int FULL_DESCRIPTOR = 0;
+	static final int REGISTERED_CLASS = 1;
+	static final int REGISTERED_PROXY = 2;
+
+	private ClassDescriptorDictionary() {
+	}
+
+	/**
+	 * Writes the registry version and fingerprint at the start of the stream
+	 */
+	static void writeHeader(ObjectOutputStream out, FxClassRegistry registry) throws IOException {
+		out.writeInt(registry.getVersion());
+		out.writeLong(registry.getFingerprint());
+	}
+
+	/**
+	 * Checks that the stream was written with the same registry
+	 */
+	static void readHeader(ObjectInputStream in, FxClassRegistry registry) throws IOException {
+		int version = in.readInt();
+		long fingerprint = in.readLong();
+		if (version != registry.getVersion())
+			throw new InvalidClassException("Stream was written with class registry version " + version
+					+ " but the reader uses version " + registry.getVersion());
+		if (fingerprint != registry.getFingerprint())
+			throw new InvalidClassException(
+					"Stream was written with a different list of classes for class registry version " + version);
+	}
+
+	/**
+	 * Writes the descriptor as an id if its class is registered.
+	 * @return false if the class is not registered and the full descriptor must be written by the caller
+	 */
+	static boolean writeId(ObjectOutputStream out, FxClassRegistry registry, ObjectStreamClass desc)
+			throws IOException {
+		String name = desc.getName();
+		boolean proxy = name.contains(FxSerialsProxyBuilder.JFX_PROXY_PACKAGE_NAME_WITH_END_DOT);
+		int id = registry.getId(proxy ? name.replace(FxSerialsProxyBuilder.JFX_PROXY_PACKAGE_NAME_WITH_END_DOT, "") : name);
+		if (id < 0) {
+			out.writeByte(FULL_DESCRIPTOR);
+			return false;
+		}
+		out.writeByte(proxy ? REGISTERED_PROXY : REGISTERED_CLASS);
+		out.writeShort(id);
+		return true;
+	}
+
+	/**
+	 * Reads a descriptor written as an id.
+	 * @return the local descriptor of the registered class or of its proxy, or null if a full descriptor follows
+	 */
+	static ObjectStreamClass readId(ObjectInputStream in, FxClassRegistry registry, FxSerialsProxyBuilder proxyBuilder,
+			FXProxyCache proxyCache) throws IOException {
+		int kind = in.readByte();
+		switch (kind) {
+		case FULL_DESCRIPTOR:
+			return null;
+		case REGISTERED_CLASS:
+			return ObjectStreamClass.lookup(registeredClass(in, registry));
+		case REGISTERED_PROXY:
+			Class<?> originalClass = registeredClass(in, registry);
+			Class<?> proxyClass = proxyCache.getProxyFromOriginalClass(originalClass);
+			if (proxyClass == null) {
+				ObjectStreamClass desc = ObjectStreamClass.lookup(originalClass);
+				proxyClass = proxyBuilder.buildFXSerialsProxy(originalClass, desc.getSerialVersionUID());
+				proxyCache.put(originalClass, proxyClass);
+			}
+			return ObjectStreamClass.lookup(proxyClass);
+		default:
+			throw new StreamCorruptedException("Invalid class descriptor kind " + kind);
+		}
+	}
+
+	private static Class<?> registeredClass(ObjectInputStream in, FxClassRegistry registry) throws IOException {
+		int id = in.readUnsignedShort();
+		if (id >= registry.getRegisteredClasses().size())
+			throw new StreamCorruptedException("Class id " + id + " is not in class registry version "
+					+ registry.getVersion());
+		return registry.getRegisteredClass(id);
+	}
+}
@@ -0,0 +1,82 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * Joins the length prefixed frames written by {@link FrameOutputBuffer} back into one continuous stream.
+ */
+class FrameInputStream extends InputStream {
+
+	private final DataInputStream in;
+	private int remaining;
+
+	FrameInputStream(InputStream in) {
+		this.in = new DataInputStream(in);
+	}
+
+	/**
+	 * @return number of bytes of the current frame not read yet
+	 */
+	int remainingInFrame() {
+		return remaining;
+	}
+
+	/**
+	 * Reads the header of the next non empty frame if the current one is exhausted
+	 * @return false if the end of the stream was reached at a frame boundary
+	 */
+	private boolean nextFrame() throws IOException {
+		while (remaining == 0) {
+			int b1 = in.read();
+			if (b1 < 0)
+				return false;
+			int b2 = in.read();
+			int b3 = in.read();
+			int b4 = in.read();
+			if ((b2 | b3 | b4) < 0)
+				throw new EOFException("truncated frame header");
+			remaining = (b1 << 24) | (b2 << 16) | (b3 << 8) | b4;
+			if (remaining < 0)
+				throw new StreamCorruptedException("invalid frame length " + remaining);
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextFrame())
+			return -1;
+		int b = in.read();
+		if (b < 0)
+			throw new EOFException("truncated frame");
+		remaining--;
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!nextFrame())
+			return -1;
+		int n = in.read(b, off, Math.min(len, remaining));
+		if (n < 0)
+			throw new EOFException("truncated frame");
+		remaining -= n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return Math.min(remaining, in.available());
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,29 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Collects the bytes of one message and writes them as a length prefixed frame.
+ */
+class FrameOutputBuffer extends ByteArrayOutputStream {
+
+	FrameOutputBuffer(int size) {
+		super(size);
+	}
+
+	/**
+	 * Writes the collected bytes as one frame and empties the buffer
+	 * @param out where to write the frame
+	 * @return number of bytes in the frame, excluding the length prefix
+	 * @throws IOException if the frame cannot be written
+	 */
+	int writeFrame(DataOutputStream out) throws IOException {
+		int length = count;
+		out.writeInt(length);
+		out.write(buf, 0, length);
+		reset();
+		return length;
+	}
+}
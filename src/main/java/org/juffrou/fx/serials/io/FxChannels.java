@@ -0,0 +1,141 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+/**
+ * Creates proxy streams that read from and write to NIO channels and byte buffers.
+ * <p>
+ * The readers create JavaFX2 Beans exactly like {@link FxProxyCreatorInputStream} and the writers strip the
+ * proxies exactly like {@link FxProxyRemoverOutputStream}. Channels are read and written through one direct
+ * buffer (see {@link ChannelInputStream} and {@link ChannelOutputStream}), which costs one copy between the
+ * buffer and the object stream; large reads skip it. Byte buffers are read and written in place, without an
+ * intermediate byte array.
+ */
+public final class FxChannels {
+
+	private FxChannels() {
+	}
+
+	/**
+	 * Creates a stream that reads JavaFX2 Beans from a channel in blocking mode.
+	 * @param channel the channel
+	 * @return the stream
+	 * @throws IOException if the stream header cannot be read
+	 */
+	public static FxProxyCreatorInputStream newProxyCreatorInputStream(ReadableByteChannel channel) throws IOException {
+		return newProxyCreatorInputStream(channel, new FxSerialsProxyBuilder(), new FXProxyCache(),
+				new DefaultBeanWrapperFactory(), null);
+	}
+
+	/**
+	 * Creates a stream that reads JavaFX2 Beans from a channel in blocking mode.
+	 * @param channel the channel
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry the class registry, or null if the stream has full class descriptors
+	 * @return the stream
+	 * @throws IOException if the stream header cannot be read
+	 */
+	public static FxProxyCreatorInputStream newProxyCreatorInputStream(ReadableByteChannel channel,
+			FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache, BeanWrapperFactory bwFactory,
+			FxClassRegistry classRegistry) throws IOException {
+		return new FxProxyCreatorInputStream(new ChannelInputStream(channel), proxyBuilder, proxyCache, bwFactory,
+				classRegistry);
+	}
+
+	/**
+	 * Creates a stream that reads JavaFX2 Beans from the remaining bytes of a heap or direct buffer.
+	 * @param buffer the buffer. Its position advances as the stream is read.
+	 * @return the stream
+	 * @throws IOException if the stream header cannot be read
+	 */
+	public static FxProxyCreatorInputStream newProxyCreatorInputStream(ByteBuffer buffer) throws IOException {
+		return newProxyCreatorInputStream(buffer, new FxSerialsProxyBuilder(), new FXProxyCache(),
+				new DefaultBeanWrapperFactory(), null);
+	}
+
+	/**
+	 * Creates a stream that reads JavaFX2 Beans from the remaining bytes of a heap or direct buffer.
+	 * @param buffer the buffer. Its position advances as the stream is read.
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry the class registry, or null if the stream has full class descriptors
+	 * @return the stream
+	 * @throws IOException if the stream header cannot be read
+	 */
+	public static FxProxyCreatorInputStream newProxyCreatorInputStream(ByteBuffer buffer,
+			FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache, BeanWrapperFactory bwFactory,
+			FxClassRegistry classRegistry) throws IOException {
+		return new FxProxyCreatorInputStream(new ByteBufferInputStream(buffer), proxyBuilder, proxyCache, bwFactory,
+				classRegistry);
+	}
+
+	/**
+	 * Creates a stream that writes JavaFX2 Beans as traditional Java Beans to a channel in blocking mode.
+	 * @param channel the channel
+	 * @return the stream. Bytes reach the channel when the stream is flushed or closed.
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public static FxProxyRemoverOutputStream newProxyRemoverOutputStream(WritableByteChannel channel)
+			throws IOException {
+		return newProxyRemoverOutputStream(channel, new FxSerialsProxyBuilder(), new FXProxyCache(),
+				new DefaultBeanWrapperFactory(), null);
+	}
+
+	/**
+	 * Creates a stream that writes JavaFX2 Beans as traditional Java Beans to a channel in blocking mode.
+	 * @param channel the channel
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry the class registry, or null to write full class descriptors
+	 * @return the stream. Bytes reach the channel when the stream is flushed or closed.
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public static FxProxyRemoverOutputStream newProxyRemoverOutputStream(WritableByteChannel channel,
+			FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache, BeanWrapperFactory bwFactory,
+			FxClassRegistry classRegistry) throws IOException {
+		return new FxProxyRemoverOutputStream(new ChannelOutputStream(channel), proxyBuilder, proxyCache, bwFactory,
+				classRegistry);
+	}
+
+	/**
+	 * Creates a stream that writes JavaFX2 Beans as traditional Java Beans into a heap or direct buffer.
+	 * @param buffer the buffer, written from its current position. The stream fails if the buffer fills up.
+	 * @return the stream. Bytes reach the buffer when the stream is flushed or closed.
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public static FxProxyRemoverOutputStream newProxyRemoverOutputStream(ByteBuffer buffer) throws IOException {
+		return newProxyRemoverOutputStream(buffer, new FxSerialsProxyBuilder(), new FXProxyCache(),
+				new DefaultBeanWrapperFactory(), null);
+	}
+
+	/**
+	 * Creates a stream that writes JavaFX2 Beans as traditional Java Beans into a heap or direct buffer.
+	 * @param buffer the buffer, written from its current position. The stream fails if the buffer fills up.
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry the class registry, or null to write full class descriptors
+	 * @return the stream. Bytes reach the buffer when the stream is flushed or closed.
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public static FxProxyRemoverOutputStream newProxyRemoverOutputStream(ByteBuffer buffer,
+			FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache, BeanWrapperFactory bwFactory,
+			FxClassRegistry classRegistry) throws IOException {
+		return new FxProxyRemoverOutputStream(new ByteBufferOutputStream(buffer), proxyBuilder, proxyCache, bwFactory,
+				classRegistry);
+	}
+}
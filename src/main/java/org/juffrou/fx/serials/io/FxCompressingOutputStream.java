@@ -0,0 +1,144 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Writes the bytes of a proxy stream as raw or deflated frames.
+ * <p>
+ * A frame is written when the buffer is full, on flush and on close, so flushing the object stream after each
+ * message sends each message in its own frames. See {@link FxCompression} for when a frame is deflated.
+ */
+public class FxCompressingOutputStream extends FilterOutputStream {
+
+	static final int RAW = 0;
+	static final int DEFLATED = 1;
+
+	private static final int MAX_RAW_FRAMES = 64;
+
+	private final FxCompression compression;
+	private final DataOutputStream frames;
+	private final byte[] buffer;
+	private final byte[] compressed;
+	private int count;
+	private Deflater deflater;
+
+	private int rawFramesLeft;
+	private int rawFramesPenalty;
+
+	private long bytesIn;
+	private long bytesOut;
+
+	FxCompressingOutputStream(OutputStream out, FxCompression compression) {
+		super(out);
+		this.compression = compression;
+		this.frames = new DataOutputStream(out);
+		this.buffer = new byte[compression.getFrameSize()];
+		this.compressed = new byte[compression.getFrameSize()];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (count == buffer.length)
+			writeFrame();
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		while (len > 0) {
+			if (count == buffer.length)
+				writeFrame();
+			int n = Math.min(len, buffer.length - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writeFrame();
+		frames.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			if (deflater != null) {
+				compression.releaseDeflater(deflater);
+				deflater = null;
+			}
+			out.close();
+		}
+	}
+
+	/**
+	 * @return number of bytes written to this stream
+	 */
+	public long getBytesIn() {
+		return bytesIn;
+	}
+
+	/**
+	 * @return number of bytes written to the underlying stream, frame headers included
+	 */
+	public long getBytesOut() {
+		return bytesOut;
+	}
+
+	private void writeFrame() throws IOException {
+		if (count == 0)
+			return;
+		bytesIn += count;
+		int compressedLength = count >= compression.getThreshold() ? deflate() : -1;
+		if (compressedLength < 0) {
+			frames.writeByte(RAW);
+			frames.writeInt(count);
+			frames.write(buffer, 0, count);
+			bytesOut += 5 + count;
+		} else {
+			frames.writeByte(DEFLATED);
+			frames.writeInt(count);
+			frames.writeInt(compressedLength);
+			frames.write(compressed, 0, compressedLength);
+			bytesOut += 9 + compressedLength;
+		}
+		count = 0;
+	}
+
+	/**
+	 * @return the compressed length, or -1 if the frame is to be sent raw
+	 */
+	private int deflate() {
+		if (rawFramesLeft > 0) {
+			rawFramesLeft--;
+			return -1;
+		}
+		if (deflater == null)
+			deflater = compression.borrowDeflater();
+		deflater.reset();
+		deflater.setInput(buffer, 0, count);
+		deflater.finish();
+		int length = 0;
+		while (!deflater.finished() && length < compressed.length)
+			length += deflater.deflate(compressed, length, compressed.length - length);
+
+		boolean worthIt = deflater.finished() && length <= count * compression.getMaxRatio();
+		if (compression.isAdaptive()) {
+			if (worthIt)
+				rawFramesPenalty = 0;
+			else {
+				rawFramesPenalty = Math.min(rawFramesPenalty == 0 ? 1 : rawFramesPenalty * 2, MAX_RAW_FRAMES);
+				rawFramesLeft = rawFramesPenalty;
+			}
+		}
+		return deflater.finished() && length < count ? length : -1;
+	}
+}
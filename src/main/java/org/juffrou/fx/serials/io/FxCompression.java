@@ -0,0 +1,131 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Settings of the optional compression stage placed under a proxy stream.
+ * <p>
+ * The compressing stream collects what the object stream writes and sends it in frames, when its buffer is full
+ * or the object stream is flushed. Frames smaller than the threshold are sent raw, since deflating a few
+ * hundred bytes costs more than it saves. When the stream is adaptive, a frame that deflates to more than
+ * {@link #getMaxRatio()} of its size makes the stream send the next frames raw, for a number of frames that
+ * doubles each time compression fails again, so data that does not compress stops costing CPU.<br>
+ * Deflaters and inflaters are pooled by this object and reused by every stream created from it, so one instance
+ * should be shared. It is thread safe.
+ *
+ * <pre>
+ * frame = RAW length:int bytes | DEFLATED length:int compressedLength:int zlibBytes
+ * </pre>
+ */
+public class FxCompression {
+
+	public static final int DEFAULT_THRESHOLD = 512;
+	public static final int DEFAULT_FRAME_SIZE = 64 * 1024;
+	public static final float DEFAULT_MAX_RATIO = 0.9f;
+
+	private static final int MAX_POOLED = 16;
+
+	private final int level;
+	private final int threshold;
+	private final int frameSize;
+	private final boolean adaptive;
+	private final float maxRatio;
+
+	private final Queue<Deflater> deflaters = new ConcurrentLinkedQueue<>();
+	private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Creates adaptive compression with the fastest deflate level, the default threshold and frame size.
+	 */
+	public FxCompression() {
+		this(Deflater.BEST_SPEED, DEFAULT_THRESHOLD, DEFAULT_FRAME_SIZE, true, DEFAULT_MAX_RATIO);
+	}
+
+	/**
+	 * @param level deflate level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+	 * @param threshold frames with fewer bytes are sent raw
+	 * @param frameSize maximum number of bytes in a frame
+	 * @param adaptive true to send raw frames for a while after a frame did not compress well
+	 * @param maxRatio compressed size over raw size above which a frame did not compress well
+	 */
+	public FxCompression(int level, int threshold, int frameSize, boolean adaptive, float maxRatio) {
+		if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)
+			throw new IllegalArgumentException("level must be between 1 and 9");
+		if (frameSize < 1 || threshold < 0)
+			throw new IllegalArgumentException("frameSize must be positive and threshold cannot be negative");
+		this.level = level;
+		this.threshold = threshold;
+		this.frameSize = frameSize;
+		this.adaptive = adaptive;
+		this.maxRatio = maxRatio;
+	}
+
+	/**
+	 * Wraps the stream a proxy output stream writes to.
+	 * @param out the underlying stream
+	 * @return a stream that writes compressed frames to out
+	 */
+	public FxCompressingOutputStream compress(OutputStream out) {
+		return new FxCompressingOutputStream(out, this);
+	}
+
+	/**
+	 * Wraps the stream a proxy input stream reads from.
+	 * @param in a stream written by a {@link FxCompressingOutputStream}
+	 * @return a stream that reads the uncompressed bytes
+	 */
+	public FxDecompressingInputStream decompress(InputStream in) {
+		return new FxDecompressingInputStream(in, this);
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public int getThreshold() {
+		return threshold;
+	}
+
+	public int getFrameSize() {
+		return frameSize;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	public float getMaxRatio() {
+		return maxRatio;
+	}
+
+	Deflater borrowDeflater() {
+		Deflater deflater = deflaters.poll();
+		return deflater != null ? deflater : new Deflater(level);
+	}
+
+	void releaseDeflater(Deflater deflater) {
+		deflater.reset();
+		if (deflaters.size() < MAX_POOLED)
+			deflaters.offer(deflater);
+		else
+			deflater.end();
+	}
+
+	Inflater borrowInflater() {
+		Inflater inflater = inflaters.poll();
+		return inflater != null ? inflater : new Inflater();
+	}
+
+	void releaseInflater(Inflater inflater) {
+		inflater.reset();
+		if (inflaters.size() < MAX_POOLED)
+			inflaters.offer(inflater);
+		else
+			inflater.end();
+	}
+}
@@ -0,0 +1,120 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the frames written by a {@link FxCompressingOutputStream} and returns their uncompressed bytes.
+ */
+public class FxDecompressingInputStream extends InputStream {
+
+	private final FxCompression compression;
+	private final DataInputStream frames;
+	private byte[] buffer = new byte[0];
+	private byte[] compressed = new byte[0];
+	private int position;
+	private int limit;
+	private Inflater inflater;
+
+	FxDecompressingInputStream(InputStream in, FxCompression compression) {
+		this.compression = compression;
+		this.frames = new DataInputStream(in);
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (position == limit && !nextFrame())
+			return -1;
+		return buffer[position++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (position == limit && !nextFrame())
+			return -1;
+		int n = Math.min(len, limit - position);
+		System.arraycopy(buffer, position, b, off, n);
+		position += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return limit - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (inflater != null) {
+			compression.releaseInflater(inflater);
+			inflater = null;
+		}
+		frames.close();
+	}
+
+	/**
+	 * @return false at the end of the stream
+	 */
+	private boolean nextFrame() throws IOException {
+		do {
+			int type = frames.read();
+			if (type < 0)
+				return false;
+			int length = frames.readInt();
+			// the lengths come from the stream, so they are checked before any buffer is sized by them
+			if (length < 0 || length > compression.getFrameSize())
+				throw new StreamCorruptedException("Invalid frame length " + length);
+			if (buffer.length < length)
+				buffer = new byte[length];
+
+			if (type == FxCompressingOutputStream.RAW) {
+				frames.readFully(buffer, 0, length);
+			} else if (type == FxCompressingOutputStream.DEFLATED) {
+				int compressedLength = frames.readInt();
+				if (compressedLength < 0 || compressedLength > maxCompressedLength(length))
+					throw new StreamCorruptedException("Invalid compressed frame length " + compressedLength);
+				if (compressed.length < compressedLength)
+					compressed = new byte[compressedLength];
+				frames.readFully(compressed, 0, compressedLength);
+				inflate(compressedLength, length);
+			} else
+				throw new StreamCorruptedException("Invalid frame type " + type);
+
+			position = 0;
+			limit = length;
+		} while (limit == 0);
+		return true;
+	}
+
+	/**
+	 * @return the largest deflated size of a frame, as zlib's compressBound
+	 */
+	private static int maxCompressedLength(int length) {
+		return length + (length >> 12) + (length >> 14) + (length >> 25) + 13;
+	}
+
+	private void inflate(int compressedLength, int length) throws IOException {
+		if (inflater == null)
+			inflater = compression.borrowInflater();
+		inflater.reset();
+		inflater.setInput(compressed, 0, compressedLength);
+		try {
+			int n = 0;
+			while (n < length) {
+				int inflated = inflater.inflate(buffer, n, length - n);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput()))
+					throw new EOFException("Deflated frame is shorter than its declared length");
+				n += inflated;
+			}
+		} catch (DataFormatException e) {
+			throw new StreamCorruptedException("Invalid deflated frame: " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamConstants;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.error.FxTransformerException;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+
+/**
+ * Decodes a proxy stream whose bytes are pushed in chunks, as asynchronous HTTP clients deliver a response body.
+ * <p>
+ * The stream holds any number of top level objects, written one after the other with writeObject. Each object is
+ * handed to the consumer as soon as its last byte has arrived, so the first objects of a large response are used
+ * while the rest is still on its way. The chunks are released as they are decoded.<br>
+ * Pushing never blocks. The object stream keeps its parse state on a task of the given executor, which waits only
+ * for the next chunk. When more than the maximum number of bytes are waiting to be decoded the future returned by
+ * {@link #push(ByteBuffer)} stays incomplete until the decoder has caught up, and the producer should not request
+ * more data until then.<br>
+ * The consumer is called on the decoding task, one object at a time.
+ */
+public class FxIncrementalDecoder {
+
+	public static final int DEFAULT_MAX_BUFFERED_BYTES = 256 * 1024;
+
+	private static final CompletableFuture<Void> READY = CompletableFuture.completedFuture(null);
+
+	private final FxMessageReader.StreamFactory streamFactory;
+	private final Consumer<Object> consumer;
+	private final Executor executor;
+	private final int maxBufferedBytes;
+	private final CompletableFuture<Long> completion = new CompletableFuture<>();
+
+	private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+	private long bufferedBytes;
+	private boolean completed;
+	private Throwable failure;
+	private boolean started;
+	private boolean finished;
+	private CompletableFuture<Void> writable = READY;
+
+	/**
+	 * @param streamFactory creates the object stream that decodes the chunks
+	 * @param consumer receives each top level object
+	 * @param executor runs the decoding task. The task blocks while it waits for chunks.
+	 * @param maxBufferedBytes number of pushed bytes not yet decoded above which the producer is held back
+	 */
+	public FxIncrementalDecoder(FxMessageReader.StreamFactory streamFactory, Consumer<Object> consumer,
+			Executor executor, int maxBufferedBytes) {
+		if (maxBufferedBytes < 1)
+			throw new IllegalArgumentException("maxBufferedBytes must be greater than zero");
+		this.streamFactory = streamFactory;
+		this.consumer = consumer;
+		this.executor = executor;
+		this.maxBufferedBytes = maxBufferedBytes;
+	}
+
+	/**
+	 * Creates a decoder that reads traditional Java Beans as JavaFX2 Beans.
+	 * @param consumer receives each top level object
+	 * @param executor runs the decoding task
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @return the decoder
+	 */
+	public static FxIncrementalDecoder proxyCreator(Consumer<Object> consumer, Executor executor,
+			FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache, BeanWrapperFactory bwFactory) {
+		return new FxIncrementalDecoder(in -> new FxProxyCreatorInputStream(in, proxyBuilder, proxyCache, bwFactory),
+				consumer, executor, DEFAULT_MAX_BUFFERED_BYTES);
+	}
+
+	/**
+	 * Pushes the next chunk of the stream. The decoder keeps the buffer until its bytes are decoded, so the caller
+	 * must not reuse it.
+	 * @param chunk bytes from its position to its limit
+	 * @return a future completed when the producer may push more
+	 * @throws IllegalStateException if the end of the stream was already signaled
+	 */
+	public CompletableFuture<Void> push(ByteBuffer chunk) {
+		boolean start;
+		CompletableFuture<Void> result;
+		synchronized (chunks) {
+			if (completed || failure != null)
+				throw new IllegalStateException("The stream has ended");
+			if (finished)
+				// decoding failed, the rest of the stream is dropped
+				return READY;
+			if (chunk.hasRemaining()) {
+				chunks.add(chunk);
+				bufferedBytes += chunk.remaining();
+				chunks.notifyAll();
+			}
+			if (bufferedBytes > maxBufferedBytes && writable.isDone())
+				writable = new CompletableFuture<>();
+			result = writable;
+			start = !started;
+			started = true;
+		}
+		if (start)
+			executor.execute(this::decode);
+		return result;
+	}
+
+	/**
+	 * Signals the end of the stream
+	 */
+	public void complete() {
+		boolean start;
+		synchronized (chunks) {
+			completed = true;
+			chunks.notifyAll();
+			start = !started;
+			started = true;
+		}
+		if (start)
+			executor.execute(this::decode);
+	}
+
+	/**
+	 * Aborts decoding, for instance when the connection fails
+	 * @param cause reason of the failure
+	 */
+	public void fail(Throwable cause) {
+		synchronized (chunks) {
+			if (failure == null)
+				failure = cause;
+			chunks.clear();
+			bufferedBytes = 0;
+			chunks.notifyAll();
+		}
+		completion.completeExceptionally(new FxTransformerException("Stream aborted", cause));
+	}
+
+	/**
+	 * @return a future completed with the number of objects decoded when the end of the stream is reached, or
+	 *         completed exceptionally with an {@link FxTransformerException}
+	 */
+	public CompletableFuture<Long> getCompletion() {
+		return completion;
+	}
+
+	/**
+	 * @return number of bytes pushed and not yet decoded
+	 */
+	public long getBufferedBytes() {
+		synchronized (chunks) {
+			return bufferedBytes;
+		}
+	}
+
+	private void decode() {
+		long count = 0;
+		ChunkInputStream in = new ChunkInputStream();
+		try {
+			if (in.awaitData()) {
+				try (ObjectInputStream objectIn = streamFactory.create(in)) {
+					do {
+						consumer.accept(objectIn.readObject());
+						count++;
+					} while (in.awaitObject());
+				}
+			}
+			completion.complete(count);
+		} catch (IOException | ClassNotFoundException | RuntimeException e) {
+			completion.completeExceptionally(new FxTransformerException("Error decoding object " + count, e));
+		} finally {
+			releaseProducer();
+		}
+	}
+
+	private void releaseProducer() {
+		CompletableFuture<Void> pending;
+		synchronized (chunks) {
+			finished = true;
+			chunks.clear();
+			bufferedBytes = 0;
+			pending = writable;
+			writable = READY;
+		}
+		pending.complete(null);
+	}
+
+	/**
+	 * The pushed chunks seen as a blocking input stream by the decoding task
+	 */
+	private class ChunkInputStream extends InputStream {
+
+		/**
+		 * Waits for the next byte
+		 * @return false at the end of the stream
+		 */
+		boolean awaitData() throws IOException {
+			synchronized (chunks) {
+				while (true) {
+					if (failure != null)
+						throw new IOException("Stream aborted", failure);
+					if (!chunks.isEmpty())
+						return true;
+					if (completed)
+						return false;
+					try {
+						chunks.wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for the next chunk");
+					}
+				}
+			}
+		}
+
+		/**
+		 * Waits for the next top level object. A reset written after the last object is dropped.
+		 * @return false at the end of the stream
+		 */
+		boolean awaitObject() throws IOException {
+			synchronized (chunks) {
+				while (awaitData()) {
+					for (ByteBuffer chunk : chunks)
+						for (int i = chunk.position(); i < chunk.limit(); i++)
+							if (chunk.get(i) != ObjectStreamConstants.TC_RESET)
+								return true;
+					if (!completed) {
+						try {
+							chunks.wait();
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new InterruptedIOException("Interrupted while waiting for the next chunk");
+						}
+						continue;
+					}
+					chunks.clear();
+					bufferedBytes = 0;
+				}
+				return false;
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b;
+			CompletableFuture<Void> release;
+			synchronized (chunks) {
+				if (!awaitData())
+					return -1;
+				b = chunks.peek().get() & 0xFF;
+				release = consumed(1);
+			}
+			if (release != null)
+				release.complete(null);
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0)
+				return 0;
+			int n;
+			CompletableFuture<Void> release;
+			synchronized (chunks) {
+				if (!awaitData())
+					return -1;
+				ByteBuffer chunk = chunks.peek();
+				n = Math.min(len, chunk.remaining());
+				chunk.get(b, off, n);
+				release = consumed(n);
+			}
+			if (release != null)
+				release.complete(null);
+			return n;
+		}
+
+		/**
+		 * Drops the chunk that was read to its end. Called with the chunks locked.
+		 * @return the future to complete once half of the maximum buffered bytes have been decoded, or null
+		 */
+		private CompletableFuture<Void> consumed(int n) {
+			if (!chunks.peek().hasRemaining())
+				chunks.poll();
+			bufferedBytes -= n;
+			if (bufferedBytes > maxBufferedBytes / 2 || writable.isDone())
+				return null;
+			CompletableFuture<Void> release = writable;
+			writable = READY;
+			return release;
+		}
+
+		@Override
+		public int available() {
+			synchronized (chunks) {
+				return chunks.isEmpty() ? 0 : chunks.peek().remaining();
+			}
+		}
+	}
+}
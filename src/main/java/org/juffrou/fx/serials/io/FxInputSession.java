@@ -0,0 +1,58 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The reading side of a session, which resolves the back references written by a {@link FxOutputSession} to the
+ * objects read in earlier messages.
+ * <p>
+ * {@link #endMessage(ObjectInputStream)} must be called after each message is read. {@link FxMessageReader} does
+ * this. A session is used by one stream and is not thread safe.
+ */
+public class FxInputSession {
+
+	private final Map<Integer, Object> objects = new HashMap<>();
+	private int nextId;
+
+	/**
+	 * Called by the stream for each back reference it reads.
+	 * @return the object read in an earlier message
+	 */
+	Object resolve(FxSessionReference reference) throws InvalidObjectException {
+		Object obj = objects.get(reference.id);
+		if (obj == null)
+			throw new InvalidObjectException("Unknown session object " + reference.id);
+		return obj;
+	}
+
+	/**
+	 * Reads the objects added and evicted by the message just read.
+	 * @param in the stream that read the message
+	 * @throws IOException if the stream cannot be read
+	 * @throws ClassNotFoundException if the stream is corrupted
+	 */
+	public void endMessage(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		int added = in.readInt();
+		if (added < 0)
+			throw new StreamCorruptedException("Invalid session message trailer");
+		for (int i = 0; i < added; i++)
+			objects.put(nextId++, in.readObject());
+		int evicted = in.readInt();
+		if (evicted < 0)
+			throw new StreamCorruptedException("Invalid session message trailer");
+		for (int i = 0; i < evicted; i++)
+			objects.remove(in.readInt());
+	}
+
+	/**
+	 * @return number of objects remembered
+	 */
+	public int size() {
+		return objects.size();
+	}
+}
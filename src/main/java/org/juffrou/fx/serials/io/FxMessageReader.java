@@ -0,0 +1,152 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+/**
+ * Reads the messages written by a {@link FxMessageWriter} through a single object stream.
+ * <p>
+ * The object stream is created when the first message arrives and is kept for the life of the connection,
+ * so back references to classes and objects sent in earlier messages are resolved to the instances already read.
+ *
+ * @see FxMessageWriter
+ */
+public class FxMessageReader implements Closeable {
+
+	/**
+	 * Creates the object stream used by a session
+	 */
+	public interface StreamFactory {
+		ObjectInputStream create(InputStream in) throws IOException;
+	}
+
+	private final FrameInputStream frames;
+	private final StreamFactory streamFactory;
+	private final FxInputSession session;
+	private ObjectInputStream objectIn;
+
+	/**
+	 * Creates a session reader.
+	 * @param connection stream where the frames are read from
+	 * @param streamFactory creates the object stream
+	 */
+	public FxMessageReader(InputStream connection, StreamFactory streamFactory) {
+		this.frames = new FrameInputStream(connection);
+		this.streamFactory = streamFactory;
+		this.session = null;
+	}
+
+	/**
+	 * Creates a session reader that resolves the back references of a session written by a
+	 * {@link FxMessageWriter} with an eviction policy.
+	 * @param connection stream where the frames are read from
+	 * @param session the reading side of the session
+	 * @param streamFactory creates the object stream, a {@link FxProxyCreatorInputStream} or a
+	 *            {@link FxProxyRemoverInputStream}
+	 */
+	public FxMessageReader(InputStream connection, FxInputSession session, StreamFactory streamFactory) {
+		this.frames = new FrameInputStream(connection);
+		this.streamFactory = streamFactory;
+		this.session = session;
+	}
+
+	/**
+	 * Creates a session reader that reads traditional Java Beans as JavaFX2 Beans.
+	 * @param connection stream where the frames are read from
+	 * @return the session reader
+	 */
+	public static FxMessageReader proxyCreator(InputStream connection) {
+		return proxyCreator(connection, new FxSerialsProxyBuilder(), new FXProxyCache(), new DefaultBeanWrapperFactory());
+	}
+
+	/**
+	 * Creates a session reader that reads traditional Java Beans as JavaFX2 Beans.
+	 * @param connection stream where the frames are read from
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @return the session reader
+	 */
+	public static FxMessageReader proxyCreator(InputStream connection, FxSerialsProxyBuilder proxyBuilder,
+			FXProxyCache proxyCache, BeanWrapperFactory bwFactory) {
+		return new FxMessageReader(connection,
+				in -> new FxProxyCreatorInputStream(in, proxyBuilder, proxyCache, bwFactory));
+	}
+
+	/**
+	 * Creates a session reader that reads JavaFX2 Beans as traditional Java Beans.
+	 * @param connection stream where the frames are read from
+	 * @return the session reader
+	 */
+	public static FxMessageReader proxyRemover(InputStream connection) {
+		return proxyRemover(connection, new FxSerialsProxyBuilder(), new FXProxyCache(), new DefaultBeanWrapperFactory());
+	}
+
+	/**
+	 * Creates a session reader that reads JavaFX2 Beans as traditional Java Beans.
+	 * @param connection stream where the frames are read from
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @return the session reader
+	 */
+	public static FxMessageReader proxyRemover(InputStream connection, FxSerialsProxyBuilder proxyBuilder,
+			FXProxyCache proxyCache, BeanWrapperFactory bwFactory) {
+		return new FxMessageReader(connection,
+				in -> new FxProxyRemoverInputStream(in, proxyBuilder, proxyCache, bwFactory));
+	}
+
+	/**
+	 * Reads the next message, blocking until its frame arrives.
+	 * @return the object sent in the message
+	 * @throws IOException if the frame cannot be read or does not hold exactly one object
+	 * @throws ClassNotFoundException if the class of a serialized object cannot be found
+	 */
+	public Object readMessage() throws IOException, ClassNotFoundException {
+		if (objectIn == null)
+			objectIn = createStream();
+		Object message = objectIn.readObject();
+		if (session != null)
+			session.endMessage(objectIn);
+		if (frames.remainingInFrame() != 0)
+			throw new StreamCorruptedException("Message frame has " + frames.remainingInFrame() + " unread bytes");
+		return message;
+	}
+
+	private ObjectInputStream createStream() throws IOException {
+		ObjectInputStream in = streamFactory.create(frames);
+		if (session == null)
+			return in;
+		if (in instanceof FxProxyCreatorInputStream)
+			((FxProxyCreatorInputStream) in).setSession(session);
+		else if (in instanceof FxProxyRemoverInputStream)
+			((FxProxyRemoverInputStream) in).setSession(session);
+		else
+			throw new IllegalArgumentException("Sessions need a proxy input stream");
+		return in;
+	}
+
+	/**
+	 * @return the reading side of the session, or null if this reader does not use one
+	 */
+	public FxInputSession getSession() {
+		return session;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (objectIn != null)
+			objectIn.close();
+		else
+			frames.close();
+	}
+}
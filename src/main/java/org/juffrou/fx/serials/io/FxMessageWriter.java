@@ -0,0 +1,187 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+/**
+ * Writes many messages over one connection through a single object stream.
+ * <p>
+ * The object stream is created once per connection, so its header is sent only once, and class descriptors
+ * and objects already written are sent as back references until the {@link FxResetPolicy} resets the stream.<br>
+ * Each message is sent as one frame: a four byte length followed by the bytes the object stream produced for
+ * that message. The frames must be read, in order, by one {@link FxMessageReader}.<p>
+ * A writer created with a {@link FxSessionEvictionPolicy} resets the object stream after every message, so the
+ * stream releases what it wrote, and keeps the JavaFX2 Beans it sent in a {@link FxOutputSession} instead, which
+ * sends them as back references until they are evicted.
+ *
+ * @see FxMessageReader
+ */
+public class FxMessageWriter implements Closeable {
+
+	/**
+	 * Creates the object stream used by a session
+	 */
+	public interface StreamFactory {
+		ObjectOutputStream create(OutputStream out) throws IOException;
+	}
+
+	private static final int INITIAL_FRAME_SIZE = 1024;
+
+	private final DataOutputStream connection;
+	private final FxResetPolicy resetPolicy;
+	private final FrameOutputBuffer frame;
+	private final ObjectOutputStream objectOut;
+	private final FxOutputSession session;
+
+	private int messagesSinceReset;
+	private long bytesSinceReset;
+	private boolean resetRequested;
+
+	/**
+	 * Creates a session writer.
+	 * @param connection stream where the frames are written
+	 * @param resetPolicy decides when the object stream is reset
+	 * @param streamFactory creates the object stream
+	 * @throws IOException if the object stream cannot be created
+	 */
+	public FxMessageWriter(OutputStream connection, FxResetPolicy resetPolicy, StreamFactory streamFactory)
+			throws IOException {
+		this.connection = new DataOutputStream(connection);
+		this.resetPolicy = resetPolicy;
+		this.frame = new FrameOutputBuffer(INITIAL_FRAME_SIZE);
+		this.objectOut = streamFactory.create(frame);
+		this.session = null;
+	}
+
+	/**
+	 * Creates a session writer that resets the object stream after every message and sends the JavaFX2 Beans
+	 * written in earlier messages as back references of a session.
+	 * @param connection stream where the frames are written
+	 * @param streamFactory creates the object stream, a {@link FxProxyCreatorOutputStream} or a
+	 *            {@link FxProxyRemoverOutputStream}
+	 * @param evictionPolicy decides which objects the session stops remembering
+	 * @throws IOException if the object stream cannot be created
+	 */
+	public FxMessageWriter(OutputStream connection, StreamFactory streamFactory, FxSessionEvictionPolicy evictionPolicy)
+			throws IOException {
+		this.connection = new DataOutputStream(connection);
+		this.resetPolicy = FxResetPolicy.everyMessage();
+		this.frame = new FrameOutputBuffer(INITIAL_FRAME_SIZE);
+		this.objectOut = streamFactory.create(frame);
+		this.session = new FxOutputSession(evictionPolicy);
+		if (objectOut instanceof FxProxyCreatorOutputStream)
+			((FxProxyCreatorOutputStream) objectOut).setSession(session);
+		else if (objectOut instanceof FxProxyRemoverOutputStream)
+			((FxProxyRemoverOutputStream) objectOut).setSession(session);
+		else
+			throw new IllegalArgumentException("Sessions need a proxy output stream");
+	}
+
+	/**
+	 * Creates a session writer that sends traditional Java Beans to be read as JavaFX2 Beans.
+	 * @param connection stream where the frames are written
+	 * @param resetPolicy decides when the object stream is reset
+	 * @return the session writer
+	 * @throws IOException if the object stream cannot be created
+	 */
+	public static FxMessageWriter proxyCreator(OutputStream connection, FxResetPolicy resetPolicy) throws IOException {
+		return proxyCreator(connection, resetPolicy, new FxSerialsProxyBuilder(), new FXProxyCache(),
+				new DefaultBeanWrapperFactory());
+	}
+
+	/**
+	 * Creates a session writer that sends traditional Java Beans to be read as JavaFX2 Beans.
+	 * @param connection stream where the frames are written
+	 * @param resetPolicy decides when the object stream is reset
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @return the session writer
+	 * @throws IOException if the object stream cannot be created
+	 */
+	public static FxMessageWriter proxyCreator(OutputStream connection, FxResetPolicy resetPolicy,
+			FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache, BeanWrapperFactory bwFactory)
+			throws IOException {
+		return new FxMessageWriter(connection, resetPolicy,
+				out -> new FxProxyCreatorOutputStream(out, proxyBuilder, proxyCache, bwFactory));
+	}
+
+	/**
+	 * Creates a session writer that sends JavaFX2 Beans to be read as traditional Java Beans.
+	 * @param connection stream where the frames are written
+	 * @param resetPolicy decides when the object stream is reset
+	 * @return the session writer
+	 * @throws IOException if the object stream cannot be created
+	 */
+	public static FxMessageWriter proxyRemover(OutputStream connection, FxResetPolicy resetPolicy) throws IOException {
+		return proxyRemover(connection, resetPolicy, new FxSerialsProxyBuilder(), new FXProxyCache(),
+				new DefaultBeanWrapperFactory());
+	}
+
+	/**
+	 * Creates a session writer that sends JavaFX2 Beans to be read as traditional Java Beans.
+	 * @param connection stream where the frames are written
+	 * @param resetPolicy decides when the object stream is reset
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @return the session writer
+	 * @throws IOException if the object stream cannot be created
+	 */
+	public static FxMessageWriter proxyRemover(OutputStream connection, FxResetPolicy resetPolicy,
+			FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache, BeanWrapperFactory bwFactory)
+			throws IOException {
+		return new FxMessageWriter(connection, resetPolicy,
+				out -> new FxProxyRemoverOutputStream(out, proxyBuilder, proxyCache, bwFactory));
+	}
+
+	/**
+	 * Writes one object as a message frame and flushes the connection.
+	 * @param message object to write
+	 * @throws IOException if the object cannot be serialized or the frame cannot be written
+	 */
+	public void writeMessage(Object message) throws IOException {
+		if (messagesSinceReset > 0 && (resetRequested || resetPolicy.shouldReset(messagesSinceReset, bytesSinceReset))) {
+			objectOut.reset();
+			messagesSinceReset = 0;
+			bytesSinceReset = 0;
+		}
+		resetRequested = false;
+		objectOut.writeObject(message);
+		if (session != null)
+			session.endMessage(objectOut);
+		objectOut.flush();
+		bytesSinceReset += frame.writeFrame(connection);
+		messagesSinceReset++;
+		connection.flush();
+	}
+
+	/**
+	 * @return the writing side of the session, or null if this writer does not use one
+	 */
+	public FxOutputSession getSession() {
+		return session;
+	}
+
+	/**
+	 * Resets the object stream before the next message, regardless of the reset policy.
+	 */
+	public void reset() {
+		resetRequested = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		objectOut.close();
+		connection.close();
+	}
+}
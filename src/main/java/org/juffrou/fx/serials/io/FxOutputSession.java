@@ -0,0 +1,128 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.juffrou.fx.serials.JFXSerializable;
+
+/**
+ * The writing side of a session that sends objects already sent in earlier messages as back references.
+ * <p>
+ * A proxy stream given a session remembers every JFXSerializable object it writes. When the same instance is
+ * written in a later message, only its session id is sent and the reading {@link FxInputSession} resolves it to
+ * the object it already holds, so shared objects such as addresses or lookup entities keep their identity on the
+ * reading side. Since the content of a remembered object is not sent again, changes made to it are not seen by
+ * the reader until it is {@link #forget(Object) forgotten}.<br>
+ * The stream must be reset after each message, and {@link #endMessage(ObjectOutputStream)} called before the
+ * reset, which tells the reader which objects were added and evicted. {@link FxMessageWriter} does this.<br>
+ * A session is used by one stream and is not thread safe.
+ */
+public class FxOutputSession {
+
+	private final FxSessionEvictionPolicy evictionPolicy;
+
+	private final Map<Object, Integer> ids = new IdentityHashMap<>();
+	private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final List<Object> added = new ArrayList<>();
+	private final Map<Object, Boolean> addedSet = new IdentityHashMap<>();
+	private final List<Integer> forgotten = new ArrayList<>();
+	private int nextId;
+	private int message;
+
+	/**
+	 * @param evictionPolicy decides which objects the session stops remembering
+	 */
+	public FxOutputSession(FxSessionEvictionPolicy evictionPolicy) {
+		this.evictionPolicy = evictionPolicy;
+	}
+
+	/**
+	 * Called by the stream for each object it is about to write.
+	 * @return the reference to write instead of the object, or null if the object is written
+	 */
+	Object replace(Object obj) {
+		if (!(obj instanceof JFXSerializable))
+			return null;
+		Integer id = ids.get(obj);
+		if (id != null) {
+			// touching the entry moves it to the most recently used end
+			entries.get(id).lastUsed = message;
+			return new FxSessionReference(id);
+		}
+		if (addedSet.put(obj, Boolean.TRUE) == null)
+			added.add(obj);
+		return null;
+	}
+
+	/**
+	 * Writes the objects added and evicted by the current message, and starts the next message.
+	 * @param out the stream that wrote the message. It must be reset afterwards.
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void endMessage(ObjectOutputStream out) throws IOException {
+		for (Object obj : added) {
+			int id = nextId++;
+			ids.put(obj, id);
+			entries.put(id, new Entry(obj, message));
+		}
+
+		List<Integer> evicted = new ArrayList<>(forgotten);
+		forgotten.clear();
+		Iterator<Entry> lru = entries.values().iterator();
+		while (lru.hasNext()) {
+			Entry eldest = lru.next();
+			if (!evictionPolicy.shouldEvict(entries.size(), message - eldest.lastUsed))
+				break;
+			lru.remove();
+			evicted.add(ids.remove(eldest.obj));
+		}
+
+		// the added objects were written in this message, so they are sent as stream handles
+		out.writeInt(added.size());
+		for (Object obj : added)
+			out.writeObject(obj);
+		out.writeInt(evicted.size());
+		for (int id : evicted)
+			out.writeInt(id);
+		added.clear();
+		addedSet.clear();
+		message++;
+	}
+
+	/**
+	 * Forgets an object, so that its current content is sent the next time it is written.
+	 * @param obj an object sent in an earlier message
+	 * @return true if the session remembered the object
+	 */
+	public boolean forget(Object obj) {
+		Integer id = ids.remove(obj);
+		if (id == null)
+			return false;
+		entries.remove(id);
+		forgotten.add(id);
+		return true;
+	}
+
+	/**
+	 * @return number of objects remembered
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	private static class Entry {
+		final Object obj;
+		int lastUsed;
+
+		Entry(Object obj, int lastUsed) {
+			this.obj = obj;
+			this.lastUsed = lastUsed;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.juffrou.fx.serials.error.FxTransformerException;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+
+/**
+ * Decodes a sequence written by a {@link FxSequenceWriter} into an ObservableList while it is being read.
+ * <p>
+ * Elements are read on a background thread and appended to the target list in batches on the FX application
+ * thread, each batch with a single addAll call, so list views receive one change per batch. A batch is
+ * handed over when it is full or when the maximum delay has passed since its first element was read, so the
+ * first rows show up quickly even on a slow stream.<br>
+ * At most a few batches wait for the FX thread at any time; when it falls behind, reading pauses, so memory
+ * stays bounded by the batches in flight and the elements already in the target list.
+ */
+public class FxProgressiveListReader<E> {
+
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	public static final long DEFAULT_MAX_BATCH_DELAY_MILLIS = 16;
+	public static final int DEFAULT_MAX_PENDING_BATCHES = 4;
+
+	private final FxSequenceReader source;
+	private final ObservableList<? super E> target;
+	private final int batchSize;
+	private final long maxBatchDelayNanos;
+	private final Executor fxDispatcher;
+	private final Semaphore pendingBatches;
+	private volatile boolean cancelled;
+
+	/**
+	 * Creates a reader that appends to the target list on the FX application thread.
+	 * @param source the sequence to read
+	 * @param target the list to append to
+	 */
+	public FxProgressiveListReader(FxSequenceReader source, ObservableList<? super E> target) {
+		this(source, target, DEFAULT_BATCH_SIZE, DEFAULT_MAX_BATCH_DELAY_MILLIS, DEFAULT_MAX_PENDING_BATCHES,
+				Platform::runLater);
+	}
+
+	/**
+	 * @param source the sequence to read
+	 * @param target the list to append to
+	 * @param batchSize maximum number of elements per addAll call
+	 * @param maxBatchDelayMillis maximum time an element read waits before its batch is handed over
+	 * @param maxPendingBatches maximum number of batches handed over and not yet added to the list
+	 * @param fxDispatcher runs the addAll calls, normally on the FX application thread
+	 */
+	public FxProgressiveListReader(FxSequenceReader source, ObservableList<? super E> target, int batchSize,
+			long maxBatchDelayMillis, int maxPendingBatches, Executor fxDispatcher) {
+		if (batchSize < 1 || maxPendingBatches < 1)
+			throw new IllegalArgumentException("batchSize and maxPendingBatches must be greater than zero");
+		this.source = source;
+		this.target = target;
+		this.batchSize = batchSize;
+		this.maxBatchDelayNanos = maxBatchDelayMillis * 1000000L;
+		this.pendingBatches = new Semaphore(maxPendingBatches);
+		this.fxDispatcher = fxDispatcher;
+	}
+
+	/**
+	 * Reads the sequence on a background thread.
+	 * @param executor executor that runs the blocking reads
+	 * @return a future completed with the number of elements read once the last batch has been handed over, or
+	 *         completed exceptionally with an {@link FxTransformerException}
+	 */
+	public CompletableFuture<Long> start(Executor executor) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return readAll();
+			} catch (IOException | ClassNotFoundException e) {
+				throw new FxTransformerException("Error deserializing list element " + source.getCount(), e);
+			}
+		}, executor);
+	}
+
+	/**
+	 * Reads the sequence on the calling thread, which must not be the thread of the dispatcher.
+	 * @return number of elements read
+	 * @throws IOException if the stream cannot be read
+	 * @throws ClassNotFoundException if the class of an element cannot be found
+	 */
+	public long readAll() throws IOException, ClassNotFoundException {
+		try {
+			List<E> batch = new ArrayList<>();
+			long batchStart = 0;
+			while (!cancelled && source.hasNext()) {
+				E element = source.next();
+				if (batch.isEmpty())
+					batchStart = System.nanoTime();
+				batch.add(element);
+				if (batch.size() >= batchSize || System.nanoTime() - batchStart >= maxBatchDelayNanos) {
+					dispatch(batch);
+					batch = new ArrayList<>();
+				}
+			}
+			if (!batch.isEmpty())
+				dispatch(batch);
+			return source.getCount();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the FX thread");
+		}
+	}
+
+	/**
+	 * Stops reading after the current element. Batches already handed over are still added.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	private void dispatch(List<E> batch) throws InterruptedException {
+		pendingBatches.acquire();
+		try {
+			fxDispatcher.execute(() -> {
+				try {
+					target.addAll(batch);
+				} finally {
+					pendingBatches.release();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			pendingBatches.release();
+			throw e;
+		}
+	}
+}
@@ -2,6 +2,7 @@ package org.juffrou.fx.serials.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
 import java.io.ObjectStreamClass;
 import java.lang.reflect.InvocationTargetException;
@@ -9,6 +10,8 @@ import java.lang.reflect.Method;
 
 import org.juffrou.fx.serials.JFXProxy;
 import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
+import org.juffrou.fx.serials.core.FxProxyInitializer;
 import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
 import org.juffrou.fx.serials.error.CannotInitializeFxPropertyListException;
 import org.slf4j.Logger;
@@ -36,11 +39,18 @@ public class FxProxyCreatorInputStream extends ObjectInputStream {
 	// Factory for creating bean wrapper contexts to read the normal classes
 	private final BeanWrapperFactory bwFactory;
 
+	// Dictionary of class descriptors sent as ids, or null if full descriptors are sent
+	private final FxClassRegistry classRegistry;
+
+	// Resolves the back references to objects read in earlier messages, or null
+	private FxInputSession session;
+
 	protected FxProxyCreatorInputStream() throws IOException, SecurityException {
 		super();
 		this.proxyBuilder = new FxSerialsProxyBuilder();
 		this.proxyCache = new FXProxyCache();
 		this.bwFactory = new DefaultBeanWrapperFactory();
+		this.classRegistry = null;
 
 	}
 
@@ -50,20 +60,49 @@ public class FxProxyCreatorInputStream extends ObjectInputStream {
 
 	public FxProxyCreatorInputStream(InputStream in, FxSerialsProxyBuilder proxyBuilder,
 			FXProxyCache builderCache, BeanWrapperFactory bwFactory) throws IOException {
+		this(in, proxyBuilder, builderCache, bwFactory, null);
+	}
+
+	/**
+	 * Creates a stream that reads class descriptors of registered classes as ids.
+	 * @param in stream to read from
+	 * @param proxyBuilder the proxy builder
+	 * @param builderCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry the same registry used by the writing stream, or null if the stream has full class descriptors
+	 * @throws IOException if the stream header cannot be read or the stream was written with a different registry
+	 */
+	public FxProxyCreatorInputStream(InputStream in, FxSerialsProxyBuilder proxyBuilder,
+			FXProxyCache builderCache, BeanWrapperFactory bwFactory, FxClassRegistry classRegistry) throws IOException {
 		super(in);
 		this.proxyBuilder = proxyBuilder;
 		this.proxyCache = builderCache;
 		this.bwFactory = bwFactory;
+		this.classRegistry = classRegistry;
 		enableResolveObject(true);
+		if (classRegistry != null)
+			ClassDescriptorDictionary.readHeader(this, classRegistry);
+	}
+
+	@Override
+	protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+		ObjectStreamClass desc = null;
+		if (classRegistry != null)
+			desc = ClassDescriptorDictionary.readId(this, classRegistry, proxyBuilder, proxyCache);
+		return desc != null ? desc : super.readClassDescriptor();
 	}
 
 	@Override
 	protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
 
-		Class<?> proxyClass;
-		
 		if(proxyBuilder.isFXProxy(desc.getName())) {
 			
+			// resolved proxy classes are shared by every stream using the same proxy cache. Other classes are
+			// left to the stream, which resolves them with the class loader of the calling code.
+			Class<?> proxyClass = proxyCache.getResolvedClass(desc.getName());
+			if (proxyClass != null)
+				return proxyClass;
+
 			proxyClass = proxyCache.getProxyFromProxyClassName(desc.getName());
 			
 			if (proxyClass == null) {
@@ -79,19 +118,36 @@ public class FxProxyCreatorInputStream extends ObjectInputStream {
 					logger.debug("resolved: " + proxyClass.getName());
 			}
 			
+			proxyCache.putResolvedClass(desc.getName(), proxyClass);
+			return proxyClass;
 		}
-		else
-			proxyClass = super.resolveClass(desc);
-		
-		return proxyClass;
+		return super.resolveClass(desc);
+	}
+
+	/**
+	 * Resolves the back references of a session to the objects read in earlier messages. Set it before the first
+	 * object is read.
+	 * @param session the reading side of the session, or null
+	 */
+	public void setSession(FxInputSession session) {
+		this.session = session;
 	}
 
 	@Override
 	protected Object resolveObject(Object obj) throws IOException {
 
+		if (obj instanceof FxSessionReference) {
+			if (session == null)
+				throw new InvalidObjectException("Session back reference in a stream without a session");
+			return session.resolve((FxSessionReference) obj);
+		}
+
 		// If the object is an FxSerialsProxy instance, then initialize its
 		// properties list
-		if(JFXProxy.class.isAssignableFrom(obj.getClass())) {
+		if (obj instanceof FxProxyInitializer)
+			((FxProxyInitializer) obj).initPropertiesList();
+		else if (obj instanceof JFXProxy) {
+			// proxy class generated without the initializer interface
 			try {
 
 				Class<?> proxyClass = obj.getClass();
@@ -109,5 +165,4 @@ public class FxProxyCreatorInputStream extends ObjectInputStream {
 
 		return obj;
 	}
-
 }
@@ -7,6 +7,8 @@ import java.io.OutputStream;
 
 import org.juffrou.fx.serials.JFXSerializable;
 import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
+import org.juffrou.fx.serials.core.FxProxyInitializer;
 import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
 import org.juffrou.fx.serials.error.CannotInitializeFxPropertyListException;
 import org.slf4j.Logger;
@@ -30,22 +32,66 @@ public class FxProxyCreatorOutputStream extends ObjectOutputStream {
 	// Factory for creating bean wrapper contexts to read the normal classes
 	private final BeanWrapperFactory bwFactory;
 
+	// Dictionary of class descriptors sent as ids, or null if full descriptors are sent
+	private final FxClassRegistry classRegistry;
+
+	// Remembers the objects written in earlier messages, or null
+	private FxOutputSession session;
+
 	public FxProxyCreatorOutputStream(OutputStream out) throws IOException {
 		this(out, new FxSerialsProxyBuilder(), new FXProxyCache(), new DefaultBeanWrapperFactory());
 	}
 	
 	public FxProxyCreatorOutputStream(OutputStream out, FxSerialsProxyBuilder proxyBuilder,
 			FXProxyCache builderCache, BeanWrapperFactory bwFactory) throws IOException {
+		this(out, proxyBuilder, builderCache, bwFactory, null);
+	}
+
+	/**
+	 * Creates a stream that writes class descriptors of registered classes as ids.
+	 * @param out stream to write to
+	 * @param proxyBuilder the proxy builder
+	 * @param builderCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry registry shared with the reading stream, or null to write full class descriptors
+	 * @throws IOException if the stream header cannot be written
+	 */
+	public FxProxyCreatorOutputStream(OutputStream out, FxSerialsProxyBuilder proxyBuilder,
+			FXProxyCache builderCache, BeanWrapperFactory bwFactory, FxClassRegistry classRegistry) throws IOException {
 		super(out);
 		this.proxyBuilder = proxyBuilder;
 		this.proxyCache = builderCache;
 		this.bwFactory = bwFactory;
+		this.classRegistry = classRegistry;
 		enableReplaceObject(true);
+		if (classRegistry != null)
+			ClassDescriptorDictionary.writeHeader(this, classRegistry);
+	}
+
+	@Override
+	protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+		if (classRegistry == null || !ClassDescriptorDictionary.writeId(this, classRegistry, desc))
+			super.writeClassDescriptor(desc);
+	}
+
+	/**
+	 * Writes the objects written in earlier messages as back references of a session. Set it before the first
+	 * object is written.
+	 * @param session the writing side of the session, or null
+	 */
+	public void setSession(FxOutputSession session) {
+		this.session = session;
 	}
 
 	@Override
 	protected Object replaceObject(Object obj) throws IOException {
 
+		if (session != null) {
+			Object reference = session.replace(obj);
+			if (reference != null)
+				return reference;
+		}
+
 		Class<? extends Object> resolveClass = obj.getClass();
 		if (implementsFxSerials(resolveClass)) {
 			
@@ -71,8 +117,14 @@ public class FxProxyCreatorOutputStream extends ObjectOutputStream {
 				JuffrouBeanWrapper srcWrapper = new JuffrouBeanWrapper(context, obj);
 				Object proxyObj = proxyClass.newInstance();
 				JuffrouBeanWrapper dstWrapper = new JuffrouBeanWrapper(context, proxyObj);
-				for (String propName : srcWrapper.getPropertyNames())
-					dstWrapper.setValue(propName, srcWrapper.getValue(propName));
+				// copying is not an edit, so the setters do not publish it
+				((FxProxyInitializer) proxyObj).setFxInitializing(true);
+				try {
+					for (String propName : srcWrapper.getPropertyNames())
+						dstWrapper.setValue(propName, srcWrapper.getValue(propName));
+				} finally {
+					((FxProxyInitializer) proxyObj).setFxInitializing(false);
+				}
 				
 				obj = proxyObj;
 			}
@@ -2,9 +2,12 @@ package org.juffrou.fx.serials.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InvalidObjectException;
 import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
 
 import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
 import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,11 +34,18 @@ public class FxProxyRemoverInputStream extends ObjectInputStream {
 	// Factory for creating bean wrapper contexts to read the normal classes
 	private final BeanWrapperFactory bwFactory;
 
+	// Dictionary of class descriptors sent as ids, or null if full descriptors are sent
+	private final FxClassRegistry classRegistry;
+
+	// Resolves the back references to objects read in earlier messages, or null
+	private FxInputSession session;
+
 	protected FxProxyRemoverInputStream() throws IOException, SecurityException {
 		super();
 		this.proxyBuilder = new FxSerialsProxyBuilder();
 		this.proxyCache = new FXProxyCache();
 		this.bwFactory = new DefaultBeanWrapperFactory();
+		this.classRegistry = null;
 	}
 
 	public FxProxyRemoverInputStream(InputStream in) throws IOException {
@@ -44,10 +54,54 @@ public class FxProxyRemoverInputStream extends ObjectInputStream {
 
 	public FxProxyRemoverInputStream(InputStream in, FxSerialsProxyBuilder proxyBuilder,
 			FXProxyCache builderCache, BeanWrapperFactory bwFactory) throws IOException {
+		this(in, proxyBuilder, builderCache, bwFactory, null);
+	}
+
+	/**
+	 * Creates a stream that reads class descriptors of registered classes as ids.
+	 * @param in stream to read from
+	 * @param proxyBuilder the proxy builder
+	 * @param builderCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry the same registry used by the writing stream, or null if the stream has full class descriptors
+	 * @throws IOException if the stream header cannot be read or the stream was written with a different registry
+	 */
+	public FxProxyRemoverInputStream(InputStream in, FxSerialsProxyBuilder proxyBuilder,
+			FXProxyCache builderCache, BeanWrapperFactory bwFactory, FxClassRegistry classRegistry) throws IOException {
 		super(in);
 		this.proxyBuilder = proxyBuilder;
 		this.proxyCache = builderCache;
 		this.bwFactory = bwFactory;
+		this.classRegistry = classRegistry;
 		enableResolveObject(true);
+		if (classRegistry != null)
+			ClassDescriptorDictionary.readHeader(this, classRegistry);
+	}
+
+	@Override
+	protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+		ObjectStreamClass desc = null;
+		if (classRegistry != null)
+			desc = ClassDescriptorDictionary.readId(this, classRegistry, proxyBuilder, proxyCache);
+		return desc != null ? desc : super.readClassDescriptor();
+	}
+
+	/**
+	 * Resolves the back references of a session to the objects read in earlier messages. Set it before the first
+	 * object is read.
+	 * @param session the reading side of the session, or null
+	 */
+	public void setSession(FxInputSession session) {
+		this.session = session;
+	}
+
+	@Override
+	protected Object resolveObject(Object obj) throws IOException {
+		if (obj instanceof FxSessionReference) {
+			if (session == null)
+				throw new InvalidObjectException("Session back reference in a stream without a session");
+			return session.resolve((FxSessionReference) obj);
+		}
+		return obj;
 	}
 }
@@ -0,0 +1,59 @@
+package org.juffrou.fx.serials.io;
+
+/**
+ * Decides when a message session resets its object stream.
+ * <p>
+ * While a session is not reset, classes and objects already written are sent as back references, so a
+ * message carries only what is new. A reset clears the handle tables on both sides: it releases the
+ * objects written so far, and objects written again afterwards are sent with their current state.
+ *
+ * @see FxMessageWriter
+ */
+public interface FxResetPolicy {
+
+	/**
+	 * Called before writing a message.
+	 * @param messagesSinceReset number of messages written since the last reset (always greater than zero)
+	 * @param bytesSinceReset number of bytes written since the last reset
+	 * @return true if the stream should be reset before the next message is written
+	 */
+	boolean shouldReset(int messagesSinceReset, long bytesSinceReset);
+
+	/**
+	 * The stream is never reset. Every object written is kept by both sides for the life of the session.
+	 * @return the reset policy
+	 */
+	static FxResetPolicy never() {
+		return (messages, bytes) -> false;
+	}
+
+	/**
+	 * The stream is reset before every message. Only the stream header is saved across messages.
+	 * @return the reset policy
+	 */
+	static FxResetPolicy everyMessage() {
+		return (messages, bytes) -> true;
+	}
+
+	/**
+	 * The stream is reset after a given number of messages.
+	 * @param messages number of messages between resets
+	 * @return the reset policy
+	 */
+	static FxResetPolicy everyMessages(int messages) {
+		if (messages < 1)
+			throw new IllegalArgumentException("messages must be greater than zero");
+		return (count, bytes) -> count >= messages;
+	}
+
+	/**
+	 * The stream is reset once a given number of bytes has been written since the last reset.
+	 * @param bytes number of bytes between resets
+	 * @return the reset policy
+	 */
+	static FxResetPolicy afterBytes(long bytes) {
+		if (bytes < 1)
+			throw new IllegalArgumentException("bytes must be greater than zero");
+		return (count, written) -> written >= bytes;
+	}
+}
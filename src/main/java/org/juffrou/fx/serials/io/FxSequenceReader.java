@@ -0,0 +1,73 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads, one element at a time, a sequence written by a {@link FxSequenceWriter}.
+ */
+public class FxSequenceReader implements Closeable {
+
+	private final ObjectInputStream in;
+	private Boolean hasNext;
+	private long count;
+
+	/**
+	 * @param in the object stream, usually a {@link FxProxyCreatorInputStream}
+	 */
+	public FxSequenceReader(ObjectInputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * @param in stream to read from
+	 * @param streamFactory creates the object stream
+	 * @throws IOException if the object stream cannot be created
+	 */
+	public FxSequenceReader(InputStream in, FxMessageReader.StreamFactory streamFactory) throws IOException {
+		this(streamFactory.create(in));
+	}
+
+	/**
+	 * @return true if another element follows, false at the end of the sequence
+	 * @throws IOException if the stream cannot be read
+	 */
+	public boolean hasNext() throws IOException {
+		if (hasNext == null)
+			hasNext = in.readBoolean();
+		return hasNext;
+	}
+
+	/**
+	 * Reads the next element
+	 * @param <T> Type of the element
+	 * @return the element
+	 * @throws NoSuchElementException at the end of the sequence
+	 * @throws IOException if the stream cannot be read
+	 * @throws ClassNotFoundException if the class of the element cannot be found
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T next() throws IOException, ClassNotFoundException {
+		if (!hasNext())
+			throw new NoSuchElementException("The sequence has ended");
+		hasNext = null;
+		T element = (T) in.readObject();
+		count++;
+		return element;
+	}
+
+	/**
+	 * @return number of elements read
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
@@ -0,0 +1,171 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Writes a long sequence of objects to a proxy stream one element at a time, so that it can be read one element
+ * at a time by a {@link FxSequenceReader}.
+ * <p>
+ * Writing a list with a single writeObject call makes the reader decode the whole list before it can use the
+ * first element, and keeps every element in the handle tables of both streams. Each element written here is
+ * preceded by a marker and the stream is reset according to a {@link FxResetPolicy}, so both sides can release
+ * the elements already transferred and memory stays bounded however long the sequence is. Objects shared by
+ * elements written between two resets keep their identity.<br>
+ * Elements written between {@link #beginScope()} and {@link #endScope()} form one record: the stream is never
+ * reset inside a record, so objects shared by its elements always keep their identity. The reset policy counts
+ * records, and counts bytes when the writer creates its own object stream.
+ */
+public class FxSequenceWriter implements Closeable {
+
+	private final ObjectOutputStream out;
+	private final FxResetPolicy resetPolicy;
+	private final ByteCountingOutputStream byteCount;
+	private int recordsSinceReset;
+	private long bytesAtReset;
+	private int scopeDepth;
+	private long count;
+	private boolean ended;
+
+	/**
+	 * @param out the object stream, usually a {@link FxProxyCreatorOutputStream}
+	 * @param resetPolicy decides, before each record, whether the stream is reset. Its byte count is always zero.
+	 */
+	public FxSequenceWriter(ObjectOutputStream out, FxResetPolicy resetPolicy) {
+		this.out = out;
+		this.resetPolicy = resetPolicy;
+		this.byteCount = null;
+	}
+
+	/**
+	 * Creates a writer whose reset policy is also given the number of bytes written since the last reset.
+	 * @param out stream to write to
+	 * @param streamFactory creates the object stream
+	 * @param resetPolicy decides, before each record, whether the stream is reset
+	 * @throws IOException if the object stream cannot be created
+	 */
+	public FxSequenceWriter(OutputStream out, FxMessageWriter.StreamFactory streamFactory, FxResetPolicy resetPolicy)
+			throws IOException {
+		this.byteCount = new ByteCountingOutputStream(out);
+		this.out = streamFactory.create(byteCount);
+		this.resetPolicy = resetPolicy;
+	}
+
+	/**
+	 * Starts a record. Scopes may be nested; the record ends with the outermost scope.
+	 * @throws IOException if the stream cannot be reset
+	 */
+	public void beginScope() throws IOException {
+		checkNotEnded();
+		if (scopeDepth++ == 0)
+			startRecord();
+	}
+
+	/**
+	 * Ends a record started by {@link #beginScope()}
+	 */
+	public void endScope() {
+		if (scopeDepth == 0)
+			throw new IllegalStateException("No scope was begun");
+		scopeDepth--;
+	}
+
+	/**
+	 * Writes the next element of the sequence. Outside a scope the element is a record of its own.
+	 * @param element the element
+	 * @throws IOException if the element cannot be written
+	 */
+	public void write(Object element) throws IOException {
+		checkNotEnded();
+		if (scopeDepth == 0)
+			startRecord();
+		out.writeBoolean(true);
+		out.writeObject(element);
+		count++;
+	}
+
+	private void startRecord() throws IOException {
+		if (recordsSinceReset > 0 && resetPolicy.shouldReset(recordsSinceReset, bytesSinceReset())) {
+			out.reset();
+			recordsSinceReset = 0;
+			bytesAtReset = byteCount == null ? 0 : byteCount.count;
+		}
+		recordsSinceReset++;
+	}
+
+	private long bytesSinceReset() {
+		return byteCount == null ? 0 : byteCount.count - bytesAtReset;
+	}
+
+	private void checkNotEnded() {
+		if (ended)
+			throw new IllegalStateException("The sequence has ended");
+	}
+
+	/**
+	 * Writes every element of an iterable
+	 * @param elements the elements
+	 * @throws IOException if an element cannot be written
+	 */
+	public void writeAll(Iterable<?> elements) throws IOException {
+		for (Object element : elements)
+			write(element);
+	}
+
+	/**
+	 * @return number of elements written
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Writes the end of the sequence and flushes the stream. The stream stays open.
+	 * @throws IOException if the end marker cannot be written
+	 */
+	public void end() throws IOException {
+		if (ended)
+			return;
+		if (scopeDepth > 0)
+			throw new IllegalStateException("The sequence ends inside a scope");
+		out.writeBoolean(false);
+		out.flush();
+		ended = true;
+	}
+
+	/**
+	 * Ends the sequence and closes the stream
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			end();
+		} finally {
+			out.close();
+		}
+	}
+
+	private static class ByteCountingOutputStream extends FilterOutputStream {
+
+		long count;
+
+		ByteCountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package org.juffrou.fx.serials.io;
+
+/**
+ * Decides which objects a session stops remembering.
+ * <p>
+ * After each message the writing side offers the least recently used object of the session, repeatedly, until
+ * the policy keeps one. Evicted objects are forgotten by both sides, and are sent with their content the next
+ * time they are written.
+ *
+ * @see FxOutputSession
+ */
+public interface FxSessionEvictionPolicy {
+
+	/**
+	 * @param sessionSize number of objects remembered by the session
+	 * @param idleMessages number of messages written since the least recently used object was last written
+	 * @return true if the least recently used object must be evicted
+	 */
+	boolean shouldEvict(int sessionSize, int idleMessages);
+
+	/**
+	 * Objects are remembered for the life of the session.
+	 * @return the eviction policy
+	 */
+	static FxSessionEvictionPolicy never() {
+		return (size, idle) -> false;
+	}
+
+	/**
+	 * The least recently used objects are evicted when the session holds more than a given number of objects.
+	 * @param maxObjects maximum number of objects remembered
+	 * @return the eviction policy
+	 */
+	static FxSessionEvictionPolicy maxObjects(int maxObjects) {
+		if (maxObjects < 0)
+			throw new IllegalArgumentException("maxObjects must not be negative");
+		return (size, idle) -> size > maxObjects;
+	}
+
+	/**
+	 * Objects not written for a given number of messages are evicted.
+	 * @param messages number of messages after which an unused object is evicted
+	 * @return the eviction policy
+	 */
+	static FxSessionEvictionPolicy idleMessages(int messages) {
+		if (messages < 1)
+			throw new IllegalArgumentException("messages must be greater than zero");
+		return (size, idle) -> idle >= messages;
+	}
+}
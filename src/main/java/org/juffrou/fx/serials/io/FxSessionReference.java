@@ -0,0 +1,17 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.Serializable;
+
+/**
+ * Written by a session in place of an object sent in an earlier message
+ */
+final class FxSessionReference implements Serializable {
+
+	private static final long serialVersionUID = 3962873021561893204L;
+
+	final int id;
+
+	FxSessionReference(int id) {
+		this.id = id;
+	}
+}
@@ -0,0 +1,184 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.error.FxTransformerException;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+/**
+ * Loads the records of a snapshot file written by {@link FxSnapshotWriter} as JavaFX2 Beans.
+ * <p>
+ * The file is memory mapped and only its index is read when the store is opened. Each record is decoded
+ * on demand, straight from the mapped region, by its own {@link FxProxyCreatorInputStream}, so loading one
+ * record does not decode the rest of the file. Every call to get decodes the record again.<br>
+ * Files up to 2GB are mapped once; larger files are mapped one record at a time.<br>
+ * Records may be loaded concurrently from several threads.
+ */
+public class FxSnapshotStore implements Closeable {
+
+	/** offset, length and key flag of an index entry without a key */
+	private static final int MIN_INDEX_ENTRY_SIZE = 13;
+
+	private final FileChannel channel;
+	private final ByteBuffer mapped;
+	private final FxSerialsProxyBuilder proxyBuilder;
+	private final FXProxyCache proxyCache;
+	private final BeanWrapperFactory bwFactory;
+	private final FxClassRegistry classRegistry;
+
+	private final long[] offsets;
+	private final int[] lengths;
+	private final Map<String, Integer> positionsByKey = new HashMap<>();
+
+	public FxSnapshotStore(Path file) throws IOException {
+		this(file, new FxSerialsProxyBuilder(), new FXProxyCache(), new DefaultBeanWrapperFactory(), null);
+	}
+
+	/**
+	 * Opens a snapshot file and reads its index.
+	 * @param file the snapshot file
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry the registry the file was written with, or null
+	 * @throws IOException if the file cannot be opened, is not a snapshot file or its index is corrupt
+	 */
+	public FxSnapshotStore(Path file, FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache,
+			BeanWrapperFactory bwFactory, FxClassRegistry classRegistry) throws IOException {
+		this.proxyBuilder = proxyBuilder;
+		this.proxyCache = proxyCache;
+		this.bwFactory = bwFactory;
+		this.classRegistry = classRegistry;
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < FxSnapshotWriter.HEADER_SIZE + FxSnapshotWriter.TRAILER_SIZE)
+				throw new StreamCorruptedException(file + " is not a snapshot file");
+			this.mapped = size <= Integer.MAX_VALUE ? channel.map(MapMode.READ_ONLY, 0, size) : null;
+
+			ByteBuffer header = region(0, FxSnapshotWriter.HEADER_SIZE);
+			if (header.getInt() != FxSnapshotWriter.MAGIC)
+				throw new StreamCorruptedException(file + " is not a snapshot file");
+			int version = header.getInt();
+			if (version != FxSnapshotWriter.FORMAT_VERSION)
+				throw new StreamCorruptedException("Unsupported snapshot format version " + version);
+
+			ByteBuffer trailer = region(size - FxSnapshotWriter.TRAILER_SIZE, FxSnapshotWriter.TRAILER_SIZE);
+			long indexOffset = trailer.getLong();
+			int count = trailer.getInt();
+			if (trailer.getInt() != FxSnapshotWriter.MAGIC)
+				throw new StreamCorruptedException(file + " is truncated: the snapshot index is missing");
+
+			long indexEnd = size - FxSnapshotWriter.TRAILER_SIZE;
+			if (indexOffset < FxSnapshotWriter.HEADER_SIZE || indexOffset > indexEnd)
+				throw new StreamCorruptedException(file + " is corrupt: index offset " + indexOffset
+						+ " is outside the records of a " + size + " byte file");
+			long indexLength = indexEnd - indexOffset;
+			if (indexLength > Integer.MAX_VALUE)
+				throw new StreamCorruptedException(file + " is corrupt: index length " + indexLength + " is too large");
+			if (count < 0 || count > indexLength / MIN_INDEX_ENTRY_SIZE)
+				throw new StreamCorruptedException(file + " is corrupt: " + count + " records do not fit an index of "
+						+ indexLength + " bytes");
+
+			this.offsets = new long[count];
+			this.lengths = new int[count];
+			DataInputStream index = new DataInputStream(new ByteBufferInputStream(region(indexOffset, (int) indexLength)));
+			try {
+				for (int i = 0; i < count; i++) {
+					long offset = index.readLong();
+					int length = index.readInt();
+					if (offset < FxSnapshotWriter.HEADER_SIZE || length < 0 || offset > indexOffset - length)
+						throw new StreamCorruptedException(file + " is corrupt: record " + i + " at offset " + offset
+								+ " with length " + length + " is outside the records");
+					offsets[i] = offset;
+					lengths[i] = length;
+					if (index.readBoolean())
+						positionsByKey.put(index.readUTF(), i);
+				}
+			} catch (EOFException e) {
+				throw new StreamCorruptedException(file + " is corrupt: the index ends before its " + count + " records");
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * @return number of records in the snapshot
+	 */
+	public int size() {
+		return offsets.length;
+	}
+
+	/**
+	 * @return keys of the records appended with a key
+	 */
+	public Set<String> keys() {
+		return Collections.unmodifiableSet(positionsByKey.keySet());
+	}
+
+	/**
+	 * Loads a record by its position.
+	 * @param position position of the record in the snapshot
+	 * @param <T> Type of the record
+	 * @return the record as JavaFX2 Beans
+	 * @throws FxTransformerException if the record cannot be deserialized
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(int position) {
+		try {
+			ByteBuffer record = region(offsets[position], lengths[position]);
+			try (FxProxyCreatorInputStream in = new FxProxyCreatorInputStream(new ByteBufferInputStream(record),
+					proxyBuilder, proxyCache, bwFactory, classRegistry)) {
+				return (T) in.readObject();
+			}
+		} catch (IOException | ClassNotFoundException e) {
+			throw new FxTransformerException("Error deserializing snapshot record " + position, e);
+		}
+	}
+
+	/**
+	 * Loads a record by its key.
+	 * @param key key of the record
+	 * @param <T> Type of the record
+	 * @return the record as JavaFX2 Beans, or null if there is no record with that key
+	 * @throws FxTransformerException if the record cannot be deserialized
+	 */
+	public <T> T get(String key) {
+		Integer position = positionsByKey.get(key);
+		return position == null ? null : get(position);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private ByteBuffer region(long offset, int length) throws IOException {
+		if (mapped == null)
+			return channel.map(MapMode.READ_ONLY, offset, length);
+		ByteBuffer region = mapped.duplicate();
+		region.position((int) offset);
+		region.limit((int) offset + length);
+		return region.slice();
+	}
+}
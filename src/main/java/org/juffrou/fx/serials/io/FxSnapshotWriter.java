@@ -0,0 +1,158 @@
+package org.juffrou.fx.serials.io;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+/**
+ * Writes graphs of traditional Java Beans to a snapshot file that is read back by {@link FxSnapshotStore}.
+ * <p>
+ * Each top level record is written as an independent {@link FxProxyCreatorOutputStream}, so it can later be read
+ * on its own as JavaFX2 Beans. Objects shared between two records are therefore written once in each record.<br>
+ * The file ends with an index of the records, written when the writer is closed.
+ *
+ * <pre>
+ * file    = magic version record* index trailer
+ * index   = (offset:long length:int hasKey:boolean [key:UTF])*
+ * trailer = indexOffset:long recordCount:int magic
+ * </pre>
+ */
+public class FxSnapshotWriter implements Closeable {
+
+	static final int MAGIC = 0x46585353; // "FXSS"
+	static final int FORMAT_VERSION = 1;
+	static final int HEADER_SIZE = 8;
+	static final int TRAILER_SIZE = 16;
+
+	private static final int INITIAL_RECORD_SIZE = 8192;
+
+	private final FileChannel channel;
+	private final FxSerialsProxyBuilder proxyBuilder;
+	private final FXProxyCache proxyCache;
+	private final BeanWrapperFactory bwFactory;
+	private final FxClassRegistry classRegistry;
+
+	private final ByteBufferOutputStream recordBuffer = new ByteBufferOutputStream(INITIAL_RECORD_SIZE, true);
+	private final List<RecordEntry> index = new ArrayList<>();
+	private final Set<String> keys = new HashSet<>();
+	private long position;
+
+	public FxSnapshotWriter(Path file) throws IOException {
+		this(file, new FxSerialsProxyBuilder(), new FXProxyCache(), new DefaultBeanWrapperFactory(), null);
+	}
+
+	/**
+	 * Creates a snapshot file, replacing an existing one.
+	 * @param file the snapshot file
+	 * @param proxyBuilder the proxy builder
+	 * @param proxyCache the proxy class cache
+	 * @param bwFactory the bean wrapper factory
+	 * @param classRegistry registry used to write compact class descriptors in every record, or null
+	 * @throws IOException if the file cannot be created
+	 */
+	public FxSnapshotWriter(Path file, FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache,
+			BeanWrapperFactory bwFactory, FxClassRegistry classRegistry) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.proxyBuilder = proxyBuilder;
+		this.proxyCache = proxyCache;
+		this.bwFactory = bwFactory;
+		this.classRegistry = classRegistry;
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+		writeFully(header);
+	}
+
+	/**
+	 * Appends a record that can only be loaded by its position.
+	 * @param bean root of the graph to write
+	 * @return the position of the record
+	 * @throws IOException if the record cannot be written
+	 */
+	public int append(Object bean) throws IOException {
+		return append(null, bean);
+	}
+
+	/**
+	 * Appends a record that can be loaded by its position or by its key.
+	 * @param key unique key of the record, or null
+	 * @param bean root of the graph to write
+	 * @return the position of the record
+	 * @throws IOException if the record cannot be written
+	 */
+	public int append(String key, Object bean) throws IOException {
+		if (key != null && !keys.add(key))
+			throw new IllegalArgumentException("Duplicate snapshot key " + key);
+
+		recordBuffer.getBuffer().clear();
+		FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(recordBuffer, proxyBuilder, proxyCache,
+				bwFactory, classRegistry);
+		out.writeObject(bean);
+		out.close();
+
+		ByteBuffer record = recordBuffer.getBuffer();
+		record.flip();
+		RecordEntry entry = new RecordEntry(key, position, record.remaining());
+		writeFully(record);
+		index.add(entry);
+		return index.size() - 1;
+	}
+
+	/**
+	 * Writes the index and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			long indexOffset = position;
+			ChannelOutputStream indexOut = new ChannelOutputStream(channel);
+			DataOutputStream out = new DataOutputStream(indexOut);
+			for (RecordEntry entry : index) {
+				out.writeLong(entry.offset);
+				out.writeInt(entry.length);
+				out.writeBoolean(entry.key != null);
+				if (entry.key != null)
+					out.writeUTF(entry.key);
+			}
+			out.writeLong(indexOffset);
+			out.writeInt(index.size());
+			out.writeInt(MAGIC);
+			out.flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			position += channel.write(buffer);
+	}
+
+	private static class RecordEntry {
+		final String key;
+		final long offset;
+		final int length;
+
+		RecordEntry(String key, long offset, int length) {
+			this.key = key;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
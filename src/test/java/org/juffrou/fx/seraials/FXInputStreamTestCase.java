@@ -4,6 +4,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -13,12 +15,17 @@ import org.juffrou.fx.seraials.dom.Address;
 import org.juffrou.fx.seraials.dom.Contact;
 import org.juffrou.fx.seraials.dom.Person;
 import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxProxyInitializer;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
 import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
 import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
 import org.junit.Test;
 
 import javafx.beans.property.ReadOnlyProperty;
 
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
 public class FXInputStreamTestCase {
 	
 	private void writePerson() throws IOException {
@@ -96,4 +103,31 @@ public class FXInputStreamTestCase {
 	}
 	
 	
+
+	@Test
+	public void testSharedClassResolution() throws IOException, ClassNotFoundException {
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos)) {
+			out.writeObject(phone);
+		}
+
+		FxSerialsProxyBuilder proxyBuilder = new FxSerialsProxyBuilder();
+		FXProxyCache proxyCache = new FXProxyCache();
+		Object first;
+		try (FxProxyCreatorInputStream in = new FxProxyCreatorInputStream(new ByteArrayInputStream(bos.toByteArray()),
+				proxyBuilder, proxyCache, new DefaultBeanWrapperFactory())) {
+			first = in.readObject();
+		}
+		assertTrue(first instanceof FxProxyInitializer);
+		assertEquals(first.getClass(), proxyCache.getResolvedClass(first.getClass().getName()));
+
+		try (FxProxyCreatorInputStream in = new FxProxyCreatorInputStream(new ByteArrayInputStream(bos.toByteArray()),
+				proxyBuilder, proxyCache, new DefaultBeanWrapperFactory())) {
+			Contact second = (Contact) in.readObject();
+			assertEquals(first.getClass(), second.getClass());
+			assertEquals("Mobile", ((JFXProxy) second).getProperty("description").getValue());
+		}
+	}
 }
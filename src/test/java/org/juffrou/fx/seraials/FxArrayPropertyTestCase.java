@@ -0,0 +1,99 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.juffrou.fx.seraials.dom.Series;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.adapter.FxArrayProperty;
+import org.juffrou.fx.serials.adapter.FxObservableDoubleArray;
+import org.junit.Test;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.IntegerBinding;
+import javafx.collections.ObservableFloatArray;
+import javafx.collections.ObservableIntegerArray;
+
+public class FxArrayPropertyTestCase {
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	private Series createSeries() {
+		Series series = new Series();
+		series.setName("Temperatures");
+		series.setCounts(new int[] { 1, 2, 3 });
+		series.setWeights(new float[] { 0.5f, 1.5f });
+		series.setValues(new double[] { 10.0, 20.0, 30.0, 40.0 });
+		return series;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T property(Object proxy, String name) {
+		return (T) ((JFXProxy) proxy).getProperty(name);
+	}
+
+	@Test
+	public void testArraysAreWrappedWithoutCopy() {
+		Series seriesFx = context.getProxy(createSeries());
+		int[] counts = seriesFx.getCounts();
+		FxArrayProperty<ObservableIntegerArray> property = property(seriesFx, "counts");
+		ObservableIntegerArray observable = property.get();
+
+		IntegerBinding first = Bindings.createIntegerBinding(() -> property.get().get(0), property);
+		assertEquals(1, first.get());
+		observable.set(0, 7);
+		assertEquals(7, first.get());
+		assertEquals(7, counts[0]);
+		assertSame(counts, seriesFx.getCounts());
+
+		FxArrayProperty<FxObservableDoubleArray> values = property(seriesFx, "values");
+		values.get().set(3, 41.5);
+		assertEquals(41.5, seriesFx.getValues()[3], 0.0);
+	}
+
+	@Test
+	public void testGrownArraysAreWrittenBack() {
+		Series seriesFx = context.getProxy(createSeries());
+		FxArrayProperty<FxObservableDoubleArray> values = property(seriesFx, "values");
+		boolean[] sizeChanged = new boolean[1];
+		values.get().addListener((array, changed, from, to) -> sizeChanged[0] = changed);
+		values.get().addAll(50.0, 60.0);
+		assertTrue(sizeChanged[0]);
+		assertArrayEquals(new double[] { 10.0, 20.0, 30.0, 40.0, 50.0, 60.0 }, seriesFx.getValues(), 0.0);
+
+		FxArrayProperty<ObservableFloatArray> weights = property(seriesFx, "weights");
+		weights.get().resize(1);
+
+		Series original = (Series) context.getOriginalBean(seriesFx);
+		assertFalse(original instanceof JFXProxy);
+		assertArrayEquals(new double[] { 10.0, 20.0, 30.0, 40.0, 50.0, 60.0 }, original.getValues(), 0.0);
+		assertArrayEquals(new float[] { 0.5f }, original.getWeights(), 0.0f);
+		assertArrayEquals(new int[] { 1, 2, 3 }, original.getCounts());
+	}
+
+	@Test
+	public void testSetterRewrapsArray() {
+		Series seriesFx = context.getProxy(createSeries());
+		FxArrayProperty<ObservableIntegerArray> property = property(seriesFx, "counts");
+		ObservableIntegerArray observable = property.get();
+		int[] invalidations = new int[1];
+		observable.addListener(o -> invalidations[0]++);
+
+		int[] replaced = { 4, 5 };
+		seriesFx.setCounts(replaced);
+		assertSame(observable, property.get());
+		assertEquals(1, invalidations[0]);
+		assertEquals(2, observable.size());
+		observable.set(1, 9);
+		assertEquals(9, replaced[1]);
+
+		seriesFx.setCounts(null);
+		assertNull(property.get());
+		assertNull(seriesFx.getCounts());
+	}
+}
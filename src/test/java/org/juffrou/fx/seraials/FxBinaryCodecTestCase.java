@@ -0,0 +1,213 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.codec.FxBinaryCodec;
+import org.juffrou.fx.serials.codec.FxBinaryReader;
+import org.juffrou.fx.serials.codec.FxBinaryWriter;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.junit.Test;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+public class FxBinaryCodecTestCase {
+
+	private static final int ITERATIONS = 200;
+	private static final int PEOPLE = 100;
+
+	private final FxBinaryCodec creator = FxBinaryCodec.proxyCreator();
+	private final FxBinaryCodec remover = FxBinaryCodec.proxyRemover();
+
+	private Person createPerson(int i) {
+		Person person = new Person();
+		person.setId(i);
+		person.setName("Person " + i);
+		person.setEmail("person" + i + "@mail.com");
+		person.setDateOfBirth(LocalDate.of(1970, 1, 1).plusDays(i));
+		Address address = new Address();
+		address.setStreet("Dark Street");
+		address.setDoor("Number " + i);
+		person.setAddress(address);
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		phone.setValue("918 333 " + i);
+		person.addContact(phone);
+		person.addNicknames("P" + i);
+		return person;
+	}
+
+	private List<Person> createPeople() {
+		List<Person> people = new ArrayList<>();
+		for (int i = 0; i < PEOPLE; i++)
+			people.add(createPerson(i));
+		for (int i = 1; i < PEOPLE; i++)
+			people.get(i).addRelation("previous", people.get(i - 1));
+		return people;
+	}
+
+	@Test
+	public void testDecodeIntoProxies() throws IOException, ClassNotFoundException {
+		Person person = createPerson(1);
+		Person mother = createPerson(2);
+		person.addRelation("mother", mother);
+		mother.addRelation("son", person);
+
+		Person personFx = creator.fromByteArray(creator.toByteArray(person));
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getClass()));
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getAddress().getClass()));
+		assertEquals("Person 1", personFx.getName());
+		assertEquals(Integer.valueOf(1), personFx.getId());
+		assertEquals(person.getDateOfBirth(), personFx.getDateOfBirth());
+		assertEquals("Number 1", personFx.getAddress().getDoor());
+		assertTrue(personFx.getNicknames().contains("P1"));
+		assertSame(personFx, personFx.getContacts().get(0).getPerson());
+		Person motherFx = personFx.getRelations().get("mother");
+		assertSame(personFx, motherFx.getRelations().get("son"));
+
+		// the proxy properties follow the decoded values
+		assertEquals("Person 1", ((JFXProxy) personFx).getProperty("name").getValue());
+		personFx.setName("Jane Doe");
+		assertEquals("Jane Doe", ((JFXProxy) personFx).getProperty("name").getValue());
+	}
+
+	@Test
+	public void testDecodeIntoOriginals() throws IOException, ClassNotFoundException {
+		Person personFx = creator.fromByteArray(creator.toByteArray(createPerson(1)));
+		personFx.setName("Jane Doe");
+
+		Person original = remover.fromByteArray(remover.toByteArray(personFx));
+		assertEquals(Person.class, original.getClass());
+		assertEquals(Address.class, original.getAddress().getClass());
+		assertEquals(Contact.class, original.getContacts().get(0).getClass());
+		assertEquals("Jane Doe", original.getName());
+		assertSame(original, original.getContacts().get(0).getPerson());
+	}
+
+	@Test
+	public void testSharedWriter() throws IOException, ClassNotFoundException {
+		Person person = createPerson(1);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FxBinaryWriter writer = creator.newWriter(bos);
+		writer.writeValue(person);
+		writer.writeValue(person.getAddress());
+		writer.flush();
+
+		FxBinaryReader reader = creator.newReader(new ByteArrayInputStream(bos.toByteArray()));
+		Person personFx = (Person) reader.readValue();
+		assertSame(personFx.getAddress(), reader.readValue());
+	}
+
+	private byte[] withSize(byte[] list, int... size) {
+		// the list is written as version, tag and a one byte size, followed by its elements
+		byte[] bytes = new byte[list.length - 1 + size.length];
+		bytes[0] = list[0];
+		bytes[1] = list[1];
+		for (int i = 0; i < size.length; i++)
+			bytes[2 + i] = (byte) size[i];
+		System.arraycopy(list, 3, bytes, 2 + size.length, list.length - 3);
+		return bytes;
+	}
+
+	private void assertRejected(FxBinaryCodec codec, byte[] bytes, Class<? extends IOException> expected)
+			throws ClassNotFoundException {
+		try {
+			codec.fromByteArray(bytes);
+			fail("corrupt length was read");
+		} catch (IOException e) {
+			assertEquals(expected, e.getClass());
+		}
+	}
+
+	@Test
+	public void testCorruptLengths() throws IOException, ClassNotFoundException {
+		byte[] list = creator.toByteArray(new ArrayList<>(Arrays.asList("a", "b")));
+		assertEquals(Arrays.asList("a", "b"), creator.fromByteArray(withSize(list, 2)));
+
+		// negative and oversized lengths are rejected before anything is allocated
+		assertRejected(creator, withSize(list, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F), StreamCorruptedException.class);
+		assertRejected(creator, withSize(list, 0xFF, 0xFF, 0xFF, 0xFF, 0x07), StreamCorruptedException.class);
+
+		FxBinaryCodec limited = FxBinaryCodec.proxyCreator();
+		limited.setMaxLength(1);
+		assertRejected(limited, list, StreamCorruptedException.class);
+
+		// a length within the maximum but past the end of the stream fails as the values run out
+		FxBinaryCodec unlimited = FxBinaryCodec.proxyCreator();
+		unlimited.setMaxLength(Integer.MAX_VALUE);
+		assertRejected(unlimited, withSize(list, 0xFF, 0xFF, 0xFF, 0xFF, 0x07), EOFException.class);
+		byte[] string = creator.toByteArray("ab");
+		assertRejected(unlimited, withSize(string, 0xFF, 0xFF, 0xFF, 0xFF, 0x07), EOFException.class);
+	}
+
+	private byte[] writeStream(Object bean, FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache,
+			BeanWrapperFactory bwFactory) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos, proxyBuilder, proxyCache, bwFactory);
+		out.writeObject(bean);
+		out.close();
+		return bos.toByteArray();
+	}
+
+	private Object readStream(byte[] bytes, FxSerialsProxyBuilder proxyBuilder, FXProxyCache proxyCache,
+			BeanWrapperFactory bwFactory) throws IOException, ClassNotFoundException {
+		FxProxyCreatorInputStream in = new FxProxyCreatorInputStream(new ByteArrayInputStream(bytes), proxyBuilder,
+				proxyCache, bwFactory);
+		Object bean = in.readObject();
+		in.close();
+		return bean;
+	}
+
+	@Test
+	public void testSizeAndThroughput() throws IOException, ClassNotFoundException {
+		List<Person> people = createPeople();
+		FxSerialsProxyBuilder proxyBuilder = new FxSerialsProxyBuilder();
+		FXProxyCache proxyCache = new FXProxyCache();
+		BeanWrapperFactory bwFactory = new DefaultBeanWrapperFactory();
+
+		byte[] streamBytes = writeStream(people, proxyBuilder, proxyCache, bwFactory);
+		byte[] codecBytes = creator.toByteArray(people);
+		List<Person> decoded = creator.fromByteArray(codecBytes);
+		assertEquals(PEOPLE, decoded.size());
+		assertSame(decoded.get(0), decoded.get(1).getRelations().get("previous"));
+		readStream(streamBytes, proxyBuilder, proxyCache, bwFactory);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			readStream(writeStream(people, proxyBuilder, proxyCache, bwFactory), proxyBuilder, proxyCache, bwFactory);
+		long streamTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			assertNotNull(creator.fromByteArray(creator.toByteArray(people)));
+		long codecTime = System.nanoTime() - start;
+
+		System.out.println(PEOPLE + " people - proxy streams: " + streamBytes.length + " bytes, "
+				+ (ITERATIONS * 1000000000L / streamTime) + " round trips/s; binary codec: " + codecBytes.length
+				+ " bytes, " + (ITERATIONS * 1000000000L / codecTime) + " round trips/s");
+		assertTrue(codecBytes.length < streamBytes.length);
+		assertFalse(JFXProxy.class.isAssignableFrom(people.get(0).getClass()));
+	}
+}
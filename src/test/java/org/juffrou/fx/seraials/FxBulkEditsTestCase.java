@@ -0,0 +1,139 @@
+package org.juffrou.fx.seraials;
+
+import static org.juffrou.fx.seraials.dom.Postings.addNumbered;
+import static org.juffrou.fx.seraials.dom.Postings.posting;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.juffrou.fx.seraials.dom.Journal;
+import org.juffrou.fx.seraials.dom.Posting;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.adapter.FxBulkEdits;
+import org.juffrou.fx.serials.adapter.FxObservableMap;
+import org.juffrou.fx.serials.adapter.FxObservableSet;
+import org.junit.Test;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.property.SimpleListProperty;
+import javafx.beans.property.SimpleMapProperty;
+import javafx.beans.property.SimpleSetProperty;
+import javafx.collections.ListChangeListener;
+import javafx.collections.MapChangeListener;
+import javafx.collections.SetChangeListener;
+
+public class FxBulkEditsTestCase {
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	private Journal createJournal() {
+		Journal journal = new Journal();
+		journal.setName("Bulk");
+		addNumbered(journal.getPostings(), 100);
+		journal.getLabels().addAll(Arrays.asList("a", "b", "c", "d"));
+		journal.getPostingsByOwner().put("first", journal.getPostings().get(0));
+		journal.getPostingsByOwner().put("second", journal.getPostings().get(1));
+		journal.getPostingsByOwner().put("third", journal.getPostings().get(2));
+		return journal;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testListBulkEditsFireOneChange() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleListProperty<Posting> property = (SimpleListProperty<Posting>) ((JFXProxy) journalFx).getProperty("postings");
+		List<ListChangeListener.Change<? extends Posting>> changes = new ArrayList<>();
+		property.addListener((ListChangeListener<Posting>) changes::add);
+
+		FxBulkEdits.removeIf(property, p -> p.getNumber() % 2 == 1);
+		assertEquals(1, changes.size());
+		assertEquals(50, property.size());
+		assertEquals(50, journalFx.getPostings().size());
+
+		FxBulkEdits.replaceAll(property, p -> p.getNumber() < 10 ? posting(p.getNumber(), "Replaced") : p);
+		assertEquals(2, changes.size());
+		assertEquals("Replaced", journalFx.getPostings().get(4).getOwner());
+		assertEquals("Owner 10", journalFx.getPostings().get(5).getOwner());
+
+		FxBulkEdits.batch(property, list -> {
+			for (int i = 100; i < 200; i++)
+				list.add(posting(i, "Added " + i));
+			list.remove(0);
+		});
+		assertEquals(3, changes.size());
+		assertEquals(149, journalFx.getPostings().size());
+
+		int removed = 0;
+		int added = 0;
+		ListChangeListener.Change<? extends Posting> change = changes.get(2);
+		while (change.next()) {
+			removed += change.getRemovedSize();
+			added += change.getAddedSize();
+		}
+		assertEquals(1, removed);
+		assertEquals(100, added);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSetBulkEditsAreDeliveredTogether() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleSetProperty<String> property = (SimpleSetProperty<String>) ((JFXProxy) journalFx).getProperty("labels");
+		FxObservableSet<String> set = (FxObservableSet<String>) property.get();
+		List<List<? extends SetChangeListener.Change<String>>> batches = new ArrayList<>();
+		set.addBatchListener(batches::add);
+		int[] invalidations = new int[1];
+		set.addListener((InvalidationListener) o -> invalidations[0]++);
+		int[] changes = new int[1];
+		property.addListener((SetChangeListener<String>) c -> changes[0]++);
+
+		FxBulkEdits.setAll(property, Arrays.asList("c", "d", "e", "f"));
+		assertEquals(1, batches.size());
+		assertEquals(4, batches.get(0).size());
+		assertEquals(1, invalidations[0]);
+		assertEquals(4, changes[0]);
+		assertEquals(4, journalFx.getLabels().size());
+		assertTrue(journalFx.getLabels().contains("f"));
+		assertFalse(journalFx.getLabels().contains("a"));
+
+		FxBulkEdits.removeIf(property, label -> label.compareTo("d") <= 0);
+		assertEquals(2, batches.size());
+		assertEquals(2, invalidations[0]);
+		assertEquals(2, journalFx.getLabels().size());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testMapBulkEditsAreDeliveredTogether() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleMapProperty<String, Posting> property = (SimpleMapProperty<String, Posting>) ((JFXProxy) journalFx)
+				.getProperty("postingsByOwner");
+		FxObservableMap<String, Posting> map = (FxObservableMap<String, Posting>) property.get();
+		List<List<? extends MapChangeListener.Change<String, Posting>>> batches = new ArrayList<>();
+		map.addBatchListener(batches::add);
+		int[] changes = new int[1];
+		property.addListener((MapChangeListener<String, Posting>) c -> changes[0]++);
+
+		FxBulkEdits.replaceAll(property, (owner, p) -> "first".equals(owner) ? p : posting(p.getNumber(), owner));
+		assertEquals(1, batches.size());
+		assertEquals(2, changes[0]);
+		assertEquals("second", journalFx.getPostingsByOwner().get("second").getOwner());
+
+		FxBulkEdits.retainKeys(property, Arrays.asList("first"));
+		assertEquals(2, batches.size());
+		assertEquals(2, batches.get(1).size());
+		assertEquals(1, journalFx.getPostingsByOwner().size());
+
+		map.setAll(journalFx.getPostings().subList(0, 5).stream()
+				.collect(Collectors.toMap(p -> p.getOwner(), p -> p)));
+		assertEquals(3, batches.size());
+		assertEquals(5, journalFx.getPostingsByOwner().size());
+		assertFalse(journalFx.getPostingsByOwner().containsKey("first"));
+	}
+}
@@ -0,0 +1,155 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.juffrou.fx.seraials.dom.Journal;
+import org.juffrou.fx.seraials.dom.Posting;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.codec.FxBinaryCodec;
+import org.juffrou.fx.serials.core.FxChangeFeed;
+import org.junit.Test;
+
+public class FxChangeFeedTestCase {
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	@Test
+	public void testSetterChangesAreFed() {
+		FxChangeFeed feed = new FxChangeFeed(64, FxChangeFeed.Overflow.OVERWRITE);
+		FxChangeFeed.Consumer consumer = feed.newConsumer();
+		Posting posting = context.getProxy(new Posting());
+		Journal journal = context.getProxy(new Journal());
+		feed.attach(Posting.class);
+		feed.attach(Journal.class);
+		try {
+			posting.setOwner("Jane");
+			posting.setAmount(12.5);
+			posting.setNumber(7);
+			journal.setPostings(new ArrayList<>());
+		} finally {
+			feed.detach(Posting.class);
+			feed.detach(Journal.class);
+		}
+		posting.setOwner("Ignored");
+
+		List<String> records = new ArrayList<>();
+		int read = consumer.poll((sequence, bean, property, kind, value, primitive) -> {
+			assertSame(property.equals("postings") ? journal : posting, bean);
+			records.add(sequence + " " + property + " " + kind + " " + FxChangeFeed.valueOf(kind, value, primitive));
+		}, 10);
+		assertEquals(4, read);
+		assertEquals("0 owner 0 Jane", records.get(0));
+		assertEquals("1 amount " + FxChangeFeed.KIND_DOUBLE + " 12.5", records.get(1));
+		assertEquals("2 number " + FxChangeFeed.KIND_LONG + " 7", records.get(2));
+		assertEquals("3 postings " + FxChangeFeed.KIND_COLLECTION + " []", records.get(3));
+		assertEquals(0, consumer.getLag());
+	}
+
+	@Test
+	public void testDecodingOnOtherThreadsFeedsNothing() throws Exception {
+		FxChangeFeed feed = new FxChangeFeed(1 << 16, FxChangeFeed.Overflow.DROP);
+		FxChangeFeed.Consumer consumer = feed.newConsumer();
+		Posting original = new Posting();
+		original.setOwner("Decoded");
+		original.setAmount(1);
+		FxBinaryCodec codec = FxBinaryCodec.proxyCreator();
+		byte[] bytes = codec.toByteArray(original);
+		Posting edited = context.getProxy(new Posting());
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		feed.attach(Posting.class);
+		try {
+			List<Future<?>> decoders = new ArrayList<>();
+			for (int t = 0; t < 2; t++)
+				decoders.add(executor.submit(() -> {
+					for (int i = 0; i < 5000; i++)
+						assertEquals("Decoded", codec.<Posting>fromByteArray(bytes).getOwner());
+					return null;
+				}));
+			for (int i = 0; i < 10000; i++)
+				edited.setNumber(i);
+			for (Future<?> decoder : decoders)
+				decoder.get();
+		} finally {
+			feed.detach(Posting.class);
+			executor.shutdownNow();
+		}
+		long[] next = { 0 };
+		assertEquals(10000, consumer.poll((sequence, bean, property, kind, value, primitive) -> {
+			assertSame(edited, bean);
+			assertEquals(next[0]++, sequence);
+			assertEquals(sequence, primitive);
+		}, 20000));
+		assertEquals(0, feed.getDroppedCount());
+	}
+
+	@Test
+	public void testOverflowPolicies() {
+		FxChangeFeed overwrite = new FxChangeFeed(6, FxChangeFeed.Overflow.OVERWRITE);
+		assertEquals(8, overwrite.getCapacity());
+		FxChangeFeed.Consumer lapped = overwrite.newConsumer();
+		for (int i = 0; i < 20; i++)
+			assertTrue(overwrite.append(this, "value", FxChangeFeed.KIND_VALUE, i));
+		List<Object> values = new ArrayList<>();
+		assertEquals(8, lapped.poll((sequence, bean, property, kind, value, primitive) -> values.add(value), 100));
+		assertEquals(12, values.get(0));
+		assertEquals(12, lapped.getLostCount());
+
+		FxChangeFeed drop = new FxChangeFeed(4, FxChangeFeed.Overflow.DROP);
+		FxChangeFeed.Consumer slow = drop.newConsumer();
+		for (int i = 0; i < 4; i++)
+			assertTrue(drop.append(this, "value", FxChangeFeed.KIND_VALUE, i));
+		assertFalse(drop.append(this, "value", FxChangeFeed.KIND_VALUE, 4));
+		assertEquals(1, drop.getDroppedCount());
+		assertEquals(2, slow.poll((sequence, bean, property, kind, value, primitive) -> {}, 2));
+		assertTrue(drop.append(this, "value", FxChangeFeed.KIND_VALUE, 5));
+		slow.close();
+		for (int i = 0; i < 10; i++)
+			assertTrue(drop.append(this, "value", FxChangeFeed.KIND_VALUE, i));
+
+		FxChangeFeed block = new FxChangeFeed(2, FxChangeFeed.Overflow.BLOCK, 10, TimeUnit.MILLISECONDS);
+		FxChangeFeed.Consumer stalled = block.newConsumer();
+		assertTrue(block.appendLong(this, "value", 1));
+		assertTrue(block.appendDouble(this, "value", 2.5));
+		assertFalse(block.appendLong(this, "value", 3));
+		assertEquals(1, block.getDroppedCount());
+		assertEquals(2, stalled.poll((sequence, bean, property, kind, value, primitive) -> {}, 10));
+		assertTrue(block.appendLong(this, "value", 3));
+	}
+
+	@Test
+	public void testConsumersOnOtherThreadsReadEveryRecord() throws Exception {
+		int records = 200000;
+		FxChangeFeed feed = new FxChangeFeed(1024, FxChangeFeed.Overflow.BLOCK);
+		FxChangeFeed.Consumer[] consumers = { feed.newConsumer(), feed.newConsumer() };
+		ExecutorService executor = Executors.newFixedThreadPool(consumers.length);
+		try {
+			List<Future<Long>> sums = new ArrayList<>();
+			for (FxChangeFeed.Consumer consumer : consumers)
+				sums.add(executor.submit(() -> {
+					long[] state = { 0, 0 };
+					while (state[1] < records)
+						consumer.poll((sequence, bean, property, kind, value, primitive) -> {
+							assertEquals(state[1]++, sequence);
+							state[0] += (Integer) value;
+						}, 256);
+					return state[0];
+				}));
+			for (int i = 0; i < records; i++)
+				feed.append(this, "value", FxChangeFeed.KIND_VALUE, i % 1000);
+			for (Future<Long> sum : sums)
+				assertEquals(200L * 499500, (long) sum.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.juffrou.fx.seraials.dom.Posting;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.codec.FxBinaryCodec;
+import org.juffrou.fx.serials.codec.FxJsonCodec;
+import org.juffrou.fx.serials.core.FxChangeHub;
+import org.juffrou.fx.serials.core.FxChangeHubListener;
+import org.junit.Test;
+
+import javafx.beans.property.StringProperty;
+
+public class FxChangeHubTestCase {
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	private Posting createPosting(int number) {
+		Posting posting = new Posting();
+		posting.setNumber(number);
+		posting.setOwner("Owner " + number);
+		posting.setAmount(number * 10);
+		return context.getProxy(posting);
+	}
+
+	@Test
+	public void testHubReceivesChangesOfEveryInstance() {
+		List<Posting> postings = new ArrayList<>();
+		for (int i = 0; i < 1000; i++)
+			postings.add(createPosting(i));
+
+		List<Object[]> events = new ArrayList<>();
+		FxChangeHubListener listener = (bean, property, oldValue, newValue) -> events
+				.add(new Object[] { bean, property, oldValue, newValue });
+		FxChangeHub hub = FxChangeHub.of(Posting.class);
+		assertSame(hub, FxChangeHub.of(postings.get(0).getClass()));
+		hub.subscribe(listener);
+		try {
+			for (Posting posting : postings)
+				posting.setAmount(posting.getAmount() + 1);
+			postings.get(7).setOwner("New owner");
+			assertEquals(1001, events.size());
+
+			Object[] first = events.get(0);
+			assertSame(postings.get(0), first[0]);
+			assertEquals("amount", first[1]);
+			assertEquals(0.0, first[2]);
+			assertEquals(1.0, first[3]);
+			Object[] last = events.get(1000);
+			assertEquals("owner", last[1]);
+			assertEquals("Owner 7", last[2]);
+			assertEquals("New owner", last[3]);
+		} finally {
+			hub.unsubscribe(listener);
+		}
+		postings.get(8).setNumber(-1);
+		assertEquals(1001, events.size());
+	}
+
+	@Test
+	public void testPropertyChangesArePublished() {
+		Posting posting = createPosting(1);
+		List<String> changes = new ArrayList<>();
+		FxChangeHubListener listener = (bean, property, oldValue, newValue) -> changes
+				.add(property + ":" + oldValue + "->" + newValue);
+		FxChangeHub hub = FxChangeHub.of(Posting.class);
+		hub.subscribe(listener);
+		try {
+			((StringProperty) ((JFXProxy) posting).getProperty("status")).set("OPEN");
+			posting.setNumber(2);
+		} finally {
+			hub.unsubscribe(listener);
+		}
+		assertEquals(2, changes.size());
+		assertEquals("status:null->OPEN", changes.get(0));
+		assertEquals("number:1->2", changes.get(1));
+	}
+
+	@Test
+	public void testCopiesAndDecodesPublishNothing() throws IOException, ClassNotFoundException {
+		Posting original = new Posting();
+		original.setNumber(3);
+		original.setOwner("Copied");
+		original.setAmount(30);
+		FxBinaryCodec binary = FxBinaryCodec.proxyCreator();
+		FxJsonCodec json = FxJsonCodec.proxyCreator();
+		byte[] bytes = binary.toByteArray(original);
+		String text = json.toJson(original);
+
+		List<String> changes = new ArrayList<>();
+		FxChangeHubListener listener = (bean, property, oldValue, newValue) -> changes.add(property);
+		FxChangeHub hub = FxChangeHub.of(Posting.class);
+		hub.subscribe(listener);
+		try {
+			Posting copied = context.getProxy(original);
+			Posting decoded = binary.fromByteArray(bytes);
+			Posting parsed = json.fromJson(text, Posting.class);
+			assertEquals("Copied", copied.getOwner());
+			assertEquals("Copied", decoded.getOwner());
+			assertEquals("Copied", parsed.getOwner());
+			assertEquals(0, changes.size());
+			parsed.setOwner("Edited");
+		} finally {
+			hub.unsubscribe(listener);
+		}
+		assertEquals(Collections.singletonList("owner"), changes);
+	}
+}
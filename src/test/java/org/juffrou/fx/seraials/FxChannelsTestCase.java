@@ -0,0 +1,141 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.io.ByteBufferOutputStream;
+import org.juffrou.fx.serials.io.ChannelInputStream;
+import org.juffrou.fx.serials.io.FxChannels;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.juffrou.fx.serials.io.FxProxyRemoverInputStream;
+import org.juffrou.fx.serials.io.FxProxyRemoverOutputStream;
+import org.junit.Test;
+
+public class FxChannelsTestCase {
+
+	private Person createPerson() {
+		Person person = new Person();
+		person.setName("John Doe");
+		Address address = new Address();
+		address.setStreet("Dark Street");
+		person.setAddress(address);
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		phone.setValue("918 333 222");
+		person.addContact(phone);
+		return person;
+	}
+
+	private Person readProxyFromDirectBuffer() throws IOException, ClassNotFoundException {
+		ByteBufferOutputStream bbos = new ByteBufferOutputStream(64, true);
+		FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bbos);
+		out.writeObject(createPerson());
+		out.close();
+
+		ByteBuffer buffer = bbos.getBuffer();
+		assertTrue(buffer.isDirect());
+		buffer.flip();
+
+		FxProxyCreatorInputStream in = FxChannels.newProxyCreatorInputStream(buffer);
+		Person personFx = (Person) in.readObject();
+		in.close();
+		assertFalse(buffer.hasRemaining());
+		return personFx;
+	}
+
+	@Test
+	public void testByteBuffers() throws IOException, ClassNotFoundException {
+		Person personFx = readProxyFromDirectBuffer();
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getClass()));
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getAddress().getClass()));
+		assertTrue(personFx == personFx.getContacts().get(0).getPerson());
+
+		personFx.setName("Jane Doe");
+		ByteBuffer buffer = ByteBuffer.allocateDirect(4096);
+		FxProxyRemoverOutputStream out = FxChannels.newProxyRemoverOutputStream(buffer);
+		out.writeObject(personFx);
+		out.close();
+		buffer.flip();
+
+		FxProxyCreatorInputStream check = FxChannels.newProxyCreatorInputStream(buffer.duplicate());
+		Person original = (Person) check.readObject();
+		check.close();
+		assertEquals(Person.class, original.getClass());
+		assertEquals("Jane Doe", original.getName());
+	}
+
+	@Test
+	public void testChannels() throws IOException, ClassNotFoundException {
+		Person personFx = readProxyFromDirectBuffer();
+		personFx.getAddress().setStreet("Bright Street");
+
+		File file = File.createTempFile("person", ".ser");
+		file.deleteOnExit();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+			FxProxyRemoverOutputStream out = FxChannels.newProxyRemoverOutputStream(channel);
+			out.writeObject(personFx);
+			out.close();
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			FxProxyRemoverInputStream in = new FxProxyRemoverInputStream(new ChannelInputStream(channel));
+			Person original = (Person) in.readObject();
+			in.close();
+			assertEquals(Person.class, original.getClass());
+			assertEquals(Address.class, original.getAddress().getClass());
+			assertEquals("Bright Street", original.getAddress().getStreet());
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			FxProxyCreatorInputStream in = FxChannels.newProxyCreatorInputStream(channel);
+			Person original = (Person) in.readObject();
+			in.close();
+			// the file holds traditional beans, so no proxies are created
+			assertEquals(Person.class, original.getClass());
+		}
+	}
+
+	@Test
+	public void testLargeReadsSkipTheBuffer() throws IOException {
+		byte[] bytes = new byte[20000];
+		for (int i = 0; i < bytes.length; i++)
+			bytes[i] = (byte) i;
+		ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+		ChannelInputStream in = new ChannelInputStream(Channels.newChannel(new ByteArrayInputStream(bytes)), buffer);
+
+		byte[] read = new byte[bytes.length];
+		read[0] = (byte) in.read();
+		// served from the buffer up to its end, then straight from the channel
+		int n = 1 + in.read(read, 1, 4096);
+		assertEquals(1024, n);
+		while (n < read.length)
+			n += in.read(read, n, Math.min(4096, read.length - n));
+		assertArrayEquals(bytes, read);
+		assertEquals(1024, buffer.limit());
+		assertEquals(-1, in.read(read, 0, 4096));
+		assertEquals(-1, in.read());
+	}
+
+	@Test(expected = IOException.class)
+	public void testFullBuffer() throws IOException, ClassNotFoundException {
+		Person personFx = readProxyFromDirectBuffer();
+		FxProxyRemoverOutputStream out = FxChannels.newProxyRemoverOutputStream(ByteBuffer.allocateDirect(64));
+		out.writeObject(personFx);
+		out.close();
+	}
+}
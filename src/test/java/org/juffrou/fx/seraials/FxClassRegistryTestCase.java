@@ -0,0 +1,140 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.junit.Test;
+
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+public class FxClassRegistryTestCase {
+
+	private static final int ITERATIONS = 2000;
+
+	private final FxClassRegistry registry = new FxClassRegistry(1, Person.class, Address.class, Contact.class,
+			Integer.class, Number.class, ArrayList.class, HashSet.class, HashMap.class);
+
+	private final FxSerialsProxyBuilder proxyBuilder = new FxSerialsProxyBuilder();
+	private final FXProxyCache proxyCache = new FXProxyCache();
+	private final BeanWrapperFactory bwFactory = new DefaultBeanWrapperFactory();
+
+	private Person createPerson() {
+		Person person = new Person();
+		person.setId(1);
+		person.setName("John Doe");
+		Address address = new Address();
+		address.setStreet("Dark Street");
+		address.setDoor("Number 1");
+		person.setAddress(address);
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		phone.setValue("918 333 222");
+		person.addContact(phone);
+		return person;
+	}
+
+	private Contact createContact() {
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		phone.setValue("918 333 222");
+		return phone;
+	}
+
+	private byte[] write(Object bean, FxClassRegistry classRegistry) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos, proxyBuilder, proxyCache, bwFactory,
+				classRegistry);
+		out.writeObject(bean);
+		out.close();
+		return bos.toByteArray();
+	}
+
+	private Object read(byte[] bytes, FxClassRegistry classRegistry) throws IOException, ClassNotFoundException {
+		FxProxyCreatorInputStream in = new FxProxyCreatorInputStream(new ByteArrayInputStream(bytes), proxyBuilder,
+				proxyCache, bwFactory, classRegistry);
+		Object bean = in.readObject();
+		in.close();
+		return bean;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, ClassNotFoundException {
+		Person personFx = (Person) read(write(createPerson(), registry), registry);
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getClass()));
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getAddress().getClass()));
+		assertEquals("Dark Street", personFx.getAddress().getStreet());
+		assertTrue(personFx == personFx.getContacts().get(0).getPerson());
+
+		FxSerialsContext context = new FxSerialsContext(registry);
+		Person proxy = context.getProxy(createPerson());
+		proxy.setName("Jane Doe");
+		Person original = (Person) context.getOriginalBean(proxy);
+		assertEquals(Person.class, original.getClass());
+		assertEquals("Jane Doe", original.getName());
+	}
+
+	@Test
+	public void testRegistryMismatch() throws IOException, ClassNotFoundException {
+		byte[] bytes = write(createContact(), registry);
+		try {
+			read(bytes, new FxClassRegistry(2, Person.class, Address.class, Contact.class));
+			fail("A stream written with a different registry must be refused");
+		} catch (InvalidClassException e) {
+			// expected
+		}
+		try {
+			read(bytes, new FxClassRegistry(1, Contact.class, Address.class, Person.class));
+			fail("A stream written with a different class list must be refused");
+		} catch (InvalidClassException e) {
+			// expected
+		}
+	}
+
+	private void benchmark(String name, Object bean) throws IOException, ClassNotFoundException {
+		byte[] full = write(bean, null);
+		byte[] compact = write(bean, registry);
+		read(full, null);
+		read(compact, registry);
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			read(write(bean, null), null);
+		long fullTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			read(write(bean, registry), registry);
+		long compactTime = System.nanoTime() - start;
+
+		System.out.println(name + " - full descriptors: " + full.length + " bytes, "
+				+ (ITERATIONS * 1000000000L / fullTime) + " round trips/s; registry: " + compact.length + " bytes, "
+				+ (ITERATIONS * 1000000000L / compactTime) + " round trips/s");
+		assertTrue(compact.length < full.length);
+	}
+
+	@Test
+	public void testSizeAndThroughput() throws IOException, ClassNotFoundException {
+		benchmark("Contact", createContact());
+		benchmark("Person graph", createPerson());
+	}
+}
@@ -0,0 +1,151 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.juffrou.fx.seraials.dom.Account;
+import org.juffrou.fx.seraials.dom.Ledger;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.adapter.FxElementMatcher;
+import org.juffrou.fx.serials.adapter.FxObservableList;
+import org.junit.Test;
+
+import javafx.beans.property.SimpleListProperty;
+import javafx.beans.property.SimpleMapProperty;
+import javafx.beans.property.SimpleSetProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.MapChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.SetChangeListener;
+
+public class FxCollectionDiffTestCase {
+
+	private static final int ACCOUNTS = 10000;
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	private static Account account(int number, String owner) {
+		Account account = new Account();
+		account.setNumber(number);
+		account.setOwner(owner);
+		return account;
+	}
+
+	private Ledger createLedger() {
+		Ledger ledger = new Ledger();
+		ledger.setName("Main");
+		for (int i = 0; i < ACCOUNTS; i++)
+			ledger.getAccounts().add(account(i, "Owner " + i));
+		ledger.getLabels().addAll(Arrays.asList("a", "b", "c"));
+		ledger.getAccountsByOwner().put("first", ledger.getAccounts().get(0));
+		ledger.getAccountsByOwner().put("second", ledger.getAccounts().get(1));
+		return ledger;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testListMergeTouchesOnlyChangedRows() {
+		Ledger ledgerFx = context.getProxy(createLedger());
+		SimpleListProperty<Account> property = (SimpleListProperty<Account>) ((JFXProxy) ledgerFx).getProperty("accounts");
+		ObservableList<Account> observable = property.get();
+		Account kept = observable.get(0);
+
+		List<Account> refreshed = new ArrayList<>(ledgerFx.getAccounts());
+		refreshed.set(10, account(10, "Changed 10"));
+		refreshed.set(5000, account(5000, "Changed 5000"));
+		refreshed.remove(7000);
+		refreshed.add(9000, account(ACCOUNTS, "New"));
+
+		List<Integer> replaced = new ArrayList<>();
+		List<Account> removed = new ArrayList<>();
+		List<Account> added = new ArrayList<>();
+		int[] events = new int[1];
+		property.addListener((ListChangeListener<Account>) c -> {
+			events[0]++;
+			while (c.next()) {
+				if (c.wasReplaced())
+					for (int i = c.getFrom(); i < c.getTo(); i++)
+						replaced.add(i);
+				removed.addAll(c.getRemoved());
+				added.addAll(c.getAddedSubList());
+			}
+		});
+		ledgerFx.setAccounts(refreshed);
+
+		assertEquals(1, events[0]);
+		assertSame(observable, property.get());
+		assertSame(kept, property.get(0));
+		assertEquals(Arrays.asList(10, 5000), replaced);
+		assertEquals(3, removed.size());
+		assertEquals("Owner 10", removed.get(0).getOwner());
+		assertEquals("Owner 5000", removed.get(1).getOwner());
+		assertEquals(7000, removed.get(2).getNumber());
+		assertEquals(3, added.size());
+		assertEquals("Changed 10", added.get(0).getOwner());
+		assertEquals(ACCOUNTS, added.get(2).getNumber());
+		assertEquals(refreshed, observable);
+		assertEquals("Changed 5000", property.get(5000).getOwner());
+	}
+
+	@Test
+	public void testDistantListsAreReplacedInOneChange() {
+		List<Integer> old = new ArrayList<>();
+		List<Integer> reversed = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			old.add(i);
+			reversed.add(0, i);
+		}
+		FxObservableList<Integer> list = new FxObservableList<>(old);
+		int[] events = new int[1];
+		list.addListener((ListChangeListener<Integer>) c -> {
+			events[0]++;
+			assertTrue(c.next());
+			assertEquals(5000, c.getRemovedSize());
+			assertEquals(5000, c.getAddedSize());
+		});
+		list.merge(reversed, FxElementMatcher.EQUALS);
+		assertEquals(1, events[0]);
+		assertEquals(reversed, list);
+		assertSame(reversed, list.getBacking());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSetAndMapMergeFireOnlyDifferences() {
+		Ledger ledgerFx = context.getProxy(createLedger());
+		SimpleSetProperty<String> labels = (SimpleSetProperty<String>) ((JFXProxy) ledgerFx).getProperty("labels");
+		SimpleMapProperty<String, Account> byOwner = (SimpleMapProperty<String, Account>) ((JFXProxy) ledgerFx)
+				.getProperty("accountsByOwner");
+
+		List<String> setChanges = new ArrayList<>();
+		int[] invalidations = new int[1];
+		labels.get().addListener((javafx.beans.Observable o) -> invalidations[0]++);
+		labels.addListener((SetChangeListener<String>) c -> setChanges
+				.add(c.wasAdded() ? "+" + c.getElementAdded() : "-" + c.getElementRemoved()));
+		ledgerFx.setLabels(new HashSet<>(Arrays.asList("b", "c", "d")));
+		assertEquals(new HashSet<>(Arrays.asList("-a", "+d")), new HashSet<>(setChanges));
+		assertEquals(1, invalidations[0]);
+		assertEquals(FXCollections.observableSet("b", "c", "d"), labels.get());
+
+		List<String> mapChanges = new ArrayList<>();
+		byOwner.addListener((MapChangeListener<String, Account>) c -> mapChanges.add(c.getKey()));
+		Map<String, Account> refreshed = new HashMap<>(ledgerFx.getAccountsByOwner());
+		refreshed.put("second", ledgerFx.getAccounts().get(2));
+		refreshed.put("third", ledgerFx.getAccounts().get(3));
+		ledgerFx.setAccountsByOwner(refreshed);
+		Set<String> changedKeys = new HashSet<>(mapChanges);
+		assertEquals(new HashSet<>(Arrays.asList("second", "third")), changedKeys);
+		assertSame(ledgerFx.getAccounts().get(2), byOwner.get("second"));
+	}
+}
@@ -0,0 +1,178 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.io.FxCompressingOutputStream;
+import org.juffrou.fx.serials.io.FxCompression;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.juffrou.fx.serials.io.FxProxyRemoverInputStream;
+import org.juffrou.fx.serials.io.FxProxyRemoverOutputStream;
+import org.junit.Test;
+
+public class FxCompressionTestCase {
+
+	private static final int PEOPLE = 1000;
+	private static final int ITERATIONS = 20;
+
+	private Person createPerson(int i) {
+		Person person = new Person();
+		person.setId(i);
+		person.setName("Person " + i);
+		person.setEmail("person" + i + "@mail.com");
+		Address address = new Address();
+		address.setStreet("Dark Street");
+		address.setDoor("Number " + i);
+		person.setAddress(address);
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		phone.setValue("918 333 " + i);
+		person.addContact(phone);
+		return person;
+	}
+
+	private List<Person> createPeople() {
+		List<Person> people = new ArrayList<>();
+		for (int i = 0; i < PEOPLE; i++)
+			people.add(createPerson(i));
+		return people;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, ClassNotFoundException {
+		FxSerialsContext context = new FxSerialsContext(null, new FxCompression());
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FxProxyCreatorOutputStream out = context.newProxyCreatorOutputStream(bos);
+		out.writeObject(createPeople());
+		out.close();
+		FxProxyCreatorInputStream in = context.newProxyCreatorInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		List<Person> people = (List<Person>) in.readObject();
+		in.close();
+		assertEquals(PEOPLE, people.size());
+		Person personFx = people.get(PEOPLE - 1);
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getClass()));
+		assertTrue(personFx == personFx.getContacts().get(0).getPerson());
+
+		personFx.setName("Jane Doe");
+		bos = new ByteArrayOutputStream();
+		FxProxyRemoverOutputStream back = context.newProxyRemoverOutputStream(bos);
+		back.writeObject(personFx);
+		back.close();
+		FxProxyRemoverInputStream server = context.newProxyRemoverInputStream(new ByteArrayInputStream(bos.toByteArray()));
+		Person original = (Person) server.readObject();
+		server.close();
+		assertEquals(Person.class, original.getClass());
+		assertEquals("Jane Doe", original.getName());
+	}
+
+	@Test
+	public void testThresholdAndAdaptiveBypass() throws IOException {
+		FxCompression compression = new FxCompression(Deflater.BEST_SPEED, 512, 1024, true, 0.9f);
+
+		// a small message is sent raw, with a five byte frame header
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FxCompressingOutputStream out = compression.compress(bos);
+		out.write(new byte[100]);
+		out.flush();
+		assertEquals(105, out.getBytesOut());
+
+		// random data does not compress, so after the first frames most are sent raw without deflating
+		byte[] random = new byte[64 * 1024];
+		new Random(7).nextBytes(random);
+		bos = new ByteArrayOutputStream();
+		out = compression.compress(bos);
+		out.write(random);
+		out.close();
+		assertEquals(random.length + 64 * 5, out.getBytesOut());
+
+		InputStream in = compression.decompress(new ByteArrayInputStream(bos.toByteArray()));
+		byte[] read = new byte[random.length];
+		int n = 0;
+		while (n < read.length)
+			n += in.read(read, n, read.length - n);
+		assertEquals(-1, in.read());
+		in.close();
+		assertArrayEquals(random, read);
+	}
+
+	private void benchmark(String name, FxCompression compression, List<Person> people)
+			throws IOException, ClassNotFoundException {
+		FxSerialsContext context = new FxSerialsContext(null, compression);
+		byte[] bytes = null;
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			FxProxyCreatorOutputStream out = context.newProxyCreatorOutputStream(bos);
+			out.writeObject(people);
+			out.close();
+			bytes = bos.toByteArray();
+		}
+		long writeTime = System.nanoTime() - start;
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			FxProxyCreatorInputStream in = context.newProxyCreatorInputStream(new ByteArrayInputStream(bytes));
+			in.readObject();
+			in.close();
+		}
+		long readTime = System.nanoTime() - start;
+		System.out.println(PEOPLE + " people, " + name + ": " + bytes.length + " bytes, write "
+				+ writeTime / ITERATIONS / 1000 + " us, read " + readTime / ITERATIONS / 1000 + " us");
+	}
+
+	@Test
+	public void testOversizedFrameLengthsAreRejected() throws IOException {
+		FxCompression compression = new FxCompression();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream frames = new DataOutputStream(bytes);
+		frames.writeByte(0);
+		frames.writeInt(Integer.MAX_VALUE);
+		assertCorrupted(compression, bytes.toByteArray());
+
+		bytes.reset();
+		frames.writeByte(1);
+		frames.writeInt(100);
+		frames.writeInt(Integer.MAX_VALUE);
+		assertCorrupted(compression, bytes.toByteArray());
+	}
+
+	private static void assertCorrupted(FxCompression compression, byte[] stream) throws IOException {
+		try (InputStream in = compression.decompress(new ByteArrayInputStream(stream))) {
+			in.read();
+			fail("The frame header should have been rejected");
+		} catch (StreamCorruptedException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testBytesVersusCpu() throws IOException, ClassNotFoundException {
+		List<Person> people = createPeople();
+		benchmark("warm up", null, people);
+		benchmark("raw", null, people);
+		benchmark("deflate level 1", new FxCompression(), people);
+		benchmark("deflate level 6", new FxCompression(6,
+				FxCompression.DEFAULT_THRESHOLD, FxCompression.DEFAULT_FRAME_SIZE, true, FxCompression.DEFAULT_MAX_RATIO), people);
+		benchmark("deflate level 9", new FxCompression(Deflater.BEST_COMPRESSION, FxCompression.DEFAULT_THRESHOLD,
+				FxCompression.DEFAULT_FRAME_SIZE, true, FxCompression.DEFAULT_MAX_RATIO), people);
+	}
+}
@@ -0,0 +1,93 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.juffrou.fx.seraials.dom.Account;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.juffrou.fx.serials.io.FxProxyRemoverInputStream;
+import org.juffrou.fx.serials.io.FxProxyRemoverOutputStream;
+import org.junit.Test;
+
+import javassist.ClassPool;
+import javafx.beans.property.ReadOnlyProperty;
+import net.sf.juffrou.reflect.BeanWrapperFactory;
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+public class FxExternalizableProxyTestCase {
+
+	private final FxSerialsProxyBuilder proxyBuilder = new FxSerialsProxyBuilder(ClassPool.getDefault(), true);
+	private final FXProxyCache proxyCache = new FXProxyCache();
+	private final BeanWrapperFactory bwFactory = new DefaultBeanWrapperFactory();
+
+	private Account createAccount() {
+		Account parent = new Account();
+		parent.setNumber(1);
+		parent.setOwner("Bank");
+		parent.setParent(parent);
+		Account account = new Account();
+		account.setNumber(42);
+		account.setBalance(-12345678901L);
+		account.setRate(0.035);
+		account.setActive(true);
+		account.setCategory('S');
+		account.setOwner("John Doe");
+		account.setTags(Arrays.asList("savings", "joint"));
+		account.setParent(parent);
+		return account;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos, proxyBuilder, proxyCache, bwFactory);
+		out.writeObject(createAccount());
+		out.close();
+
+		FxProxyCreatorInputStream in = new FxProxyCreatorInputStream(new ByteArrayInputStream(bos.toByteArray()),
+				proxyBuilder, proxyCache, bwFactory);
+		Account accountFx = (Account) in.readObject();
+		in.close();
+
+		assertTrue(accountFx instanceof Externalizable);
+		assertTrue(accountFx instanceof JFXProxy);
+		assertEquals(42, accountFx.getNumber());
+		assertEquals(-12345678901L, accountFx.getBalance());
+		assertEquals(0.035, accountFx.getRate(), 0);
+		assertTrue(accountFx.isActive());
+		assertEquals('S', accountFx.getCategory());
+		assertEquals("John Doe", accountFx.getOwner());
+		assertEquals(Arrays.asList("savings", "joint"), accountFx.getTags());
+		Account parentFx = accountFx.getParent();
+		assertSame(parentFx, parentFx.getParent());
+
+		// the property slots are usable
+		ReadOnlyProperty<?> owner = ((JFXProxy) accountFx).getProperty("owner");
+		accountFx.setOwner("Jane Doe");
+		assertEquals("Jane Doe", owner.getValue());
+
+		// and the client sends originals back
+		bos = new ByteArrayOutputStream();
+		FxProxyRemoverOutputStream back = new FxProxyRemoverOutputStream(bos, proxyBuilder, proxyCache, bwFactory);
+		back.writeObject(accountFx);
+		back.close();
+		FxProxyRemoverInputStream server = new FxProxyRemoverInputStream(new ByteArrayInputStream(bos.toByteArray()),
+				proxyBuilder, proxyCache, bwFactory);
+		Account original = (Account) server.readObject();
+		server.close();
+		assertEquals(Account.class, original.getClass());
+		assertEquals("Jane Doe", original.getOwner());
+		assertEquals(-12345678901L, original.getBalance());
+	}
+}
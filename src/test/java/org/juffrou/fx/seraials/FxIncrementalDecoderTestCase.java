@@ -0,0 +1,126 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.error.FxTransformerException;
+import org.juffrou.fx.serials.io.FxIncrementalDecoder;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.junit.Test;
+
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+public class FxIncrementalDecoderTestCase {
+
+	private static final int OBJECTS = 20000;
+	private static final int CHUNK_SIZE = 1024;
+	private static final int MAX_BUFFERED_BYTES = 16 * 1024;
+
+	private byte[] writeContacts() throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos)) {
+			for (int i = 0; i < OBJECTS; i++) {
+				Contact contact = new Contact();
+				contact.setDescription("Contact " + i);
+				contact.setValue("918 333 " + i);
+				out.writeObject(contact);
+				if (i % 1000 == 999)
+					out.reset();
+			}
+		}
+		return bos.toByteArray();
+	}
+
+	private FxIncrementalDecoder newDecoder(List<Object> objects, ExecutorService executor) {
+		return new FxIncrementalDecoder(in -> new FxProxyCreatorInputStream(in, new FxSerialsProxyBuilder(),
+				new FXProxyCache(), new DefaultBeanWrapperFactory()), objects::add, executor, MAX_BUFFERED_BYTES);
+	}
+
+	@Test
+	public void testChunkedBody() throws Exception {
+		byte[] body = writeContacts();
+		List<Object> objects = new ArrayList<>();
+		AtomicLong firstObject = new AtomicLong();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			FxIncrementalDecoder decoder = new FxIncrementalDecoder(in -> new FxProxyCreatorInputStream(in),
+					object -> {
+						if (objects.isEmpty())
+							firstObject.set(System.nanoTime());
+						objects.add(object);
+					}, executor, MAX_BUFFERED_BYTES);
+			long start = System.nanoTime();
+			long maxBuffered = 0;
+			for (int off = 0; off < body.length; off += CHUNK_SIZE) {
+				byte[] chunk = Arrays.copyOfRange(body, off, Math.min(body.length, off + CHUNK_SIZE));
+				// the producer waits whenever the decoder holds it back
+				decoder.push(ByteBuffer.wrap(chunk)).get(10, TimeUnit.SECONDS);
+				maxBuffered = Math.max(maxBuffered, decoder.getBufferedBytes());
+			}
+			decoder.complete();
+			assertEquals(OBJECTS, decoder.getCompletion().get(30, TimeUnit.SECONDS).longValue());
+			long end = System.nanoTime();
+
+			assertEquals(OBJECTS, objects.size());
+			assertTrue(objects.get(0) instanceof JFXProxy);
+			assertEquals("Contact " + (OBJECTS - 1), ((Contact) objects.get(OBJECTS - 1)).getDescription());
+			assertTrue(maxBuffered <= MAX_BUFFERED_BYTES + CHUNK_SIZE);
+			System.out.println(OBJECTS + " objects from " + body.length + " bytes in chunks of " + CHUNK_SIZE
+					+ ": first object after " + (firstObject.get() - start) / 1000 + " us, all after "
+					+ (end - start) / 1000000 + " ms, at most " + maxBuffered + " bytes buffered");
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testTruncatedBody() throws Exception {
+		byte[] body = writeContacts();
+		List<Object> objects = new ArrayList<>();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			FxIncrementalDecoder decoder = newDecoder(objects, executor);
+			decoder.push(ByteBuffer.wrap(Arrays.copyOf(body, 5000))).get(10, TimeUnit.SECONDS);
+			decoder.complete();
+			try {
+				decoder.getCompletion().get(10, TimeUnit.SECONDS);
+				fail("A truncated body must not complete normally");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof FxTransformerException);
+			}
+			assertTrue(objects.size() > 0 && objects.size() < OBJECTS);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testEmptyBody() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			FxIncrementalDecoder decoder = newDecoder(new ArrayList<>(), executor);
+			decoder.complete();
+			assertEquals(0, decoder.getCompletion().get(10, TimeUnit.SECONDS).longValue());
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
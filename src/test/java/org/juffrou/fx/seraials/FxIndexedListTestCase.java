@@ -0,0 +1,127 @@
+package org.juffrou.fx.seraials;
+
+import static org.juffrou.fx.seraials.dom.Postings.addNumbered;
+import static org.juffrou.fx.seraials.dom.Postings.posting;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.juffrou.fx.seraials.dom.IndexedJournal;
+import org.juffrou.fx.seraials.dom.Posting;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.adapter.FxIndexedListProperty;
+import org.junit.Test;
+
+public class FxIndexedListTestCase {
+
+	private static final int POSTINGS = 10000;
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	@SuppressWarnings("unchecked")
+	private FxIndexedListProperty<Posting> postingsProperty(IndexedJournal journalFx) {
+		return (FxIndexedListProperty<Posting>) ((JFXProxy) journalFx).getProperty("postings");
+	}
+
+	private IndexedJournal createJournalProxy() {
+		IndexedJournal journal = new IndexedJournal();
+		addNumbered(journal.getPostings(), POSTINGS);
+		return context.getProxy(journal);
+	}
+
+	@Test
+	public void testLookupFollowsListChanges() {
+		IndexedJournal journalFx = createJournalProxy();
+		FxIndexedListProperty<Posting> postings = postingsProperty(journalFx);
+		assertEquals(POSTINGS, postings.getIndexSize());
+		assertEquals("Owner 5000", postings.getByKey(5000).getOwner());
+		assertEquals(5000, postings.indexOfKey(5000));
+
+		postings.remove(0);
+		assertNull(postings.getByKey(0));
+		assertFalse(postings.containsKey(0));
+		assertEquals(4999, postings.indexOfKey(5000));
+		assertSame(postings.get(4999), postings.getByKey(5000));
+
+		postings.add(0, posting(-1, "First"));
+		assertEquals(0, postings.indexOfKey(-1));
+		assertEquals(5000, postings.indexOfKey(5000));
+		assertEquals(-1, postings.indexOfKey(POSTINGS));
+	}
+
+	@Test
+	public void testUpsertAndRemoveByKey() {
+		IndexedJournal journalFx = createJournalProxy();
+		FxIndexedListProperty<Posting> postings = postingsProperty(journalFx);
+
+		Posting old = postings.getByKey(42);
+		Posting replacement = posting(42, "Replaced");
+		assertSame(old, postings.upsert(replacement));
+		assertSame(replacement, postings.get(42));
+		assertSame(replacement, postings.getByKey(42));
+		assertEquals(POSTINGS, postings.size());
+
+		Posting added = posting(POSTINGS, "Added");
+		assertNull(postings.upsert(added));
+		assertEquals(POSTINGS + 1, postings.size());
+		assertSame(added, journalFx.getPostings().get(POSTINGS));
+
+		assertSame(added, postings.removeByKey(POSTINGS));
+		assertNull(postings.removeByKey(POSTINGS));
+		assertEquals(POSTINGS, postings.getIndexSize());
+	}
+
+	@Test
+	public void testPositionsFollowRepeatedEdits() {
+		IndexedJournal journalFx = createJournalProxy();
+		FxIndexedListProperty<Posting> postings = postingsProperty(journalFx);
+
+		Random random = new Random(7);
+		int next = POSTINGS;
+		for (int i = 0; i < 2000; i++) {
+			int position = random.nextInt(postings.size());
+			switch (i % 4) {
+			case 0:
+				postings.add(position, posting(next++, "Inserted"));
+				break;
+			case 1:
+				postings.removeByKey(postings.get(position).getNumber());
+				break;
+			case 2:
+				postings.remove(position, Math.min(postings.size(), position + 3));
+				break;
+			default:
+				postings.upsert(posting(postings.get(position).getNumber(), "Upserted"));
+			}
+		}
+		assertEquals(postings.size(), postings.getIndexSize());
+		for (int i = 0; i < postings.size(); i++)
+			assertEquals(i, postings.indexOfKey(postings.get(i).getNumber()));
+	}
+
+	@Test
+	public void testIndexFollowsSetterMerge() {
+		IndexedJournal journalFx = createJournalProxy();
+		FxIndexedListProperty<Posting> postings = postingsProperty(journalFx);
+
+		List<Posting> refreshed = new ArrayList<>(journalFx.getPostings());
+		refreshed.remove(10);
+		Posting changed = posting(20, "Changed");
+		refreshed.set(19, changed);
+		refreshed.add(posting(POSTINGS, "New"));
+		journalFx.setPostings(refreshed);
+
+		assertFalse(postings.containsKey(10));
+		assertSame(changed, postings.getByKey(20));
+		assertEquals(19, postings.indexOfKey(20));
+		assertTrue(postings.containsKey(POSTINGS));
+		assertEquals(POSTINGS, postings.getIndexSize());
+	}
+}
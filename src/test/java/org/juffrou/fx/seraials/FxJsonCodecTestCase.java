@@ -0,0 +1,138 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.StreamCorruptedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.codec.FxJsonCodec;
+import org.junit.Test;
+
+public class FxJsonCodecTestCase {
+
+	private static final int ITERATIONS = 200;
+	private static final int PEOPLE = 100;
+
+	private final FxJsonCodec creator = FxJsonCodec.proxyCreator();
+	private final FxJsonCodec remover = FxJsonCodec.proxyRemover();
+
+	private Person createPerson(int i) {
+		Person person = new Person();
+		person.setId(i);
+		person.setName("Person \"" + i + "\"");
+		person.setDateOfBirth(LocalDate.of(1970, 1, 1).plusDays(i));
+		Address address = new Address();
+		address.setStreet("Dark Street");
+		person.setAddress(address);
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		phone.setValue("918 333 " + i);
+		person.addContact(phone);
+		person.addNicknames("P" + i);
+		return person;
+	}
+
+	@Test
+	public void testDecodeIntoProxies() throws IOException, ClassNotFoundException {
+		Person person = createPerson(1);
+		Person mother = createPerson(2);
+		person.addRelation("mother", mother);
+
+		String json = creator.toJson(person);
+		Person personFx = creator.fromJson(json, Person.class);
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getClass()));
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getContacts().get(0).getClass()));
+		assertEquals("Person \"1\"", personFx.getName());
+		assertEquals(person.getDateOfBirth(), personFx.getDateOfBirth());
+		assertTrue(personFx.getNicknames().contains("P1"));
+		assertSame(personFx, personFx.getContacts().get(0).getPerson());
+		assertEquals("Person \"2\"", personFx.getRelations().get("mother").getName());
+	}
+
+	@Test
+	public void testWriteProxiesAsOriginals() throws IOException, ClassNotFoundException {
+		Person personFx = new FxSerialsContext().getProxy(createPerson(1));
+		personFx.setName("Jane Doe");
+
+		String json = remover.toJson(personFx);
+		assertFalse(json.contains("_$$_JFX_"));
+		Person original = remover.fromJson(json, Person.class);
+		assertEquals(Person.class, original.getClass());
+		assertEquals("Jane Doe", original.getName());
+		assertSame(original, original.getContacts().get(0).getPerson());
+	}
+
+	@Test
+	public void testForeignJson() throws IOException, ClassNotFoundException {
+		String json = "{ \"name\": \"John\\u0020Doe\", \"id\": 7, \"unknown\": [1, {\"a\": null}, true],\n"
+				+ "  \"dateOfBirth\": \"1980-02-29\", \"address\": {\"street\": \"Dark Street\"},\n"
+				+ "  \"contacts\": [{\"description\": \"Mobile\", \"value\": \"918\"}], \"relations\": {} }";
+		Person personFx = creator.fromJson(json, Person.class);
+		assertTrue(JFXProxy.class.isAssignableFrom(personFx.getClass()));
+		assertEquals("John Doe", personFx.getName());
+		assertEquals(Integer.valueOf(7), personFx.getId());
+		assertEquals(LocalDate.of(1980, 2, 29), personFx.getDateOfBirth());
+		assertEquals("Dark Street", personFx.getAddress().getStreet());
+		assertEquals("918", personFx.getContacts().get(0).getValue());
+		assertTrue(personFx.getRelations().isEmpty());
+	}
+
+	@Test(expected = StreamCorruptedException.class)
+	public void testMalformedJson() throws IOException, ClassNotFoundException {
+		creator.fromJson("{\"name\": \"John\" \"id\": 7}", Person.class);
+	}
+
+	@Test
+	public void testClassOnlyMember() throws IOException, ClassNotFoundException {
+		Object address = creator.fromJson("{\"@class\": \"org.juffrou.fx.seraials.dom.Address\"}", Object.class);
+		assertTrue(address instanceof Address);
+		assertTrue(JFXProxy.class.isAssignableFrom(address.getClass()));
+		assertEquals(null, ((Address) address).getStreet());
+	}
+
+	@Test(expected = InvalidClassException.class)
+	public void testClassNamingNonBean() throws IOException, ClassNotFoundException {
+		creator.fromJson("[{\"@class\": \"java.lang.Thread\"}, {\"a\": 1}]", Object[].class);
+	}
+
+	@Test
+	public void testThroughput() throws IOException, ClassNotFoundException {
+		Person[] people = new Person[PEOPLE];
+		for (int i = 0; i < PEOPLE; i++)
+			people[i] = createPerson(i);
+		String json = remover.toJson(people);
+		FxSerialsContext context = new FxSerialsContext();
+
+		List<Person> proxies = context.getProxy(new ArrayList<>(Arrays.asList(remover.fromJson(json, Person[].class))));
+		assertTrue(JFXProxy.class.isAssignableFrom(proxies.get(0).getClass()));
+		Person[] direct = creator.fromJson(json, Person[].class);
+		assertTrue(JFXProxy.class.isAssignableFrom(direct[0].getClass()));
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			context.getProxy(new ArrayList<>(Arrays.asList(remover.fromJson(json, Person[].class))));
+		long twoPassTime = System.nanoTime() - start;
+
+		start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			creator.fromJson(json, Person[].class);
+		long directTime = System.nanoTime() - start;
+
+		System.out.println(PEOPLE + " people, " + json.length() + " chars of JSON - parse then getProxy: "
+				+ (ITERATIONS * 1000000000L / twoPassTime) + " documents/s; proxies while parsing: "
+				+ (ITERATIONS * 1000000000L / directTime) + " documents/s");
+	}
+}
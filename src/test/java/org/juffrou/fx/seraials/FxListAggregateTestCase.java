@@ -0,0 +1,147 @@
+package org.juffrou.fx.seraials;
+
+import static org.juffrou.fx.seraials.dom.Postings.posting;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.juffrou.fx.seraials.dom.Journal;
+import org.juffrou.fx.seraials.dom.Posting;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.adapter.FxListAggregate;
+import org.junit.Test;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.SimpleListProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.beans.property.StringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+public class FxListAggregateTestCase {
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	private Journal createJournal() {
+		Journal journal = new Journal();
+		journal.setName("Totals");
+		for (int i = 1; i <= 100; i++)
+			journal.getPostings().add(posting(i, i, i % 2 == 0 ? "OPEN" : "CLOSED"));
+		return journal;
+	}
+
+	@SuppressWarnings("unchecked")
+	private SimpleListProperty<Posting> postings(Journal journalFx) {
+		return (SimpleListProperty<Posting>) ((JFXProxy) journalFx).getProperty("postings");
+	}
+
+	@Test
+	public void testAggregatesFollowListChanges() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleListProperty<Posting> property = postings(journalFx);
+		assertTrue(property.get(0) instanceof JFXProxy);
+		FxListAggregate<Posting, Number> amounts = FxListAggregate.of(property.get(), "amount");
+		assertEquals(100, amounts.getCount());
+		assertEquals(5050, amounts.getSum(), 0);
+		assertEquals(1.0, amounts.getMin());
+		assertEquals(100.0, amounts.getMax());
+
+		property.remove(0);
+		property.add(context.getProxy(posting(101, 500, "OPEN")));
+		property.set(10, context.getProxy(posting(102, -5, "OPEN")));
+		assertEquals(100, amounts.getCount());
+		assertEquals(5050 - 1 + 500 - 12 - 5, amounts.getSum(), 0);
+		assertEquals(-5.0, amounts.minProperty().get());
+		assertEquals(500.0, amounts.maxProperty().get());
+
+		property.clear();
+		assertEquals(0, amounts.getCount());
+		assertEquals(0, amounts.getSum(), 0);
+		assertNull(amounts.getMin());
+	}
+
+	@Test
+	public void testAggregatesFollowElementChanges() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleListProperty<Posting> property = postings(journalFx);
+		FxListAggregate<Posting, Number> amounts = FxListAggregate.of(property.get(), "amount");
+		FxListAggregate<Posting, String> statuses = FxListAggregate.of(property.get(), "status");
+		ReadOnlyIntegerProperty open = statuses.countOfProperty("OPEN");
+		assertEquals(50, open.get());
+		assertEquals(0, statuses.getCountOf("VOID"));
+
+		Posting first = property.get(0);
+		((DoubleProperty) ((JFXProxy) first).getProperty("amount")).set(1000);
+		((StringProperty) ((JFXProxy) first).getProperty("status")).set("OPEN");
+		property.get(1).setAmount(0);
+		assertEquals(5050 - 1 + 1000 - 2, amounts.getSum(), 0);
+		assertEquals(1000.0, amounts.getMax());
+		assertEquals(0.0, amounts.getMin());
+		assertEquals(51, open.get());
+		assertEquals(49, statuses.getCountOf("CLOSED"));
+		assertEquals("OPEN", statuses.getMax());
+
+		property.remove(first);
+		assertEquals(50, open.get());
+		first.setStatus("CLOSED");
+		assertEquals(50, open.get());
+
+		statuses.dispose();
+		property.get(0).setStatus("OPEN");
+		assertEquals(50, open.get());
+	}
+
+	@Test
+	public void testAggregatesFollowMergedRows() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleListProperty<Posting> property = postings(journalFx);
+		FxListAggregate<Posting, Number> amounts = FxListAggregate.of(property.get(), "amount");
+		FxListAggregate<Posting, String> statuses = FxListAggregate.of(property.get(), "status");
+
+		Posting stale = property.get(0);
+		List<Posting> refreshed = new ArrayList<>(journalFx.getPostings());
+		refreshed.set(0, context.getProxy(posting(1, 1000, "VOID")));
+		refreshed.set(99, context.getProxy(posting(100, -100, "VOID")));
+		journalFx.setPostings(refreshed);
+		assertEquals(100, amounts.getCount());
+		assertEquals(5050 - 1 + 1000 - 100 - 100, amounts.getSum(), 0);
+		assertEquals(2, statuses.getCountOf("VOID"));
+		assertEquals(1000.0, amounts.getMax());
+		assertEquals(-100.0, amounts.getMin());
+
+		stale.setAmount(0);
+		assertEquals(5050 - 1 + 1000 - 100 - 100, amounts.getSum(), 0);
+		property.get(0).setAmount(1);
+		assertEquals(5050 - 100 - 100, amounts.getSum(), 0);
+	}
+
+	@Test
+	public void testSumsDoNotDrift() {
+		ObservableList<SimpleObjectProperty<Number>> values = FXCollections.observableArrayList();
+		FxListAggregate<SimpleObjectProperty<Number>, Number> aggregate = new FxListAggregate<>(values, v -> v);
+		SimpleObjectProperty<Number> big = new SimpleObjectProperty<>(Long.MAX_VALUE / 2);
+		values.add(big);
+		for (int i = 0; i < 1000; i++)
+			values.add(new SimpleObjectProperty<>(new BigDecimal("0.1")));
+		values.add(new SimpleObjectProperty<>(Long.MAX_VALUE / 2));
+		values.add(new SimpleObjectProperty<>(3L));
+		assertEquals(0, new BigDecimal(Long.MAX_VALUE).add(new BigDecimal("102")).compareTo(aggregate.getDecimalSum()));
+
+		SimpleObjectProperty<Number> tenth = new SimpleObjectProperty<>(0.1);
+		values.add(tenth);
+		for (int i = 0; i < 100000; i++)
+			tenth.set(i % 2 == 0 ? 1e16 : 0.1);
+		values.remove(big);
+		values.remove(tenth);
+		assertEquals(0, new BigDecimal(Long.MAX_VALUE / 2 + 3).add(new BigDecimal("100")).compareTo(aggregate.getDecimalSum()));
+		values.clear();
+		assertEquals(0, aggregate.getSum(), 0);
+		assertEquals(0, aggregate.getDecimalSum().signum());
+	}
+}
@@ -0,0 +1,132 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.juffrou.fx.seraials.dom.Journal;
+import org.juffrou.fx.seraials.dom.Posting;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.adapter.FxBulkEdits;
+import org.juffrou.fx.serials.adapter.FxObservableList;
+import org.junit.Test;
+
+import javafx.beans.property.SimpleListProperty;
+import javafx.collections.ListChangeListener;
+
+public class FxListSortTestCase {
+
+	private static final int POSTINGS = 100000;
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	private Journal createJournal() {
+		Random random = new Random(42);
+		Journal journal = new Journal();
+		journal.setName("Sorted");
+		for (int i = 0; i < POSTINGS; i++) {
+			Posting posting = new Posting();
+			posting.setNumber(i);
+			posting.setAmount(random.nextInt(1000));
+			posting.setStatus(i % 3 == 0 ? null : "S" + random.nextInt(5));
+			journal.getPostings().add(posting);
+		}
+		return journal;
+	}
+
+	@SuppressWarnings("unchecked")
+	private SimpleListProperty<Posting> postings(Journal journalFx) {
+		return (SimpleListProperty<Posting>) ((JFXProxy) journalFx).getProperty("postings");
+	}
+
+	@Test
+	public void testSortByPropertyFiresOnePermutation() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleListProperty<Posting> property = postings(journalFx);
+		List<Posting> before = new ArrayList<>(property);
+		int[] changes = new int[1];
+		property.addListener((ListChangeListener<Posting>) c -> {
+			changes[0]++;
+			assertTrue(c.next());
+			assertTrue(c.wasPermutated());
+			assertEquals(0, c.getFrom());
+			assertEquals(POSTINGS, c.getTo());
+			for (int i = 0; i < POSTINGS; i++)
+				assertSame(before.get(i), c.getList().get(c.getPermutation(i)));
+		});
+
+		FxBulkEdits.sortBy(property, "amount", false);
+		assertEquals(1, changes[0]);
+		List<Posting> sorted = journalFx.getPostings();
+		for (int i = 1; i < POSTINGS; i++) {
+			Posting previous = sorted.get(i - 1);
+			Posting current = sorted.get(i);
+			assertTrue(previous.getAmount() <= current.getAmount());
+			if (previous.getAmount() == current.getAmount())
+				assertTrue("sort must be stable", previous.getNumber() < current.getNumber());
+		}
+	}
+
+	@Test
+	public void testSortByPropertyDescendingWithNulls() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleListProperty<Posting> property = postings(journalFx);
+
+		FxBulkEdits.sortBy(property, "status", true);
+		List<Posting> sorted = journalFx.getPostings();
+		assertEquals("S4", sorted.get(0).getStatus());
+		assertEquals(null, sorted.get(POSTINGS - 1).getStatus());
+		Comparator<String> descending = Comparator.nullsLast(Comparator.<String>reverseOrder());
+		for (int i = 1; i < POSTINGS; i++)
+			assertTrue(descending.compare(sorted.get(i - 1).getStatus(), sorted.get(i).getStatus()) <= 0);
+	}
+
+	@Test
+	public void testKeysAreReadOnTheCallingThread() {
+		Journal journalFx = context.getProxy(createJournal());
+		FxObservableList<Posting> list = (FxObservableList<Posting>) postings(journalFx).get();
+		Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<>());
+		list.sortBy(p -> {
+			threads.add(Thread.currentThread());
+			return ((JFXProxy) p).getProperty("amount").getValue();
+		}, null);
+		assertEquals(Collections.singleton(Thread.currentThread()), threads);
+		for (int i = 1; i < POSTINGS; i++)
+			assertTrue(list.get(i - 1).getAmount() <= list.get(i).getAmount());
+	}
+
+	@Test(expected = ConcurrentModificationException.class)
+	public void testSortFailsOpenIterators() {
+		Journal journalFx = context.getProxy(createJournal());
+		FxObservableList<Posting> list = (FxObservableList<Posting>) postings(journalFx).get();
+		Iterator<Posting> it = list.iterator();
+		it.next();
+		list.sortBy(Posting::getAmount, null);
+		it.next();
+	}
+
+	@Test
+	public void testSortedListFiresNoChange() {
+		Journal journalFx = context.getProxy(createJournal());
+		SimpleListProperty<Posting> property = postings(journalFx);
+		int[] changes = new int[1];
+		property.addListener((ListChangeListener<Posting>) c -> changes[0]++);
+
+		FxBulkEdits.sort(property, Comparator.comparingInt(Posting::getNumber));
+		assertEquals(0, changes[0]);
+		FxBulkEdits.sort(property, Comparator.comparingInt(Posting::getNumber).reversed());
+		assertEquals(1, changes[0]);
+		assertEquals(POSTINGS - 1, journalFx.getPostings().get(0).getNumber());
+	}
+}
@@ -0,0 +1,185 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.io.FxInputSession;
+import org.juffrou.fx.serials.io.FxMessageReader;
+import org.juffrou.fx.serials.io.FxMessageWriter;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.juffrou.fx.serials.io.FxResetPolicy;
+import org.juffrou.fx.serials.io.FxSessionEvictionPolicy;
+import org.junit.Test;
+
+public class FxMessageSessionTestCase {
+
+	private static final int MESSAGES = 1000;
+
+	private Contact contact(int i) {
+		Contact contact = new Contact();
+		contact.setDescription("Mobile");
+		contact.setValue("918 333 " + i);
+		return contact;
+	}
+
+	private byte[] writeSession(FxResetPolicy policy) throws IOException {
+		ByteArrayOutputStream connection = new ByteArrayOutputStream();
+		FxMessageWriter writer = FxMessageWriter.proxyCreator(connection, policy);
+		for (int i = 0; i < MESSAGES; i++)
+			writer.writeMessage(contact(i));
+		writer.close();
+		return connection.toByteArray();
+	}
+
+	private void readSession(byte[] bytes) throws IOException, ClassNotFoundException {
+		FxMessageReader reader = FxMessageReader.proxyCreator(new ByteArrayInputStream(bytes));
+		for (int i = 0; i < MESSAGES; i++) {
+			Contact contact = (Contact) reader.readMessage();
+			assertTrue(JFXProxy.class.isAssignableFrom(contact.getClass()));
+			assertEquals("918 333 " + i, contact.getValue());
+		}
+		reader.close();
+	}
+
+	@Test
+	public void testSessionOverhead() throws IOException, ClassNotFoundException {
+		long perMessageStreams = 0;
+		for (int i = 0; i < MESSAGES; i++) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos);
+			out.writeObject(contact(i));
+			out.close();
+			perMessageStreams += bos.size();
+		}
+
+		byte[] resetEveryMessage = writeSession(FxResetPolicy.everyMessage());
+		byte[] resetEvery100 = writeSession(FxResetPolicy.everyMessages(100));
+		byte[] neverReset = writeSession(FxResetPolicy.never());
+
+		readSession(resetEveryMessage);
+		readSession(resetEvery100);
+		readSession(neverReset);
+
+		System.out.println("Bytes per message - one stream per message: " + perMessageStreams / MESSAGES
+				+ ", session reset every message: " + resetEveryMessage.length / MESSAGES
+				+ ", session reset every 100 messages: " + resetEvery100.length / MESSAGES
+				+ ", session never reset: " + neverReset.length / MESSAGES);
+
+		assertTrue(neverReset.length < resetEvery100.length);
+		assertTrue(resetEvery100.length < resetEveryMessage.length);
+	}
+
+	@Test
+	public void testResetPolicy() throws IOException, ClassNotFoundException {
+		Address address = new Address();
+		address.setStreet("Dark Street");
+
+		ByteArrayOutputStream connection = new ByteArrayOutputStream();
+		FxMessageWriter writer = FxMessageWriter.proxyCreator(connection, FxResetPolicy.never());
+		writer.writeMessage(address);
+		writer.writeMessage(address);
+		writer.reset();
+		address.setStreet("Bright Street");
+		writer.writeMessage(address);
+		writer.close();
+
+		FxMessageReader reader = FxMessageReader.proxyCreator(new ByteArrayInputStream(connection.toByteArray()));
+		Address first = (Address) reader.readMessage();
+		Address second = (Address) reader.readMessage();
+		Address third = (Address) reader.readMessage();
+		reader.close();
+
+		// without a reset the same instance is sent as a back reference
+		assertSame(first, second);
+		// after a reset the object is sent again with its current state
+		assertNotSame(first, third);
+		assertEquals("Dark Street", first.getStreet());
+		assertEquals("Bright Street", third.getStreet());
+	}
+
+	private FxMessageWriter sessionWriter(ByteArrayOutputStream connection, FxSessionEvictionPolicy policy)
+			throws IOException {
+		return new FxMessageWriter(connection, out -> new FxProxyCreatorOutputStream(out), policy);
+	}
+
+	private FxMessageReader sessionReader(byte[] bytes) {
+		return new FxMessageReader(new ByteArrayInputStream(bytes), new FxInputSession(),
+				in -> new FxProxyCreatorInputStream(in));
+	}
+
+	@Test
+	public void testSessionBackReferences() throws IOException, ClassNotFoundException {
+		Address shared = new Address();
+		shared.setStreet("Dark Street");
+
+		ByteArrayOutputStream connection = new ByteArrayOutputStream();
+		FxMessageWriter writer = sessionWriter(connection, FxSessionEvictionPolicy.never());
+		ByteArrayOutputStream resetConnection = new ByteArrayOutputStream();
+		FxMessageWriter resetWriter = FxMessageWriter.proxyCreator(resetConnection, FxResetPolicy.everyMessage());
+		for (int i = 0; i < MESSAGES; i++) {
+			Person person = new Person();
+			person.setName("Person " + i);
+			person.setAddress(shared);
+			writer.writeMessage(person);
+			resetWriter.writeMessage(person);
+		}
+		writer.getSession().forget(shared);
+		shared.setStreet("Bright Street");
+		Person last = new Person();
+		last.setAddress(shared);
+		writer.writeMessage(last);
+		writer.close();
+		resetWriter.close();
+
+		FxMessageReader reader = sessionReader(connection.toByteArray());
+		Address first = ((Person) reader.readMessage()).getAddress();
+		assertTrue(first instanceof JFXProxy);
+		for (int i = 1; i < MESSAGES; i++) {
+			Person person = (Person) reader.readMessage();
+			assertEquals("Person " + i, person.getName());
+			// the client keeps a single proxy of the shared object
+			assertSame(first, person.getAddress());
+		}
+		// a forgotten object is sent again with its current state
+		Address resent = ((Person) reader.readMessage()).getAddress();
+		assertNotSame(first, resent);
+		assertEquals("Bright Street", resent.getStreet());
+		reader.close();
+
+		System.out.println("Bytes per message - session with back references: " + connection.size() / MESSAGES
+				+ ", reset every message: " + resetConnection.size() / MESSAGES);
+		assertTrue(connection.size() < resetConnection.size());
+	}
+
+	@Test
+	public void testSessionEviction() throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream connection = new ByteArrayOutputStream();
+		FxMessageWriter writer = sessionWriter(connection, FxSessionEvictionPolicy.maxObjects(10));
+		Address[] addresses = new Address[50];
+		for (int i = 0; i < addresses.length; i++) {
+			addresses[i] = new Address();
+			addresses[i].setStreet("Street " + i);
+		}
+		for (int i = 0; i < MESSAGES; i++)
+			writer.writeMessage(addresses[i % addresses.length]);
+		assertEquals(10, writer.getSession().size());
+		writer.close();
+
+		FxMessageReader reader = sessionReader(connection.toByteArray());
+		for (int i = 0; i < MESSAGES; i++)
+			assertEquals("Street " + i % addresses.length, ((Address) reader.readMessage()).getStreet());
+		assertEquals(10, reader.getSession().size());
+		reader.close();
+	}
+}
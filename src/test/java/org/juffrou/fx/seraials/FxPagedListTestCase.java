@@ -0,0 +1,140 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.juffrou.fx.seraials.dom.Catalog;
+import org.juffrou.fx.seraials.dom.Posting;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.adapter.FxListPageLoader;
+import org.juffrou.fx.serials.adapter.FxPagedList;
+import org.juffrou.fx.serials.adapter.FxPagedListProperty;
+import org.junit.Test;
+
+import javafx.collections.ListChangeListener;
+
+public class FxPagedListTestCase {
+
+	private static final int ENTRIES = 500000;
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	private static List<Posting> postings(int count) {
+		List<Posting> postings = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Posting posting = new Posting();
+			posting.setNumber(i);
+			postings.add(posting);
+		}
+		return postings;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testPagesAreLoadedOnDemandAndEvicted() {
+		Catalog catalogFx = context.getProxy(Catalog.class);
+		catalogFx.setEntries(postings(ENTRIES));
+		FxPagedListProperty<Posting> property = (FxPagedListProperty<Posting>) ((JFXProxy) catalogFx)
+				.getProperty("entries");
+		FxPagedList<Posting> entries = property.getPagedList();
+		FxListPageLoader<Posting> loader = (FxListPageLoader<Posting>) entries.getLoader();
+
+		assertEquals(ENTRIES, property.size());
+		assertEquals(0, loader.getLoadCount());
+		assertEquals(250123, property.get(250123).getNumber());
+		assertEquals(1, loader.getLoadCount());
+		assertEquals(250999, property.get(250999).getNumber());
+		assertEquals(1, loader.getLoadCount());
+
+		// scroll through the first ten pages, showing 40 rows at a time
+		for (int top = 0; top < 10000; top += 40)
+			for (int row = top; row < top + 40; row++)
+				assertEquals(row, entries.get(row).getNumber());
+		assertEquals(11, loader.getLoadCount());
+		assertEquals(5, entries.getCachedPageCount());
+		assertFalse(entries.isLoaded(0));
+		assertFalse(entries.isLoaded(250123));
+		assertTrue(entries.isLoaded(9999));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSetterReloadsPages() {
+		Catalog catalogFx = context.getProxy(Catalog.class);
+		catalogFx.setEntries(postings(ENTRIES));
+		FxPagedListProperty<Posting> property = (FxPagedListProperty<Posting>) ((JFXProxy) catalogFx)
+				.getProperty("entries");
+		property.get(0);
+
+		int[] events = new int[1];
+		int[] removed = new int[1];
+		int[] added = new int[1];
+		property.addListener((ListChangeListener<Posting>) c -> {
+			events[0]++;
+			while (c.next()) {
+				removed[0] += c.getRemovedSize();
+				added[0] += c.getAddedSize();
+			}
+		});
+		catalogFx.setEntries(postings(10));
+		assertEquals(1, events[0]);
+		assertEquals(ENTRIES, removed[0]);
+		assertEquals(10, added[0]);
+		assertEquals(10, property.size());
+		assertEquals(9, property.get(9).getNumber());
+		assertEquals(1, property.getPagedList().getCachedPageCount());
+	}
+
+	@Test
+	public void testRefreshReplacesAllRowsAtOnce() {
+		FxPagedList<Posting> entries = new FxPagedList<>(new FxListPageLoader<>(postings(ENTRIES)), 100, 5);
+		entries.get(0);
+		List<String> changes = new ArrayList<>();
+		entries.addListener((ListChangeListener<Posting>) c -> {
+			while (c.next())
+				changes.add(c.getFrom() + "-" + c.getTo() + " removed " + c.getRemovedSize()
+						+ (c.wasUpdated() ? " updated" : ""));
+		});
+		entries.refresh();
+		assertEquals(Collections.singletonList("0-" + ENTRIES + " removed " + ENTRIES), changes);
+		assertEquals(0, entries.getCachedPageCount());
+	}
+
+	@Test
+	public void testBackgroundLoading() {
+		List<Runnable> loads = new ArrayList<>();
+		List<Runnable> deliveries = new ArrayList<>();
+		FxPagedList<Posting> entries = new FxPagedList<>(new FxListPageLoader<>(postings(ENTRIES)), 100, 3,
+				loads::add, deliveries::add);
+		List<Integer> updated = new ArrayList<>();
+		entries.addListener((ListChangeListener<Posting>) c -> {
+			while (c.next())
+				if (c.wasUpdated())
+					updated.add(c.getTo() - c.getFrom());
+		});
+
+		assertNull(entries.get(150));
+		assertNull(entries.get(199));
+		assertEquals(1, loads.size());
+		loads.get(0).run();
+		assertNull(entries.get(150));
+		deliveries.get(0).run();
+		assertEquals(150, entries.get(150).getNumber());
+		assertEquals(1, updated.size());
+		assertEquals(100, updated.get(0).intValue());
+
+		// a page delivered after a reload is dropped
+		assertNull(entries.get(1000));
+		loads.get(1).run();
+		entries.refresh();
+		deliveries.get(1).run();
+		assertFalse(entries.isLoaded(1000));
+	}
+}
@@ -0,0 +1,156 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.codec.FxBinaryCodec;
+import org.juffrou.fx.serials.codec.FxChangeRecorder;
+import org.juffrou.fx.serials.codec.FxPatch;
+import org.juffrou.fx.serials.core.FxObservableProxy;
+import org.junit.Test;
+
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableSet;
+
+public class FxPatchTestCase {
+
+	private static final int CONTACTS = 5000;
+
+	private final FxBinaryCodec creator = FxBinaryCodec.proxyCreator();
+	private final FxBinaryCodec remover = FxBinaryCodec.proxyRemover();
+
+	private Person createPerson() {
+		Person person = new Person();
+		person.setId(1);
+		person.setName("Carlos Martins");
+		Address address = new Address();
+		address.setStreet("My Street");
+		person.setAddress(address);
+		for (int i = 0; i < CONTACTS; i++) {
+			Contact contact = new Contact();
+			contact.setDescription("Contact " + i);
+			contact.setValue("918 333 " + i);
+			person.addContact(contact);
+		}
+		person.addNicknames("Carlos");
+		return person;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testSetterAndCollectionChanges() throws IOException, ClassNotFoundException {
+		Person original = createPerson();
+		byte[] graph = creator.toByteArray(original);
+		Person personFx = creator.fromByteArray(graph);
+
+		byte[] patch;
+		try (FxChangeRecorder recorder = new FxChangeRecorder(remover, personFx)) {
+			assertFalse(recorder.hasChanges());
+			personFx.getAddress().setStreet("Other Street");
+			personFx.getContacts().get(CONTACTS / 2).setValue("969 000 000");
+			personFx.setEmail("carlos@martins.net");
+			Contact added = new Contact();
+			added.setDescription("New");
+			added.setPerson(personFx);
+			((ObservableList<Contact>) ((JFXProxy) personFx).getProperty("contacts")).add(added);
+			assertEquals(4, recorder.getChangeCount());
+			patch = recorder.createPatch();
+		}
+		assertNull(((FxObservableProxy) personFx).getChangeObserver());
+		assertTrue(patch.length < graph.length / 100);
+
+		Address originalAddress = original.getAddress();
+		assertEquals(4, FxPatch.apply(remover, original, patch));
+		assertSame(originalAddress, original.getAddress());
+		assertEquals("Other Street", original.getAddress().getStreet());
+		assertEquals("969 000 000", original.getContacts().get(CONTACTS / 2).getValue());
+		assertEquals("carlos@martins.net", original.getEmail());
+		assertEquals(CONTACTS + 1, original.getContacts().size());
+		Contact added = original.getContacts().get(CONTACTS);
+		assertFalse(added instanceof JFXProxy);
+		assertEquals("New", added.getDescription());
+		assertSame(original, added.getPerson());
+		System.out.println("Patch of 4 changes: " + patch.length + " bytes, graph: " + graph.length + " bytes");
+	}
+
+	@Test
+	public void testReplacedCollection() throws IOException, ClassNotFoundException {
+		Person original = createPerson();
+		Person personFx = creator.fromByteArray(creator.toByteArray(original));
+		byte[] patch;
+		try (FxChangeRecorder recorder = new FxChangeRecorder(remover, personFx)) {
+			personFx.setNicknames(null);
+			personFx.addNicknames("Charlie");
+			patch = recorder.createPatch();
+		}
+		FxPatch.apply(remover, original, patch);
+		assertEquals(1, original.getNicknames().size());
+		assertTrue(original.getNicknames().contains("Charlie"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCollectionOperations() throws IOException, ClassNotFoundException {
+		Person original = createPerson();
+		Person personFx = creator.fromByteArray(creator.toByteArray(original));
+		byte[] patch;
+		try (FxChangeRecorder recorder = new FxChangeRecorder(remover, personFx)) {
+			ObservableList<Contact> contacts = (ObservableList<Contact>) ((JFXProxy) personFx).getProperty("contacts");
+			contacts.remove(10, 13);
+			contacts.add(0, contacts.remove(contacts.size() - 1));
+			((ObservableSet<String>) ((JFXProxy) personFx).getProperty("nicknames")).add("Charlie");
+			patch = recorder.createPatch();
+		}
+		assertTrue(patch.length < 100);
+		FxPatch.apply(remover, original, patch);
+		assertEquals(CONTACTS - 3, original.getContacts().size());
+		assertEquals("Contact " + (CONTACTS - 1), original.getContacts().get(0).getDescription());
+		assertEquals("Contact 13", original.getContacts().get(11).getDescription());
+		assertTrue(original.getNicknames().contains("Charlie"));
+	}
+
+	@SuppressWarnings("serial")
+	@Test
+	public void testApplyVisitsOnlyThePath() throws IOException, ClassNotFoundException {
+		Person original = createPerson();
+		Person personFx = creator.fromByteArray(creator.toByteArray(original));
+		byte[] patch;
+		try (FxChangeRecorder recorder = new FxChangeRecorder(remover, personFx)) {
+			personFx.getContacts().get(CONTACTS - 1).setValue("969 000 000");
+			patch = recorder.createPatch();
+		}
+		// a list that cannot be walked, only indexed
+		original.setContacts(new ArrayList<Contact>(original.getContacts()) {
+			@Override
+			public Iterator<Contact> iterator() {
+				throw new AssertionError("the contacts were walked");
+			}
+
+			@Override
+			public Object[] toArray() {
+				throw new AssertionError("the contacts were walked");
+			}
+		});
+		assertEquals(1, FxPatch.apply(remover, original, patch));
+		assertEquals("969 000 000", original.getContacts().get(CONTACTS - 1).getValue());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testRecordedTwice() throws IOException, ClassNotFoundException {
+		Person personFx = creator.fromByteArray(creator.toByteArray(createPerson()));
+		try (FxChangeRecorder recorder = new FxChangeRecorder(remover, personFx)) {
+			new FxChangeRecorder(remover, personFx);
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.io.FxProgressiveListReader;
+import org.juffrou.fx.serials.io.FxProxyCreatorInputStream;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.juffrou.fx.serials.io.FxResetPolicy;
+import org.juffrou.fx.serials.io.FxSequenceReader;
+import org.juffrou.fx.serials.io.FxSequenceWriter;
+import org.junit.Test;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+public class FxProgressiveListReaderTestCase {
+
+	private static final int ROWS = 100000;
+	private static final int BATCH_SIZE = 500;
+
+	private byte[] writeContacts() throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (FxSequenceWriter writer = new FxSequenceWriter(new FxProxyCreatorOutputStream(bos),
+				FxResetPolicy.everyMessages(BATCH_SIZE))) {
+			for (int i = 0; i < ROWS; i++) {
+				Contact contact = new Contact();
+				contact.setDescription("Contact " + i);
+				contact.setValue("918 333 " + i);
+				writer.write(contact);
+			}
+			assertEquals(ROWS, writer.getCount());
+		}
+		return bos.toByteArray();
+	}
+
+	@Test
+	public void testBatchedAppends() throws Exception {
+		byte[] bytes = writeContacts();
+		ObservableList<Contact> contacts = FXCollections.observableArrayList();
+		AtomicInteger changes = new AtomicInteger();
+		AtomicLong firstRows = new AtomicLong();
+		contacts.addListener((ListChangeListener<Contact>) c -> {
+			if (changes.getAndIncrement() == 0)
+				firstRows.set(System.nanoTime());
+			while (c.next())
+				assertTrue(c.wasAdded() && c.getAddedSize() <= BATCH_SIZE);
+		});
+
+		// a single thread stands in for the FX application thread
+		ExecutorService fxThread = Executors.newSingleThreadExecutor();
+		ExecutorService readerThread = Executors.newSingleThreadExecutor();
+		try {
+			FxSequenceReader source = new FxSequenceReader(new FxProxyCreatorInputStream(new ByteArrayInputStream(bytes)));
+			FxProgressiveListReader<Contact> reader = new FxProgressiveListReader<>(source, contacts, BATCH_SIZE,
+					FxProgressiveListReader.DEFAULT_MAX_BATCH_DELAY_MILLIS, 2, fxThread);
+			long start = System.nanoTime();
+			CompletableFuture<Long> done = reader.start(readerThread);
+			assertEquals(ROWS, done.get(60, TimeUnit.SECONDS).longValue());
+			long end = System.nanoTime();
+			fxThread.submit(() -> null).get();
+
+			assertEquals(ROWS, contacts.size());
+			assertEquals("Contact " + (ROWS - 1), contacts.get(ROWS - 1).getDescription());
+			assertTrue(JFXProxy.class.isAssignableFrom(contacts.get(0).getClass()));
+			assertTrue(changes.get() >= ROWS / BATCH_SIZE);
+			System.out.println(ROWS + " rows in " + changes.get() + " list changes: first rows after "
+					+ (firstRows.get() - start) / 1000 + " us, all rows after " + (end - start) / 1000000 + " ms");
+		} finally {
+			fxThread.shutdown();
+			readerThread.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		byte[] bytes = writeContacts();
+		ObservableList<Contact> contacts = FXCollections.observableArrayList();
+		FxSequenceReader source = new FxSequenceReader(new FxProxyCreatorInputStream(new ByteArrayInputStream(bytes)));
+		List<FxProgressiveListReader<Contact>> readers = new ArrayList<>();
+		readers.add(new FxProgressiveListReader<>(source, contacts, BATCH_SIZE,
+				FxProgressiveListReader.DEFAULT_MAX_BATCH_DELAY_MILLIS, 1, r -> {
+					r.run();
+					// the user leaves the screen after a few batches
+					if (contacts.size() >= 5 * BATCH_SIZE)
+						readers.get(0).cancel();
+				}));
+		long read = readers.get(0).readAll();
+		assertTrue(read < ROWS);
+		assertEquals(read, contacts.size());
+	}
+}
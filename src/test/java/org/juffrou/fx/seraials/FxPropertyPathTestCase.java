@@ -0,0 +1,87 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.FxSerialsContext;
+import org.juffrou.fx.serials.adapter.FxPathBinding;
+import org.juffrou.fx.serials.adapter.FxPropertyPath;
+import org.juffrou.fx.serials.error.PropertyMethodException;
+import org.junit.Test;
+
+import javafx.beans.property.SimpleObjectProperty;
+
+public class FxPropertyPathTestCase {
+
+	private static final FxPropertyPath<String> STREET = FxPropertyPath.compile("address.street");
+
+	private final FxSerialsContext context = new FxSerialsContext();
+
+	private Person createPerson(String name, String street) {
+		Person person = new Person();
+		person.setName(name);
+		person.setAddress(createAddress(street));
+		return person;
+	}
+
+	private static Address createAddress(String street) {
+		Address address = new Address();
+		address.setStreet(street);
+		return address;
+	}
+
+	@Test
+	public void testPathFollowsReplacedIntermediateBean() {
+		Person personFx = context.getProxy(createPerson("Jane", "Main Street"));
+		FxPathBinding<String> street = STREET.bind(personFx);
+		int[] invalidations = new int[1];
+		street.addListener(o -> invalidations[0]++);
+		assertEquals("Main Street", street.get());
+
+		personFx.getAddress().setStreet("Second Street");
+		assertEquals("Second Street", street.get());
+
+		Address oldAddress = personFx.getAddress();
+		personFx.setAddress(context.getProxy(createAddress("Third Street")));
+		assertEquals("Third Street", street.get());
+		int before = invalidations[0];
+		oldAddress.setStreet("Ignored");
+		assertEquals(before, invalidations[0]);
+		assertEquals("Third Street", street.get());
+
+		personFx.setAddress(null);
+		assertNull(street.get());
+		personFx.setAddress(context.getProxy(createAddress("Fourth Street")));
+		assertEquals("Fourth Street", street.get());
+
+		street.dispose();
+		personFx.getAddress().setStreet("After dispose");
+		assertNull(street.get());
+	}
+
+	@Test
+	public void testPathFollowsObservableRoot() {
+		Person first = context.getProxy(createPerson("First", "First Street"));
+		Person second = context.getProxy(createPerson("Second", "Second Street"));
+		SimpleObjectProperty<Person> selected = new SimpleObjectProperty<>();
+		FxPathBinding<String> street = STREET.bind(selected);
+		assertNull(street.get());
+
+		selected.set(first);
+		assertEquals("First Street", street.get());
+		selected.set(second);
+		assertEquals("Second Street", street.get());
+		first.getAddress().setStreet("Changed");
+		assertEquals("Second Street", street.get());
+		second.getAddress().setStreet("Changed too");
+		assertEquals("Changed too", street.get());
+	}
+
+	@Test(expected = PropertyMethodException.class)
+	public void testUnknownPropertyIsReported() {
+		Person personFx = context.getProxy(createPerson("Jane", "Main Street"));
+		FxPropertyPath.compile("address.town").bind(personFx);
+	}
+}
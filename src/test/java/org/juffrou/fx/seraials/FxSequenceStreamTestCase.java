@@ -0,0 +1,128 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.CompletableFuture;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.io.FxProxyRemoverInputStream;
+import org.juffrou.fx.serials.io.FxProxyRemoverOutputStream;
+import org.juffrou.fx.serials.io.FxResetPolicy;
+import org.juffrou.fx.serials.io.FxSequenceReader;
+import org.juffrou.fx.serials.io.FxSequenceWriter;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+public class FxSequenceStreamTestCase {
+
+	private static final int RECORDS = 5000;
+	/** run with -Dfx.serials.volume=true to write and read ten million records */
+	private static final boolean VOLUME = Boolean.getBoolean("fx.serials.volume");
+	private static final int VOLUME_RECORDS = Integer.getInteger("fx.serials.volume.records", 10000000);
+	private static final int SAMPLES = 5;
+	private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+
+	private static long usedHeap() {
+		System.gc();
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private FxSequenceWriter newWriter(OutputStream out, FxResetPolicy policy) throws IOException {
+		return new FxSequenceWriter(out, o -> new FxProxyRemoverOutputStream(o, new FxSerialsProxyBuilder(),
+				new FXProxyCache(), new DefaultBeanWrapperFactory()), policy);
+	}
+
+	private FxSequenceReader newReader(InputStream in) throws IOException {
+		return new FxSequenceReader(in, i -> new FxProxyRemoverInputStream(i));
+	}
+
+	private long writeAndRead(int records, FxResetPolicy policy) throws Exception {
+		PipedInputStream pipeIn = new PipedInputStream(1 << 20);
+		PipedOutputStream pipeOut = new PipedOutputStream(pipeIn);
+		long baseline = usedHeap();
+
+		CompletableFuture<Long> written = CompletableFuture.supplyAsync(() -> {
+			try (FxSequenceWriter writer = newWriter(pipeOut, policy)) {
+				for (int i = 0; i < records; i++) {
+					Address address = new Address();
+					address.setDoor(Integer.toString(i));
+					// a record with the same object twice
+					writer.beginScope();
+					writer.write(address);
+					writer.write(address);
+					writer.endScope();
+				}
+				return writer.getCount();
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		long start = System.nanoTime();
+		long maxGrowth = 0;
+		try (FxSequenceReader reader = newReader(pipeIn)) {
+			for (int i = 0; i < records; i++) {
+				Address first = reader.next();
+				Address second = reader.next();
+				assertSame(first, second);
+				if (i % (records / SAMPLES) == 0) {
+					assertEquals(Integer.toString(i), first.getDoor());
+					maxGrowth = Math.max(maxGrowth, usedHeap() - baseline);
+				}
+			}
+			assertFalse(reader.hasNext());
+		}
+		assertEquals(2L * records, written.get().longValue());
+		System.out.println(records + " records written and read in " + (System.nanoTime() - start) / 1000000
+				+ " ms, heap growth at most " + maxGrowth / 1024 + " KB");
+		return maxGrowth;
+	}
+
+	@Test
+	public void testScopedResets() throws Exception {
+		// small enough to reset many times within the records
+		assertTrue(writeAndRead(RECORDS, FxResetPolicy.afterBytes(4 * 1024)) < MAX_HEAP_GROWTH);
+	}
+
+	@Test
+	public void testVolume() throws Exception {
+		Assume.assumeTrue(VOLUME);
+		assertTrue(writeAndRead(VOLUME_RECORDS, FxResetPolicy.afterBytes(256 * 1024)) < MAX_HEAP_GROWTH);
+	}
+
+	@Test
+	public void testNoResetInsideScope() throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		Address shared = new Address();
+		try (FxSequenceWriter writer = newWriter(bos, FxResetPolicy.everyMessage())) {
+			writer.beginScope();
+			writer.write(shared);
+			writer.write(shared);
+			writer.endScope();
+			writer.write(shared);
+		}
+		try (FxSequenceReader reader = newReader(new ByteArrayInputStream(bos.toByteArray()))) {
+			Address first = reader.next();
+			assertSame(first, reader.next());
+			// records outside the scope are separated by a reset
+			assertNotSame(first, reader.next());
+			assertFalse(reader.hasNext());
+		}
+	}
+}
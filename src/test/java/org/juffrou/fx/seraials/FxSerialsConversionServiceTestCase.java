@@ -0,0 +1,126 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.FxSerialsConversionService;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxExecutors;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.io.FxProxyCreatorOutputStream;
+import org.junit.Test;
+
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+public class FxSerialsConversionServiceTestCase {
+
+	private static final int IN_FLIGHT_RESPONSES = 500;
+	private static final long RESPONSE_LATENCY_MILLIS = 2;
+
+	private byte[] serializedPerson(int i) throws IOException {
+		Person person = new Person();
+		person.setId(i);
+		person.setName("Person " + i);
+		Address address = new Address();
+		address.setStreet("Street " + i);
+		person.setAddress(address);
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		phone.setValue("918 333 " + i);
+		person.addContact(phone);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		FxProxyCreatorOutputStream out = new FxProxyCreatorOutputStream(bos);
+		out.writeObject(person);
+		out.close();
+		return bos.toByteArray();
+	}
+
+	/**
+	 * Simulates a response body whose first bytes arrive after some network latency
+	 */
+	private static class SlowInputStream extends FilterInputStream {
+
+		private boolean waited;
+
+		SlowInputStream(byte[] body) {
+			super(new ByteArrayInputStream(body));
+		}
+
+		private void waitForFirstByte() throws IOException {
+			if (!waited) {
+				waited = true;
+				try {
+					Thread.sleep(RESPONSE_LATENCY_MILLIS);
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+		}
+
+		@Override
+		public int read() throws IOException {
+			waitForFirstByte();
+			return super.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			waitForFirstByte();
+			return super.read(b, off, len);
+		}
+	}
+
+	private long decodeAll(FxSerialsConversionService service, List<byte[]> bodies) {
+		long start = System.nanoTime();
+		List<CompletableFuture<Person>> futures = new ArrayList<>();
+		for (byte[] body : bodies) {
+			InputStream in = new SlowInputStream(body);
+			futures.add(service.getProxy(in));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			Person person = futures.get(i).join();
+			assertTrue(JFXProxy.class.isAssignableFrom(person.getClass()));
+			assertTrue(JFXProxy.class.isAssignableFrom(person.getAddress().getClass()));
+			assertEquals("Person " + i, person.getName());
+		}
+		return System.nanoTime() - start;
+	}
+
+	@Test
+	public void testConcurrentResponses() throws IOException {
+		List<byte[]> bodies = new ArrayList<>();
+		for (int i = 0; i < IN_FLIGHT_RESPONSES; i++)
+			bodies.add(serializedPerson(i));
+
+		try (FxSerialsConversionService service = new FxSerialsConversionService()) {
+			// warm up: builds the proxy classes
+			decodeAll(service, bodies.subList(0, 10));
+			long elapsed = decodeAll(service, bodies);
+			System.out.println("Default service (virtual threads: " + FxExecutors.isVirtualThreadSupported() + "): "
+					+ IN_FLIGHT_RESPONSES + " responses in " + elapsed / 1000000 + " ms, "
+					+ (IN_FLIGHT_RESPONSES * 1000000000L / elapsed) + " responses/s");
+		}
+
+		try (FxSerialsConversionService service = new FxSerialsConversionService(new FxSerialsProxyBuilder(),
+				new FXProxyCache(), new DefaultBeanWrapperFactory(), FxExecutors.newBoundedExecutor(4, "test"))) {
+			decodeAll(service, bodies.subList(0, 10));
+			long elapsed = decodeAll(service, bodies);
+			System.out.println("Pool of 4 platform threads: " + IN_FLIGHT_RESPONSES + " responses in "
+					+ elapsed / 1000000 + " ms, " + (IN_FLIGHT_RESPONSES * 1000000000L / elapsed) + " responses/s");
+		}
+	}
+}
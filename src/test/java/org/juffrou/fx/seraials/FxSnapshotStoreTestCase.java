@@ -0,0 +1,165 @@
+package org.juffrou.fx.seraials;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.juffrou.fx.seraials.dom.Address;
+import org.juffrou.fx.seraials.dom.Contact;
+import org.juffrou.fx.seraials.dom.Person;
+import org.juffrou.fx.serials.JFXProxy;
+import org.juffrou.fx.serials.core.FXProxyCache;
+import org.juffrou.fx.serials.core.FxClassRegistry;
+import org.juffrou.fx.serials.core.FxSerialsProxyBuilder;
+import org.juffrou.fx.serials.io.FxSnapshotStore;
+import org.juffrou.fx.serials.io.FxSnapshotWriter;
+import org.junit.Test;
+
+import net.sf.juffrou.reflect.DefaultBeanWrapperFactory;
+
+public class FxSnapshotStoreTestCase {
+
+	private static final int RECORDS = 2000;
+
+	private Person createPerson(int i) {
+		Person person = new Person();
+		person.setId(i);
+		person.setName("Person " + i);
+		Address address = new Address();
+		address.setStreet("Street " + i);
+		person.setAddress(address);
+		Contact phone = new Contact();
+		phone.setDescription("Mobile");
+		phone.setValue("918 333 " + i);
+		person.addContact(phone);
+		return person;
+	}
+
+	@Test
+	public void testOnDemandRecords() throws IOException {
+		Path file = File.createTempFile("fx-serials", ".snapshot").toPath();
+		try {
+			try (FxSnapshotWriter writer = new FxSnapshotWriter(file)) {
+				for (int i = 0; i < RECORDS; i++)
+					assertEquals(i, writer.append(i % 2 == 0 ? "person-" + i : null, createPerson(i)));
+			}
+
+			try (FxSnapshotStore store = new FxSnapshotStore(file)) {
+				assertEquals(RECORDS, store.size());
+				assertEquals(RECORDS / 2, store.keys().size());
+
+				Person personFx = store.get(RECORDS - 1);
+				assertTrue(JFXProxy.class.isAssignableFrom(personFx.getClass()));
+				assertEquals("Person " + (RECORDS - 1), personFx.getName());
+				assertTrue(personFx == personFx.getContacts().get(0).getPerson());
+
+				Person keyed = store.get("person-42");
+				assertEquals(Integer.valueOf(42), keyed.getId());
+				assertEquals("Street 42", ((Person) store.get(42)).getAddress().getStreet());
+				assertNull(store.get("person-43"));
+			}
+		} finally {
+			file.toFile().delete();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateKey() throws IOException {
+		Path file = File.createTempFile("fx-serials", ".snapshot").toPath();
+		try (FxSnapshotWriter writer = new FxSnapshotWriter(file)) {
+			writer.append("john", createPerson(1));
+			writer.append("john", createPerson(2));
+		} finally {
+			file.toFile().delete();
+		}
+	}
+
+	private void assertCorrupt(Path file, long position, ByteBuffer patch) throws IOException {
+		byte[] original = Files.readAllBytes(file);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+			channel.write(patch, position);
+		}
+		try (FxSnapshotStore store = new FxSnapshotStore(file)) {
+			fail("corrupt snapshot was opened with " + store.size() + " records");
+		} catch (StreamCorruptedException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("is corrupt"));
+		} finally {
+			Files.write(file, original);
+		}
+	}
+
+	@Test
+	public void testCorruptIndex() throws IOException {
+		Path file = File.createTempFile("fx-serials", ".snapshot").toPath();
+		try {
+			try (FxSnapshotWriter writer = new FxSnapshotWriter(file)) {
+				for (int i = 0; i < 10; i++)
+					writer.append("person-" + i, createPerson(i));
+			}
+			long size = Files.size(file);
+			long trailer = size - 16;
+			long indexOffset;
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+				ByteBuffer buffer = ByteBuffer.allocate(8);
+				channel.read(buffer, trailer);
+				buffer.flip();
+				indexOffset = buffer.getLong();
+			}
+
+			assertCorrupt(file, trailer, (ByteBuffer) ByteBuffer.allocate(8).putLong(size).flip());
+			assertCorrupt(file, trailer, (ByteBuffer) ByteBuffer.allocate(8).putLong(-1).flip());
+			assertCorrupt(file, trailer + 8, (ByteBuffer) ByteBuffer.allocate(4).putInt(-1).flip());
+			assertCorrupt(file, trailer + 8, (ByteBuffer) ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE).flip());
+			// one more record than the index holds
+			assertCorrupt(file, trailer + 8, (ByteBuffer) ByteBuffer.allocate(4).putInt(11).flip());
+			// the first record reaches into the index
+			assertCorrupt(file, indexOffset + 8, (ByteBuffer) ByteBuffer.allocate(4).putInt(Integer.MAX_VALUE).flip());
+
+			try (FxSnapshotStore store = new FxSnapshotStore(file)) {
+				assertEquals("Person 9", ((Person) store.get("person-9")).getName());
+			}
+		} finally {
+			file.toFile().delete();
+		}
+	}
+
+	@Test
+	public void testLoadTimes() throws IOException {
+		FxClassRegistry registry = new FxClassRegistry(1, Person.class, Address.class, Contact.class);
+		Path file = File.createTempFile("fx-serials", ".snapshot").toPath();
+		try {
+			try (FxSnapshotWriter writer = new FxSnapshotWriter(file, new FxSerialsProxyBuilder(), new FXProxyCache(),
+					new DefaultBeanWrapperFactory(), registry)) {
+				for (int i = 0; i < RECORDS; i++)
+					writer.append("person-" + i, createPerson(i));
+			}
+
+			long start = System.nanoTime();
+			try (FxSnapshotStore store = new FxSnapshotStore(file, new FxSerialsProxyBuilder(), new FXProxyCache(),
+					new DefaultBeanWrapperFactory(), registry)) {
+				long opened = System.nanoTime();
+				Person personFx = store.get("person-1000");
+				long one = System.nanoTime();
+				for (int i = 0; i < store.size(); i++)
+					store.get(i);
+				long all = System.nanoTime();
+				assertEquals("Person 1000", personFx.getName());
+				System.out.println("Snapshot of " + RECORDS + " records, " + file.toFile().length() + " bytes: open "
+						+ (opened - start) / 1000 + " us, first record " + (one - opened) / 1000 + " us, all records "
+						+ (all - one) / 1000 + " us");
+			}
+		} finally {
+			file.toFile().delete();
+		}
+	}
+}
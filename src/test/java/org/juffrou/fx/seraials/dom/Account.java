@@ -0,0 +1,69 @@
+package org.juffrou.fx.seraials.dom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.juffrou.fx.serials.JFXSerializable;
+
+public class Account implements JFXSerializable {
+
+	private static final long serialVersionUID = 4406541985316254875L;
+
+	private int number;
+	private long balance;
+	private double rate;
+	private boolean active;
+	private char category;
+	private String owner;
+	private List<String> tags = new ArrayList<>();
+	private Account parent;
+
+	public int getNumber() {
+		return number;
+	}
+	public void setNumber(int number) {
+		this.number = number;
+	}
+	public long getBalance() {
+		return balance;
+	}
+	public void setBalance(long balance) {
+		this.balance = balance;
+	}
+	public double getRate() {
+		return rate;
+	}
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+	public boolean isActive() {
+		return active;
+	}
+	public void setActive(boolean active) {
+		this.active = active;
+	}
+	public char getCategory() {
+		return category;
+	}
+	public void setCategory(char category) {
+		this.category = category;
+	}
+	public String getOwner() {
+		return owner;
+	}
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+	public List<String> getTags() {
+		return tags;
+	}
+	public void setTags(List<String> tags) {
+		this.tags = tags;
+	}
+	public Account getParent() {
+		return parent;
+	}
+	public void setParent(Account parent) {
+		this.parent = parent;
+	}
+}
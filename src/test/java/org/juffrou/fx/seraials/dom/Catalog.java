@@ -0,0 +1,28 @@
+package org.juffrou.fx.seraials.dom;
+
+import java.util.List;
+
+import org.juffrou.fx.serials.FxPaged;
+import org.juffrou.fx.serials.JFXSerializable;
+
+public class Catalog implements JFXSerializable {
+
+	private static final long serialVersionUID = 7715512389641722375L;
+
+	private String name;
+	@FxPaged(pageSize = 1000, maxCachedPages = 5)
+	private List<Posting> entries;
+
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public List<Posting> getEntries() {
+		return entries;
+	}
+	public void setEntries(List<Posting> entries) {
+		this.entries = entries;
+	}
+}
@@ -0,0 +1,25 @@
+package org.juffrou.fx.seraials.dom;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.juffrou.fx.serials.FxCollectionDiff;
+import org.juffrou.fx.serials.FxCollectionDiff.Match;
+import org.juffrou.fx.serials.FxIndexed;
+import org.juffrou.fx.serials.JFXSerializable;
+
+public class IndexedJournal implements JFXSerializable {
+
+	private static final long serialVersionUID = 5541879203147765017L;
+
+	@FxCollectionDiff(match = Match.KEY, key = "number")
+	@FxIndexed("number")
+	private List<Posting> postings = new ArrayList<>();
+
+	public List<Posting> getPostings() {
+		return postings;
+	}
+	public void setPostings(List<Posting> postings) {
+		this.postings = postings;
+	}
+}
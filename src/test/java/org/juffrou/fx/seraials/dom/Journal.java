@@ -0,0 +1,50 @@
+package org.juffrou.fx.seraials.dom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.juffrou.fx.serials.FxCollectionDiff;
+import org.juffrou.fx.serials.FxCollectionDiff.Match;
+import org.juffrou.fx.serials.JFXSerializable;
+
+public class Journal implements JFXSerializable {
+
+	private static final long serialVersionUID = 2817006345216371544L;
+
+	private String name;
+	@FxCollectionDiff(match = Match.KEY, key = "number")
+	private List<Posting> postings = new ArrayList<>();
+	@FxCollectionDiff
+	private Set<String> labels = new HashSet<>();
+	@FxCollectionDiff(match = Match.IDENTITY)
+	private Map<String, Posting> postingsByOwner = new HashMap<>();
+
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public List<Posting> getPostings() {
+		return postings;
+	}
+	public void setPostings(List<Posting> postings) {
+		this.postings = postings;
+	}
+	public Set<String> getLabels() {
+		return labels;
+	}
+	public void setLabels(Set<String> labels) {
+		this.labels = labels;
+	}
+	public Map<String, Posting> getPostingsByOwner() {
+		return postingsByOwner;
+	}
+	public void setPostingsByOwner(Map<String, Posting> postingsByOwner) {
+		this.postingsByOwner = postingsByOwner;
+	}
+}
@@ -0,0 +1,50 @@
+package org.juffrou.fx.seraials.dom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.juffrou.fx.serials.FxCollectionDiff;
+import org.juffrou.fx.serials.FxCollectionDiff.Match;
+import org.juffrou.fx.serials.JFXSerializable;
+
+public class Ledger implements JFXSerializable {
+
+	private static final long serialVersionUID = -3404783562114307417L;
+
+	private String name;
+	@FxCollectionDiff(match = Match.KEY, key = "number")
+	private List<Account> accounts = new ArrayList<>();
+	@FxCollectionDiff
+	private Set<String> labels = new HashSet<>();
+	@FxCollectionDiff(match = Match.IDENTITY)
+	private Map<String, Account> accountsByOwner = new HashMap<>();
+
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public List<Account> getAccounts() {
+		return accounts;
+	}
+	public void setAccounts(List<Account> accounts) {
+		this.accounts = accounts;
+	}
+	public Set<String> getLabels() {
+		return labels;
+	}
+	public void setLabels(Set<String> labels) {
+		this.labels = labels;
+	}
+	public Map<String, Account> getAccountsByOwner() {
+		return accountsByOwner;
+	}
+	public void setAccountsByOwner(Map<String, Account> accountsByOwner) {
+		this.accountsByOwner = accountsByOwner;
+	}
+}
@@ -0,0 +1,38 @@
+package org.juffrou.fx.seraials.dom;
+
+import org.juffrou.fx.serials.JFXSerializable;
+
+public class Posting implements JFXSerializable {
+
+	private static final long serialVersionUID = -6950129003178255204L;
+
+	private int number;
+	private String owner;
+	private double amount;
+	private String status;
+
+	public int getNumber() {
+		return number;
+	}
+	public void setNumber(int number) {
+		this.number = number;
+	}
+	public String getOwner() {
+		return owner;
+	}
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+	public double getAmount() {
+		return amount;
+	}
+	public void setAmount(double amount) {
+		this.amount = amount;
+	}
+	public String getStatus() {
+		return status;
+	}
+	public void setStatus(String status) {
+		this.status = status;
+	}
+}
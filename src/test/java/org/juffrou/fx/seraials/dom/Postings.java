@@ -0,0 +1,35 @@
+package org.juffrou.fx.seraials.dom;
+
+import java.util.List;
+
+/**
+ * Test data shared by the list property test cases
+ */
+public final class Postings {
+
+	private Postings() {
+	}
+
+	public static Posting posting(int number, String owner) {
+		Posting posting = new Posting();
+		posting.setNumber(number);
+		posting.setOwner(owner);
+		return posting;
+	}
+
+	public static Posting posting(int number, double amount, String status) {
+		Posting posting = new Posting();
+		posting.setNumber(number);
+		posting.setAmount(amount);
+		posting.setStatus(status);
+		return posting;
+	}
+
+	/**
+	 * Adds postings numbered from 0 to count - 1, each owned by "Owner " and its number
+	 */
+	public static void addNumbered(List<Posting> postings, int count) {
+		for (int i = 0; i < count; i++)
+			postings.add(posting(i, "Owner " + i));
+	}
+}
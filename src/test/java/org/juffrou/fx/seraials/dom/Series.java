@@ -0,0 +1,38 @@
+package org.juffrou.fx.seraials.dom;
+
+import org.juffrou.fx.serials.JFXSerializable;
+
+public class Series implements JFXSerializable {
+
+	private static final long serialVersionUID = 2861749209371641172L;
+
+	private String name;
+	private int[] counts;
+	private float[] weights;
+	private double[] values;
+
+	public String getName() {
+		return name;
+	}
+	public void setName(String name) {
+		this.name = name;
+	}
+	public int[] getCounts() {
+		return counts;
+	}
+	public void setCounts(int[] counts) {
+		this.counts = counts;
+	}
+	public float[] getWeights() {
+		return weights;
+	}
+	public void setWeights(float[] weights) {
+		this.weights = weights;
+	}
+	public double[] getValues() {
+		return values;
+	}
+	public void setValues(double[] values) {
+		this.values = values;
+	}
+}